@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import android.os.Build;
+import android.os.Debug;
+
+import junit.framework.Assert;
+
+/**
+ * Measurements and checks shared by the benchmarks. The upper bounds which each benchmark checks
+ * are deliberately generous, so that they hold on slow emulators and only fail on regressions of
+ * several times, rather than on noise.
+ */
+final class Benchmarks {
+
+    private static final String STAT_BYTES_ALLOCATED = "art.gc.bytes-allocated";
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @return the total bytes allocated by the runtime so far, or -1 if the runtime does not
+     * report it. Includes allocations by other threads, so deltas slightly over-count.
+     */
+    static long getAllocatedBytes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return -1;
+        }
+        final String value = Debug.getRuntimeStat(STAT_BYTES_ALLOCATED);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the bytes allocated since {@code startBytes}, or -1 if either was not reported.
+     */
+    static long getAllocatedBytesSince(long startBytes) {
+        final long bytes = getAllocatedBytes();
+        return startBytes >= 0 && bytes >= 0 ? bytes - startBytes : -1;
+    }
+
+    /**
+     * Fails if {@code value} is over {@code bound}. Values of -1 were not measured, so pass.
+     */
+    static void assertWithinBound(String measurement, long value, long bound) {
+        if (value >= 0) {
+            Assert.assertTrue(measurement + " was " + value + ", over its bound of " + bound,
+                    value <= bound);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.squareup.otto.Bus;
+import com.squareup.otto.ThreadEnforcer;
+import com.uwetrottmann.tmdb.entities.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.state.mappers.MappedEntity;
+import app.philm.in.state.mappers.TmdbMovieEntityMapper;
+
+/**
+ * Compares mapping one entity at a time with {@code map()} against the batched
+ * {@code mapAll()} and {@code prepareAll()} / {@link MappedEntity#applyAll(List)}, for pages of
+ * 20, 500 and 5k TMDb movies. Each is measured both for movies which are new to the state and
+ * for movies which it already holds. Timings are written to logcat under {@link #LOG_TAG}, and
+ * the mean of each path must be within {@link #BASE_US} plus {@link #MAX_US_PER_MOVIE} for each
+ * movie. The batched paths must also not be slower than mapping one at a time by more than
+ * {@link #MAX_BATCH_SLOWDOWN_PERCENT}.
+ */
+public class EntityMapperBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = EntityMapperBenchmark.class.getSimpleName();
+
+    private static final int RUNS = 10;
+
+    private static final long BASE_US = 2000;
+    private static final long MAX_US_PER_MOVIE = 50;
+
+    /**
+     * Allows for noise on small pages, where the paths take about as long as each other.
+     */
+    private static final long MAX_BATCH_SLOWDOWN_PERCENT = 50;
+
+    public void testMap20() {
+        benchmarkMap(20);
+    }
+
+    public void testMap500() {
+        benchmarkMap(500);
+    }
+
+    public void testMap5000() {
+        benchmarkMap(5000);
+    }
+
+    private void benchmarkMap(final int count) {
+        final List<Movie> entities = createMovies(count);
+
+        long singleNewNs = 0, batchNewNs = 0, preparedNewNs = 0;
+        long singleHeldNs = 0, batchHeldNs = 0, preparedHeldNs = 0;
+
+        for (int run = 0; run < RUNS; run++) {
+            final TmdbMovieEntityMapper single = createMapper();
+            final TmdbMovieEntityMapper batch = createMapper();
+            final TmdbMovieEntityMapper prepared = createMapper();
+
+            // New to the state
+            long start = System.nanoTime();
+            final List<PhilmMovie> singleNew = mapSingly(single, entities);
+            singleNewNs += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final List<PhilmMovie> batchNew = batch.mapAll(entities);
+            batchNewNs += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final List<PhilmMovie> preparedNew = MappedEntity.applyAll(
+                    prepared.prepareAll(entities));
+            preparedNewNs += System.nanoTime() - start;
+
+            assertEquals(count, singleNew.size());
+            assertEquals(count, batchNew.size());
+            assertEquals(count, preparedNew.size());
+
+            // Already held by the state
+            start = System.nanoTime();
+            final List<PhilmMovie> singleHeld = mapSingly(single, entities);
+            singleHeldNs += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final List<PhilmMovie> batchHeld = batch.mapAll(entities);
+            batchHeldNs += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final List<PhilmMovie> preparedHeld = MappedEntity.applyAll(
+                    prepared.prepareAll(entities));
+            preparedHeldNs += System.nanoTime() - start;
+
+            assertSameItems(singleNew, singleHeld);
+            assertSameItems(batchNew, batchHeld);
+            assertSameItems(preparedNew, preparedHeld);
+        }
+
+        Log.i(LOG_TAG, "Mapped " + count + " new movies. Single: " + toMicros(singleNewNs)
+                + "us, mapAll: " + toMicros(batchNewNs)
+                + "us, applyAll: " + toMicros(preparedNewNs) + "us");
+        Log.i(LOG_TAG, "Mapped " + count + " held movies. Single: " + toMicros(singleHeldNs)
+                + "us, mapAll: " + toMicros(batchHeldNs)
+                + "us, applyAll: " + toMicros(preparedHeldNs) + "us");
+
+        final long maxUs = BASE_US + MAX_US_PER_MOVIE * count;
+        assertWithinBound("map() of " + count + " new movies", toMicros(singleNewNs), maxUs);
+        assertWithinBound("mapAll() of " + count + " new movies", toMicros(batchNewNs), maxUs);
+        assertWithinBound("applyAll() of " + count + " new movies", toMicros(preparedNewNs),
+                maxUs);
+        assertWithinBound("map() of " + count + " held movies", toMicros(singleHeldNs), maxUs);
+        assertWithinBound("mapAll() of " + count + " held movies", toMicros(batchHeldNs), maxUs);
+        assertWithinBound("applyAll() of " + count + " held movies", toMicros(preparedHeldNs),
+                maxUs);
+
+        assertNotSlower("mapAll() of " + count + " new movies", batchNewNs, singleNewNs);
+        assertNotSlower("mapAll() of " + count + " held movies", batchHeldNs, singleHeldNs);
+    }
+
+    private static void assertWithinBound(String measurement, long us, long maxUs) {
+        Benchmarks.assertWithinBound(measurement + ", us", us, maxUs);
+    }
+
+    private static void assertNotSlower(String measurement, long batchNs, long singleNs) {
+        Benchmarks.assertWithinBound(measurement + " against map(), us", toMicros(batchNs),
+                toMicros(singleNs) * (100 + MAX_BATCH_SLOWDOWN_PERCENT) / 100);
+    }
+
+    private static List<PhilmMovie> mapSingly(TmdbMovieEntityMapper mapper, List<Movie> entities) {
+        final ArrayList<PhilmMovie> items = new ArrayList<PhilmMovie>(entities.size());
+        for (int i = 0, z = entities.size(); i < z; i++) {
+            items.add(mapper.map(entities.get(i)));
+        }
+        return items;
+    }
+
+    private static void assertSameItems(List<PhilmMovie> expected, List<PhilmMovie> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0, z = expected.size(); i < z; i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static TmdbMovieEntityMapper createMapper() {
+        return new TmdbMovieEntityMapper(new ApplicationState(new Bus(ThreadEnforcer.ANY)));
+    }
+
+    private static long toMicros(long totalNs) {
+        return totalNs / RUNS / 1000;
+    }
+
+    private static List<Movie> createMovies(final int count) {
+        final ArrayList<Movie> movies = new ArrayList<Movie>(count);
+        for (int i = 0; i < count; i++) {
+            final Movie movie = new Movie();
+            movie.id = i + 1;
+            movie.imdb_id = "tt" + (1000000 + i);
+            movie.title = "Movie " + i;
+            movies.add(movie);
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import android.os.Build;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.jakewharton.trakt.entities.Movie;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmMovieTable;
+import app.philm.in.network.BackgroundCallRunnable;
+import app.philm.in.network.NetworkCallRunnable;
+import app.philm.in.util.BackgroundExecutor;
+import app.philm.in.util.Logger;
+
+/**
+ * Benchmarks the {@link DatabaseHelper} operations used for the library against synthetic
+ * libraries of 100, 1k, 10k and 50k movies, on an in-memory database. For each operation it
+ * reports the throughput, mean and p95 latency, and bytes allocated per call, and fails if the
+ * p95 latency or allocations are over the operation's {@link Bound}.
+ * <p>
+ * Results are logged under {@link #LOG_TAG} and appended to {@link #RESULTS_FILE_NAME} in the
+ * app's files directory, one CSV row per operation and size, so that runs can be pulled from the
+ * device and compared to spot regressions.
+ */
+public class PhilmDatabaseBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = PhilmDatabaseBenchmark.class.getSimpleName();
+
+    static final String RESULTS_FILE_NAME = "database-benchmark.csv";
+
+    private static final int PAGE_SIZE = 250;
+
+    /**
+     * Roughly how many rows each operation processes across all of its runs, so that small
+     * libraries get enough runs for a meaningful p95. Never fewer than {@link #MIN_RUNS}.
+     */
+    private static final int ROWS_PER_OPERATION = 20000;
+    private static final int MIN_RUNS = 3;
+    private static final int MAX_RUNS = 50;
+
+    private static final Bound BOUND_PUT = new Bound(200, 8 * 1024);
+    private static final Bound BOUND_GET_LIBRARY = new Bound(200, 16 * 1024);
+    private static final Bound BOUND_GET_LIBRARY_PAGES = new Bound(300, 16 * 1024);
+    private static final Bound BOUND_MERGE = new Bound(300, 16 * 1024);
+    private static final Bound BOUND_DELETE = new Bound(200, 8 * 1024);
+
+    private PhilmSQLiteOpenHelper mHelper;
+    private AsyncDatabaseHelperImpl mAsyncHelper;
+    private final List<String> mResults = new ArrayList<String>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mHelper = new PhilmSQLiteOpenHelper(getContext(), null);
+        mAsyncHelper = new AsyncDatabaseHelperImpl(new SynchronousExecutor(),
+                new SynchronousExecutor(), mHelper, new NoOpLogger());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mHelper.close();
+        writeResults();
+        super.tearDown();
+    }
+
+    public void test100() {
+        benchmark(100);
+    }
+
+    public void test1000() {
+        benchmark(1000);
+    }
+
+    public void test10000() {
+        benchmark(10000);
+    }
+
+    public void test50000() {
+        benchmark(50000);
+    }
+
+    private void benchmark(final int size) {
+        final List<PhilmMovie> movies = createMovies(size, 0);
+        final List<PhilmMovie> changedMovies = createMovies(size, 1);
+        final int runs = Math.min(MAX_RUNS, Math.max(MIN_RUNS, ROWS_PER_OPERATION / size));
+
+        final Result put = new Result("put", size, runs, BOUND_PUT);
+        final Result getLibrary = new Result("getLibrary", size, runs, BOUND_GET_LIBRARY);
+        final Result getLibraryPages = new Result("getLibraryPages", size, runs,
+                BOUND_GET_LIBRARY_PAGES);
+        final Result merge = new Result("mergeLibrary", size, runs, BOUND_MERGE);
+        final Result delete = new Result("delete", size, runs, BOUND_DELETE);
+
+        for (int i = 0; i < runs; i++) {
+            mHelper.deleteAllPhilmMovies();
+
+            put.start();
+            mHelper.put(movies);
+            put.stop(size);
+
+            getLibrary.start();
+            final List<PhilmMovie> library = mHelper.getLibrary();
+            getLibrary.stop(library.size());
+            assertEquals(size, library.size());
+
+            getLibraryPages.start();
+            final int pagedRows = readLibraryPages();
+            getLibraryPages.stop(pagedRows);
+            assertEquals(size, pagedRows);
+
+            // One in ten movies differs, so the merge writes a tenth of the library
+            merge.start();
+            mAsyncHelper.mergeLibrary(changedMovies);
+            merge.stop(size);
+
+            delete.start();
+            mHelper.delete(changedMovies);
+            delete.stop(size);
+            assertEquals(0, mHelper.getLibrary().size());
+        }
+
+        report(put);
+        report(getLibrary);
+        report(getLibraryPages);
+        report(merge);
+        report(delete);
+
+        put.assertWithinBound();
+        getLibrary.assertWithinBound();
+        getLibraryPages.assertWithinBound();
+        merge.assertWithinBound();
+        delete.assertWithinBound();
+    }
+
+    private int readLibraryPages() {
+        int rows = 0;
+        List<PhilmMovie> page = mHelper.getLibrary(null, 0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            rows += page.size();
+            final PhilmMovie last = page.get(page.size() - 1);
+            page = mHelper.getLibrary(PhilmMovieTable.getSortKey(last), last.getDbId(),
+                    PAGE_SIZE);
+        }
+        return rows;
+    }
+
+    /**
+     * @param variant movies of different variants have the same ids, but every tenth one has a
+     *                different play count.
+     */
+    private static List<PhilmMovie> createMovies(final int count, final int variant) {
+        final ArrayList<PhilmMovie> movies = new ArrayList<PhilmMovie>(count);
+        for (int i = 0; i < count; i++) {
+            final Movie traktMovie = new Movie();
+            traktMovie.title = "Movie " + Integer.toString(i * 7919 % count, 36);
+            traktMovie.overview = "Overview of movie " + i;
+            traktMovie.imdb_id = "tt" + (1000000 + i);
+            traktMovie.tmdbId = i + 1;
+            traktMovie.year = 1950 + (i % 65);
+            traktMovie.inCollection = true;
+            traktMovie.watched = i % 3 == 0;
+            traktMovie.inWatchlist = i % 5 == 0;
+            traktMovie.plays = i % 10 == 0 ? variant : 0;
+
+            final PhilmMovie movie = new PhilmMovie();
+            movie.setFromMovie(traktMovie);
+            movies.add(movie);
+        }
+        return movies;
+    }
+
+    private void report(Result result) {
+        Log.i(LOG_TAG, result.toString());
+        mResults.add(result.toCsv());
+    }
+
+    private void writeResults() throws IOException {
+        if (mResults.isEmpty()) {
+            return;
+        }
+
+        final File file = new File(getContext().getFilesDir(), RESULTS_FILE_NAME);
+        final boolean writeHeader = !file.exists();
+        final PrintWriter writer = new PrintWriter(new FileWriter(file, true));
+        try {
+            if (writeHeader) {
+                writer.println("time,device,sdk,size,operation,runs,rowsPerSecond,meanMs,p95Ms,"
+                        + "allocBytesPerRun");
+            }
+            final String prefix = System.currentTimeMillis() + "," + Build.MODEL + ","
+                    + Build.VERSION.SDK_INT + ",";
+            for (String row : mResults) {
+                writer.println(prefix + row);
+            }
+        } finally {
+            writer.close();
+        }
+        Log.i(LOG_TAG, "Results appended to " + file);
+    }
+
+    /**
+     * The upper bounds of an operation, which grow with the size of the library. Small libraries
+     * are allowed a fixed overhead on top.
+     */
+    private static class Bound {
+        static final long BASE_MS = 100;
+        static final long BASE_ALLOC_BYTES = 1024 * 1024;
+
+        final long p95UsPerRow;
+        final long allocBytesPerRow;
+
+        Bound(long p95UsPerRow, long allocBytesPerRow) {
+            this.p95UsPerRow = p95UsPerRow;
+            this.allocBytesPerRow = allocBytesPerRow;
+        }
+
+        long getMaxP95Ms(int size) {
+            return BASE_MS + p95UsPerRow * size / 1000;
+        }
+
+        long getMaxAllocBytes(int size) {
+            return BASE_ALLOC_BYTES + allocBytesPerRow * size;
+        }
+    }
+
+    private static class Result {
+        final String operation;
+        final int size;
+        final Bound bound;
+        final long[] durationsNs;
+        int runs;
+        long rows;
+        long totalNs;
+        long allocBytes;
+        boolean allocMeasured = true;
+
+        long startNs;
+        long startAllocBytes;
+
+        Result(String operation, int size, int runs, Bound bound) {
+            this.operation = operation;
+            this.size = size;
+            this.bound = bound;
+            durationsNs = new long[runs];
+        }
+
+        void start() {
+            startAllocBytes = Benchmarks.getAllocatedBytes();
+            startNs = System.nanoTime();
+        }
+
+        void stop(int rows) {
+            final long durationNs = System.nanoTime() - startNs;
+            final long runAllocBytes = Benchmarks.getAllocatedBytesSince(startAllocBytes);
+
+            durationsNs[runs++] = durationNs;
+            this.rows += rows;
+            totalNs += durationNs;
+            if (runAllocBytes >= 0) {
+                allocBytes += runAllocBytes;
+            } else {
+                allocMeasured = false;
+            }
+        }
+
+        void assertWithinBound() {
+            Benchmarks.assertWithinBound(operation + " x" + size + " p95 ms",
+                    (long) getP95Ms(), bound.getMaxP95Ms(size));
+            Benchmarks.assertWithinBound(operation + " x" + size + " alloc bytes per run",
+                    getAllocBytesPerRun(), bound.getMaxAllocBytes(size));
+        }
+
+        long getRowsPerSecond() {
+            return totalNs > 0 ? rows * 1000000000L / totalNs : 0;
+        }
+
+        float getMeanMs() {
+            return runs > 0 ? totalNs / runs / 1000000f : 0;
+        }
+
+        float getP95Ms() {
+            if (runs == 0) {
+                return 0;
+            }
+            final long[] sorted = Arrays.copyOf(durationsNs, runs);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(runs * 0.95) - 1] / 1000000f;
+        }
+
+        /**
+         * @return -1 if allocations are not reported on this device.
+         */
+        long getAllocBytesPerRun() {
+            if (!allocMeasured) {
+                return -1;
+            }
+            return runs > 0 ? allocBytes / runs : 0;
+        }
+
+        String toCsv() {
+            return size + "," + operation + "," + runs + "," + getRowsPerSecond() + ","
+                    + getMeanMs() + "," + getP95Ms() + "," + getAllocBytesPerRun();
+        }
+
+        @Override
+        public String toString() {
+            return operation + " x" + size + ": runs=" + runs
+                    + ", rows/s=" + getRowsPerSecond()
+                    + ", mean=" + getMeanMs() + "ms"
+                    + ", p95=" + getP95Ms() + "ms"
+                    + ", alloc=" + getAllocBytesPerRun() + "B/run";
+        }
+    }
+
+    /**
+     * Runs database calls on the calling thread, so that they can be timed directly.
+     */
+    private static class SynchronousExecutor implements BackgroundExecutor {
+        @Override
+        public <R> void execute(NetworkCallRunnable<R> runnable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <R> void execute(BackgroundCallRunnable<R> runnable) {
+            runnable.preExecute();
+            runnable.postExecute(runnable.runAsync());
+        }
+    }
+
+    private static class NoOpLogger implements Logger {
+        @Override
+        public void i(String tag, String message) {
+        }
+
+        @Override
+        public void d(String tag, String message) {
+        }
+
+        @Override
+        public void e(String tag, String message) {
+        }
+    }
+}
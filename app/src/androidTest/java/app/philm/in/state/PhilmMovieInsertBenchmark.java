@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.jakewharton.trakt.entities.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.philm.in.model.PhilmMovie;
+
+import static nl.qbusict.cupboard.CupboardFactory.cupboard;
+
+/**
+ * Compares the batched, compiled statement insert in {@link PhilmSQLiteOpenHelper#put(java.util.Collection)}
+ * with cupboard's reflective put of one movie at a time, for libraries of 100, 1k and 10k movies.
+ * Timings are written to logcat under {@link #LOG_TAG}. Fails if the batched insert is slower than
+ * cupboard's, or over {@link #MAX_BATCHED_US_PER_MOVIE} plus {@link #BASE_MS}.
+ */
+public class PhilmMovieInsertBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = PhilmMovieInsertBenchmark.class.getSimpleName();
+
+    private static final long BASE_MS = 100;
+    private static final long MAX_BATCHED_US_PER_MOVIE = 200;
+
+    private PhilmSQLiteOpenHelper mHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mHelper = new PhilmSQLiteOpenHelper(getContext(), null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mHelper.close();
+        super.tearDown();
+    }
+
+    public void testInsert100() {
+        benchmarkInsert(100);
+    }
+
+    public void testInsert1000() {
+        benchmarkInsert(1000);
+    }
+
+    public void testInsert10000() {
+        benchmarkInsert(10000);
+    }
+
+    private void benchmarkInsert(final int count) {
+        final SQLiteDatabase db = mHelper.getWritableDatabase();
+
+        long start = SystemClock.elapsedRealtime();
+        mHelper.put(createMovies(count));
+        final long batchedMs = SystemClock.elapsedRealtime() - start;
+        assertEquals(count, countMovies(db));
+
+        mHelper.deleteAllPhilmMovies(db);
+
+        start = SystemClock.elapsedRealtime();
+        for (PhilmMovie movie : createMovies(count)) {
+            cupboard().withDatabase(db).put(movie);
+        }
+        final long cupboardMs = SystemClock.elapsedRealtime() - start;
+        assertEquals(count, countMovies(db));
+
+        Log.i(LOG_TAG, "Inserted " + count + " movies. Batched: " + batchedMs
+                + "ms, cupboard: " + cupboardMs + "ms");
+
+        Benchmarks.assertWithinBound("Batched insert of " + count + " movies, ms", batchedMs,
+                BASE_MS + MAX_BATCHED_US_PER_MOVIE * count / 1000);
+        Benchmarks.assertWithinBound("Batched insert of " + count + " movies against cupboard, ms",
+                batchedMs, cupboardMs);
+    }
+
+    private static List<PhilmMovie> createMovies(final int count) {
+        final ArrayList<PhilmMovie> movies = new ArrayList<PhilmMovie>(count);
+        for (int i = 0; i < count; i++) {
+            final Movie traktMovie = new Movie();
+            traktMovie.title = "Movie " + i;
+            traktMovie.imdb_id = "tt" + (1000000 + i);
+            traktMovie.tmdbId = i + 1;
+            traktMovie.year = 1950 + (i % 65);
+            traktMovie.inCollection = true;
+
+            final PhilmMovie movie = new PhilmMovie();
+            movie.setFromMovie(traktMovie);
+            movies.add(movie);
+        }
+        return movies;
+    }
+
+    private static int countMovies(SQLiteDatabase db) {
+        final Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM PhilmMovie", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
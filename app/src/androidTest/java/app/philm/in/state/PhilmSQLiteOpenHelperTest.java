@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.jakewharton.trakt.entities.Movie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmMovieTable;
+
+/**
+ * Checks that the library and watchlist queries are answered from an index rather than by
+ * scanning the movie table, and that the library is paged in the app's sort order.
+ */
+public class PhilmSQLiteOpenHelperTest extends AndroidTestCase {
+
+    private PhilmSQLiteOpenHelper mHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mHelper = new PhilmSQLiteOpenHelper(getContext(), null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mHelper.close();
+        super.tearDown();
+    }
+
+    public void testLibraryQueryUsesIndex() {
+        assertUsesIndex(PhilmSQLiteOpenHelper.SELECTION_LIBRARY, "idx_movie_library");
+    }
+
+    public void testWatchlistQueryUsesIndex() {
+        assertUsesIndex(PhilmSQLiteOpenHelper.SELECTION_WATCHLIST, "idx_movie_in_watchlist");
+    }
+
+    public void testLibraryPagesMatchSortOrder() {
+        final String[] titles = {"apple", "Apple", "\u00c4pfel", "banana", "\u00c9clair",
+                "eclair", "zebra", "Zoo", "12 Angry Men", null};
+        final List<PhilmMovie> movies = new ArrayList<PhilmMovie>();
+        for (int i = 0; i < 100; i++) {
+            final Movie traktMovie = new Movie();
+            traktMovie.title = titles[i % titles.length];
+            traktMovie.imdb_id = "tt" + (1000000 + i);
+            traktMovie.inCollection = true;
+
+            final PhilmMovie movie = new PhilmMovie();
+            movie.setFromMovie(traktMovie);
+            movies.add(movie);
+        }
+        mHelper.put(movies);
+
+        final List<PhilmMovie> paged = new ArrayList<PhilmMovie>();
+        List<PhilmMovie> page = mHelper.getLibrary(null, 0, 7);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            final PhilmMovie last = page.get(page.size() - 1);
+            page = mHelper.getLibrary(PhilmMovieTable.getSortKey(last), last.getDbId(), 7);
+        }
+
+        assertEquals(movies.size(), paged.size());
+        final List<PhilmMovie> sorted = new ArrayList<PhilmMovie>(paged);
+        Collections.sort(sorted, PhilmMovie.COMPARATOR_SORT_TITLE);
+        for (int i = 0; i < paged.size(); i++) {
+            assertEquals(0, PhilmMovie.COMPARATOR_SORT_TITLE.compare(sorted.get(i), paged.get(i)));
+        }
+    }
+
+    private void assertUsesIndex(String selection, String index) {
+        final SQLiteDatabase db = mHelper.getReadableDatabase();
+        final Cursor cursor = db.rawQuery(
+                "EXPLAIN QUERY PLAN SELECT * FROM PhilmMovie WHERE " + selection, null);
+
+        try {
+            final int detailColumn = cursor.getColumnIndexOrThrow("detail");
+            boolean usesIndex = false;
+
+            while (cursor.moveToNext()) {
+                final String detail = cursor.getString(detailColumn);
+                // Older versions of SQLite say "SCAN TABLE", newer ones just "SCAN"
+                assertFalse("Table scan for [" + selection + "]: " + detail,
+                        detail.startsWith("SCAN"));
+                usesIndex |= detail.contains(index);
+            }
+
+            assertTrue("[" + selection + "] does not use " + index, usesIndex);
+        } finally {
+            cursor.close();
+        }
+    }
+}
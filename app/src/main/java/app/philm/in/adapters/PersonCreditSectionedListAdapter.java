@@ -51,7 +51,7 @@ public class PersonCreditSectionedListAdapter
         PhilmPersonCredit credit = item.getListItem();
 
         final TextView nameTextView = (TextView) view.findViewById(R.id.textview_title);
-        nameTextView.setText(credit.getTitle());
+        nameTextView.setText(credit.getMovie().getTitle());
 
         final TextView characterTextView = (TextView) view.findViewById(R.id.textview_subtitle_1);
         if (TextUtils.isEmpty(credit.getJob())) {
@@ -62,11 +62,11 @@ public class PersonCreditSectionedListAdapter
         }
 
         final TextView release = (TextView) view.findViewById(R.id.textview_subtitle_2);
-        mDate.setTime(credit.getReleaseDate());
+        mDate.setTime(credit.getMovie().getReleasedTime());
         release.setText(mActivity.getString(R.string.movie_release_date,
                 mMediumDateFormatter.format(mDate)));
 
         final PhilmImageView imageView = (PhilmImageView) view.findViewById(R.id.imageview_poster);
-        imageView.loadPoster(credit);
+        imageView.loadPoster(credit.getMovie());
     }
 }
@@ -309,8 +309,8 @@ public class PersonDetailFragment extends BaseDetailFragment implements MovieCon
                 public void onClick(View view) {
                     if (hasCallbacks()) {
                         PhilmPersonCredit credit = (PhilmPersonCredit) view.getTag();
-                        if (credit != null && credit != null) {
-                            getCallbacks().showMovieDetail(credit,
+                        if (credit != null) {
+                            getCallbacks().showMovieDetail(credit.getMovie(),
                                     ActivityTransitions.scaleUpAnimation(view));
                         }
                     }
@@ -336,8 +336,8 @@ public class PersonDetailFragment extends BaseDetailFragment implements MovieCon
                 public void onClick(View view) {
                     if (hasCallbacks()) {
                         PhilmPersonCredit credit = (PhilmPersonCredit) view.getTag();
-                        if (credit != null && credit != null) {
-                            getCallbacks().showMovieDetail(credit,
+                        if (credit != null) {
+                            getCallbacks().showMovieDetail(credit.getMovie(),
                                     ActivityTransitions.scaleUpAnimation(view));
                         }
                     }
@@ -382,11 +382,11 @@ public class PersonDetailFragment extends BaseDetailFragment implements MovieCon
             final PhilmPersonCredit credit = getItem(position);
 
             final TextView title = (TextView) view.findViewById(R.id.textview_title);
-            title.setText(credit.getTitle());
+            title.setText(credit.getMovie().getTitle());
 
             final PhilmImageView imageView =
                     (PhilmImageView) view.findViewById(R.id.imageview_poster);
-            imageView.loadPoster(credit);
+            imageView.loadPoster(credit.getMovie());
 
             TextView subTitle = (TextView) view.findViewById(R.id.textview_subtitle_1);
             if (!TextUtils.isEmpty(credit.getJob())) {
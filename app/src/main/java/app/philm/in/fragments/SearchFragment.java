@@ -21,7 +21,6 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.ResultReceiver;
 import android.support.v7.widget.SearchView;
-import android.text.TextUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -105,8 +104,8 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
 
                 @Override
                 public boolean onQueryTextChange(String query) {
-                    if (TextUtils.isEmpty(query) && hasCallbacks()) {
-                        getCallbacks().clearSearch();
+                    if (hasCallbacks()) {
+                        getCallbacks().onSearchQueryChanged(query);
                     }
                     return false;
                 }
@@ -137,7 +136,11 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
 
     private void setQuery(String query) {
         if (mSearchView != null) {
-            mSearchView.setQuery(query, false);
+            // Results arrive while the user is typing, so don't reset the query they are editing
+            final String displayedQuery = mSearchView.getQuery().toString().trim();
+            if (!displayedQuery.equals(query != null ? query : "")) {
+                mSearchView.setQuery(query, false);
+            }
             mQueryToDisplay = null;
         } else {
             mQueryToDisplay = query;
@@ -24,6 +24,8 @@ import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.Toast;
 
+import java.util.List;
+
 import app.philm.in.Constants;
 import app.philm.in.PhilmApplication;
 import app.philm.in.R;
@@ -48,6 +50,8 @@ public abstract class BaseMovieControllerListFragment<E extends AbsListView, T>
     private boolean mLoadMoreIsAtBottom;
     private int mLoadMoreRequestedItemCount;
 
+    private boolean mLoadPreviousIsAtTop;
+
     @Override
     public void onViewCreated(View view, Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
@@ -135,6 +139,11 @@ public abstract class BaseMovieControllerListFragment<E extends AbsListView, T>
                 mLoadMoreIsAtBottom = false;
             }
         }
+        if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_IDLE && mLoadPreviousIsAtTop) {
+            if (onScrolledToTop()) {
+                mLoadPreviousIsAtTop = false;
+            }
+        }
     }
 
     @Override
@@ -142,6 +151,7 @@ public abstract class BaseMovieControllerListFragment<E extends AbsListView, T>
             int totalItemCount) {
         mLoadMoreIsAtBottom = totalItemCount > mLoadMoreRequestedItemCount
                 && firstVisibleItem + visibleItemCount == totalItemCount;
+        mLoadPreviousIsAtTop = totalItemCount > 0 && firstVisibleItem == 0;
     }
 
     protected boolean onScrolledToBottom() {
@@ -155,6 +165,46 @@ public abstract class BaseMovieControllerListFragment<E extends AbsListView, T>
         return false;
     }
 
+    protected boolean onScrolledToTop() {
+        if (hasCallbacks()) {
+            getCallbacks().onScrolledToTop();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the item which is currently shown at the top of the list, or null if the list is
+     * empty.
+     */
+    protected final Object getFirstVisibleItem() {
+        final E listView = getListView();
+        final int position = listView.getFirstVisiblePosition();
+        if (position != AdapterView.INVALID_POSITION && position < listView.getCount()) {
+            return listView.getItemAtPosition(position);
+        }
+        return null;
+    }
+
+    /**
+     * Scrolls the list so that {@code item} is back at the top, if items have been added or
+     * removed before it.
+     *
+     * @return true if the list was scrolled.
+     */
+    protected final boolean keepItemAtTop(Object item, List<?> items) {
+        if (item == null || items == null) {
+            return false;
+        }
+        final int position = items.indexOf(item);
+        final E listView = getListView();
+        if (position > 0 && position != listView.getFirstVisiblePosition()) {
+            listView.setSelection(position);
+            return true;
+        }
+        return false;
+    }
+
     protected final void cancelToast() {
         if (mToast != null) {
             mToast.cancel();
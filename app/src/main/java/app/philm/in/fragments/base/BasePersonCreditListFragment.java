@@ -53,7 +53,8 @@ public abstract class BasePersonCreditListFragment
             if (item.getListType() == ListItem.TYPE_ITEM) {
                 PhilmPersonCredit credit = item.getListItem();
                 if (credit != null) {
-                    getCallbacks().showMovieDetail(credit, ActivityTransitions.scaleUpAnimation(v));
+                    getCallbacks().showMovieDetail(credit.getMovie(),
+                            ActivityTransitions.scaleUpAnimation(v));
                 }
             }
         }
@@ -48,6 +48,9 @@ public abstract class BasePhilmMovieListFragment<E extends AbsListView>
 
     private boolean mFiltersItemVisible;
 
+    private MovieController.MovieSortOrder mSortOrder;
+    private boolean mSortItemVisible;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -63,6 +66,11 @@ public abstract class BasePhilmMovieListFragment<E extends AbsListView>
         if (item != null && item.isVisible() != mFiltersItemVisible) {
             item.setVisible(mFiltersItemVisible);
         }
+
+        MenuItem sortItem = menu.findItem(R.id.menu_sort);
+        if (sortItem != null && sortItem.isVisible() != mSortItemVisible) {
+            sortItem.setVisible(mSortItemVisible);
+        }
     }
 
     @Override
@@ -87,6 +95,13 @@ public abstract class BasePhilmMovieListFragment<E extends AbsListView>
                 }
             }
         }
+
+        if (mSortItemVisible && mSortOrder != null) {
+            MenuItem item = menu.findItem(getSortOrderItemId(mSortOrder));
+            if (item != null) {
+                item.setChecked(true);
+            }
+        }
     }
 
     @Override
@@ -109,6 +124,21 @@ public abstract class BasePhilmMovieListFragment<E extends AbsListView>
                     getCallbacks().clearFilters();
                 }
                 return true;
+            case R.id.menu_sort_title:
+                updateSortOrder(MovieController.MovieSortOrder.TITLE);
+                return true;
+            case R.id.menu_sort_rating:
+                updateSortOrder(MovieController.MovieSortOrder.RATING);
+                return true;
+            case R.id.menu_sort_release_date:
+                updateSortOrder(MovieController.MovieSortOrder.RELEASE_DATE);
+                return true;
+            case R.id.menu_sort_runtime:
+                updateSortOrder(MovieController.MovieSortOrder.RUNTIME);
+                return true;
+            case R.id.menu_sort_plays:
+                updateSortOrder(MovieController.MovieSortOrder.PLAYS);
+                return true;
             case R.id.menu_refresh:
                 if (hasCallbacks()) {
                     getCallbacks().refresh();
@@ -132,6 +162,44 @@ public abstract class BasePhilmMovieListFragment<E extends AbsListView>
         getActivity().invalidateOptionsMenu();
     }
 
+    @Override
+    public void setSortOrdersVisibility(boolean visible) {
+        if (mSortItemVisible != visible) {
+            mSortItemVisible = visible;
+            getActivity().invalidateOptionsMenu();
+        }
+    }
+
+    @Override
+    public void showSortOrder(MovieController.MovieSortOrder sortOrder) {
+        if (mSortOrder != sortOrder) {
+            mSortOrder = sortOrder;
+            getActivity().invalidateOptionsMenu();
+        }
+    }
+
+    private void updateSortOrder(MovieController.MovieSortOrder sortOrder) {
+        if (hasCallbacks()) {
+            getCallbacks().setSortOrder(sortOrder);
+        }
+    }
+
+    private static int getSortOrderItemId(MovieController.MovieSortOrder sortOrder) {
+        switch (sortOrder) {
+            case RATING:
+                return R.id.menu_sort_rating;
+            case RELEASE_DATE:
+                return R.id.menu_sort_release_date;
+            case RUNTIME:
+                return R.id.menu_sort_runtime;
+            case PLAYS:
+                return R.id.menu_sort_plays;
+            case TITLE:
+            default:
+                return R.id.menu_sort_title;
+        }
+    }
+
     private void updateFilterState(MovieController.MovieFilter filter, boolean checked) {
         if (hasCallbacks()) {
             if (checked) {
@@ -63,8 +63,17 @@ public abstract class MovieGridFragment extends BasePhilmMovieListFragment<GridV
 
     @Override
     public void setItems(List<ListItem<PhilmMovie>> items) {
+        // Pages can be added and evicted before the visible items, so keep them in place
+        final Object firstVisibleItem = getFirstVisibleItem();
         mMovieGridAdapter.setItems(items);
-        moveListViewToSavedPositions();
+        if (!keepItemAtTop(firstVisibleItem, items)) {
+            moveListViewToSavedPositions();
+        }
+    }
+
+    @Override
+    public void notifyItemsChanged() {
+        mMovieGridAdapter.notifyDataSetChanged();
     }
 
     @Override
@@ -59,6 +59,11 @@ public abstract class MovieListFragment extends BasePhilmMovieListFragment<ListV
         mMovieListAdapter.setItems(items);
     }
 
+    @Override
+    public void notifyItemsChanged() {
+        mMovieListAdapter.notifyDataSetChanged();
+    }
+
     @Override
     public String getRequestParameter() {
         return null;
@@ -47,9 +47,11 @@ import app.philm.in.tasks.FetchTraktWatchingRunnable;
 import app.philm.in.tasks.FetchTraktWatchlistRunnable;
 import app.philm.in.tasks.MarkTraktMovieSeenRunnable;
 import app.philm.in.tasks.MarkTraktMovieUnseenRunnable;
+import app.philm.in.tasks.ReadPersistedMoviesStateRunnable;
 import app.philm.in.tasks.RemoveFromTraktCollectionRunnable;
 import app.philm.in.tasks.RemoveFromTraktWatchlistRunnable;
 import app.philm.in.tasks.SubmitTraktMovieRatingRunnable;
+import app.philm.in.tasks.WritePersistedMoviesStateRunnable;
 import dagger.Module;
 
 @Module(
@@ -83,7 +85,9 @@ import dagger.Module;
                 FetchTmdbPersonCreditsRunnable.class,
                 FetchTmdbPersonRunnable.class,
                 FetchTmdbSearchPeopleRunnable.class,
-                FetchTmdbMovieImagesRunnable.class
+                FetchTmdbMovieImagesRunnable.class,
+                ReadPersistedMoviesStateRunnable.class,
+                WritePersistedMoviesStateRunnable.class
         },
         includes = {
                 PersistenceProvider.class,
@@ -25,17 +25,21 @@ import java.io.File;
 
 import javax.inject.Singleton;
 
+import app.philm.in.Constants;
 import app.philm.in.qualifiers.ApplicationContext;
 import app.philm.in.qualifiers.FilesDirectory;
 import app.philm.in.qualifiers.ForDatabase;
+import app.philm.in.qualifiers.ForDatabaseReads;
 import app.philm.in.state.AsyncDatabaseHelper;
 import app.philm.in.state.AsyncDatabaseHelperImpl;
 import app.philm.in.state.DatabaseHelper;
+import app.philm.in.state.InstrumentedDatabaseHelper;
 import app.philm.in.state.PhilmSQLiteOpenHelper;
 import app.philm.in.util.AndroidFileManager;
 import app.philm.in.util.AndroidPhilmPreferences;
 import app.philm.in.util.BackgroundExecutor;
 import app.philm.in.util.FileManager;
+import app.philm.in.util.Logger;
 import app.philm.in.util.PhilmPreferences;
 import dagger.Module;
 import dagger.Provides;
@@ -55,15 +59,21 @@ public class PersistenceProvider {
     }
 
     @Provides @Singleton
-    public DatabaseHelper getDatabaseHelper(@ApplicationContext Context context) {
-        return new PhilmSQLiteOpenHelper(context);
+    public DatabaseHelper getDatabaseHelper(@ApplicationContext Context context, Logger logger) {
+        final DatabaseHelper dbHelper = new PhilmSQLiteOpenHelper(context);
+        if (Constants.DEBUG) {
+            return new InstrumentedDatabaseHelper(dbHelper, logger);
+        }
+        return dbHelper;
     }
 
     @Provides @Singleton
     public AsyncDatabaseHelper getAsyncDatabaseHelper(
             @ForDatabase BackgroundExecutor executor,
-            DatabaseHelper databaseHelper) {
-        return new AsyncDatabaseHelperImpl(executor, databaseHelper);
+            @ForDatabaseReads BackgroundExecutor readExecutor,
+            DatabaseHelper databaseHelper,
+            Logger logger) {
+        return new AsyncDatabaseHelperImpl(executor, readExecutor, databaseHelper, logger);
     }
 
     @Provides @Singleton
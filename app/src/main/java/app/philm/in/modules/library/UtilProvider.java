@@ -27,12 +27,15 @@ import javax.inject.Singleton;
 import app.philm.in.AndroidStringFetcher;
 import app.philm.in.qualifiers.ApplicationContext;
 import app.philm.in.qualifiers.ForDatabase;
+import app.philm.in.qualifiers.ForDatabaseReads;
 import app.philm.in.qualifiers.GeneralPurpose;
 import app.philm.in.util.AndroidCountryProvider;
+import app.philm.in.util.AndroidImagePrefetcher;
 import app.philm.in.util.AndroidLogger;
 import app.philm.in.util.BackgroundExecutor;
 import app.philm.in.util.CountryProvider;
 import app.philm.in.util.ImageHelper;
+import app.philm.in.util.ImagePrefetcher;
 import app.philm.in.util.Logger;
 import app.philm.in.util.PhilmBackgroundExecutor;
 import app.philm.in.util.StringFetcher;
@@ -60,6 +63,12 @@ public class UtilProvider {
         return new ImageHelper();
     }
 
+    @Provides @Singleton
+    public ImagePrefetcher provideImagePrefetcher(@ApplicationContext Context context,
+            ImageHelper imageHelper) {
+        return new AndroidImagePrefetcher(context, imageHelper);
+    }
+
     @Provides @Singleton
     public CountryProvider provideCountryProvider(@ApplicationContext Context context) {
         return new AndroidCountryProvider(context);
@@ -76,6 +85,12 @@ public class UtilProvider {
         return new PhilmBackgroundExecutor(Executors.newSingleThreadExecutor());
     }
 
+    @Provides @Singleton @ForDatabaseReads
+    public BackgroundExecutor provideDatabaseReadThreadExecutor() {
+        // The database uses write-ahead logging, so reads do not need to wait for writes
+        return new PhilmBackgroundExecutor(Executors.newFixedThreadPool(2));
+    }
+
     @Provides @Singleton
     public StringFetcher provideStringFetcher(@ApplicationContext Context context) {
         return new AndroidStringFetcher(context);
@@ -18,20 +18,36 @@ package app.philm.in.state;
 
 import static nl.qbusict.cupboard.CupboardFactory.cupboard;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.os.Build;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import com.google.common.base.Preconditions;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import app.philm.in.Constants;
 import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmMovieCredit;
+import app.philm.in.model.PhilmMovieDetailTables;
+import app.philm.in.model.PhilmMovieTable;
+import app.philm.in.model.PhilmMovieVideo;
+import app.philm.in.model.PhilmPerson;
+import app.philm.in.model.PhilmSearchIndex;
 import app.philm.in.model.PhilmUserProfile;
-import nl.qbusict.cupboard.DatabaseCompartment;
+import app.philm.in.model.RowBinder;
+import app.philm.in.model.RowReader;
 import nl.qbusict.cupboard.QueryResultIterable;
 
 public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseHelper {
@@ -39,9 +55,61 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
     private static String LOG_TAG = PhilmSQLiteOpenHelper.class.getSimpleName();
 
     private static final String DATABASE_NAME = "philm.db";
-    private static final int DATABASE_VERSION = 29;
+    private static final int DATABASE_VERSION = 36;
     private static final int LAST_DATABASE_NUKE_VERSION = 28;
 
+    /**
+     * In the library if in the collection or watched. Written so that both sides of the OR start
+     * with traktInCollection, letting SQLite answer each from {@code idx_movie_library}.
+     */
+    static final String SELECTION_LIBRARY = "traktInCollection = 1"
+            + " OR (traktInCollection = 0 AND traktWatched = 1)";
+    static final String SELECTION_WATCHLIST = "traktInWatchlist = 1";
+
+    /**
+     * Indexes for the predicates used by {@link #getLibrary()}, {@link #getWatchlist()} and the
+     * id lookups. The app's minSdkVersion is 15, and partial indexes need SQLite 3.8.0 (API 21),
+     * so the library uses a composite index on both of its flags.
+     */
+    private static final String[] INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_movie_library"
+                    + " ON PhilmMovie (traktInCollection, traktWatched)",
+            "CREATE INDEX IF NOT EXISTS idx_movie_in_watchlist ON PhilmMovie (traktInWatchlist)",
+            "CREATE INDEX IF NOT EXISTS idx_movie_tmdb_id ON PhilmMovie (tmdbId)",
+            "CREATE INDEX IF NOT EXISTS idx_movie_imdb_id ON PhilmMovie (imdbId)",
+            // _id is the rowid, so is already the last column of every index
+            "CREATE INDEX IF NOT EXISTS idx_movie_sort_key ON PhilmMovie (sortKey)"
+    };
+
+    /**
+     * Indexes which have been replaced, and are dropped on upgrade. The library is ordered and
+     * paged on sortKey rather than sortTitle since version 36.
+     */
+    private static final String[] DROPPED_INDEXES = {
+            "idx_movie_in_collection",
+            "idx_movie_watched",
+            "idx_movie_sort_title"
+    };
+
+    /**
+     * The library is paged on (sortKey, _id) rather than with an offset, so each page is a range
+     * scan of {@code idx_movie_sort_key} which is not shifted by rows written between pages.
+     */
+    private static final String QUERY_LIBRARY_FIRST_PAGE = "SELECT * FROM PhilmMovie"
+            + " INDEXED BY idx_movie_sort_key WHERE (" + SELECTION_LIBRARY + ")"
+            + " ORDER BY sortKey, _id LIMIT ?";
+
+    /**
+     * Same as {@link #QUERY_LIBRARY_FIRST_PAGE}, but starting after the (sortKey, _id) given.
+     * Written with a range on sortKey, as SQLite on our minSdkVersion has no row values.
+     */
+    private static final String QUERY_LIBRARY_PAGE = "SELECT * FROM PhilmMovie"
+            + " INDEXED BY idx_movie_sort_key WHERE (" + SELECTION_LIBRARY + ")"
+            + " AND sortKey >= ? AND (sortKey > ? OR _id > ?)"
+            + " ORDER BY sortKey, _id LIMIT ?";
+
+    private static final String TABLE_SORT_KEY_LOCALE = "SortKeyLocale";
+
     private static final Class[] ENTITIES = new Class[]{PhilmMovie.class, PhilmUserProfile.class};
 
     static {
@@ -53,8 +121,25 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
 
     private boolean mIsClosed;
 
+    /**
+     * Set on the write thread when a write to the search index has failed and flagged it.
+     */
+    private boolean mSearchIndexStale;
+
     public PhilmSQLiteOpenHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * @param name the database file name, or null for an in-memory database.
+     */
+    PhilmSQLiteOpenHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+
+        // Write-ahead logging lets reads run concurrently with a write
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(true);
+        }
     }
 
     @Override
@@ -62,7 +147,11 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
         // this will ensure that all tables are created
         cupboard().withDatabase(db).createTables();
 
-        // TODO: add indexes and other database tweaks
+        addSortTitleColumnIfNeeded(db);
+        addSortKeyColumnIfNeeded(db);
+        createIndexes(db);
+        createDetailTables(db);
+        createSearchTables(db);
     }
 
     @Override
@@ -72,65 +161,283 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
                 Log.d(LOG_TAG, "Nuking Database. Old Version: " + oldVersion);
             }
             cupboard().withDatabase(db).dropAllTables();
+            dropDetailTables(db);
+            dropSearchTables(db);
             onCreate(db);
         } else {
             // this will upgrade tables, adding columns and new tables.
             // Note that existing columns will not be converted
             cupboard().withDatabase(db).upgradeTables();
+            addSortTitleColumnIfNeeded(db);
+            addSortKeyColumnIfNeeded(db);
+            dropReplacedIndexes(db);
+            createIndexes(db);
+            createDetailTables(db);
+            createSearchTables(db);
+            rebuildSearchIndex(db);
+        }
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN && !db.isReadOnly()) {
+            db.enableWriteAheadLogging();
         }
     }
 
     @Override
     public List<PhilmMovie> getLibrary() {
-        return queryMovies("traktInCollection = ? OR traktWatched = ?", "1", "1");
+        return queryMovies(SELECTION_LIBRARY);
+    }
+
+    @Override
+    public List<PhilmMovie> getLibrary(String afterSortKey, long afterDbId, int limit) {
+        assetNotClosed();
+        Cursor cursor = null;
+
+        try {
+            if (afterSortKey == null) {
+                cursor = getReadableDatabase().rawQuery(QUERY_LIBRARY_FIRST_PAGE,
+                        new String[]{String.valueOf(limit)});
+            } else {
+                cursor = getReadableDatabase().rawQuery(QUERY_LIBRARY_PAGE, new String[]{
+                        afterSortKey, afterSortKey, String.valueOf(afterDbId),
+                        String.valueOf(limit)});
+            }
+            return cupboard().withCursor(cursor).list(PhilmMovie.class);
+        } catch (Exception e) {
+            // Crashlytics.logException(e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
     }
 
     @Override
     public List<PhilmMovie> getWatchlist() {
-        return queryMovies("traktInWatchlist = ?", "1");
+        return queryMovies(SELECTION_WATCHLIST);
     }
 
     @Override
     public void put(PhilmMovie movie) {
+        applyWrites(Collections.singletonList(movie), Collections.<PhilmMovie>emptyList(),
+                Collections.<PhilmMovie>emptyList());
+    }
+
+    @Override
+    public void put(Collection<PhilmMovie> movies) {
+        applyWrites(movies, Collections.<PhilmMovie>emptyList(),
+                Collections.<PhilmMovie>emptyList());
+    }
+
+    @Override
+    public void putMovieDetail(PhilmMovie movie) {
+        applyWrites(Collections.<PhilmMovie>emptyList(), Collections.singletonList(movie),
+                Collections.<PhilmMovie>emptyList());
+    }
+
+    @Override
+    public MovieDetail getMovieDetail(int tmdbId) {
         assetNotClosed();
 
+        final String[] args = {String.valueOf(tmdbId)};
+        Cursor cursor = null;
+
         try {
-            cupboard().withDatabase(getWritableDatabase()).put(movie);
+            final SQLiteDatabase db = getReadableDatabase();
+
+            List<PhilmMovieCredit> cast = null;
+            List<PhilmMovieCredit> crew = null;
+            cursor = db.rawQuery(PhilmMovieDetailTables.QUERY_CREDITS, args);
+            RowReader reader = new CursorReader(cursor);
+            while (cursor.moveToNext()) {
+                final PhilmPerson person = PhilmMovieDetailTables.readPerson(reader);
+                final PhilmMovieCredit credit = PhilmMovieDetailTables.readCredit(reader, person);
+                if (PhilmMovieDetailTables.readCreditType(reader)
+                        == PhilmMovieDetailTables.CREDIT_TYPE_CAST) {
+                    if (cast == null) {
+                        cast = new ArrayList<>();
+                    }
+                    cast.add(credit);
+                } else {
+                    if (crew == null) {
+                        crew = new ArrayList<>();
+                    }
+                    crew.add(credit);
+                }
+            }
+            cursor.close();
+
+            List<PhilmMovieVideo> trailers = null;
+            cursor = db.rawQuery(PhilmMovieDetailTables.QUERY_VIDEOS, args);
+            reader = new CursorReader(cursor);
+            while (cursor.moveToNext()) {
+                if (trailers == null) {
+                    trailers = new ArrayList<>();
+                }
+                trailers.add(PhilmMovieDetailTables.readVideo(reader));
+            }
+            cursor.close();
+
+            cursor = db.rawQuery(PhilmMovieDetailTables.QUERY_RELATED, args);
+            List<PhilmMovie> related = cupboard().withCursor(cursor).list(PhilmMovie.class);
+            if (related.isEmpty()) {
+                related = null;
+            }
+
+            if (cast == null && crew == null && trailers == null && related == null) {
+                return null;
+            }
+            return new MovieDetail(cast, crew, trailers, related);
         } catch (Exception e) {
             // Crashlytics.logException(e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
         }
     }
 
     @Override
-    public void put(Collection<PhilmMovie> movies) {
+    public LocalSearchResult search(String query, int limit) {
         assetNotClosed();
+
+        final String matchQuery = PhilmSearchIndex.toMatchQuery(query);
+        if (matchQuery == null) {
+            return null;
+        }
+
+        final String[] args = {matchQuery, String.valueOf(limit)};
+        Cursor cursor = null;
+
         try {
-            cupboard().withDatabase(getWritableDatabase()).put(movies);
+            final SQLiteDatabase db = getReadableDatabase();
+
+            cursor = db.rawQuery(PhilmSearchIndex.QUERY_MOVIES, args);
+            final List<PhilmMovie> movies = cupboard().withCursor(cursor).list(PhilmMovie.class);
+            cursor.close();
+
+            final List<PhilmPerson> people = new ArrayList<>();
+            cursor = db.rawQuery(PhilmSearchIndex.QUERY_PEOPLE, args);
+            final RowReader reader = new CursorReader(cursor);
+            while (cursor.moveToNext()) {
+                people.add(PhilmMovieDetailTables.readPerson(reader));
+            }
+
+            return new LocalSearchResult(query, movies, people);
         } catch (Exception e) {
             // Crashlytics.logException(e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
         }
     }
 
     @Override
     public void delete(Collection<PhilmMovie> movies) {
+        applyWrites(Collections.<PhilmMovie>emptyList(), Collections.<PhilmMovie>emptyList(),
+                movies);
+    }
+
+    /**
+     * Writes everything in a single transaction, with each statement compiled once for the whole
+     * batch. If the batch fails it is rolled back and each movie is retried in a transaction of
+     * its own, so that one bad movie only loses its own write.
+     */
+    @Override
+    public int applyWrites(Collection<PhilmMovie> puts, Collection<PhilmMovie> detailPuts,
+            Collection<PhilmMovie> deletes) {
         assetNotClosed();
 
-        SQLiteDatabase db = null;
+        final long start = System.currentTimeMillis();
+        int failed = 0;
 
         try {
-            db = getWritableDatabase();
-            db.beginTransaction();
-            final DatabaseCompartment dbc = cupboard().withDatabase(db);
-            for (PhilmMovie movie : movies) {
-                dbc.delete(movie);
+            writeInTransaction(puts, detailPuts, deletes);
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "Failed to write batch of " + puts.size() + " puts, "
+                    + detailPuts.size() + " detail puts and " + deletes.size()
+                    + " deletes. Retrying each movie", e);
+
+            final List<PhilmMovie> none = Collections.emptyList();
+            for (PhilmMovie movie : deletes) {
+                failed += writeMovie(none, none, Collections.singletonList(movie));
             }
-            db.setTransactionSuccessful();
+            for (PhilmMovie movie : puts) {
+                failed += writeMovie(Collections.singletonList(movie), none, none);
+            }
+            for (PhilmMovie movie : detailPuts) {
+                failed += writeMovie(none, Collections.singletonList(movie), none);
+            }
+        }
+
+        if (mSearchIndexStale) {
+            rebuildSearchIndexIfNeeded();
+        }
+
+        if (Constants.DEBUG) {
+            Log.d(LOG_TAG, "applyWrites: " + puts.size() + " puts, " + detailPuts.size()
+                    + " detail puts, " + deletes.size() + " deletes, " + failed + " failed in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+        return failed;
+    }
+
+    /**
+     * @return 1 if the write failed and was skipped, 0 otherwise.
+     */
+    private int writeMovie(Collection<PhilmMovie> puts, Collection<PhilmMovie> detailPuts,
+            Collection<PhilmMovie> deletes) {
+        try {
+            writeInTransaction(puts, detailPuts, deletes);
+            return 0;
         } catch (Exception e) {
+            Log.e(LOG_TAG, "Failed to write movie, skipping it", e);
             // Crashlytics.logException(e);
+            return 1;
+        }
+    }
+
+    /**
+     * Deletes are written first, so that a movie which has moved to a new row id can be deleted
+     * and put in the same batch.
+     */
+    private void writeInTransaction(Collection<PhilmMovie> puts,
+            Collection<PhilmMovie> detailPuts, Collection<PhilmMovie> deletes) {
+        final SQLiteDatabase db = getWritableDatabase();
+        MovieWriter writer = null;
+
+        db.beginTransaction();
+        try {
+            // One transaction and one compiled statement for the whole batch, rather than
+            // cupboard's reflective put with an implicit transaction per movie
+            writer = new MovieWriter(db);
+            for (PhilmMovie movie : deletes) {
+                writer.deleteMovie(movie);
+            }
+            for (PhilmMovie movie : puts) {
+                writer.putMovie(movie);
+            }
+            for (PhilmMovie movie : detailPuts) {
+                writer.putMovieDetail(movie);
+            }
+
+            db.setTransactionSuccessful();
+            if (writer.isSearchIndexStale()) {
+                mSearchIndexStale = true;
+            }
         } finally {
-            if (db != null) {
-                db.endTransaction();
+            if (writer != null) {
+                writer.close();
             }
+            db.endTransaction();
         }
     }
 
@@ -189,6 +496,12 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
         assetNotClosed();
         try {
             final int numDeleted = cupboard().withDatabase(db).delete(PhilmMovie.class, null);
+            for (String table : PhilmMovieDetailTables.TABLES) {
+                db.delete(table, null, null);
+            }
+            for (String table : PhilmSearchIndex.TABLES) {
+                db.delete(table, null, null);
+            }
             if (Constants.DEBUG) {
                 Log.d(LOG_TAG, "deleteAllPhilmMovies. Deleted " + numDeleted + " rows.");
             }
@@ -197,6 +510,199 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
         }
     }
 
+    private static void dropReplacedIndexes(SQLiteDatabase db) {
+        for (String index : DROPPED_INDEXES) {
+            db.execSQL("DROP INDEX IF EXISTS " + index);
+        }
+    }
+
+    private static void createIndexes(SQLiteDatabase db) {
+        for (String index : INDEXES) {
+            db.execSQL(index);
+        }
+    }
+
+    /**
+     * Adds and back-fills {@link PhilmMovieTable#COLUMN_SORT_TITLE}, which cupboard does not know
+     * about as it isn't a field.
+     */
+    private static void addSortTitleColumnIfNeeded(SQLiteDatabase db) {
+        if (hasMovieColumn(db, PhilmMovieTable.COLUMN_SORT_TITLE)) {
+            return;
+        }
+
+        db.execSQL("ALTER TABLE " + PhilmMovieTable.TABLE_NAME + " ADD COLUMN "
+                + PhilmMovieTable.COLUMN_SORT_TITLE + " TEXT");
+        // Same as PhilmMovie.getSortTitle(), which prefers the TMDB title
+        db.execSQL("UPDATE " + PhilmMovieTable.TABLE_NAME + " SET "
+                + PhilmMovieTable.COLUMN_SORT_TITLE
+                + " = COALESCE(NULLIF(tmdbSortTitle, ''), traktSortTitle)");
+    }
+
+    /**
+     * Adds and fills in {@link PhilmMovieTable#COLUMN_SORT_KEY}, which cupboard does not know
+     * about as it isn't a field. This runs on create and upgrade, which are already in a
+     * transaction. The locale which the keys were computed for is recorded alongside them.
+     */
+    private static void addSortKeyColumnIfNeeded(SQLiteDatabase db) {
+        if (!hasMovieColumn(db, PhilmMovieTable.COLUMN_SORT_KEY)) {
+            db.execSQL("ALTER TABLE " + PhilmMovieTable.TABLE_NAME + " ADD COLUMN "
+                    + PhilmMovieTable.COLUMN_SORT_KEY + " TEXT");
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SORT_KEY_LOCALE);
+            db.execSQL("CREATE TABLE " + TABLE_SORT_KEY_LOCALE + " (locale TEXT)");
+            updateSortKeys(db, PhilmMovieTable.getSortKeyLocale().toString());
+        }
+    }
+
+    /**
+     * Sort keys are collation keys, so every row is re-keyed when the locale which they were
+     * computed for changes. This rewrites the whole table, so should only be called on the write
+     * thread. Until it has run, pages are still complete but ordered for the old locale.
+     */
+    @Override
+    public void updateSortKeysIfNeeded() {
+        assetNotClosed();
+
+        final String locale = PhilmMovieTable.getSortKeyLocale().toString();
+        final SQLiteDatabase db = getWritableDatabase();
+
+        final Cursor localeCursor = db.rawQuery("SELECT locale FROM " + TABLE_SORT_KEY_LOCALE,
+                null);
+        try {
+            if (localeCursor.moveToFirst() && locale.equals(localeCursor.getString(0))) {
+                return;
+            }
+        } finally {
+            localeCursor.close();
+        }
+
+        updateSortKeys(db, locale);
+    }
+
+    private static void updateSortKeys(SQLiteDatabase db, String locale) {
+        final long start = System.currentTimeMillis();
+        int count = 0;
+
+        db.beginTransaction();
+        Cursor cursor = null;
+        SQLiteStatement statement = null;
+        try {
+            cursor = db.rawQuery("SELECT _id, " + PhilmMovieTable.COLUMN_SORT_TITLE + " FROM "
+                    + PhilmMovieTable.TABLE_NAME, null);
+            statement = db.compileStatement("UPDATE " + PhilmMovieTable.TABLE_NAME + " SET "
+                    + PhilmMovieTable.COLUMN_SORT_KEY + " = ? WHERE _id = ?");
+            while (cursor.moveToNext()) {
+                statement.clearBindings();
+                statement.bindString(1, PhilmMovieTable.getSortKey(
+                        cursor.isNull(1) ? null : cursor.getString(1)));
+                statement.bindLong(2, cursor.getLong(0));
+                statement.execute();
+                count++;
+            }
+
+            db.delete(TABLE_SORT_KEY_LOCALE, null, null);
+            final ContentValues values = new ContentValues();
+            values.put("locale", locale);
+            db.insert(TABLE_SORT_KEY_LOCALE, null, values);
+
+            db.setTransactionSuccessful();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+            db.endTransaction();
+        }
+
+        Log.i(LOG_TAG, "Updated " + count + " sort keys for " + locale + " in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private static boolean hasMovieColumn(SQLiteDatabase db, String column) {
+        final Cursor cursor = db.rawQuery("PRAGMA table_info(" + PhilmMovieTable.TABLE_NAME + ")",
+                null);
+        try {
+            final int nameColumn = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                if (column.equals(cursor.getString(nameColumn))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void createDetailTables(SQLiteDatabase db) {
+        for (String statement : PhilmMovieDetailTables.CREATE_STATEMENTS) {
+            db.execSQL(statement);
+        }
+    }
+
+    private static void dropDetailTables(SQLiteDatabase db) {
+        for (String table : PhilmMovieDetailTables.TABLES) {
+            db.execSQL("DROP TABLE IF EXISTS " + table);
+        }
+    }
+
+    private static void createSearchTables(SQLiteDatabase db) {
+        for (String statement : PhilmSearchIndex.CREATE_STATEMENTS) {
+            db.execSQL(statement);
+        }
+    }
+
+    private static void dropSearchTables(SQLiteDatabase db) {
+        for (String table : PhilmSearchIndex.TABLES) {
+            db.execSQL("DROP TABLE IF EXISTS " + table);
+        }
+    }
+
+    /**
+     * Rebuilds the search index if a failed write has flagged it as stale. This reads every movie
+     * and person, so should only be called on the write thread.
+     */
+    @Override
+    public void rebuildSearchIndexIfNeeded() {
+        assetNotClosed();
+
+        mSearchIndexStale = false;
+
+        final SQLiteDatabase db = getWritableDatabase();
+        if (DatabaseUtils.queryNumEntries(db, PhilmSearchIndex.TABLE_SEARCH_STALE) == 0) {
+            return;
+        }
+
+        db.beginTransaction();
+        try {
+            rebuildSearchIndex(db);
+            db.setTransactionSuccessful();
+        } catch (SQLiteException e) {
+            // Still flagged, so is tried again on the next start
+            Log.e(LOG_TAG, "Could not rebuild search index", e);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Rebuilds the search index from the movie and detail tables, so that an upgraded database
+     * can be searched straight away. This runs on upgrade, or on the write thread after a failed
+     * write, and must be called within a transaction.
+     */
+    private static void rebuildSearchIndex(SQLiteDatabase db) {
+        final long start = System.currentTimeMillis();
+        for (String statement : PhilmSearchIndex.REBUILD_STATEMENTS) {
+            db.execSQL(statement);
+        }
+        if (Constants.DEBUG) {
+            Log.d(LOG_TAG, "Rebuilt search index in " + (System.currentTimeMillis() - start)
+                    + "ms");
+        }
+    }
+
     private void assetNotClosed() {
         Preconditions.checkState(!mIsClosed, "Database is closed");
     }
@@ -209,13 +715,384 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
             itr = cupboard().withDatabase(getReadableDatabase()).query(PhilmMovie.class)
                     .withSelection(selection, selectionArgs)
                     .query();
+            return itr.list();
         } finally {
             if (itr != null) {
                 itr.close();
-                itr = null;
             }
         }
+    }
+
+    /**
+     * Writes movies and their detail within the caller's transaction. Each statement is compiled
+     * on first use and then shared by every movie in the batch.
+     */
+    private static final class MovieWriter {
+        private final SQLiteDatabase mDb;
+        private final SearchIndexWriter mSearchIndex;
+
+        private SQLiteStatement mInsertMovie;
+        private StatementBinder mMovieBinder;
+        private SQLiteStatement mDeleteMovie;
+        private SQLiteStatement mInsertPerson;
+        private StatementBinder mPersonBinder;
+        private SQLiteStatement mInsertCredit;
+        private StatementBinder mCreditBinder;
+        private SQLiteStatement mInsertVideo;
+        private StatementBinder mVideoBinder;
+        private SQLiteStatement mInsertRelated;
+        private StatementBinder mRelatedBinder;
+
+        MovieWriter(SQLiteDatabase db) {
+            mDb = db;
+            mSearchIndex = new SearchIndexWriter(db);
+        }
+
+        boolean isSearchIndexStale() {
+            return mSearchIndex.isStale();
+        }
+
+        /**
+         * Inserts or replaces {@code movie}. Its row id is derived from its imdb or tmdb id, so
+         * movies without one are skipped rather than given a new row id here: the movie is
+         * shared with the main thread and must not be modified on this one.
+         */
+        void putMovie(PhilmMovie movie) {
+            if (!PhilmMovieTable.hasDbId(movie)) {
+                if (Constants.DEBUG) {
+                    Log.d(LOG_TAG, "Skipping put of movie without an id: " + movie.getTitle());
+                }
+                return;
+            }
+
+            if (mInsertMovie == null) {
+                mInsertMovie = mDb.compileStatement(PhilmMovieTable.INSERT_OR_REPLACE);
+                mMovieBinder = new StatementBinder(mInsertMovie);
+            }
+
+            PhilmMovieTable.bind(mMovieBinder, movie);
+            if (mInsertMovie.executeInsert() != -1) {
+                mSearchIndex.putMovie(movie);
+            }
+        }
+
+        void putMovieDetail(PhilmMovie movie) {
+            putMovie(movie);
+
+            final Integer tmdbId = movie.getTmdbId();
+            if (tmdbId != null) {
+                // Only replace the detail items which have been loaded, so that a partial
+                // fetch doesn't wipe out the rest
+                if (movie.getCast() != null || movie.getCrew() != null) {
+                    putCredits(movie, tmdbId, movie.getCast(), movie.getCrew());
+                }
+                if (movie.getTrailers() != null) {
+                    putVideos(tmdbId, movie.getTrailers());
+                }
+                if (movie.getRelated() != null) {
+                    putRelated(tmdbId, movie.getRelated());
+                }
+            }
+        }
+
+        void deleteMovie(PhilmMovie movie) {
+            if (!PhilmMovieTable.hasDbId(movie)) {
+                // Never written, so there is nothing to delete
+                return;
+            }
+
+            if (mDeleteMovie == null) {
+                mDeleteMovie = mDb.compileStatement(PhilmMovieTable.DELETE);
+            }
+
+            mSearchIndex.deleteMovie(movie);
+            mDeleteMovie.bindLong(1, movie.getDbId());
+            mDeleteMovie.executeUpdateDelete();
+        }
+
+        private void putCredits(PhilmMovie movie, int tmdbId, List<PhilmMovieCredit> cast,
+                List<PhilmMovieCredit> crew) {
+            mDb.delete(PhilmMovieDetailTables.TABLE_CREDIT, PhilmMovieDetailTables.SELECTION_MOVIE,
+                    new String[]{String.valueOf(tmdbId)});
+
+            if (mInsertPerson == null) {
+                mInsertPerson = mDb.compileStatement(
+                        PhilmMovieDetailTables.INSERT_OR_REPLACE_PERSON);
+                mPersonBinder = new StatementBinder(mInsertPerson);
+                mInsertCredit = mDb.compileStatement(PhilmMovieDetailTables.INSERT_CREDIT);
+                mCreditBinder = new StatementBinder(mInsertCredit);
+            }
+
+            putCredits(tmdbId, PhilmMovieDetailTables.CREDIT_TYPE_CAST, cast);
+            putCredits(tmdbId, PhilmMovieDetailTables.CREDIT_TYPE_CREW, crew);
+
+            if (PhilmMovieTable.hasDbId(movie)) {
+                mSearchIndex.putMoviePeople(movie, cast, crew);
+            }
+        }
+
+        private void putCredits(int tmdbId, int creditType, List<PhilmMovieCredit> credits) {
+            if (credits == null) {
+                return;
+            }
+            for (int i = 0, z = credits.size(); i < z; i++) {
+                final PhilmMovieCredit credit = credits.get(i);
+                if (PhilmMovieDetailTables.canPersist(credit)) {
+                    PhilmMovieDetailTables.bindPerson(mPersonBinder, credit.getPerson());
+                    mInsertPerson.executeInsert();
+
+                    mSearchIndex.putPerson(credit.getPerson());
+
+                    PhilmMovieDetailTables.bindCredit(mCreditBinder, tmdbId, creditType, credit,
+                            i);
+                    mInsertCredit.executeInsert();
+                }
+            }
+        }
+
+        private void putVideos(int tmdbId, List<PhilmMovieVideo> videos) {
+            mDb.delete(PhilmMovieDetailTables.TABLE_VIDEO, PhilmMovieDetailTables.SELECTION_MOVIE,
+                    new String[]{String.valueOf(tmdbId)});
+
+            if (mInsertVideo == null) {
+                mInsertVideo = mDb.compileStatement(PhilmMovieDetailTables.INSERT_VIDEO);
+                mVideoBinder = new StatementBinder(mInsertVideo);
+            }
+            for (int i = 0, z = videos.size(); i < z; i++) {
+                PhilmMovieDetailTables.bindVideo(mVideoBinder, tmdbId, videos.get(i), i);
+                mInsertVideo.executeInsert();
+            }
+        }
+
+        private void putRelated(int tmdbId, List<PhilmMovie> related) {
+            mDb.delete(PhilmMovieDetailTables.TABLE_RELATED,
+                    PhilmMovieDetailTables.SELECTION_MOVIE, new String[]{String.valueOf(tmdbId)});
 
-        return itr != null ? itr.list() : null;
+            if (mInsertRelated == null) {
+                mInsertRelated = mDb.compileStatement(PhilmMovieDetailTables.INSERT_RELATED);
+                mRelatedBinder = new StatementBinder(mInsertRelated);
+            }
+            for (int i = 0, z = related.size(); i < z; i++) {
+                final PhilmMovie relatedMovie = related.get(i);
+                if (relatedMovie.getTmdbId() != null) {
+                    putMovie(relatedMovie);
+
+                    PhilmMovieDetailTables.bindRelated(mRelatedBinder, tmdbId,
+                            relatedMovie.getTmdbId(), i);
+                    mInsertRelated.executeInsert();
+                }
+            }
+        }
+
+        void close() {
+            mSearchIndex.close();
+            closeStatement(mInsertMovie);
+            closeStatement(mDeleteMovie);
+            closeStatement(mInsertPerson);
+            closeStatement(mInsertCredit);
+            closeStatement(mInsertVideo);
+            closeStatement(mInsertRelated);
+        }
+    }
+
+    /**
+     * Writes to the full-text search index, compiling each statement on first use. The index is
+     * derived from the other tables, so a failed write is not thrown: it must not roll back the
+     * movie write which it is part of. The index is instead flagged, within the same
+     * transaction, to be rebuilt once the write has committed.
+     */
+    private static final class SearchIndexWriter {
+        private final SQLiteDatabase mDb;
+
+        private SQLiteStatement mQueryMoviePeople;
+        private SQLiteStatement mDeleteMovie;
+        private SQLiteStatement mInsertMovie;
+        private StatementBinder mMovieBinder;
+        private SQLiteStatement mUpdateMoviePeople;
+        private StatementBinder mMoviePeopleBinder;
+        private SQLiteStatement mDeletePerson;
+        private SQLiteStatement mInsertPerson;
+        private StatementBinder mPersonBinder;
+
+        private boolean mStale;
+
+        SearchIndexWriter(SQLiteDatabase db) {
+            mDb = db;
+        }
+
+        boolean isStale() {
+            return mStale;
+        }
+
+        private void markStale(String message, SQLiteException e) {
+            Log.w(LOG_TAG, message, e);
+            if (!mStale) {
+                try {
+                    mDb.execSQL(PhilmSearchIndex.MARK_STALE);
+                    mStale = true;
+                } catch (SQLiteException markException) {
+                    Log.e(LOG_TAG, "Could not flag search index for rebuild", markException);
+                }
+            }
+        }
+
+        void putMovie(PhilmMovie movie) {
+            try {
+                if (mInsertMovie == null) {
+                    mQueryMoviePeople = mDb.compileStatement(PhilmSearchIndex.QUERY_MOVIE_PEOPLE);
+                    mInsertMovie = mDb.compileStatement(PhilmSearchIndex.INSERT_MOVIE);
+                    mMovieBinder = new StatementBinder(mInsertMovie);
+                }
+                if (mDeleteMovie == null) {
+                    mDeleteMovie = mDb.compileStatement(PhilmSearchIndex.DELETE_MOVIE);
+                }
+
+                String people = null;
+                mQueryMoviePeople.bindLong(1, movie.getDbId());
+                try {
+                    people = mQueryMoviePeople.simpleQueryForString();
+                } catch (SQLiteDoneException e) {
+                    // Not indexed yet
+                }
+
+                mDeleteMovie.bindLong(1, movie.getDbId());
+                mDeleteMovie.executeUpdateDelete();
+
+                PhilmSearchIndex.bindMovie(mMovieBinder, movie, people);
+                mInsertMovie.executeInsert();
+            } catch (SQLiteException e) {
+                markStale("Could not index movie " + movie.getDbId(), e);
+            }
+        }
+
+        void deleteMovie(PhilmMovie movie) {
+            try {
+                if (mDeleteMovie == null) {
+                    mDeleteMovie = mDb.compileStatement(PhilmSearchIndex.DELETE_MOVIE);
+                }
+                mDeleteMovie.bindLong(1, movie.getDbId());
+                mDeleteMovie.executeUpdateDelete();
+            } catch (SQLiteException e) {
+                markStale("Could not remove movie " + movie.getDbId() + " from index", e);
+            }
+        }
+
+        void putMoviePeople(PhilmMovie movie, List<PhilmMovieCredit> cast,
+                List<PhilmMovieCredit> crew) {
+            try {
+                if (mUpdateMoviePeople == null) {
+                    mUpdateMoviePeople = mDb.compileStatement(
+                            PhilmSearchIndex.UPDATE_MOVIE_PEOPLE);
+                    mMoviePeopleBinder = new StatementBinder(mUpdateMoviePeople);
+                }
+                PhilmSearchIndex.bindMoviePeople(mMoviePeopleBinder, movie, cast, crew);
+                mUpdateMoviePeople.executeUpdateDelete();
+            } catch (SQLiteException e) {
+                markStale("Could not index people of movie " + movie.getDbId(), e);
+            }
+        }
+
+        void putPerson(PhilmPerson person) {
+            try {
+                if (mInsertPerson == null) {
+                    mDeletePerson = mDb.compileStatement(PhilmSearchIndex.DELETE_PERSON);
+                    mInsertPerson = mDb.compileStatement(PhilmSearchIndex.INSERT_PERSON);
+                    mPersonBinder = new StatementBinder(mInsertPerson);
+                }
+
+                mDeletePerson.bindLong(1, person.getTmdbId());
+                mDeletePerson.executeUpdateDelete();
+
+                PhilmSearchIndex.bindPerson(mPersonBinder, person);
+                mInsertPerson.executeInsert();
+            } catch (SQLiteException e) {
+                markStale("Could not index person " + person.getTmdbId(), e);
+            }
+        }
+
+        void close() {
+            closeStatement(mQueryMoviePeople);
+            closeStatement(mDeleteMovie);
+            closeStatement(mInsertMovie);
+            closeStatement(mUpdateMoviePeople);
+            closeStatement(mDeletePerson);
+            closeStatement(mInsertPerson);
+        }
+
+    }
+
+    private static void closeStatement(SQLiteStatement statement) {
+        if (statement != null) {
+            statement.close();
+        }
+    }
+
+    /**
+     * Binds the rows described by the model tables to a compiled statement.
+     */
+    private static final class StatementBinder implements RowBinder {
+
+        private final SQLiteStatement mStatement;
+
+        StatementBinder(SQLiteStatement statement) {
+            mStatement = statement;
+        }
+
+        @Override
+        public void clearBindings() {
+            mStatement.clearBindings();
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            mStatement.bindLong(index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            mStatement.bindString(index, value);
+        }
+
+        @Override
+        public void bindNull(int index) {
+            mStatement.bindNull(index);
+        }
+    }
+
+    /**
+     * Reads the rows described by the model tables from a cursor, at its current position.
+     */
+    private static final class CursorReader implements RowReader {
+
+        private final Cursor mCursor;
+
+        CursorReader(Cursor cursor) {
+            mCursor = cursor;
+        }
+
+        @Override
+        public int getColumnIndexOrThrow(String column) {
+            return mCursor.getColumnIndexOrThrow(column);
+        }
+
+        @Override
+        public boolean isNull(int index) {
+            return mCursor.isNull(index);
+        }
+
+        @Override
+        public int getInt(int index) {
+            return mCursor.getInt(index);
+        }
+
+        @Override
+        public long getLong(int index) {
+            return mCursor.getLong(index);
+        }
+
+        @Override
+        public String getString(int index) {
+            return mCursor.getString(index);
+        }
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import com.google.common.base.Preconditions;
+import com.squareup.picasso.Picasso;
+
+import java.util.List;
+
+import app.philm.in.R;
+import app.philm.in.model.PhilmMovie;
+
+public class AndroidImagePrefetcher implements ImagePrefetcher {
+
+    private final Context mContext;
+    private final ImageHelper mImageHelper;
+
+    private int mPostersPerRow;
+    private int mPosterWidth;
+    private int mPosterHeight;
+
+    public AndroidImagePrefetcher(Context context, ImageHelper imageHelper) {
+        mContext = Preconditions.checkNotNull(context, "context cannot be null");
+        mImageHelper = Preconditions.checkNotNull(imageHelper, "imageHelper cannot be null");
+    }
+
+    @Override
+    public int getPostersPerRow() {
+        if (mPostersPerRow == 0) {
+            calculatePosterSize();
+        }
+        return mPostersPerRow;
+    }
+
+    @Override
+    public void prefetchPosters(List<PhilmMovie> movies) {
+        if (mPostersPerRow == 0) {
+            calculatePosterSize();
+        }
+
+        final Picasso picasso = Picasso.with(mContext);
+        for (int i = 0, z = movies.size(); i < z; i++) {
+            final PhilmMovie movie = movies.get(i);
+            if (TextUtils.isEmpty(movie.getTmdbPosterUrl())
+                    && TextUtils.isEmpty(movie.getTraktPosterUrl())) {
+                continue;
+            }
+
+            // Resized the same way as PhilmImageView, so the grid hits the memory cache
+            picasso.load(mImageHelper.getPosterUrl(movie, mPosterWidth, mPosterHeight))
+                    .resize(mPosterWidth, mPosterHeight)
+                    .centerCrop()
+                    .priority(Picasso.Priority.LOW)
+                    .fetch();
+        }
+    }
+
+    /**
+     * Mirrors the grid's auto_fit layout, where columns are stretched to fill the width.
+     */
+    private void calculatePosterSize() {
+        final Resources res = mContext.getResources();
+        final int screenWidth = res.getDisplayMetrics().widthPixels;
+        final int columnWidth = res.getDimensionPixelSize(R.dimen.movie_grid_item_width);
+        final int spacing = res.getDimensionPixelSize(R.dimen.movie_grid_spacing);
+
+        final int columns = Math.max(1, (screenWidth + spacing) / (columnWidth + spacing));
+
+        mPosterWidth = (screenWidth - (columns - 1) * spacing) / columns;
+        mPosterHeight = res.getDimensionPixelSize(R.dimen.movie_grid_item_height);
+        mPostersPerRow = columns;
+    }
+
+}
@@ -98,6 +98,11 @@ public class PhilmBackgroundExecutor implements BackgroundExecutor {
 
         @Override
         public final void run() {
+            if (mBackgroundRunnable.isCancelled()) {
+                // Cancelled while queued, so skip the call entirely
+                return;
+            }
+
             android.os.Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
 
             sHandler.post(new Runnable() {
@@ -112,11 +117,20 @@ public class PhilmBackgroundExecutor implements BackgroundExecutor {
 
             try {
                 result = mBackgroundRunnable.doBackgroundCall();
+                if (result != null && !mBackgroundRunnable.isCancelled()) {
+                    mBackgroundRunnable.transformResult(result);
+                }
             } catch (RetrofitError re) {
                 retrofitError = re;
                 if (Constants.DEBUG) {
                     Log.d(((Object) this).getClass().getSimpleName(), "Error while completing network call", re);
                 }
+            } catch (RuntimeException e) {
+                // Failures while transforming the result are delivered as errors too, so that
+                // the worker survives and onFinished() is still called
+                result = null;
+                retrofitError = RetrofitError.unexpectedError(null, e);
+                Log.e(((Object) this).getClass().getSimpleName(), "Error while transforming network result", e);
             }
 
             sHandler.post(new ResultCallback(result, retrofitError));
@@ -133,10 +147,13 @@ public class PhilmBackgroundExecutor implements BackgroundExecutor {
 
             @Override
             public void run() {
-                if (mResult != null) {
-                    mBackgroundRunnable.onSuccess(mResult);
-                } else if (mRetrofitError != null) {
-                    mBackgroundRunnable.onError(mRetrofitError);
+                // Results of calls cancelled while in flight are dropped
+                if (!mBackgroundRunnable.isCancelled()) {
+                    if (mResult != null) {
+                        mBackgroundRunnable.onSuccess(mResult);
+                    } else if (mRetrofitError != null) {
+                        mBackgroundRunnable.onError(mRetrofitError);
+                    }
                 }
                 mBackgroundRunnable.onFinished();
             }
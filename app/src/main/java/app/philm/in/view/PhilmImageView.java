@@ -43,7 +43,6 @@ import app.philm.in.R;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.PhilmMovieVideo;
 import app.philm.in.model.PhilmPerson;
-import app.philm.in.model.PhilmPersonCredit;
 import app.philm.in.util.AnimationUtils;
 import app.philm.in.util.ImageHelper;
 import app.philm.in.util.TextUtils;
@@ -86,18 +85,6 @@ public class PhilmImageView extends ImageView {
         }
     }
 
-    public void loadPoster(PhilmPersonCredit credit) {
-        loadPoster(credit, null);
-    }
-
-    public void loadPoster(PhilmPersonCredit credit, Listener listener) {
-        if (!TextUtils.isEmpty(credit.getPosterPath())) {
-            setPicassoHandler(new PersonCreditHandler(credit, listener));
-        } else {
-            reset();
-        }
-    }
-
     public void loadBackdrop(PhilmMovie movie) {
         loadBackdrop(movie, null);
     }
@@ -353,19 +340,6 @@ public class PhilmImageView extends ImageView {
         }
     }
 
-    private class PersonCreditHandler extends PicassoHandler<PhilmPersonCredit> {
-
-        PersonCreditHandler(PhilmPersonCredit credit, Listener callback) {
-            super(credit, callback);
-        }
-
-        @Override
-        protected String buildUrl(PhilmPersonCredit credit, ImageHelper helper, ImageView imageView) {
-            return helper.getPosterUrl(credit, imageView.getWidth(), imageView.getHeight());
-        }
-
-    }
-
     private final Target mPicassoTarget = new Target() {
 
         @Override
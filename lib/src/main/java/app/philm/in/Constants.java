@@ -31,10 +31,17 @@ public class Constants {
 
     public static final long STALE_USER_PROFILE_THRESHOLD = 3 * DAY_IN_MILLIS;
     public static final long STALE_MOVIE_DETAIL_THRESHOLD = 2 * DAY_IN_MILLIS;
+    public static final long STALE_PERSISTED_STATE_THRESHOLD = DAY_IN_MILLIS;
+    public static final long STALE_RESTORED_LIST_THRESHOLD = 60 * 60 * 1000; // 60 mins
     public static final long FULL_MOVIE_DETAIL_ATTEMPT_THRESHOLD = 60 * 60 * 1000; // 60 secs
 
     public static final int FILTER_HIGHLY_RATED = 70;
 
+    /**
+     * The number of pages of an endless list which are kept in memory around the visible range.
+     */
+    public static final int PAGINATED_WINDOW_PAGES = 5;
+
     public static final boolean DEBUG = true;
     public static final boolean DEBUG_NETWORK = false;
 
@@ -18,7 +18,14 @@ package app.philm.in.controllers;
 
 import com.google.common.base.Preconditions;
 
+import android.support.v4.util.ArrayMap;
+
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -44,19 +51,40 @@ abstract class BaseUiController<U extends BaseUiController.Ui<UC>, UC>
 
     @Inject Logger mLogger;
 
+    /**
+     * UIs are attached, detached and populated on the main thread only. The set is copy-on-write
+     * so that a UI can be detached while the UIs are being iterated over.
+     */
     private final Set<U> mUis;
     private final Set<U> mUnmodifiableUis;
 
+    /**
+     * The id of each attached UI, which is handed out from {@link #mNextUiId} when it is attached
+     * and so never changes or collides while it is attached. Ids start at 1, as 0 is used for
+     * calls which are not tied to a UI.
+     */
+    private final Map<U, Integer> mIdsByUi;
+    private final Map<Integer, U> mUisById;
+    private final Map<Object, List<U>> mUisByKey;
+    private final Set<U> mDirtyUis;
+
+    private int mNextUiId = 1;
+
     public BaseUiController() {
         mUis = new CopyOnWriteArraySet<>();
         mUnmodifiableUis = Collections.unmodifiableSet(mUis);
+        mIdsByUi = new IdentityHashMap<>();
+        mUisById = new ArrayMap<>();
+        mUisByKey = new ArrayMap<>();
+        mDirtyUis = new LinkedHashSet<>();
     }
 
-    public synchronized final void attachUi(U ui) {
+    public final void attachUi(U ui) {
         Preconditions.checkArgument(ui != null, "ui cannot be null");
         Preconditions.checkState(!mUis.contains(ui), "UI is already attached");
 
         mUis.add(ui);
+        addToIndex(ui);
 
         ui.setCallbacks(createUiCallbacks(ui));
 
@@ -85,13 +113,15 @@ abstract class BaseUiController<U extends BaseUiController.Ui<UC>, UC>
         return null;
     }
 
-    public synchronized final void detachUi(U ui) {
+    public final void detachUi(U ui) {
         Preconditions.checkArgument(ui != null, "ui cannot be null");
         Preconditions.checkState(mUis.contains(ui), "ui is not attached");
         onUiDetached(ui);
         ui.setCallbacks(null);
 
         mUis.remove(ui);
+        removeFromIndex(ui);
+        mDirtyUis.remove(ui);
     }
 
     protected final Set<U> getUis() {
@@ -113,12 +143,53 @@ abstract class BaseUiController<U extends BaseUiController.Ui<UC>, UC>
     protected void onUiDetached(U ui) {
     }
 
-    protected synchronized final void populateUis() {
+    protected final void populateUis() {
         if (Constants.DEBUG) {
             mLogger.d(getClass().getSimpleName(), "populateUis");
         }
-        for (U ui : mUis) {
-            populateUi(ui);
+        mDirtyUis.addAll(mUis);
+        populateDirtyUis();
+    }
+
+    /**
+     * Marks {@code ui} as needing to be populated on the next call to {@link #populateDirtyUis()}.
+     */
+    protected final void markUiDirty(U ui) {
+        Preconditions.checkNotNull(ui, "ui cannot be null");
+        if (mUis.contains(ui)) {
+            mDirtyUis.add(ui);
+        }
+    }
+
+    /**
+     * Marks every UI with the given key (see {@link #getUiKey(Ui)}) as needing to be populated on
+     * the next call to {@link #populateDirtyUis()}.
+     */
+    protected final void markUisDirty(Object key) {
+        Preconditions.checkNotNull(key, "key cannot be null");
+        final List<U> uis = mUisByKey.get(key);
+        if (uis != null) {
+            mDirtyUis.addAll(uis);
+        }
+    }
+
+    /**
+     * Populates each UI which has been marked as dirty, once, and then clears the dirty flags.
+     */
+    protected final void populateDirtyUis() {
+        if (mDirtyUis.isEmpty()) {
+            return;
+        }
+
+        final List<U> dirty = new ArrayList<>(mDirtyUis);
+        mDirtyUis.clear();
+
+        for (int i = 0, z = dirty.size(); i < z; i++) {
+            final U ui = dirty.get(i);
+            // A previous populate may have caused the UI to be detached
+            if (mUis.contains(ui)) {
+                populateUi(ui);
+            }
         }
     }
 
@@ -127,19 +198,37 @@ abstract class BaseUiController<U extends BaseUiController.Ui<UC>, UC>
 
     protected abstract UC createUiCallbacks(U ui);
 
-    protected int getId(U ui) {
-        return ui.hashCode();
+    /**
+     * @return the id which {@code ui} was given when it was attached, or 0 if it is not attached.
+     */
+    protected final int getId(U ui) {
+        final Integer id = mIdsByUi.get(ui);
+        return id != null ? id : 0;
     }
 
-    protected synchronized U findUi(final int id) {
-        for (U ui : mUis) {
-            if (getId(ui) == id) {
-                return ui;
-            }
-        }
+    /**
+     * @return a key which UIs can be grouped by, so that they can be found with
+     * {@link #findUis(Object)} and marked dirty with {@link #markUisDirty(Object)}. The key must
+     * not change while the UI is attached. Returns null by default, so no UIs are grouped.
+     */
+    protected Object getUiKey(U ui) {
         return null;
     }
 
+    protected final U findUi(final int id) {
+        return mUisById.get(id);
+    }
+
+    /**
+     * @return a copy of the attached UIs with the given key, in the order in which they were
+     * attached.
+     */
+    protected final List<U> findUis(Object key) {
+        Preconditions.checkNotNull(key, "key cannot be null");
+        final List<U> uis = mUisByKey.get(key);
+        return uis != null ? new ArrayList<>(uis) : Collections.<U>emptyList();
+    }
+
     protected final void populateUiFromEvent(BaseState.UiCausedEvent event) {
         Preconditions.checkNotNull(event, "event cannot be null");
 
@@ -149,4 +238,38 @@ abstract class BaseUiController<U extends BaseUiController.Ui<UC>, UC>
         }
     }
 
+    private void addToIndex(U ui) {
+        final int id = mNextUiId++;
+        mIdsByUi.put(ui, id);
+        mUisById.put(id, ui);
+
+        final Object key = getUiKey(ui);
+        if (key != null) {
+            List<U> uis = mUisByKey.get(key);
+            if (uis == null) {
+                uis = new ArrayList<>(1);
+                mUisByKey.put(key, uis);
+            }
+            uis.add(ui);
+        }
+    }
+
+    private void removeFromIndex(U ui) {
+        final Integer id = mIdsByUi.remove(ui);
+        if (id != null) {
+            mUisById.remove(id);
+        }
+
+        final Object key = getUiKey(ui);
+        if (key != null) {
+            final List<U> uis = mUisByKey.get(key);
+            if (uis != null) {
+                uis.remove(ui);
+                if (uis.isEmpty()) {
+                    mUisByKey.remove(key);
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import app.philm.in.model.ListItem;
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.state.MoviesState;
+import app.philm.in.state.SortedMovieList;
+import app.philm.in.util.PhilmCollections;
+
+/**
+ * Holds the list of items last given to a {@link MovieController.MovieListUi}, so that
+ * {@link MoviesState.MovieChange}s can be applied to it in place rather than rebuilding,
+ * refiltering and re-sectioning the whole list.
+ */
+final class IncrementalMovieList {
+
+    private final List<ListItem<PhilmMovie>> mItems;
+    private final List<PhilmMovie> mSource;
+    private final Set<MovieController.MovieFilter> mFilters;
+    private final List<MovieController.MovieFilter> mSections;
+    private final List<MovieController.MovieFilter> mSectionProcessingOrder;
+    private final Comparator<PhilmMovie> mComparator;
+    private final MovieListKey mKey;
+
+    private final Map<PhilmMovie, Integer> mPositions;
+    private int mValidPositions;
+
+    private Set<PhilmMovie> mSourceMovies;
+    private int mSourceMoviesSize;
+
+    /**
+     * @param comparator the order of the items if they are not sectioned, or null if they are in
+     *                   source order.
+     * @param key the inputs the items were prepared from, or null if they were not prepared from
+     *            a snapshot.
+     */
+    IncrementalMovieList(
+            List<ListItem<PhilmMovie>> items,
+            List<PhilmMovie> source,
+            Set<MovieController.MovieFilter> filters,
+            List<MovieController.MovieFilter> sections,
+            List<MovieController.MovieFilter> sectionProcessingOrder,
+            Comparator<PhilmMovie> comparator,
+            MovieListKey key) {
+        mItems = Preconditions.checkNotNull(items, "items cannot be null");
+        mSource = Preconditions.checkNotNull(source, "source cannot be null");
+        mFilters = filters;
+        mSections = sections;
+        mSectionProcessingOrder = sectionProcessingOrder != null
+                ? sectionProcessingOrder
+                : sections;
+        mComparator = comparator != null || !(source instanceof SortedMovieList)
+                ? comparator
+                : PhilmMovie.COMPARATOR_SORT_TITLE;
+        mKey = key;
+
+        mPositions = new IdentityHashMap<>(items.size());
+    }
+
+    List<ListItem<PhilmMovie>> getItems() {
+        return mItems;
+    }
+
+    boolean isBackedBy(List<PhilmMovie> source) {
+        return mSource == source;
+    }
+
+    /**
+     * @return true if the items were prepared from {@code key}, and have not been changed since.
+     * Incremental changes always come with a new snapshot, so will not match.
+     */
+    boolean isPreparedFrom(MovieListKey key) {
+        return mKey != null && mKey.equals(key);
+    }
+
+    /**
+     * @return true if the items were modified, or an item which is displayed has changed.
+     */
+    boolean apply(MoviesState.MovieChange.Type type, PhilmMovie movie) {
+        Preconditions.checkNotNull(type, "type cannot be null");
+        Preconditions.checkNotNull(movie, "movie cannot be null");
+
+        switch (type) {
+            case INSERTED:
+                return insert(movie);
+            case REMOVED:
+                return remove(movie);
+            case FLAGS:
+            case DETAIL:
+                return update(movie);
+        }
+        return false;
+    }
+
+    private boolean isSectioned() {
+        return !PhilmCollections.isEmpty(mSections);
+    }
+
+    private boolean insert(PhilmMovie movie) {
+        if (indexOf(movie) >= 0 || !MovieController.isMovieIncluded(movie, mFilters)) {
+            return false;
+        }
+
+        if (isSectioned()) {
+            final MovieController.MovieFilter section = findSection(movie);
+            if (section == null) {
+                return false;
+            }
+            insertIntoSection(section, movie);
+        } else if (mComparator != null) {
+            insertInSortedOrder(movie);
+        } else {
+            insertInSourceOrder(movie);
+        }
+        return true;
+    }
+
+    private boolean remove(PhilmMovie movie) {
+        final int index = indexOf(movie);
+        if (index < 0) {
+            return false;
+        }
+
+        removeItem(index);
+        mPositions.remove(movie);
+
+        if (isSectioned()) {
+            // Remove the section header too if it is now empty
+            final int headerIndex = index - 1;
+            if (headerIndex >= 0 && isSectionHeader(headerIndex)
+                    && (index == mItems.size() || isSectionHeader(index))) {
+                removeItem(headerIndex);
+            }
+        }
+        return true;
+    }
+
+    private boolean update(PhilmMovie movie) {
+        final int index = indexOf(movie);
+        final boolean included = MovieController.isMovieIncluded(movie, mFilters);
+
+        if (index < 0) {
+            // Not currently displayed, but the change may mean it should be now
+            return isInSource(movie) && insert(movie);
+        }
+
+        if (!included) {
+            return remove(movie);
+        }
+
+        if (isSectioned() || mComparator != null) {
+            // The change may have moved the movie into another section, or changed its sort
+            // position
+            remove(movie);
+            insert(movie);
+        }
+
+        // Displayed item has changed, so it needs re-binding
+        return true;
+    }
+
+    private void insertInSourceOrder(PhilmMovie movie) {
+        // The displayed items are a subsequence of the source list, so walk both together
+        int position = 0;
+        for (int i = 0, z = mSource.size(); i < z; i++) {
+            final PhilmMovie sourceItem = mSource.get(i);
+            if (sourceItem.equals(movie)) {
+                break;
+            }
+            if (position < mItems.size() && mItems.get(position).getListItem() == sourceItem) {
+                position++;
+            }
+        }
+        addItem(position, movie);
+    }
+
+    private void insertInSortedOrder(PhilmMovie movie) {
+        // Unsectioned, so every item is a movie
+        int low = 0;
+        int high = mItems.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mComparator.compare(mItems.get(mid).getListItem(), movie) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        addItem(low, movie);
+    }
+
+    private void insertIntoSection(MovieController.MovieFilter section, PhilmMovie movie) {
+        final int headerIndex = mItems.indexOf(section);
+
+        if (headerIndex >= 0) {
+            int position = headerIndex + 1;
+            for (int z = mItems.size(); position < z; position++) {
+                if (isSectionHeader(position) || PhilmMovie.COMPARATOR_LIST_ITEM_DATE_ASC
+                        .compare(mItems.get(position), movie) > 0) {
+                    break;
+                }
+            }
+            addItem(position, movie);
+        } else {
+            // Section isn't displayed yet, so add it before the first section which comes after
+            final int sectionOrder = mSections.indexOf(section);
+
+            int position = mItems.size();
+            for (int i = 0, z = mItems.size(); i < z; i++) {
+                if (isSectionHeader(i) && mSections.indexOf(mItems.get(i)) > sectionOrder) {
+                    position = i;
+                    break;
+                }
+            }
+            addItem(position, movie);
+            addItem(position, section);
+        }
+    }
+
+    private MovieController.MovieFilter findSection(PhilmMovie movie) {
+        for (MovieController.MovieFilter filter : mSectionProcessingOrder) {
+            if (filter.isFiltered(movie)) {
+                return filter;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSectionHeader(int index) {
+        return mItems.get(index).getListType() == ListItem.TYPE_SECTION;
+    }
+
+    private void addItem(int position, ListItem<PhilmMovie> item) {
+        mItems.add(position, item);
+        mValidPositions = Math.min(mValidPositions, position);
+    }
+
+    private void removeItem(int position) {
+        mItems.remove(position);
+        mValidPositions = Math.min(mValidPositions, position);
+    }
+
+    private int indexOf(PhilmMovie movie) {
+        Integer position = mPositions.get(movie);
+        if (position != null && position < mValidPositions) {
+            return position;
+        }
+
+        if (mValidPositions < mItems.size()) {
+            // Something has moved since the index was built, so re-index from there onwards
+            for (int i = mValidPositions, z = mItems.size(); i < z; i++) {
+                final ListItem<PhilmMovie> item = mItems.get(i);
+                if (item.getListType() == ListItem.TYPE_ITEM) {
+                    mPositions.put(item.getListItem(), i);
+                }
+            }
+            mValidPositions = mItems.size();
+            position = mPositions.get(movie);
+        }
+
+        return position != null ? position : -1;
+    }
+
+    private boolean isInSource(PhilmMovie movie) {
+        if (mSource instanceof SortedMovieList) {
+            return mSource.contains(movie);
+        }
+
+        if (mSourceMovies == null || mSourceMoviesSize != mSource.size()) {
+            mSourceMovies = Collections.newSetFromMap(
+                    new IdentityHashMap<PhilmMovie, Boolean>(mSource.size()));
+            mSourceMovies.addAll(mSource);
+            mSourceMoviesSize = mSource.size();
+        }
+        return mSourceMovies.contains(movie);
+    }
+}
@@ -16,12 +16,9 @@
 
 package app.philm.in.controllers;
 
-import static app.philm.in.util.TimeUtils.isAfterThreshold;
-import static app.philm.in.util.TimeUtils.isBeforeThreshold;
-import static app.philm.in.util.TimeUtils.isInFuture;
-import static app.philm.in.util.TimeUtils.isInPast;
-
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v4.util.ArrayMap;
 
 import com.google.common.base.Objects;
@@ -32,8 +29,12 @@ import com.squareup.otto.Subscribe;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -54,11 +55,17 @@ import app.philm.in.model.PhilmPerson;
 import app.philm.in.model.PhilmPersonCredit;
 import app.philm.in.model.PhilmUserProfile;
 import app.philm.in.model.WatchingMovie;
+import app.philm.in.network.BackgroundCallRunnable;
+import app.philm.in.network.NetworkCallRunnable;
 import app.philm.in.network.NetworkError;
 import app.philm.in.qualifiers.GeneralPurpose;
 import app.philm.in.state.AsyncDatabaseHelper;
 import app.philm.in.state.BaseState;
+import app.philm.in.state.DatabaseHelper;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.MoviesStateSnapshot;
+import app.philm.in.state.PersistedMoviesState;
+import app.philm.in.state.SortedMovieList;
 import app.philm.in.state.UserState;
 import app.philm.in.tasks.AddToTraktCollectionRunnable;
 import app.philm.in.tasks.AddToTraktWatchlistRunnable;
@@ -88,16 +95,20 @@ import app.philm.in.tasks.FetchTraktWatchingRunnable;
 import app.philm.in.tasks.FetchTraktWatchlistRunnable;
 import app.philm.in.tasks.MarkTraktMovieSeenRunnable;
 import app.philm.in.tasks.MarkTraktMovieUnseenRunnable;
+import app.philm.in.tasks.ReadPersistedMoviesStateRunnable;
 import app.philm.in.tasks.RemoveFromTraktCollectionRunnable;
 import app.philm.in.tasks.RemoveFromTraktWatchlistRunnable;
 import app.philm.in.tasks.SubmitTraktMovieRatingRunnable;
+import app.philm.in.tasks.WritePersistedMoviesStateRunnable;
 import app.philm.in.util.BackgroundExecutor;
+import app.philm.in.util.ImagePrefetcher;
 import app.philm.in.util.Injector;
 import app.philm.in.util.Logger;
 import app.philm.in.util.PhilmCollections;
 import app.philm.in.util.PhilmPreferences;
 import app.philm.in.util.StringFetcher;
 import app.philm.in.util.TextUtils;
+import app.philm.in.util.TimeUtils;
 
 @Singleton
 public class MovieController extends BaseUiController<MovieController.MovieUi,
@@ -116,10 +127,85 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     private final PhilmPreferences mPreferences;
     private final StringFetcher mStringFetcher;
     private final Injector mInjector;
+    private final ImagePrefetcher mImagePrefetcher;
+
+    private final Map<MovieListUi, IncrementalMovieList> mMovieLists = new ArrayMap<>();
+
+    /**
+     * The last list prepared for each query type, so that it can be given to other UIs showing
+     * the same list without preparing it again. One list is kept per sort order, so that
+     * switching back to an order is instant.
+     */
+    private final Map<MovieQueryType, List<PreparedMovieList>> mPreparedMovieLists
+            = new ArrayMap<>();
+
+    /**
+     * The inputs of lists currently being prepared in the background, keyed on the UI they are
+     * for.
+     */
+    private final Map<MovieListUi, MovieListKey> mPendingMovieLists = new ArrayMap<>();
+
+    private static final int DB_LIBRARY_FIRST_PAGE_SIZE = 30;
+    private static final int DB_LIBRARY_PAGE_SIZE = 250;
+    private static final int LOCAL_SEARCH_LIMIT = 20;
+
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int SEARCH_MIN_QUERY_LENGTH = 2;
+    private static final int SEARCH_CACHE_SIZE = 20;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private Runnable mPendingSearch;
+
+    /**
+     * Recent search results by query, so that going back to a query, such as when deleting
+     * characters, is instant. Access ordered, so the least recently used result is dropped.
+     */
+    private final Map<String, MoviesState.SearchResult> mSearchResultCache
+            = new LinkedHashMap<String, MoviesState.SearchResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MoviesState.SearchResult> eldest) {
+            return size() > SEARCH_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Search calls which have been started, with the query they are for, so that they can be
+     * cancelled once the query changes.
+     */
+    private final Map<NetworkCallRunnable<?>, String> mSearchCalls = new ArrayMap<>();
+
+    /**
+     * Calling ids of the Discover warm-up fetches, one per tab so that a failure can be traced
+     * back to its tab. They are not tied to a UI, and are negative so that they never collide
+     * with the id of a UI or with the 0 used by fetches made while no UI is attached.
+     */
+    private static final int DISCOVER_WARM_UP_POPULAR_CALLING_ID = -1;
+    private static final int DISCOVER_WARM_UP_NOW_PLAYING_CALLING_ID = -2;
+    private static final int DISCOVER_WARM_UP_UPCOMING_CALLING_ID = -3;
+
+    private boolean mWarmedUpDiscover = false;
+
+    /**
+     * Discover tabs whose first page is currently being fetched by the warm-up.
+     */
+    private final Set<MovieQueryType> mWarmingUpDiscoverTabs = EnumSet.noneOf(MovieQueryType.class);
 
     private boolean mPopulatedLibraryFromDb = false;
+    private boolean mLoadedAllLibraryFromDb = false;
     private boolean mPopulatedWatchlistFromDb = false;
 
+    private final Set<Integer> mMovieDetailsLoadedFromDb = new HashSet<>();
+
+    private boolean mReadPersistedState = false;
+    private PersistedMoviesState mPendingPersistedState;
+
+    /**
+     * The lists which were restored from the persisted state and have not been fetched since,
+     * and when that state was saved.
+     */
+    private final Set<MovieQueryType> mRestoredLists = EnumSet.noneOf(MovieQueryType.class);
+    private long mRestoredStateSavedTime;
+
     @Inject
     public MovieController(
             MoviesState movieState,
@@ -128,7 +214,8 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             Logger logger,
             PhilmPreferences preferences,
             StringFetcher stringFetcher,
-            Injector injector) {
+            Injector injector,
+            ImagePrefetcher imagePrefetcher) {
         super();
         mMoviesState = Preconditions.checkNotNull(movieState, "moviesState cannot be null");
         mExecutor = Preconditions.checkNotNull(executor, "executor cannot be null");
@@ -137,11 +224,17 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         mPreferences = Preconditions.checkNotNull(preferences, "preferences cannot be null");
         mStringFetcher = Preconditions.checkNotNull(stringFetcher, "stringFetcher cannot be null");
         mInjector = Preconditions.checkNotNull(injector, "injector cannot be null");
+        mImagePrefetcher = Preconditions.checkNotNull(imagePrefetcher,
+                "imagePrefetcher cannot be null");
     }
 
     @Subscribe
     public void onLibraryChanged(MoviesState.LibraryChangedEvent event) {
-        populateUiFromQueryType(MovieQueryType.LIBRARY);
+        if (event.isIncremental()) {
+            applyMovieChanges(MovieQueryType.LIBRARY, event.changes);
+        } else {
+            populateUiFromQueryType(MovieQueryType.LIBRARY);
+        }
     }
 
     @Subscribe
@@ -151,22 +244,29 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     @Subscribe
     public void onPopularChanged(MoviesState.PopularChangedEvent event) {
+        onDiscoverTabWarmedUp(MovieQueryType.POPULAR, mMoviesState.getPopular());
         populateUiFromQueryType(MovieQueryType.POPULAR);
     }
 
     @Subscribe
     public void onInTheatresChanged(MoviesState.InTheatresChangedEvent event) {
+        onDiscoverTabWarmedUp(MovieQueryType.NOW_PLAYING, mMoviesState.getNowPlaying());
         populateUiFromQueryType(MovieQueryType.NOW_PLAYING);
     }
 
     @Subscribe
     public void onUpcomingChanged(MoviesState.UpcomingChangedEvent event) {
+        onDiscoverTabWarmedUp(MovieQueryType.UPCOMING, mMoviesState.getUpcoming());
         populateUiFromQueryType(MovieQueryType.UPCOMING);
     }
 
     @Subscribe
     public void onWatchlistChanged(MoviesState.WatchlistChangedEvent event) {
-        populateUiFromQueryType(MovieQueryType.WATCHLIST);
+        if (event.isIncremental()) {
+            applyMovieChanges(MovieQueryType.WATCHLIST, event.changes);
+        } else {
+            populateUiFromQueryType(MovieQueryType.WATCHLIST);
+        }
     }
 
     @Subscribe
@@ -175,7 +275,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         mMoviesState.setLibrary(null);
         mMoviesState.setWatchlist(null);
         mMoviesState.setRecommended(null);
-        mMoviesState.setSearchResult(null);
+        clearSearch();
         mMoviesState.getImdbIdMovies().clear();
         mMoviesState.getTmdbIdMovies().clear();
         mMoviesState.setWatchingMovie(null);
@@ -205,6 +305,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     @Subscribe
     public void onTmdbConfigurationChanged(MoviesState.TmdbConfigurationChangedEvent event) {
         populateUis();
+        warmUpDiscoverIfNeeded();
     }
 
     @Subscribe
@@ -215,17 +316,35 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             if (MovieQueryType.RECOMMENDED == ui.getMovieQueryType()) {
                 fetchRecommended(event.callingId);
             }
+        }
 
-            populateUi(ui);
-        } else {
-            populateUis();
+        // List UIs can apply the changes in place. Anything else needs a full populate.
+        for (MovieUi attachedUi : getUis()) {
+            if (attachedUi instanceof MovieListUi) {
+                applyMovieChanges((MovieListUi) attachedUi, event.changes);
+            } else if (ui == null || ui == attachedUi) {
+                markUiDirty(attachedUi);
+            }
         }
+        populateDirtyUis();
     }
 
     @Subscribe
     public void onMovieDetailChanged(MoviesState.MovieInformationUpdatedEvent event) {
         populateUiFromEvent(event);
         checkDetailMovieResult(event.callingId, event.item);
+
+        if (!MoviesState.MovieChange.canTrack(event.item)) {
+            return;
+        }
+
+        final List<MoviesState.MovieChange> changes = Collections.singletonList(
+                new MoviesState.MovieChange(MoviesState.MovieChange.Type.DETAIL, event.item));
+        for (MovieUi ui : getUis()) {
+            if (ui instanceof MovieListUi) {
+                applyMovieChanges((MovieListUi) ui, changes);
+            }
+        }
     }
 
     @Subscribe
@@ -257,8 +376,35 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         populateUiFromEvent(event);
     }
 
+    @Subscribe
+    public void onMovieCastChanged(MoviesState.MovieCastItemsUpdatedEvent event) {
+        populateUiFromEvent(event);
+    }
+
+    @Subscribe
+    public void onMovieVideosChanged(MoviesState.MovieVideosItemsUpdatedEvent event) {
+        populateUiFromEvent(event);
+    }
+
+    @Subscribe
+    public void onMovieRelatedChanged(MoviesState.MovieRelatedItemsUpdatedEvent event) {
+        populateUiFromEvent(event);
+    }
+
     @Subscribe
     public void onNetworkError(BaseState.OnErrorEvent event) {
+        switch (event.callingId) {
+            case DISCOVER_WARM_UP_POPULAR_CALLING_ID:
+                onDiscoverWarmUpFailed(MovieQueryType.POPULAR);
+                break;
+            case DISCOVER_WARM_UP_NOW_PLAYING_CALLING_ID:
+                onDiscoverWarmUpFailed(MovieQueryType.NOW_PLAYING);
+                break;
+            case DISCOVER_WARM_UP_UPCOMING_CALLING_ID:
+                onDiscoverWarmUpFailed(MovieQueryType.UPCOMING);
+                break;
+        }
+
         MovieUi ui = findUi(event.callingId);
         if (ui != null && null != event.error) {
             ui.showError(event.error);
@@ -281,10 +427,13 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     protected void onInited() {
         super.onInited();
         populateStateFromDb();
+        readPersistedStateIfNeeded();
         mMoviesState.registerForEvents(this);
 
         if (mMoviesState.getTmdbConfiguration() == null) {
             fetchTmdbConfiguration();
+        } else {
+            warmUpDiscoverIfNeeded();
         }
 
         if (isLoggedIn()) {
@@ -296,6 +445,8 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     protected void onSuspended() {
         super.onSuspended();
         mMoviesState.unregisterForEvents(this);
+        writePersistedState();
+        mDbHelper.flush();
     }
 
     @Override
@@ -374,7 +525,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
             @Override
             public void addFilter(MovieFilter filter) {
-                if (mMoviesState.getFilters().add(filter)) {
+                if (mMoviesState.addFilter(filter)) {
                     removeMutuallyExclusiveFilters(filter);
                     populateUi(ui);
                 }
@@ -382,15 +533,21 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
             @Override
             public void removeFilter(MovieFilter filter) {
-                if (mMoviesState.getFilters().remove(filter)) {
+                if (mMoviesState.removeFilter(filter)) {
                     populateUi(ui);
                 }
             }
 
             @Override
             public void clearFilters() {
-                if (!mMoviesState.getFilters().isEmpty()) {
-                    mMoviesState.getFilters().clear();
+                if (mMoviesState.clearFilters()) {
+                    populateUi(ui);
+                }
+            }
+
+            @Override
+            public void setSortOrder(MovieSortOrder sortOrder) {
+                if (mMoviesState.setSortOrder(sortOrder)) {
                     populateUi(ui);
                 }
             }
@@ -438,16 +595,6 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                 }
             }
 
-            @Override
-            public void showMovieDetail(PhilmPersonCredit credit, Bundle bundle) {
-                Preconditions.checkNotNull(credit, "credit cannot be null");
-
-                Display display = getDisplay();
-                if (display != null) {
-                    display.startMovieDetailActivity(String.valueOf(credit.getId()), bundle);
-                }
-            }
-
             @Override
             public void toggleMovieSeen(PhilmMovie movie) {
                 Preconditions.checkNotNull(movie, "movie cannot be null");
@@ -534,22 +681,37 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
             @Override
             public void search(String query) {
-                switch (ui.getMovieQueryType()) {
-                    case SEARCH:
-                        fetchSearchResults(getId(ui), query);
-                        break;
-                    case SEARCH_MOVIES:
-                        fetchMovieSearchResults(getId(ui), query);
-                        break;
-                    case SEARCH_PEOPLE:
-                        fetchPeopleSearchResults(getId(ui), query);
-                        break;
+                cancelPendingSearch();
+                MovieController.this.search(getId(ui), ui.getMovieQueryType(), query, true);
+            }
+
+            @Override
+            public void onSearchQueryChanged(final String query) {
+                cancelPendingSearch();
+
+                if (TextUtils.isEmpty(query)) {
+                    MovieController.this.clearSearch();
+                    return;
                 }
+                if (query.trim().length() < SEARCH_MIN_QUERY_LENGTH) {
+                    return;
+                }
+
+                final int callingId = getId(ui);
+                final MovieQueryType queryType = ui.getMovieQueryType();
+                mPendingSearch = new Runnable() {
+                    @Override
+                    public void run() {
+                        mPendingSearch = null;
+                        MovieController.this.search(callingId, queryType, query, false);
+                    }
+                };
+                mHandler.postDelayed(mPendingSearch, SEARCH_DEBOUNCE_MS);
             }
 
             @Override
             public void clearSearch() {
-                mMoviesState.setSearchResult(null);
+                MovieController.this.clearSearch();
             }
 
             @Override
@@ -578,7 +740,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                     case POPULAR:
                         result = mMoviesState.getPopular();
                         if (canFetchNextPage(result)) {
-                            fetchPopular(getId(ui), result.page + 1);
+                            loadPage(getId(ui), MovieQueryType.POPULAR, result, result.page + 1);
                         }
                         break;
                     case SEARCH_PEOPLE:
@@ -586,7 +748,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                         if (searchResult != null && canFetchNextPage(searchResult.people)) {
                             fetchPeopleSearchResults(
                                     getId(ui),
-                                    searchResult.query,
+                                    searchResult,
                                     searchResult.people.page + 1);
                         }
                         break;
@@ -595,19 +757,48 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                         if (searchResult != null && canFetchNextPage(searchResult.movies)) {
                             fetchMovieSearchResults(
                                     getId(ui),
-                                    searchResult.query,
+                                    searchResult,
                                     searchResult.movies.page + 1);
                         }
                         break;
+                    case NOW_PLAYING:
+                        result = mMoviesState.getNowPlaying();
+                        if (canFetchNextPage(result)) {
+                            loadPage(getId(ui), MovieQueryType.NOW_PLAYING, result,
+                                    result.page + 1);
+                        }
+                        break;
                     case UPCOMING:
                         result = mMoviesState.getUpcoming();
                         if (canFetchNextPage(result)) {
-                            fetchUpcoming(getId(ui), result.page + 1);
+                            loadPage(getId(ui), MovieQueryType.UPCOMING, result,
+                                    result.page + 1);
                         }
                         break;
                 }
             }
 
+            @Override
+            public void onScrolledToTop() {
+                MoviesState.MoviePaginatedResult result = null;
+
+                switch (ui.getMovieQueryType()) {
+                    case POPULAR:
+                        result = mMoviesState.getPopular();
+                        break;
+                    case NOW_PLAYING:
+                        result = mMoviesState.getNowPlaying();
+                        break;
+                    case UPCOMING:
+                        result = mMoviesState.getUpcoming();
+                        break;
+                }
+
+                if (result != null && result.hasPreviousPage()) {
+                    loadPage(getId(ui), ui.getMovieQueryType(), result, result.firstPage - 1);
+                }
+            }
+
             @Override
             public void showRelatedMovies(PhilmMovie movie) {
                 Preconditions.checkNotNull(movie, "movie cannot be null");
@@ -845,6 +1036,17 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         }
     }
 
+    @Override
+    protected void onUiDetached(MovieUi ui) {
+        mMovieLists.remove(ui);
+        mPendingMovieLists.remove(ui);
+    }
+
+    @Override
+    protected Object getUiKey(MovieUi ui) {
+        return ui.getMovieQueryType();
+    }
+
     @Override
     protected void populateUi(final MovieUi ui) {
         if (!isLoggedIn() && ui.getMovieQueryType().requireLogin()) {
@@ -903,6 +1105,40 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         executeTask(new AddToTraktWatchlistRunnable(callingId, ids));
     }
 
+    private void applyMovieChanges(MovieQueryType queryType,
+            List<MoviesState.MovieChange> changes) {
+        for (MovieUi ui : findUis(queryType)) {
+            if (ui instanceof MovieListUi) {
+                applyMovieChanges((MovieListUi) ui, changes);
+            } else {
+                markUiDirty(ui);
+            }
+        }
+        populateDirtyUis();
+    }
+
+    private void applyMovieChanges(MovieListUi ui, List<MoviesState.MovieChange> changes) {
+        final IncrementalMovieList list = mMovieLists.get(ui);
+
+        if (list == null || !list.isBackedBy(getMovieListUiSource(ui))) {
+            // We don't have anything to apply the changes to, so populate from scratch
+            populateUi(ui);
+            return;
+        }
+
+        boolean changed = false;
+        for (MoviesState.MovieChange change : changes) {
+            final PhilmMovie movie = mMoviesState.getMovie(change.movieId);
+            if (movie != null) {
+                changed |= list.apply(change.type, movie);
+            }
+        }
+
+        if (changed) {
+            ui.notifyItemsChanged();
+        }
+    }
+
     private void cancelCheckin(int callingId) {
         if (mMoviesState.getWatchingMovie() != null) {
             executeTask(new CancelCheckinTraktRunnable(callingId));
@@ -930,10 +1166,17 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         return listItems;
     }
 
-    private <T extends ListItem<T>, F extends Filter<T>> List<ListItem<T>> createSectionedListItemList(
-            final List<T> items,
-            final List<F> sections,
-            List<F> sectionProcessingOrder) {
+    /**
+     * Groups {@code items} into sections in a single pass, with each item going into the first
+     * section of {@code sectionProcessingOrder} which matches it. The sections are then returned
+     * in the order of {@code sections}, each headed by its filter.
+     *
+     * @param items the items to section. This is sorted in place.
+     */
+    private List<ListItem<PhilmMovie>> createSectionedListItemList(
+            final List<PhilmMovie> items,
+            final List<MovieFilter> sections,
+            List<MovieFilter> sectionProcessingOrder) {
         Preconditions.checkNotNull(items, "items cannot be null");
         Preconditions.checkNotNull(sections, "sections cannot be null");
 
@@ -944,51 +1187,101 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             sectionProcessingOrder = sections;
         }
 
-        final List<ListItem<T>> result = new ArrayList<>(items.size());
-        final HashSet<T> movies = new HashSet<>(items);
+        final int sectionCount = sectionProcessingOrder.size();
+
+        // If every section is sorted the same way, sorting the items once up front means each
+        // section is already in order as it is filled
+        final Comparator<ListItem<PhilmMovie>> comparator
+                = getSharedComparator(sectionProcessingOrder);
+        if (comparator != null) {
+            Collections.sort(items, comparator);
+        }
 
-        Map<F, List<ListItem<T>>> sectionsItemLists = null;
+        // First pass works out which section each item is in, and how big each section is
+        final int[] itemSections = new int[items.size()];
+        final int[] sectionSizes = new int[sectionCount];
+        final long now = System.currentTimeMillis();
 
-        for (F filter : sectionProcessingOrder) {
-            List<ListItem<T>> sectionItems = null;
+        for (int i = 0, z = items.size(); i < z; i++) {
+            final PhilmMovie item = items.get(i);
+            itemSections[i] = -1;
 
-            for (Iterator<T> i = movies.iterator(); i.hasNext(); ) {
-                T item = i.next();
-                if (item != null && filter.isFiltered(item)) {
-                    if (sectionItems == null) {
-                        sectionItems = new ArrayList<>();
-                        sectionItems.add(filter);
+            if (item != null) {
+                final int flags = item.getFilterFlags(now);
+                for (int section = 0; section < sectionCount; section++) {
+                    if (sectionProcessingOrder.get(section).isFiltered(flags)) {
+                        itemSections[i] = section;
+                        sectionSizes[section]++;
+                        break;
                     }
-                    sectionItems.add(item);
-                    i.remove();
                 }
             }
+        }
 
-            if (!PhilmCollections.isEmpty(sectionItems)) {
-                if (sectionsItemLists == null) {
-                    sectionsItemLists = new ArrayMap<>();
-                }
-                filter.sortListItems(sectionItems);
-                sectionsItemLists.put(filter, sectionItems);
+        // Second pass fills the sections, which can now be allocated at their exact size
+        final List<List<ListItem<PhilmMovie>>> sectionItems = new ArrayList<>(sectionCount);
+        int resultSize = 0;
+
+        for (int section = 0; section < sectionCount; section++) {
+            if (sectionSizes[section] > 0) {
+                final List<ListItem<PhilmMovie>> list = new ArrayList<>(sectionSizes[section] + 1);
+                list.add(sectionProcessingOrder.get(section));
+                sectionItems.add(list);
+                resultSize += sectionSizes[section] + 1;
+            } else {
+                sectionItems.add(null);
+            }
+        }
+
+        for (int i = 0, z = items.size(); i < z; i++) {
+            if (itemSections[i] >= 0) {
+                sectionItems.get(itemSections[i]).add(items.get(i));
             }
         }
 
-        if (sectionsItemLists != null) {
-            for (F filter : sections) {
-                if (sectionsItemLists.containsKey(filter)) {
-                    result.addAll(sectionsItemLists.get(filter));
+        final List<ListItem<PhilmMovie>> result = new ArrayList<>(resultSize);
+        for (MovieFilter filter : sections) {
+            final int section = sectionProcessingOrder.indexOf(filter);
+            final List<ListItem<PhilmMovie>> list = sectionItems.get(section);
+            if (list != null) {
+                if (comparator == null) {
+                    filter.sortListItems(list);
                 }
+                result.addAll(list);
             }
         }
 
         return result;
     }
 
+    /**
+     * @return the comparator which all of {@code filters} sort with, or null if they differ.
+     */
+    private static Comparator<ListItem<PhilmMovie>> getSharedComparator(
+            List<MovieFilter> filters) {
+        Comparator<ListItem<PhilmMovie>> comparator = null;
+        for (int i = 0, z = filters.size(); i < z; i++) {
+            final Comparator<ListItem<PhilmMovie>> filterComparator
+                    = filters.get(i).getListItemComparator();
+            if (i == 0) {
+                comparator = filterComparator;
+            } else if (comparator != filterComparator) {
+                return null;
+            }
+        }
+        return comparator;
+    }
+
     private <R> void executeTask(BaseMovieRunnable<R> task) {
         mInjector.inject(task);
         mExecutor.execute(task);
     }
 
+    private <R> void executeTask(BackgroundCallRunnable<R> task) {
+        mInjector.inject(task);
+        mExecutor.execute(task);
+    }
+
     private void fetchDetailMovie(final int callingId, String id) {
         Preconditions.checkNotNull(id, "id cannot be null");
 
@@ -1001,7 +1294,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         }
     }
 
-    private void fetchDetailMovieFromTmdb(final int callingId, int id) {
+    private void fetchDetailMovieFromTmdb(final int callingId, int id, int aspects) {
         Preconditions.checkNotNull(id, "id cannot be null");
 
         PhilmMovie movie = mMoviesState.getMovie(id);
@@ -1009,7 +1302,50 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             movie.markFullFetchStarted(PhilmModel.TYPE_TMDB);
         }
 
-        executeTask(new FetchTmdbDetailMovieRunnable(callingId, id));
+        executeTask(new FetchTmdbDetailMovieRunnable(callingId, id, aspects));
+    }
+
+    /**
+     * Fetches the aspects of {@code movie} which are stale. A single stale aspect, other than the
+     * summary, is fetched on its own. Otherwise they are appended to one summary call, which is
+     * cheaper than making a call for each.
+     */
+    private void fetchStaleDetailFromTmdb(final int callingId, PhilmMovie movie, boolean force) {
+        final Integer tmdbId = movie.getTmdbId();
+        if (tmdbId == null) {
+            return;
+        }
+
+        if (force) {
+            fetchDetailMovieFromTmdb(callingId, tmdbId, PhilmMovie.TMDB_ASPECTS_DETAIL);
+            return;
+        }
+        if (!movie.needFullFetchFromTmdb()) {
+            return;
+        }
+
+        final int stale = movie.getStaleTmdbAspects(PhilmMovie.TMDB_ASPECTS_DETAIL);
+        switch (stale) {
+            case PhilmMovie.TMDB_ASPECT_CREDITS:
+                movie.markFullFetchStarted(PhilmModel.TYPE_TMDB);
+                fetchMovieCredits(callingId, movie);
+                break;
+            case PhilmMovie.TMDB_ASPECT_VIDEOS:
+                movie.markFullFetchStarted(PhilmModel.TYPE_TMDB);
+                fetchTrailers(callingId, movie);
+                break;
+            case PhilmMovie.TMDB_ASPECT_RELEASES:
+                movie.markFullFetchStarted(PhilmModel.TYPE_TMDB);
+                fetchMovieReleases(callingId, tmdbId);
+                break;
+            case PhilmMovie.TMDB_ASPECT_SIMILAR:
+                movie.markFullFetchStarted(PhilmModel.TYPE_TMDB);
+                fetchRelatedMovies(callingId, movie);
+                break;
+            default:
+                fetchDetailMovieFromTmdb(callingId, tmdbId, stale);
+                break;
+        }
     }
 
     private void fetchDetailMovieFromTrakt(final int callingId, String id) {
@@ -1037,6 +1373,8 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     private void fetchDetailMovieIfNeeded(int callingId, PhilmMovie movie, boolean force) {
         Preconditions.checkNotNull(movie, "movie cannot be null");
 
+        final boolean loadingFromDb = loadMovieDetailFromDbIfNeeded(callingId, movie, force);
+
         if (isLoggedIn() && (force || movie.needFullFetchFromTrakt())) {
             if (movie.getImdbId() != null) {
                 fetchDetailMovieFromTrakt(callingId, movie.getImdbId());
@@ -1045,18 +1383,17 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             }
         }
 
-        if (force || movie.needFullFetchFromTmdb()) {
-            if (movie.getTmdbId() != null) {
-                fetchDetailMovieFromTmdb(callingId, movie.getTmdbId());
-            }
+        if (!loadingFromDb) {
+            fetchStaleDetailFromTmdb(callingId, movie, force);
         }
+        // Otherwise the stale aspects are fetched once the persisted ones have been loaded
     }
 
     private void fetchRelatedIfNeeded(final int callingId, String id) {
         Preconditions.checkNotNull(id, "id cannot be null");
 
         PhilmMovie movie = mMoviesState.getMovie(id);
-        if (movie != null && PhilmCollections.isEmpty(movie.getRelated())) {
+        if (movie != null && movie.isMissingTmdbAspect(PhilmMovie.TMDB_ASPECT_SIMILAR)) {
             fetchRelatedMovies(callingId, movie);
         }
     }
@@ -1065,7 +1402,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         Preconditions.checkNotNull(id, "id cannot be null");
 
         PhilmMovie movie = mMoviesState.getMovie(id);
-        if (movie != null && PhilmCollections.isEmpty(movie.getCast())) {
+        if (movie != null && movie.isMissingTmdbAspect(PhilmMovie.TMDB_ASPECT_CREDITS)) {
             fetchMovieCredits(callingId, movie);
         }
     }
@@ -1074,7 +1411,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         Preconditions.checkNotNull(id, "id cannot be null");
 
         PhilmMovie movie = mMoviesState.getMovie(id);
-        if (movie != null && PhilmCollections.isEmpty(movie.getCrew())) {
+        if (movie != null && movie.isMissingTmdbAspect(PhilmMovie.TMDB_ASPECT_CREDITS)) {
             fetchMovieCredits(callingId, movie);
         }
     }
@@ -1119,13 +1456,19 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     }
 
     private void fetchNowPlaying(final int callingId, final int page) {
+        if (page == TMDB_FIRST_PAGE) {
+            mRestoredLists.remove(MovieQueryType.NOW_PLAYING);
+        }
         executeTask(new FetchTmdbNowPlayingRunnable(callingId, page));
     }
 
     private void fetchNowPlayingIfNeeded(final int callingId) {
         MoviesState.MoviePaginatedResult nowPlaying = mMoviesState.getNowPlaying();
-        if (nowPlaying == null || PhilmCollections.isEmpty(nowPlaying.items)) {
+        if ((nowPlaying == null || PhilmCollections.isEmpty(nowPlaying.items))
+                && !mWarmingUpDiscoverTabs.contains(MovieQueryType.NOW_PLAYING)) {
             fetchNowPlaying(callingId, TMDB_FIRST_PAGE);
+        } else if (isRestoredListStale(MovieQueryType.NOW_PLAYING)) {
+            fetchNowPlaying(callingId);
         }
     }
 
@@ -1135,13 +1478,73 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     }
 
     private void fetchPopular(final int callingId, final int page) {
+        if (page == TMDB_FIRST_PAGE) {
+            mRestoredLists.remove(MovieQueryType.POPULAR);
+        }
         executeTask(new FetchTmdbPopularRunnable(callingId, page));
     }
 
+    /**
+     * Loads {@code page} of a windowed list. Evicted pages are restored from the movies still
+     * held in the state if possible, otherwise the page is fetched again.
+     */
+    private void loadPage(final int callingId, MovieQueryType queryType,
+            MoviesState.MoviePaginatedResult result, int page) {
+        if (restoreEvictedPage(result, page)) {
+            switch (queryType) {
+                case POPULAR:
+                    mMoviesState.setPopular(result);
+                    break;
+                case NOW_PLAYING:
+                    mMoviesState.setNowPlaying(result);
+                    break;
+                case UPCOMING:
+                    mMoviesState.setUpcoming(result);
+                    break;
+            }
+            return;
+        }
+
+        switch (queryType) {
+            case POPULAR:
+                fetchPopular(callingId, page);
+                break;
+            case NOW_PLAYING:
+                fetchNowPlaying(callingId, page);
+                break;
+            case UPCOMING:
+                fetchUpcoming(callingId, page);
+                break;
+        }
+    }
+
+    private boolean restoreEvictedPage(MoviesState.MoviePaginatedResult result, int page) {
+        final List<String> ids = result.getEvictedPageIds(page);
+        if (ids == null) {
+            return false;
+        }
+
+        final List<PhilmMovie> movies = new ArrayList<>(ids.size());
+        for (int i = 0, z = ids.size(); i < z; i++) {
+            final PhilmMovie movie = mMoviesState.getMovie(ids.get(i));
+            if (movie == null) {
+                // No longer held, so the page needs fetching again
+                return false;
+            }
+            movies.add(movie);
+        }
+
+        result.addPage(page, movies, Constants.PAGINATED_WINDOW_PAGES);
+        return true;
+    }
+
     private void fetchPopularIfNeeded(final int callingId) {
         MoviesState.MoviePaginatedResult popular = mMoviesState.getPopular();
-        if (popular == null || PhilmCollections.isEmpty(popular.items)) {
+        if ((popular == null || PhilmCollections.isEmpty(popular.items))
+                && !mWarmingUpDiscoverTabs.contains(MovieQueryType.POPULAR)) {
             fetchPopular(callingId, TMDB_FIRST_PAGE);
+        } else if (isRestoredListStale(MovieQueryType.POPULAR)) {
+            fetchPopular(callingId);
         }
     }
 
@@ -1149,7 +1552,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         Preconditions.checkNotNull(id, "id cannot be null");
 
         PhilmMovie movie = mMoviesState.getMovie(id);
-        if (movie != null && PhilmCollections.isEmpty(movie.getBackdropImages())) {
+        if (movie != null && movie.isMissingTmdbAspect(PhilmMovie.TMDB_ASPECT_IMAGES)) {
             fetchMovieImages(callingId, id);
         }
     }
@@ -1165,11 +1568,13 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     private void fetchRecommended(final int callingId) {
         Preconditions.checkState(isLoggedIn(), "Must be logged in to trakt for recommendations");
+        mRestoredLists.remove(MovieQueryType.RECOMMENDED);
         executeTask(new FetchTraktRecommendationsRunnable(callingId));
     }
 
     private void fetchRecommendedIfNeeded(final int callingId) {
-        if (PhilmCollections.isEmpty(mMoviesState.getRecommended())) {
+        if (PhilmCollections.isEmpty(mMoviesState.getRecommended())
+                || isRestoredListStale(MovieQueryType.RECOMMENDED)) {
             fetchRecommended(callingId);
         }
     }
@@ -1202,28 +1607,217 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         executeTask(new FetchTmdbPersonRunnable(callingId, id));
     }
 
+    /**
+     * Searches for {@code query}, using the cached result for it if it has one. Calls for any
+     * other query are cancelled.
+     *
+     * @param submitted true if the user submitted the query, in which case a search which has
+     *                  not returned any results yet is started again.
+     */
+    private void search(final int callingId, MovieQueryType queryType, String query,
+            boolean submitted) {
+        final String trimmedQuery = query != null ? query.trim() : null;
+        if (TextUtils.isEmpty(trimmedQuery)) {
+            return;
+        }
+
+        cancelSearchCalls(trimmedQuery);
+
+        final MoviesState.SearchResult current = mMoviesState.getSearchResult();
+        if (current != null && trimmedQuery.equals(current.query)
+                && (!submitted || hasSearchResults(current, queryType))) {
+            // Already showing, or still searching for, this query
+            return;
+        }
+
+        final MoviesState.SearchResult cached = mSearchResultCache.get(trimmedQuery);
+        if (cached != null && hasSearchResults(cached, queryType)) {
+            mMoviesState.setSearchResult(cached);
+            return;
+        }
+
+        switch (queryType) {
+            case SEARCH:
+                fetchSearchResults(callingId, trimmedQuery);
+                break;
+            case SEARCH_MOVIES:
+                fetchMovieSearchResults(callingId, trimmedQuery);
+                break;
+            case SEARCH_PEOPLE:
+                fetchPeopleSearchResults(callingId, trimmedQuery);
+                break;
+        }
+    }
+
+    private void clearSearch() {
+        cancelPendingSearch();
+        cancelSearchCalls(null);
+        mSearchResultCache.clear();
+        mMoviesState.setSearchResult(null);
+    }
+
+    private void cancelPendingSearch() {
+        if (mPendingSearch != null) {
+            mHandler.removeCallbacks(mPendingSearch);
+            mPendingSearch = null;
+        }
+    }
+
+    /**
+     * Cancels the search calls which are not for {@code query}, or every call if it is null.
+     */
+    private void cancelSearchCalls(String query) {
+        final Iterator<Map.Entry<NetworkCallRunnable<?>, String>> iterator
+                = mSearchCalls.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<NetworkCallRunnable<?>, String> entry = iterator.next();
+            if (query == null || !query.equals(entry.getValue())) {
+                entry.getKey().cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return true if TMDB has returned results for every part of {@code result} which
+     * {@code queryType} displays. Local hits alone do not count.
+     */
+    private static boolean hasSearchResults(MoviesState.SearchResult result,
+            MovieQueryType queryType) {
+        final boolean movies = result.movies != null && result.movies.page > 0;
+        final boolean people = result.people != null && result.people.page > 0;
+        switch (queryType) {
+            case SEARCH_MOVIES:
+                return movies;
+            case SEARCH_PEOPLE:
+                return people;
+            default:
+                return movies && people;
+        }
+    }
+
     private void fetchSearchResults(final int callingId, String query) {
-        mMoviesState.setSearchResult(new MoviesState.SearchResult(query));
-        fetchMovieSearchResults(callingId, query, TMDB_FIRST_PAGE);
-        fetchPeopleSearchResults(callingId, query, TMDB_FIRST_PAGE);
+        final MoviesState.SearchResult searchResult = searchLocally(query, true, true);
+        fetchMovieSearchResults(callingId, searchResult, TMDB_FIRST_PAGE);
+        fetchPeopleSearchResults(callingId, searchResult, TMDB_FIRST_PAGE);
     }
 
     private void fetchMovieSearchResults(final int callingId, String query) {
-        mMoviesState.setSearchResult(new MoviesState.SearchResult(query));
-        fetchMovieSearchResults(callingId, query, TMDB_FIRST_PAGE);
+        final MoviesState.SearchResult searchResult = searchLocally(query, true, false);
+        fetchMovieSearchResults(callingId, searchResult, TMDB_FIRST_PAGE);
     }
 
     private void fetchPeopleSearchResults(final int callingId, String query) {
-        mMoviesState.setSearchResult(new MoviesState.SearchResult(query));
-        fetchPeopleSearchResults(callingId, query, TMDB_FIRST_PAGE);
+        final MoviesState.SearchResult searchResult = searchLocally(query, false, true);
+        fetchPeopleSearchResults(callingId, searchResult, TMDB_FIRST_PAGE);
+    }
+
+    /**
+     * Starts a new search result for {@code query}, and searches the local index so that movies
+     * and people we already know about are displayed before TMDB responds.
+     */
+    private MoviesState.SearchResult searchLocally(String query, boolean movies, boolean people) {
+        final MoviesState.SearchResult searchResult = new MoviesState.SearchResult(query);
+        mSearchResultCache.put(query, searchResult);
+        mMoviesState.setSearchResult(searchResult);
+        mDbHelper.search(query, LOCAL_SEARCH_LIMIT,
+                new LocalSearchCallback(searchResult, movies, people));
+        return searchResult;
+    }
+
+    private void fetchMovieSearchResults(final int callingId,
+            MoviesState.SearchResult searchResult, int page) {
+        final FetchTmdbSearchMoviesRunnable task
+                = new FetchTmdbSearchMoviesRunnable(callingId, searchResult, page);
+        mSearchCalls.put(task, searchResult.query);
+        executeTask(task);
+    }
+
+    private void fetchPeopleSearchResults(final int callingId,
+            MoviesState.SearchResult searchResult, int page) {
+        final FetchTmdbSearchPeopleRunnable task
+                = new FetchTmdbSearchPeopleRunnable(callingId, searchResult, page);
+        mSearchCalls.put(task, searchResult.query);
+        executeTask(task);
+    }
+
+    /**
+     * Fetches the first page of each Discover tab which does not have one yet, so that they are
+     * populated before the user swipes to them. Done once the TMDB configuration is available,
+     * as poster urls can not be built without it.
+     */
+    private void warmUpDiscoverIfNeeded() {
+        if (mWarmedUpDiscover || mMoviesState.getTmdbConfiguration() == null) {
+            return;
+        }
+        mWarmedUpDiscover = true;
+
+        warmUpDiscoverTab(MovieQueryType.POPULAR, mMoviesState.getPopular());
+        warmUpDiscoverTab(MovieQueryType.NOW_PLAYING, mMoviesState.getNowPlaying());
+        warmUpDiscoverTab(MovieQueryType.UPCOMING, mMoviesState.getUpcoming());
+    }
+
+    private void warmUpDiscoverTab(MovieQueryType queryType,
+            MoviesState.MoviePaginatedResult result) {
+        if (result != null && !PhilmCollections.isEmpty(result.items)) {
+            // Restored from the persisted state, so only the posters are needed
+            prefetchFirstRowPosters(result.items);
+            return;
+        }
+        if (!findUis(queryType).isEmpty()) {
+            // The attached UI has already fetched it
+            return;
+        }
+
+        mWarmingUpDiscoverTabs.add(queryType);
+        switch (queryType) {
+            case POPULAR:
+                fetchPopular(DISCOVER_WARM_UP_POPULAR_CALLING_ID, TMDB_FIRST_PAGE);
+                break;
+            case NOW_PLAYING:
+                fetchNowPlaying(DISCOVER_WARM_UP_NOW_PLAYING_CALLING_ID, TMDB_FIRST_PAGE);
+                break;
+            case UPCOMING:
+                fetchUpcoming(DISCOVER_WARM_UP_UPCOMING_CALLING_ID, TMDB_FIRST_PAGE);
+                break;
+        }
+    }
+
+    private void onDiscoverTabWarmedUp(MovieQueryType queryType,
+            MoviesState.MoviePaginatedResult result) {
+        if (mWarmingUpDiscoverTabs.remove(queryType)
+                && result != null && !PhilmCollections.isEmpty(result.items)) {
+            prefetchFirstRowPosters(result.items);
+        }
     }
 
-    private void fetchMovieSearchResults(final int callingId, String query, int page) {
-        executeTask(new FetchTmdbSearchMoviesRunnable(callingId, query, page));
+    /**
+     * Warm-up errors are not shown, so if {@code queryType} was attached while waiting on its
+     * fetch, it fetches again itself. The other tabs are still waiting on their own fetches.
+     */
+    private void onDiscoverWarmUpFailed(MovieQueryType queryType) {
+        if (!mWarmingUpDiscoverTabs.remove(queryType)) {
+            return;
+        }
+
+        for (MovieUi ui : findUis(queryType)) {
+            switch (queryType) {
+                case POPULAR:
+                    fetchPopularIfNeeded(getId(ui));
+                    break;
+                case NOW_PLAYING:
+                    fetchNowPlayingIfNeeded(getId(ui));
+                    break;
+                case UPCOMING:
+                    fetchUpcomingIfNeeded(getId(ui));
+                    break;
+            }
+        }
     }
 
-    private void fetchPeopleSearchResults(final int callingId, String query, int page) {
-        executeTask(new FetchTmdbSearchPeopleRunnable(callingId, query, page));
+    private void prefetchFirstRowPosters(List<PhilmMovie> movies) {
+        final int count = Math.min(movies.size(), mImagePrefetcher.getPostersPerRow());
+        mImagePrefetcher.prefetchPosters(movies.subList(0, count));
     }
 
     private void fetchTmdbConfiguration() {
@@ -1233,11 +1827,13 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     }
 
     private void fetchTrending(final int callingId) {
+        mRestoredLists.remove(MovieQueryType.TRENDING);
         executeTask(new FetchTraktTrendingRunnable(callingId));
     }
 
     private void fetchTrendingIfNeeded(final int callingId) {
-        if (PhilmCollections.isEmpty(mMoviesState.getTrending())) {
+        if (PhilmCollections.isEmpty(mMoviesState.getTrending())
+                || isRestoredListStale(MovieQueryType.TRENDING)) {
             fetchTrending(callingId);
         }
     }
@@ -1248,13 +1844,19 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     }
 
     private void fetchUpcoming(final int callingId, final int page) {
+        if (page == TMDB_FIRST_PAGE) {
+            mRestoredLists.remove(MovieQueryType.UPCOMING);
+        }
         executeTask(new FetchTmdbUpcomingRunnable(callingId, page));
     }
 
     private void fetchUpcomingIfNeeded(final int callingId) {
         MoviesState.MoviePaginatedResult upcoming = mMoviesState.getUpcoming();
-        if (upcoming == null || PhilmCollections.isEmpty(upcoming.items)) {
+        if ((upcoming == null || PhilmCollections.isEmpty(upcoming.items))
+                && !mWarmingUpDiscoverTabs.contains(MovieQueryType.UPCOMING)) {
             fetchUpcoming(callingId, TMDB_FIRST_PAGE);
+        } else if (isRestoredListStale(MovieQueryType.UPCOMING)) {
+            fetchUpcoming(callingId);
         }
     }
 
@@ -1282,37 +1884,38 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     private List<PhilmMovie> filterMovies(List<PhilmMovie> movies, Set<MovieFilter> filters) {
         Preconditions.checkNotNull(movies, "movies cannot be null");
 
-        ArrayList<PhilmMovie> filteredMovies = new ArrayList<>(movies.size());
-        for (PhilmMovie movie : movies) {
-            boolean included = true;
-
-            if (!PhilmCollections.isEmpty(filters)) {
-                for (MovieFilter filter : filters) {
-                    if (filter.isFiltered(movie)) {
-                        included = false;
-                        break;
-                    }
-                }
-            }
-
-            if (included && IGNORE_ADULT && movie.isAdult()) {
-                included = false;
-            }
+        // Every filter is combined into two masks, so each movie is a couple of bit tests
+        final int setMask = MovieFilter.getFilteredWhenSetMask(filters);
+        final int clearMask = MovieFilter.getFilteredWhenClearMask(filters);
+        final long now = System.currentTimeMillis();
 
-            if (included) {
+        ArrayList<PhilmMovie> filteredMovies = new ArrayList<>(movies.size());
+        for (int i = 0, z = movies.size(); i < z; i++) {
+            final PhilmMovie movie = movies.get(i);
+            if (isMovieIncluded(movie, movie.getFilterFlags(now), setMask, clearMask)) {
                 filteredMovies.add(movie);
             }
         }
         return filteredMovies;
     }
 
-    private MovieUi findUiFromQueryType(MovieQueryType queryType) {
-        for (MovieUi ui : getUis()) {
-            if (ui.getMovieQueryType() == queryType) {
-                return ui;
-            }
+    static boolean isMovieIncluded(PhilmMovie movie, Set<MovieFilter> filters) {
+        return isMovieIncluded(movie, movie.getFilterFlags(System.currentTimeMillis()),
+                MovieFilter.getFilteredWhenSetMask(filters),
+                MovieFilter.getFilteredWhenClearMask(filters));
+    }
+
+    private static boolean isMovieIncluded(PhilmMovie movie, int flags, int setMask,
+            int clearMask) {
+        if ((flags & setMask) != 0 || (~flags & clearMask) != 0) {
+            return false;
         }
-        return null;
+        return !(IGNORE_ADULT && movie.isAdult());
+    }
+
+    private MovieUi findUiFromQueryType(MovieQueryType queryType) {
+        final List<MovieUi> uis = findUis(queryType);
+        return !uis.isEmpty() ? uis.get(0) : null;
     }
 
     private boolean isLoggedIn() {
@@ -1395,6 +1998,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         final MovieQueryType queryType = ui.getMovieQueryType();
 
         Set<MovieFilter> filters = null;
+        MovieSortOrder sortOrder = null;
 
         if (isLoggedIn()) {
             if (queryType.supportFiltering()) {
@@ -1402,79 +2006,208 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                 filters = mMoviesState.getFilters();
                 ui.showActiveFilters(filters);
             }
+            if (queryType.supportSorting()) {
+                ui.setSortOrdersVisibility(true);
+                sortOrder = mMoviesState.getSortOrder();
+                ui.showSortOrder(sortOrder);
+            }
         } else {
             ui.setFiltersVisibility(false);
+            ui.setSortOrdersVisibility(false);
+        }
+
+        final List<PhilmMovie> source = getMovieListUiSource(ui);
+
+        final List<MovieFilter> sections = queryType.getSections();
+        final List<MovieFilter> sectionProcessingOrder = queryType.getSectionsProcessingOrder();
+
+        if (source == null) {
+            mMovieLists.remove(ui);
+            mPendingMovieLists.remove(ui);
+            ui.setItems(null);
+            return;
+        }
+
+        if (PhilmCollections.isEmpty(sections)) {
+            if (isLoggedIn()) {
+                ui.allowedBatchOperations(MovieOperation.MARK_SEEN,
+                        MovieOperation.ADD_TO_COLLECTION, MovieOperation.ADD_TO_WATCHLIST);
+            } else {
+                ui.disableBatchOperations();
+            }
+        }
+
+        final MoviesStateSnapshot snapshot = mMoviesState.getSnapshot();
+        final List<PhilmMovie> snapshotSource = getSnapshotSource(snapshot, queryType);
+
+        if (snapshotSource == null || snapshotSource.size() != source.size()) {
+            // This list isn't held in the snapshot, so prepare it here
+            mPendingMovieLists.remove(ui);
+            setMovieListItems(ui, source, null, filters, sortOrder, sectionProcessingOrder,
+                    prepareMovieListItems(source, filters, sortOrder, sections,
+                            sectionProcessingOrder));
+            return;
         }
 
-        List<PhilmMovie> items = null;
+        final MovieListKey key = new MovieListKey(snapshotSource,
+                filters != null ? snapshot.getFilters() : null, sections, sortOrder);
 
-        List<MovieFilter> sections = queryType.getSections();
-        List<MovieFilter> sectionProcessingOrder = queryType.getSectionsProcessingOrder();
+        final IncrementalMovieList current = mMovieLists.get(ui);
+        if (current != null && current.isPreparedFrom(key) && current.isBackedBy(source)) {
+            // Nothing has changed since these items were set
+            return;
+        }
 
+        if (key.equals(mPendingMovieLists.get(ui))) {
+            // Already being prepared
+            return;
+        }
+
+        final PreparedMovieList prepared = findPreparedMovieList(queryType, key);
+        if (prepared != null) {
+            mPendingMovieLists.remove(ui);
+            setMovieListItems(ui, source, key, key.getFilters(), key.getSortOrder(),
+                    sectionProcessingOrder, new ArrayList<>(prepared.items));
+            return;
+        }
+
+        mPendingMovieLists.put(ui, key);
+        mExecutor.execute(new PrepareMovieListRunnable(ui, key, sectionProcessingOrder));
+    }
+
+    /**
+     * Filters and sections {@code source}. This does not touch any controller state, so can be
+     * called from a background thread.
+     */
+    private List<ListItem<PhilmMovie>> prepareMovieListItems(
+            List<PhilmMovie> source,
+            Set<MovieFilter> filters,
+            MovieSortOrder sortOrder,
+            List<MovieFilter> sections,
+            List<MovieFilter> sectionProcessingOrder) {
+        // Always filter movies (for adult)
+        final List<PhilmMovie> items = filterMovies(source, filters);
+
+        // Sort after filtering, so that fewer movies need sorting
+        final Comparator<PhilmMovie> comparator = getSortComparator(sortOrder);
+        if (comparator != null) {
+            Collections.sort(items, comparator);
+        }
+
+        if (PhilmCollections.isEmpty(sections)) {
+            return createListItemList(items);
+        } else {
+            return createSectionedListItemList(items, sections, sectionProcessingOrder);
+        }
+    }
+
+    private void setMovieListItems(MovieListUi ui, List<PhilmMovie> source, MovieListKey key,
+            Set<MovieFilter> filters, MovieSortOrder sortOrder,
+            List<MovieFilter> sectionProcessingOrder, List<ListItem<PhilmMovie>> listItems) {
+        ui.setItems(listItems);
+
+        // Keep hold of the list so that later changes can be applied to it in place
+        mMovieLists.put(ui, new IncrementalMovieList(listItems, source,
+                filters != null ? new HashSet<>(filters) : null,
+                ui.getMovieQueryType().getSections(), sectionProcessingOrder,
+                getSortComparator(sortOrder), key));
+    }
+
+    /**
+     * @return the comparator to sort a list into {@code sortOrder}, or null if it does not need
+     * sorting. Lists which support sorting are held in title order, so only need sorting for the
+     * other orders.
+     */
+    private static Comparator<PhilmMovie> getSortComparator(MovieSortOrder sortOrder) {
+        return sortOrder != null && sortOrder != MovieSortOrder.TITLE
+                ? sortOrder.getComparator()
+                : null;
+    }
+
+    private PreparedMovieList findPreparedMovieList(MovieQueryType queryType, MovieListKey key) {
+        final List<PreparedMovieList> prepared = mPreparedMovieLists.get(queryType);
+        if (prepared != null) {
+            for (int i = 0, z = prepared.size(); i < z; i++) {
+                if (prepared.get(i).key.equals(key)) {
+                    return prepared.get(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void putPreparedMovieList(MovieQueryType queryType, PreparedMovieList list) {
+        List<PreparedMovieList> prepared = mPreparedMovieLists.get(queryType);
+        if (prepared == null) {
+            prepared = new ArrayList<>();
+            mPreparedMovieLists.put(queryType, prepared);
+        }
+
+        // Drop any lists prepared from other items, as they are now stale, and any for the same
+        // sort order
+        for (int i = prepared.size() - 1; i >= 0; i--) {
+            final MovieListKey key = prepared.get(i).key;
+            if (!key.hasSameItems(list.key) || key.getSortOrder() == list.key.getSortOrder()) {
+                prepared.remove(i);
+            }
+        }
+        prepared.add(list);
+    }
+
+    /**
+     * @return the immutable copy of the list displayed for {@code queryType}, or null if it isn't
+     * held in the snapshot.
+     */
+    private static List<PhilmMovie> getSnapshotSource(MoviesStateSnapshot snapshot,
+            MovieQueryType queryType) {
         switch (queryType) {
             case TRENDING:
-                items = mMoviesState.getTrending();
-                break;
+                return snapshot.getTrending();
+            case POPULAR:
+                return snapshot.getPopular();
+            case LIBRARY:
+                return snapshot.getLibrary();
+            case WATCHLIST:
+                return snapshot.getWatchlist();
+            case NOW_PLAYING:
+                return snapshot.getNowPlaying();
+            case UPCOMING:
+                return snapshot.getUpcoming();
+            case RECOMMENDED:
+                return snapshot.getRecommended();
+        }
+        return null;
+    }
+
+    private List<PhilmMovie> getMovieListUiSource(MovieListUi ui) {
+        switch (ui.getMovieQueryType()) {
+            case TRENDING:
+                return mMoviesState.getTrending();
             case POPULAR:
                 MoviesState.MoviePaginatedResult popular = mMoviesState.getPopular();
-                if (popular != null) {
-                    items = popular.items;
-                }
-                break;
+                return popular != null ? popular.items : null;
             case LIBRARY:
-                items = mMoviesState.getLibrary();
-                break;
+                return mMoviesState.getLibrary();
             case WATCHLIST:
-                items = mMoviesState.getWatchlist();
-                break;
+                return mMoviesState.getWatchlist();
             case SEARCH_MOVIES:
                 MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
-                if (searchResult != null && searchResult.movies != null) {
-                    items = searchResult.movies.items;
-                }
-                break;
+                return searchResult != null && searchResult.movies != null
+                        ? searchResult.movies.items
+                        : null;
             case NOW_PLAYING:
                 MoviesState.MoviePaginatedResult nowPlaying = mMoviesState.getNowPlaying();
-                if (nowPlaying != null) {
-                    items = nowPlaying.items;
-                }
-                break;
+                return nowPlaying != null ? nowPlaying.items : null;
             case UPCOMING:
                 MoviesState.MoviePaginatedResult upcoming = mMoviesState.getUpcoming();
-                if (upcoming != null) {
-                    items = upcoming.items;
-                }
-                break;
+                return upcoming != null ? upcoming.items : null;
             case RECOMMENDED:
-                items = mMoviesState.getRecommended();
-                break;
+                return mMoviesState.getRecommended();
             case MOVIE_RELATED:
                 PhilmMovie movie = mMoviesState.getMovie(ui.getRequestParameter());
-                if (movie != null) {
-                    items = movie.getRelated();
-                }
-                break;
-        }
-
-        if (!PhilmCollections.isEmpty(items)) {
-            // Always filter movies (for adult)
-            items = filterMovies(items, filters);
-        }
-
-        if (items == null) {
-            ui.setItems(null);
-        } else if (PhilmCollections.isEmpty(sections)) {
-            ui.setItems(createListItemList(items));
-
-            if (isLoggedIn()) {
-                ui.allowedBatchOperations(MovieOperation.MARK_SEEN,
-                        MovieOperation.ADD_TO_COLLECTION, MovieOperation.ADD_TO_WATCHLIST);
-            } else {
-                ui.disableBatchOperations();
-            }
-        } else {
-            ui.setItems(createSectionedListItemList(items, sections, sectionProcessingOrder));
+                return movie != null ? movie.getRelated() : null;
         }
+        return null;
     }
 
     private void populatePersonListUi(PersonListUi ui) {
@@ -1586,13 +2319,155 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     private void populateStateFromDb() {
         if (PhilmCollections.isEmpty(mMoviesState.getLibrary())) {
-            mDbHelper.getLibrary(new LibraryDbLoadCallback());
+            mDbHelper.getLibrary(DB_LIBRARY_FIRST_PAGE_SIZE, DB_LIBRARY_PAGE_SIZE,
+                    new LibraryDbLoadCallback());
         }
         if (PhilmCollections.isEmpty(mMoviesState.getWatchlist())) {
             mDbHelper.getWatchlist(new WatchlistDbLoadCallback());
         }
     }
 
+    /**
+     * @return true if the persisted detail is being loaded, in which case the stale TMDB aspects
+     * are fetched once it has been.
+     */
+    private boolean loadMovieDetailFromDbIfNeeded(int callingId, PhilmMovie movie,
+            boolean force) {
+        final Integer tmdbId = movie.getTmdbId();
+        if (tmdbId == null || movie.getCast() != null || movie.getRelated() != null) {
+            return false;
+        }
+        if (mMovieDetailsLoadedFromDb.add(tmdbId)) {
+            mDbHelper.getMovieDetail(tmdbId,
+                    new MovieDetailDbLoadCallback(callingId, movie, force));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Swaps the people in credits loaded from the database for those already in the state.
+     */
+    private List<PhilmMovieCredit> resolvePersistedCredits(List<PhilmMovieCredit> credits) {
+        final ArrayList<PhilmMovieCredit> result = new ArrayList<>(credits.size());
+
+        for (PhilmMovieCredit credit : credits) {
+            final PhilmPerson existing = resolvePersistedPerson(credit.getPerson());
+
+            if (existing == credit.getPerson()) {
+                result.add(credit);
+            } else if (credit.getDepartment() == null) {
+                result.add(new PhilmMovieCredit(existing, credit.getJob(), credit.getOrder()));
+            } else {
+                result.add(new PhilmMovieCredit(existing, credit.getJob(),
+                        credit.getDepartment()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Swaps people loaded from the database for those already in the state.
+     */
+    private List<PhilmPerson> resolvePersistedPeople(List<PhilmPerson> people) {
+        final ArrayList<PhilmPerson> result = new ArrayList<>(people.size());
+        for (PhilmPerson person : people) {
+            result.add(resolvePersistedPerson(person));
+        }
+        return result;
+    }
+
+    private PhilmPerson resolvePersistedPerson(PhilmPerson person) {
+        final Map<String, PhilmPerson> people = mMoviesState.getPeople();
+        final String id = String.valueOf(person.getTmdbId());
+        final PhilmPerson existing = people.get(id);
+
+        if (existing == null) {
+            people.put(id, person);
+            return person;
+        }
+        return existing;
+    }
+
+    /**
+     * @return a new list of the local search hits which aren't already in {@code items},
+     * followed by {@code items}, or null if there are no such hits. {@code items} is not
+     * modified, as it may already have been published.
+     */
+    private static <T> List<T> mergeLocalSearchHits(List<T> items, List<T> localHits) {
+        final LinkedHashSet<T> missing = new LinkedHashSet<>(localHits);
+        missing.removeAll(new HashSet<>(items));
+        if (missing.isEmpty()) {
+            return null;
+        }
+
+        final ArrayList<T> merged = new ArrayList<>(missing.size() + items.size());
+        merged.addAll(missing);
+        merged.addAll(items);
+        return merged;
+    }
+
+    /**
+     * Swaps movies loaded from the database for those already in the state.
+     */
+    private List<PhilmMovie> resolvePersistedMovies(List<PhilmMovie> movies) {
+        final ArrayList<PhilmMovie> result = new ArrayList<>(movies.size());
+        for (PhilmMovie movie : movies) {
+            final PhilmMovie existing = mMoviesState.getMovie(movie.getTraktId());
+            if (existing != null) {
+                result.add(existing);
+            } else {
+                mMoviesState.putMovie(movie);
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    private void readPersistedStateIfNeeded() {
+        if (mReadPersistedState) {
+            return;
+        }
+        mReadPersistedState = true;
+
+        executeTask(new ReadPersistedMoviesStateRunnable(
+                new ReadPersistedMoviesStateRunnable.Callback() {
+                    @Override
+                    public void onPersistedStateRead(PersistedMoviesState state) {
+                        mPendingPersistedState = state;
+                        restorePersistedStateIfReady();
+                    }
+                }));
+    }
+
+    private void restorePersistedStateIfReady() {
+        // Wait until the library and watchlist have been loaded from the database so that the
+        // persisted movies are resolved against the same instances
+        if (mPendingPersistedState != null && mLoadedAllLibraryFromDb
+                && mPopulatedWatchlistFromDb) {
+            mRestoredLists.addAll(mPendingPersistedState.restoreInto(mMoviesState));
+            mRestoredStateSavedTime = mPendingPersistedState.getSavedTime();
+            mPendingPersistedState = null;
+        }
+    }
+
+    /**
+     * @return true if {@code queryType} was restored from the persisted state, which is now old
+     * enough that the list should be fetched again.
+     */
+    private boolean isRestoredListStale(MovieQueryType queryType) {
+        return mRestoredLists.contains(queryType) && TimeUtils.isPastThreshold(
+                mRestoredStateSavedTime, Constants.STALE_RESTORED_LIST_THRESHOLD);
+    }
+
+    private void writePersistedState() {
+        final PersistedMoviesState state = PersistedMoviesState.create(mMoviesState,
+                System.currentTimeMillis());
+        if (!state.isEmpty()) {
+            executeTask(new WritePersistedMoviesStateRunnable(state));
+        }
+    }
+
     private void prefetchLibraryIfNeeded() {
         MovieUi ui = findUiFromQueryType(MovieQueryType.LIBRARY);
         fetchLibraryIfNeeded(ui != null ? getId(ui) : 0);
@@ -1615,7 +2490,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         List<MovieFilter> mutuallyExclusives = filter.getMutuallyExclusiveFilters();
         if (!PhilmCollections.isEmpty(mutuallyExclusives)) {
             for (MovieFilter mutualFilter : mutuallyExclusives) {
-                mMoviesState.getFilters().remove(mutualFilter);
+                mMoviesState.removeFilter(mutualFilter);
             }
         }
     }
@@ -1629,69 +2504,92 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         /**
          * Filters {@link PhilmMovie} that are in the user's collection.
          */
-        COLLECTION,
+        COLLECTION(PhilmMovie.FILTER_FLAG_IN_COLLECTION, true),
 
         /**
          * Filters {@link PhilmMovie} that have been watched by the user.
          */
-        SEEN,
+        SEEN(PhilmMovie.FILTER_FLAG_WATCHED, true),
 
         /**
          * Filters {@link PhilmMovie} that have not been watched by the user.
          */
-        UNSEEN,
+        UNSEEN(PhilmMovie.FILTER_FLAG_WATCHED, false),
 
         /**
          * Filters {@link PhilmMovie} that have not been released yet.
          */
-        NOT_RELEASED,
+        NOT_RELEASED(PhilmMovie.FILTER_FLAG_RELEASED, false),
 
         /**
          * Filters {@link PhilmMovie} that have already been released.
          */
-        RELEASED,
+        RELEASED(PhilmMovie.FILTER_FLAG_RELEASED, true),
 
         /**
          * Filters {@link PhilmMovie} that are unreleased, and will be released in the far future.
          */
-        UPCOMING,
+        UPCOMING(PhilmMovie.FILTER_FLAG_RELEASED_LATER, true),
 
         /**
          * Filters {@link PhilmMovie} that are unreleased, and will be released in the near future.
          */
-        SOON,
+        SOON(PhilmMovie.FILTER_FLAG_RELEASED_SOON, true),
 
         /**
          * Filters {@link PhilmMovie} which are highly rated, either by the user or the public.
          */
-        HIGHLY_RATED;
+        HIGHLY_RATED(PhilmMovie.FILTER_FLAG_HIGHLY_RATED, true);
+
+        private final int mFlag;
+        private final boolean mFilteredWhenSet;
+
+        private MovieFilter(int flag, boolean filteredWhenSet) {
+            mFlag = flag;
+            mFilteredWhenSet = filteredWhenSet;
+        }
 
         @Override
         public boolean isFiltered(PhilmMovie movie) {
             Preconditions.checkNotNull(movie, "movie cannot be null");
+            return isFiltered(movie.getFilterFlags(System.currentTimeMillis()));
+        }
 
-            switch (this) {
-                case COLLECTION:
-                    return movie.inCollection();
-                case SEEN:
-                    return movie.isWatched();
-                case UNSEEN:
-                    return !movie.isWatched();
-                case NOT_RELEASED:
-                    return isInFuture(movie.getReleasedTime());
-                case UPCOMING:
-                    return isAfterThreshold(movie.getReleasedTime(),
-                            Constants.FUTURE_SOON_THRESHOLD);
-                case SOON:
-                    return isInFuture(movie.getReleasedTime()) && isBeforeThreshold(
-                            movie.getReleasedTime(), Constants.FUTURE_SOON_THRESHOLD);
-                case RELEASED:
-                    return isInPast(movie.getReleasedTime());
-                case HIGHLY_RATED:
-                    return Math.max(movie.getTraktRatingPercent(), movie.getUserRating() * 10)
-                            >= Constants.FILTER_HIGHLY_RATED;
+        /**
+         * @param flags flags returned from {@link PhilmMovie#getFilterFlags(long)}.
+         */
+        public boolean isFiltered(int flags) {
+            return ((flags & mFlag) != 0) == mFilteredWhenSet;
+        }
+
+        /**
+         * @return the flags which mean a movie is filtered by one of {@code filters} when set.
+         */
+        static int getFilteredWhenSetMask(Set<MovieFilter> filters) {
+            int mask = 0;
+            if (filters != null) {
+                for (MovieFilter filter : filters) {
+                    if (filter.mFilteredWhenSet) {
+                        mask |= filter.mFlag;
+                    }
+                }
             }
-            return false;
+            return mask;
+        }
+
+        /**
+         * @return the flags which mean a movie is filtered by one of {@code filters} when clear.
+         */
+        static int getFilteredWhenClearMask(Set<MovieFilter> filters) {
+            int mask = 0;
+            if (filters != null) {
+                for (MovieFilter filter : filters) {
+                    if (!filter.mFilteredWhenSet) {
+                        mask |= filter.mFlag;
+                    }
+                }
+            }
+            return mask;
         }
 
         public List<MovieFilter> getMutuallyExclusiveFilters() {
@@ -1705,10 +2603,13 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         }
 
         public void sortListItems(List<ListItem<PhilmMovie>> items) {
+            Collections.sort(items, getListItemComparator());
+        }
+
+        public Comparator<ListItem<PhilmMovie>> getListItemComparator() {
             switch (this) {
                 default:
-                    Collections.sort(items, PhilmMovie.COMPARATOR_LIST_ITEM_DATE_ASC);
-                    break;
+                    return PhilmMovie.COMPARATOR_LIST_ITEM_DATE_ASC;
             }
         }
 
@@ -1738,6 +2639,30 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         }
     }
 
+    public static enum MovieSortOrder {
+        TITLE, RATING, RELEASE_DATE, RUNTIME, PLAYS;
+
+        /**
+         * @return the comparator for this order. Every comparator only compares primitive keys,
+         * falling back to the precomputed sort title collation key when they are equal.
+         */
+        public Comparator<PhilmMovie> getComparator() {
+            switch (this) {
+                case RATING:
+                    return PhilmMovie.COMPARATOR_RATING_DESC;
+                case RELEASE_DATE:
+                    return PhilmMovie.COMPARATOR_RELEASE_DATE_DESC;
+                case RUNTIME:
+                    return PhilmMovie.COMPARATOR_RUNTIME_ASC;
+                case PLAYS:
+                    return PhilmMovie.COMPARATOR_PLAYS_DESC;
+                case TITLE:
+                default:
+                    return PhilmMovie.COMPARATOR_SORT_TITLE;
+            }
+        }
+    }
+
     public static enum MovieQueryType {
         TRENDING, POPULAR, LIBRARY, WATCHLIST, NOW_PLAYING, UPCOMING, RECOMMENDED, DISCOVER,
         SEARCH, SEARCH_MOVIES, SEARCH_PEOPLE,
@@ -1773,6 +2698,19 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             }
         }
 
+        /**
+         * @return true if this list can be put into a {@link MovieSortOrder}. Lists which do not
+         * support sorting are displayed in the order they were fetched.
+         */
+        public boolean supportSorting() {
+            switch (this) {
+                case LIBRARY:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
         public boolean showUpNavigation() {
             switch (this) {
                 case MOVIE_DETAIL:
@@ -1841,10 +2779,19 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
     }
 
     public interface MovieListUi extends BaseMovieListUi<PhilmMovie> {
+        /**
+         * Called when the list last given to {@link #setItems(List)} has been modified in place.
+         */
+        void notifyItemsChanged();
+
         void setFiltersVisibility(boolean visible);
 
         void showActiveFilters(Set<MovieFilter> filters);
 
+        void setSortOrdersVisibility(boolean visible);
+
+        void showSortOrder(MovieSortOrder sortOrder);
+
         void allowedBatchOperations(MovieOperation... operations);
 
         void disableBatchOperations();
@@ -1919,12 +2866,12 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
         void clearFilters();
 
+        void setSortOrder(MovieSortOrder sortOrder);
+
         void refresh();
 
         void showMovieDetail(PhilmMovie movie, Bundle bundle);
 
-        void showMovieDetail(PhilmPersonCredit credit, Bundle bundle);
-
         void toggleMovieSeen(PhilmMovie movie);
 
         void toggleInWatchlist(PhilmMovie movie);
@@ -1939,6 +2886,11 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
         void search(String query);
 
+        /**
+         * Called as the user types a query. The search is started once they stop typing.
+         */
+        void onSearchQueryChanged(String query);
+
         void clearSearch();
 
         void showRateMovie(PhilmMovie movie);
@@ -1947,6 +2899,8 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
         void onScrolledToBottom();
 
+        void onScrolledToTop();
+
         void showRelatedMovies(PhilmMovie movie);
 
         void showCastList(PhilmMovie movie);
@@ -1981,19 +2935,259 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         void setHeaderScrollValue(float alpha);
     }
 
-    private class LibraryDbLoadCallback implements AsyncDatabaseHelper.Callback<List<PhilmMovie>> {
+    /**
+     * Sets the first page of the library as soon as it is loaded. The remaining pages are held
+     * until the last one has loaded, and then inserted into it and published as one change.
+     */
+    private class LibraryDbLoadCallback implements AsyncDatabaseHelper.PagedCallback<PhilmMovie> {
+
+        private boolean mReceivedFirstPage;
+        private SortedMovieList mLibrary;
 
         @Override
-        public void onFinished(List<PhilmMovie> result) {
-            mMoviesState.setLibrary(result);
-            if (!PhilmCollections.isEmpty(result)) {
-                for (PhilmMovie movie : result) {
+        public boolean onPageLoaded(List<PhilmMovie> page, boolean hasMore) {
+            if (!mReceivedFirstPage) {
+                mReceivedFirstPage = true;
+                mMoviesState.setLibrary(page);
+                putMovies(page);
+                mLibrary = mMoviesState.getLibrary();
+                mPopulatedLibraryFromDb = true;
+
+                prefetchLibraryIfNeeded();
+            } else if (mLibrary != null && mLibrary == mMoviesState.getLibrary()) {
+                insertPage(page);
+            } else {
+                // The library has been replaced, probably from the network, so stop here
+                mLibrary = null;
+                hasMore = false;
+            }
+
+            if (!hasMore || mLibrary == null) {
+                mLoadedAllLibraryFromDb = true;
+                restorePersistedStateIfReady();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Streams a page after the first into the library, publishing one change event for it.
+         */
+        private void insertPage(List<PhilmMovie> page) {
+            if (PhilmCollections.isEmpty(page)) {
+                return;
+            }
+
+            final List<MoviesState.MovieChange> changes = new ArrayList<>(page.size());
+            // Pages are in sort order after the first, so each insert is at or near the end
+            for (PhilmMovie movie : page) {
+                if (mLibrary.insert(movie)) {
                     mMoviesState.putMovie(movie);
+                    changes.add(new MoviesState.MovieChange(
+                            MoviesState.MovieChange.Type.INSERTED, movie));
                 }
             }
-            mPopulatedLibraryFromDb = true;
+            mMoviesState.publishLibraryChanges(changes);
+        }
 
-            prefetchLibraryIfNeeded();
+        private void putMovies(List<PhilmMovie> movies) {
+            if (!PhilmCollections.isEmpty(movies)) {
+                for (PhilmMovie movie : movies) {
+                    mMoviesState.putMovie(movie);
+                }
+            }
+        }
+    }
+
+    private static class PreparedMovieList {
+        final MovieListKey key;
+        final List<ListItem<PhilmMovie>> items;
+
+        PreparedMovieList(MovieListKey key, List<ListItem<PhilmMovie>> items) {
+            this.key = key;
+            this.items = items;
+        }
+    }
+
+    private class PrepareMovieListRunnable
+            extends BackgroundCallRunnable<List<ListItem<PhilmMovie>>> {
+
+        private final MovieListUi mUi;
+        private final MovieQueryType mQueryType;
+        private final MovieListKey mKey;
+        private final List<MovieFilter> mSectionProcessingOrder;
+
+        PrepareMovieListRunnable(MovieListUi ui, MovieListKey key,
+                List<MovieFilter> sectionProcessingOrder) {
+            mUi = Preconditions.checkNotNull(ui, "ui cannot be null");
+            mKey = Preconditions.checkNotNull(key, "key cannot be null");
+            mQueryType = ui.getMovieQueryType();
+            mSectionProcessingOrder = sectionProcessingOrder;
+        }
+
+        @Override
+        public List<ListItem<PhilmMovie>> runAsync() {
+            final List<ListItem<PhilmMovie>> items = prepareMovieListItems(mKey.getSource(),
+                    mKey.getFilters(), mKey.getSortOrder(), mKey.getSections(),
+                    mSectionProcessingOrder);
+
+            // The snapshot holds frozen copies, so swap them back for the movies in the state
+            for (int i = 0, z = items.size(); i < z; i++) {
+                final ListItem<PhilmMovie> item = items.get(i);
+                if (item.getListType() == ListItem.TYPE_ITEM) {
+                    items.set(i, item.getListItem().getOriginal());
+                }
+            }
+            return items;
+        }
+
+        @Override
+        public void postExecute(List<ListItem<PhilmMovie>> result) {
+            // Copied, as the list given to the UI is changed in place
+            putPreparedMovieList(mQueryType, new PreparedMovieList(mKey,
+                    Collections.unmodifiableList(new ArrayList<>(result))));
+
+            if (mPendingMovieLists.get(mUi) != mKey) {
+                // The UI has been detached, or a newer list requested
+                return;
+            }
+            mPendingMovieLists.remove(mUi);
+
+            final List<PhilmMovie> source = getMovieListUiSource(mUi);
+            final List<PhilmMovie> snapshotSource
+                    = getSnapshotSource(mMoviesState.getSnapshot(), mQueryType);
+            if (source == null || snapshotSource != mKey.getSource()) {
+                // The list has changed while we were preparing it
+                populateUi(mUi);
+                return;
+            }
+
+            setMovieListItems(mUi, source, mKey, mKey.getFilters(), mKey.getSortOrder(),
+                    mSectionProcessingOrder, result);
+        }
+    }
+
+    private class LocalSearchCallback
+            implements AsyncDatabaseHelper.Callback<DatabaseHelper.LocalSearchResult> {
+
+        private final MoviesState.SearchResult mSearchResult;
+        private final boolean mIncludeMovies;
+        private final boolean mIncludePeople;
+
+        LocalSearchCallback(MoviesState.SearchResult searchResult, boolean includeMovies,
+                boolean includePeople) {
+            mSearchResult = Preconditions.checkNotNull(searchResult,
+                    "searchResult cannot be null");
+            mIncludeMovies = includeMovies;
+            mIncludePeople = includePeople;
+        }
+
+        @Override
+        public void onFinished(DatabaseHelper.LocalSearchResult result) {
+            if (result == null || mMoviesState.getSearchResult() != mSearchResult) {
+                // Nothing found, or the user has searched for something else since
+                return;
+            }
+
+            // The published results are never modified. Merged hits go into new results,
+            // which are then swapped in and set on the state so that the change is posted
+            MoviesState.MoviePaginatedResult movies = null;
+            if (mIncludeMovies && !PhilmCollections.isEmpty(result.movies)) {
+                final MoviesState.MoviePaginatedResult current = mSearchResult.movies;
+                final List<PhilmMovie> merged = mergeLocalSearchHits(
+                        current != null ? current.items : Collections.<PhilmMovie>emptyList(),
+                        resolvePersistedMovies(result.movies));
+                if (merged != null) {
+                    movies = new MoviesState.MoviePaginatedResult();
+                    copyPagination(current, movies);
+                    movies.items = merged;
+                }
+            }
+
+            MoviesState.PersonPaginatedResult people = null;
+            if (mIncludePeople && !PhilmCollections.isEmpty(result.people)) {
+                final MoviesState.PersonPaginatedResult current = mSearchResult.people;
+                final List<PhilmPerson> merged = mergeLocalSearchHits(
+                        current != null ? current.items : Collections.<PhilmPerson>emptyList(),
+                        resolvePersistedPeople(result.people));
+                if (merged != null) {
+                    people = new MoviesState.PersonPaginatedResult();
+                    copyPagination(current, people);
+                    people.items = merged;
+                }
+            }
+
+            if (movies != null || people != null) {
+                if (movies != null) {
+                    mSearchResult.movies = movies;
+                }
+                if (people != null) {
+                    mSearchResult.people = people;
+                }
+                mMoviesState.setSearchResult(mSearchResult);
+            }
+        }
+
+        /**
+         * Copies the pages held by {@code from}, if any, so that TMDB's next page is appended to
+         * {@code to}. Without any, {@code to} is left at page 0 so TMDB's first page is appended.
+         */
+        private void copyPagination(BaseState.PaginatedResult<?> from,
+                BaseState.PaginatedResult<?> to) {
+            if (from != null) {
+                to.page = from.page;
+                to.firstPage = from.firstPage;
+                to.totalPages = from.totalPages;
+            }
+        }
+    }
+
+    private class MovieDetailDbLoadCallback
+            implements AsyncDatabaseHelper.Callback<DatabaseHelper.MovieDetail> {
+
+        private final int mCallingId;
+        private final PhilmMovie mMovie;
+        private final boolean mForce;
+
+        MovieDetailDbLoadCallback(int callingId, PhilmMovie movie, boolean force) {
+            mCallingId = callingId;
+            mMovie = movie;
+            mForce = force;
+        }
+
+        @Override
+        public void onFinished(DatabaseHelper.MovieDetail result) {
+            if (result != null) {
+                mergeMovieDetail(result);
+            }
+            fetchStaleDetailFromTmdb(mCallingId, mMovie, mForce);
+        }
+
+        private void mergeMovieDetail(DatabaseHelper.MovieDetail result) {
+            // Anything already fetched from the network takes precedence
+            boolean changed = false;
+            if (mMovie.getCast() == null && result.cast != null) {
+                mMovie.setCast(resolvePersistedCredits(result.cast));
+                changed = true;
+            }
+            if (mMovie.getCrew() == null && result.crew != null) {
+                mMovie.setCrew(resolvePersistedCredits(result.crew));
+                changed = true;
+            }
+            if (mMovie.getTrailers() == null && result.trailers != null) {
+                mMovie.setTrailers(result.trailers);
+                changed = true;
+            }
+            if (mMovie.getRelated() == null && result.related != null) {
+                mMovie.setRelated(resolvePersistedMovies(result.related));
+                changed = true;
+            }
+
+            if (changed) {
+                populateUisFromQueryTypes(MovieQueryType.MOVIE_DETAIL,
+                        MovieQueryType.MOVIE_CAST, MovieQueryType.MOVIE_CREW,
+                        MovieQueryType.MOVIE_RELATED);
+            }
         }
     }
 
@@ -2011,24 +3205,20 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             mPopulatedWatchlistFromDb = true;
 
             prefetchWatchlistIfNeeded();
+            restorePersistedStateIfReady();
         }
     }
 
     private final void populateUiFromQueryType(MovieQueryType queryType) {
-        MovieUi ui = findUiFromQueryType(queryType);
-        if (ui != null) {
-            populateUi(ui);
-        }
+        markUisDirty(queryType);
+        populateDirtyUis();
     }
 
     private final void populateUisFromQueryTypes(MovieQueryType... queryTypes) {
-        final List<MovieQueryType> list = Arrays.asList(queryTypes);
-
-        for (MovieUi ui : getUis()) {
-            if (list.contains(ui.getMovieQueryType())) {
-                populateUi(ui);
-            }
+        for (MovieQueryType queryType : queryTypes) {
+            markUisDirty(queryType);
         }
+        populateDirtyUis();
     }
 
     private ColorScheme getColorSchemeForUi(MovieUi ui) {
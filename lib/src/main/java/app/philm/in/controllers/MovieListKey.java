@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+import java.util.Set;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.state.MoviesStateSnapshot;
+
+/**
+ * The inputs which a movie list is prepared from. The source is a list from a
+ * {@link MoviesStateSnapshot}, which is replaced whenever it changes, so comparing it by identity
+ * is enough to tell whether the prepared items are still current.
+ */
+final class MovieListKey {
+
+    private final List<PhilmMovie> mSource;
+    private final Set<MovieController.MovieFilter> mFilters;
+    private final List<MovieController.MovieFilter> mSections;
+    private final MovieController.MovieSortOrder mSortOrder;
+
+    /**
+     * @param sortOrder the order to sort the items in, or null to keep them in source order.
+     */
+    MovieListKey(List<PhilmMovie> source, Set<MovieController.MovieFilter> filters,
+            List<MovieController.MovieFilter> sections,
+            MovieController.MovieSortOrder sortOrder) {
+        mSource = Preconditions.checkNotNull(source, "source cannot be null");
+        mFilters = filters;
+        mSections = sections;
+        mSortOrder = sortOrder;
+    }
+
+    List<PhilmMovie> getSource() {
+        return mSource;
+    }
+
+    Set<MovieController.MovieFilter> getFilters() {
+        return mFilters;
+    }
+
+    List<MovieController.MovieFilter> getSections() {
+        return mSections;
+    }
+
+    MovieController.MovieSortOrder getSortOrder() {
+        return mSortOrder;
+    }
+
+    /**
+     * @return true if {@code other} has the same inputs as this key, other than the sort order.
+     */
+    boolean hasSameItems(MovieListKey other) {
+        return other != null
+                && mSource == other.mSource
+                && Objects.equal(mFilters, other.mFilters)
+                && Objects.equal(mSections, other.mSections);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        MovieListKey that = (MovieListKey) o;
+        return hasSameItems(that) && mSortOrder == that.mSortOrder;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(System.identityHashCode(mSource), mFilters, mSections,
+                mSortOrder);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+/**
+ * Writes {@link PhilmMovie} and {@link PhilmPerson} to binary streams field by field, and reads
+ * them back. The fields written must match the fields of each model which are not transient, and
+ * any change to them must come with a new version of the file they are written to.
+ */
+public final class PhilmModelStreams {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Strings longer than this are treated as corrupt when read.
+     */
+    private static final int MAX_STRING_BYTES = 256 * 1024;
+
+    private PhilmModelStreams() {
+    }
+
+    public static void writeMovie(DataOutput out, PhilmMovie movie) throws IOException {
+        writeLong(out, movie._id);
+        out.writeInt(movie.idType);
+        writeString(out, movie.imdbId);
+        writeInt(out, movie.tmdbId);
+
+        writeString(out, movie.traktTitle);
+        writeString(out, movie.tmdbTitle);
+        writeString(out, movie.traktSortTitle);
+        writeString(out, movie.tmdbSortTitle);
+        writeString(out, movie.tmdbOriginalTitle);
+        writeString(out, movie.traktOverview);
+        writeString(out, movie.tmdbOverview);
+        writeString(out, movie.traktTagline);
+        writeString(out, movie.tmdbTagline);
+        writeString(out, movie.traktPosterUrl);
+        writeString(out, movie.tmdbPosterUrl);
+        writeString(out, movie.traktBackdropUrl);
+        writeString(out, movie.tmdbBackdropUrl);
+
+        out.writeBoolean(movie.traktInWatchlist);
+        out.writeBoolean(movie.traktInCollection);
+        out.writeBoolean(movie.traktWatched);
+        out.writeInt(movie.traktPlays);
+        out.writeInt(movie.traktYear);
+        out.writeInt(movie.tmdbYear);
+        out.writeBoolean(movie.tmdbIsAdult);
+        out.writeInt(movie.tmdbBudget);
+
+        out.writeLong(movie.traktReleasedTime);
+        writeString(out, movie.traktReleasedCountryCode);
+        out.writeLong(movie.tmdbReleasedTime);
+        writeString(out, movie.tmdbReleasedCountryCode);
+
+        out.writeInt(movie.traktUserRating);
+        out.writeInt(movie.traktUserRatingAdvanced);
+        out.writeInt(movie.tmdbRatingPercent);
+        out.writeInt(movie.tmdbRatingVotes);
+        out.writeInt(movie.traktRatingPercent);
+        out.writeInt(movie.traktRatingVotes);
+        out.writeInt(movie.traktRuntime);
+        out.writeInt(movie.tmdbRuntime);
+
+        writeString(out, movie.traktCertification);
+        writeString(out, movie.tmdbCertification);
+        writeString(out, movie.traktGenres);
+        writeString(out, movie.tmdbGenres);
+        writeString(out, movie.traktMainLanguage);
+        writeString(out, movie.tmdbMainLanguage);
+
+        out.writeLong(movie.lastFullFetchFromTraktCompleted);
+        out.writeLong(movie.lastFullFetchFromTmdbCompleted);
+        out.writeLong(movie.tmdbSummaryFetched);
+        out.writeLong(movie.tmdbCreditsFetched);
+        out.writeLong(movie.tmdbVideosFetched);
+        out.writeLong(movie.tmdbReleasesFetched);
+        out.writeLong(movie.tmdbSimilarFetched);
+        out.writeLong(movie.tmdbImagesFetched);
+        out.writeInt(movie.tmdbEmptyAspects);
+
+        out.writeBoolean(movie.loadedFromTrakt);
+        out.writeBoolean(movie.loadedFromTmdb);
+    }
+
+    public static PhilmMovie readMovie(DataInput in) throws IOException {
+        final PhilmMovie movie = new PhilmMovie();
+        movie._id = readLong(in);
+        movie.idType = in.readInt();
+        movie.imdbId = readString(in);
+        movie.tmdbId = readInt(in);
+
+        movie.traktTitle = readString(in);
+        movie.tmdbTitle = readString(in);
+        movie.traktSortTitle = readString(in);
+        movie.tmdbSortTitle = readString(in);
+        movie.tmdbOriginalTitle = readString(in);
+        movie.traktOverview = readString(in);
+        movie.tmdbOverview = readString(in);
+        movie.traktTagline = readString(in);
+        movie.tmdbTagline = readString(in);
+        movie.traktPosterUrl = readString(in);
+        movie.tmdbPosterUrl = readString(in);
+        movie.traktBackdropUrl = readString(in);
+        movie.tmdbBackdropUrl = readString(in);
+
+        movie.traktInWatchlist = in.readBoolean();
+        movie.traktInCollection = in.readBoolean();
+        movie.traktWatched = in.readBoolean();
+        movie.traktPlays = in.readInt();
+        movie.traktYear = in.readInt();
+        movie.tmdbYear = in.readInt();
+        movie.tmdbIsAdult = in.readBoolean();
+        movie.tmdbBudget = in.readInt();
+
+        movie.traktReleasedTime = in.readLong();
+        movie.traktReleasedCountryCode = readString(in);
+        movie.tmdbReleasedTime = in.readLong();
+        movie.tmdbReleasedCountryCode = readString(in);
+
+        movie.traktUserRating = in.readInt();
+        movie.traktUserRatingAdvanced = in.readInt();
+        movie.tmdbRatingPercent = in.readInt();
+        movie.tmdbRatingVotes = in.readInt();
+        movie.traktRatingPercent = in.readInt();
+        movie.traktRatingVotes = in.readInt();
+        movie.traktRuntime = in.readInt();
+        movie.tmdbRuntime = in.readInt();
+
+        movie.traktCertification = readString(in);
+        movie.tmdbCertification = readString(in);
+        movie.traktGenres = readString(in);
+        movie.tmdbGenres = readString(in);
+        movie.traktMainLanguage = readString(in);
+        movie.tmdbMainLanguage = readString(in);
+
+        movie.lastFullFetchFromTraktCompleted = in.readLong();
+        movie.lastFullFetchFromTmdbCompleted = in.readLong();
+        movie.tmdbSummaryFetched = in.readLong();
+        movie.tmdbCreditsFetched = in.readLong();
+        movie.tmdbVideosFetched = in.readLong();
+        movie.tmdbReleasesFetched = in.readLong();
+        movie.tmdbSimilarFetched = in.readLong();
+        movie.tmdbImagesFetched = in.readLong();
+        movie.tmdbEmptyAspects = in.readInt();
+
+        movie.loadedFromTrakt = in.readBoolean();
+        movie.loadedFromTmdb = in.readBoolean();
+        return movie;
+    }
+
+    public static void writePerson(DataOutput out, PhilmPerson person) throws IOException {
+        writeInt(out, person.tmdbId);
+        writeString(out, person.name);
+        writeString(out, person.pictureUrl);
+        writeString(out, person.placeOfBirth);
+        writeDate(out, person.dateOfBirth);
+        writeDate(out, person.dateOfDeath);
+        out.writeInt(person.age);
+        writeString(out, person.biography);
+        out.writeInt(person.pictureType);
+    }
+
+    public static PhilmPerson readPerson(DataInput in) throws IOException {
+        final PhilmPerson person = new PhilmPerson();
+        person.tmdbId = readInt(in);
+        person.name = readString(in);
+        person.pictureUrl = readString(in);
+        person.placeOfBirth = readString(in);
+        person.dateOfBirth = readDate(in);
+        person.dateOfDeath = readDate(in);
+        person.age = in.readInt();
+        person.biography = readString(in);
+        person.pictureType = in.readInt();
+        return person;
+    }
+
+    /**
+     * Writes {@code value} as its length in bytes and its UTF-8 bytes, or -1 if it is null.
+     * Unlike {@link DataOutput#writeUTF(String)} it is not limited to 64k bytes.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeInt(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInt(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeDate(DataOutput out, Date value) throws IOException {
+        writeLong(out, value != null ? value.getTime() : null);
+    }
+
+    private static Date readDate(DataInput in) throws IOException {
+        final Long time = readLong(in);
+        return time != null ? new Date(time) : null;
+    }
+}
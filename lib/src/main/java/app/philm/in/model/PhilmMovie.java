@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 import com.jakewharton.trakt.entities.Images;
 import com.jakewharton.trakt.entities.Ratings;
 import com.jakewharton.trakt.enumerations.Rating;
+import com.uwetrottmann.tmdb.entities.BasePersonCredit;
 import com.uwetrottmann.tmdb.entities.CountryRelease;
 import com.uwetrottmann.tmdb.entities.Genre;
 import com.uwetrottmann.tmdb.entities.Image;
@@ -31,11 +32,14 @@ import com.uwetrottmann.tmdb.entities.SpokenLanguage;
 import com.uwetrottmann.tmdb.entities.Video;
 import com.uwetrottmann.tmdb.entities.Videos;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 import app.philm.in.Constants;
 import app.philm.in.trakt.TraktUtils;
@@ -44,17 +48,118 @@ import app.philm.in.util.IntUtils;
 import app.philm.in.util.PhilmCollections;
 import app.philm.in.util.TextUtils;
 
-public class PhilmMovie extends PhilmModel<PhilmMovie> {
+public class PhilmMovie extends PhilmModel<PhilmMovie> implements Cloneable {
 
     public static final int NOT_SET = 0;
 
+    /**
+     * Flags returned by {@link #getFilterFlags(long)}. The release flags are mutually exclusive:
+     * a movie is either released, or will be released soon or later.
+     */
+    public static final int FILTER_FLAG_IN_COLLECTION = 1;
+    public static final int FILTER_FLAG_WATCHED = 1 << 1;
+    public static final int FILTER_FLAG_RELEASED = 1 << 2;
+    public static final int FILTER_FLAG_RELEASED_SOON = 1 << 3;
+    public static final int FILTER_FLAG_RELEASED_LATER = 1 << 4;
+    public static final int FILTER_FLAG_HIGHLY_RATED = 1 << 5;
+
+    /**
+     * Aspects of a movie which are fetched from TMDB, and whose freshness is tracked separately.
+     */
+    public static final int TMDB_ASPECT_SUMMARY = 1;
+    public static final int TMDB_ASPECT_CREDITS = 1 << 1;
+    public static final int TMDB_ASPECT_VIDEOS = 1 << 2;
+    public static final int TMDB_ASPECT_RELEASES = 1 << 3;
+    public static final int TMDB_ASPECT_SIMILAR = 1 << 4;
+    public static final int TMDB_ASPECT_IMAGES = 1 << 5;
+
+    /**
+     * The aspects which the detail screen displays.
+     */
+    public static final int TMDB_ASPECTS_DETAIL = TMDB_ASPECT_SUMMARY | TMDB_ASPECT_CREDITS
+            | TMDB_ASPECT_VIDEOS | TMDB_ASPECT_RELEASES | TMDB_ASPECT_SIMILAR;
+
+    /**
+     * Calendars are not thread safe, so any use must be synchronized on it. Movies are mapped on
+     * background threads.
+     */
     private static final Calendar CALENDAR = Calendar.getInstance();
 
+    /**
+     * The locale which sort titles are collated for. This is the default locale when the class is
+     * loaded, so that keys stay comparable while the process lives.
+     */
+    static final Locale SORT_TITLE_LOCALE = Locale.getDefault();
+
+    /**
+     * Collates sort titles for {@link #SORT_TITLE_LOCALE}, ignoring case. Collators are not thread
+     * safe, so any use must be synchronized on it.
+     */
+    private static final Collator SORT_TITLE_COLLATOR;
+
+    static {
+        SORT_TITLE_COLLATOR = Collator.getInstance(SORT_TITLE_LOCALE);
+        SORT_TITLE_COLLATOR.setStrength(Collator.SECONDARY);
+    }
+
+    /**
+     * Orders by each movie's precomputed sort title collation key, so that the locale aware
+     * comparison is done once per movie rather than on every comparison.
+     */
     public static final Comparator<PhilmMovie> COMPARATOR_SORT_TITLE
             = new Comparator<PhilmMovie>() {
         @Override
         public int compare(PhilmMovie movie, PhilmMovie movie2) {
-            return movie.getSortTitle().compareTo(movie2.getSortTitle());
+            return compareSortTitles(movie, movie2);
+        }
+    };
+
+    /**
+     * Highest average rating first, then by sort title.
+     */
+    public static final Comparator<PhilmMovie> COMPARATOR_RATING_DESC
+            = new Comparator<PhilmMovie>() {
+        @Override
+        public int compare(PhilmMovie movie, PhilmMovie movie2) {
+            final int result = compareInts(movie2.getAverageRatingPercent(),
+                    movie.getAverageRatingPercent());
+            return result != 0 ? result : compareSortTitles(movie, movie2);
+        }
+    };
+
+    /**
+     * Most recently released first, then by sort title.
+     */
+    public static final Comparator<PhilmMovie> COMPARATOR_RELEASE_DATE_DESC
+            = new Comparator<PhilmMovie>() {
+        @Override
+        public int compare(PhilmMovie movie, PhilmMovie movie2) {
+            final int result = compareLongs(movie2.getReleasedTime(), movie.getReleasedTime());
+            return result != 0 ? result : compareSortTitles(movie, movie2);
+        }
+    };
+
+    /**
+     * Shortest runtime first, with unknown runtimes last, then by sort title.
+     */
+    public static final Comparator<PhilmMovie> COMPARATOR_RUNTIME_ASC
+            = new Comparator<PhilmMovie>() {
+        @Override
+        public int compare(PhilmMovie movie, PhilmMovie movie2) {
+            final int result = compareInts(getRuntimeSortKey(movie), getRuntimeSortKey(movie2));
+            return result != 0 ? result : compareSortTitles(movie, movie2);
+        }
+    };
+
+    /**
+     * Most played first, then by sort title.
+     */
+    public static final Comparator<PhilmMovie> COMPARATOR_PLAYS_DESC
+            = new Comparator<PhilmMovie>() {
+        @Override
+        public int compare(PhilmMovie movie, PhilmMovie movie2) {
+            final int result = compareInts(movie2.getPlays(), movie.getPlays());
+            return result != 0 ? result : compareSortTitles(movie, movie2);
         }
     };
 
@@ -103,6 +208,8 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     String traktSortTitle;
     String tmdbSortTitle;
 
+    String tmdbOriginalTitle;
+
     String traktOverview;
     String tmdbOverview;
 
@@ -158,6 +265,18 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     long lastFullFetchFromTraktCompleted;
     long lastFullFetchFromTmdbCompleted;
 
+    long tmdbSummaryFetched;
+    long tmdbCreditsFetched;
+    long tmdbVideosFetched;
+    long tmdbReleasesFetched;
+    long tmdbSimilarFetched;
+    long tmdbImagesFetched;
+    /**
+     * The TMDB aspects which were empty when they were last fetched, so that they are not
+     * refetched every time just because nothing is held for them.
+     */
+    int tmdbEmptyAspects;
+
     boolean loadedFromTrakt;
     boolean loadedFromTmdb;
 
@@ -170,9 +289,75 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     transient ColorScheme colorScheme;
 
+    /**
+     * Collation key of {@link #getSortTitle()}. Null if it has not been computed, or the sort
+     * title has changed since.
+     */
+    transient CollationKey sortTitleKey;
+
+    transient int filterFlags;
+    /**
+     * When {@link #filterFlags} need recomputing, as the movie's release bucket will have changed.
+     * Zero if they have not been computed, or the movie has changed since.
+     */
+    transient long filterFlagsValidUntil;
+
+    /**
+     * The movie which this is a copy of, if it was made by {@link #freeze(long)}.
+     */
+    transient PhilmMovie original;
+
+    /**
+     * Incremented whenever this movie is modified, so that a frozen copy can tell whether it is
+     * still current.
+     */
+    transient int modificationCount;
+
+    /**
+     * For frozen copies, when the filter flags computed for the copy stop being valid.
+     */
+    transient long frozenFilterFlagsValidUntil;
+
     public PhilmMovie() {
     }
 
+    static CollationKey collateSortTitle(String sortTitle) {
+        synchronized (SORT_TITLE_COLLATOR) {
+            return SORT_TITLE_COLLATOR.getCollationKey(sortTitle);
+        }
+    }
+
+    private static int compareSortTitles(PhilmMovie movie, PhilmMovie movie2) {
+        final CollationKey key = movie.getSortTitleKey();
+        final CollationKey key2 = movie2.getSortTitleKey();
+        if (key == null) {
+            return key2 == null ? 0 : 1;
+        } else if (key2 == null) {
+            return -1;
+        }
+        return key.compareTo(key2);
+    }
+
+    private static int compareInts(int lhs, int rhs) {
+        return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+    }
+
+    private static int compareLongs(long lhs, long rhs) {
+        return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+    }
+
+    private static int getRuntimeSortKey(PhilmMovie movie) {
+        final int runtime = movie.getRuntime();
+        return runtime > 0 ? runtime : Integer.MAX_VALUE;
+    }
+
+    private static int getYear(long time) {
+        synchronized (CALENDAR) {
+            CALENDAR.setTimeInMillis(time);
+            return CALENDAR.get(Calendar.YEAR);
+        }
+    }
+
     private static String getSortTitle(String title) {
         for (int i = 0, z = TITLE_PREFIXES.length; i < z; i++) {
             final String prefix = TITLE_PREFIXES[i];
@@ -184,29 +369,34 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     }
 
     public void setFromMovie(com.jakewharton.trakt.entities.Movie movie) {
+        setFromMovie(movie, null);
+    }
+
+    /**
+     * Same as {@link #setFromMovie(com.jakewharton.trakt.entities.Movie)}, but values which are
+     * costly to compute are taken from {@code prepared} rather than computed again.
+     *
+     * @param prepared a new movie which {@code movie} has already been set on, usually on a
+     *                 background thread. May be null.
+     */
+    public void setFromMovie(com.jakewharton.trakt.entities.Movie movie, PhilmMovie prepared) {
         Preconditions.checkNotNull(movie, "movie cannot be null");
 
+        invalidateFilterFlags();
+
+        final String previousSortTitle = getSortTitle();
+
         loadedFromTrakt = true;
 
         tmdbId = movie.tmdbId;
         imdbId = movie.imdb_id;
 
-        if (_id == null || idType == NOT_SET) {
-            if (!TextUtils.isEmpty(imdbId)) {
-                _id = new Long(imdbId.hashCode());
-                idType = TYPE_IMDB;
-            } else if (tmdbId != 0) {
-                _id = new Long(tmdbId);
-                idType = TYPE_TMDB;
-            } else {
-                idType = NOT_SET;
-            }
-        }
+        setIdIfNeeded();
 
         traktTitle = movie.title;
 
         if (!TextUtils.isEmpty(traktTitle)) {
-            traktSortTitle = getSortTitle(traktTitle);
+            traktSortTitle = prepared != null ? prepared.traktSortTitle : getSortTitle(traktTitle);
         }
 
         if (!TextUtils.isEmpty(movie.overview)) {
@@ -245,17 +435,36 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         }
 
         if (movie.genres != null) {
-            traktGenres = getTraktGenreFormatStringList(movie.genres);
+            traktGenres = prepared != null
+                    ? prepared.traktGenres
+                    : getTraktGenreFormatStringList(movie.genres);
         }
 
         if (!TextUtils.isEmpty(movie.certification)) {
             traktCertification = movie.certification;
         }
+
+        updateSortTitleKey(previousSortTitle, prepared);
     }
 
     public void setFromMovie(com.uwetrottmann.tmdb.entities.Movie movie) {
+        setFromMovie(movie, null);
+    }
+
+    /**
+     * Same as {@link #setFromMovie(com.uwetrottmann.tmdb.entities.Movie)}, but values which are
+     * costly to compute are taken from {@code prepared} rather than computed again.
+     *
+     * @param prepared a new movie which {@code movie} has already been set on, usually on a
+     *                 background thread. May be null.
+     */
+    public void setFromMovie(com.uwetrottmann.tmdb.entities.Movie movie, PhilmMovie prepared) {
         Preconditions.checkNotNull(movie, "movie cannot be null");
 
+        invalidateFilterFlags();
+
+        final String previousSortTitle = getSortTitle();
+
         loadedFromTmdb = true;
 
         tmdbId = movie.id;
@@ -263,21 +472,15 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
             imdbId = movie.imdb_id;
         }
 
-        if (_id == null || idType == NOT_SET) {
-            if (!TextUtils.isEmpty(imdbId)) {
-                _id = new Long(imdbId.hashCode());
-                idType = TYPE_IMDB;
-            } else if (tmdbId != null) {
-                _id = new Long(tmdbId);
-                idType = TYPE_TMDB;
-            } else {
-                idType = NOT_SET;
-            }
-        }
+        setIdIfNeeded();
 
         if (!TextUtils.isEmpty(movie.title)) {
             tmdbTitle = movie.title;
-            tmdbSortTitle = getSortTitle(movie.title);
+            tmdbSortTitle = prepared != null ? prepared.tmdbSortTitle : getSortTitle(movie.title);
+        }
+
+        if (!TextUtils.isEmpty(movie.original_title)) {
+            tmdbOriginalTitle = movie.original_title;
         }
 
         if (!TextUtils.isEmpty(movie.overview)) {
@@ -294,8 +497,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         }
 
         if (tmdbYear == 0 && tmdbReleasedTime != 0) {
-            CALENDAR.setTimeInMillis(tmdbReleasedTime);
-            tmdbYear = CALENDAR.get(Calendar.YEAR);
+            tmdbYear = getYear(tmdbReleasedTime, prepared);
         }
 
         tmdbIsAdult = unbox(tmdbIsAdult, movie.adult);
@@ -313,7 +515,9 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         }
 
         if (movie.genres != null) {
-            tmdbGenres = getTmdbGenreFormatStringList(movie.genres);
+            tmdbGenres = prepared != null
+                    ? prepared.tmdbGenres
+                    : getTmdbGenreFormatStringList(movie.genres);
         }
 
         if (!PhilmCollections.isEmpty(movie.spoken_languages)) {
@@ -326,7 +530,115 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         tmdbRuntime = unbox(tmdbRuntime, movie.runtime);
 
         if (movie.videos != null) {
-            updateWithVideos(movie.videos);
+            if (prepared != null) {
+                if (prepared.trailers != null) {
+                    setTrailers(prepared.trailers);
+                }
+            } else {
+                updateWithVideos(movie.videos);
+            }
+        }
+
+        updateSortTitleKey(previousSortTitle, prepared);
+    }
+
+    /**
+     * Updates the summary which is given with a person's movie credits. This is not a fetch of
+     * any TMDB aspect, so the rest of the detail is still fetched when the movie is shown. The
+     * credit's summary is less complete than the movie's own, so only fields which are empty are
+     * filled.
+     */
+    public void setFromPersonCredit(BasePersonCredit credit) {
+        setFromPersonCredit(credit, null);
+    }
+
+    /**
+     * Same as {@link #setFromPersonCredit(BasePersonCredit)}, but values which are costly to
+     * compute are taken from {@code prepared} rather than computed again.
+     *
+     * @param prepared a new movie which {@code credit} has already been set on, usually on a
+     *                 background thread. May be null.
+     */
+    public void setFromPersonCredit(BasePersonCredit credit, PhilmMovie prepared) {
+        Preconditions.checkNotNull(credit, "credit cannot be null");
+
+        invalidateFilterFlags();
+
+        final String previousSortTitle = getSortTitle();
+
+        tmdbId = credit.id;
+
+        setIdIfNeeded();
+
+        if (TextUtils.isEmpty(tmdbTitle) && !TextUtils.isEmpty(credit.title)) {
+            tmdbTitle = credit.title;
+            tmdbSortTitle = prepared != null ? prepared.tmdbSortTitle : getSortTitle(credit.title);
+        }
+
+        if (TextUtils.isEmpty(tmdbOriginalTitle) && !TextUtils.isEmpty(credit.original_title)) {
+            tmdbOriginalTitle = credit.original_title;
+        }
+
+        if (tmdbReleasedTime == 0 && credit.release_date != null) {
+            tmdbReleasedTime = credit.release_date.getTime();
+        }
+
+        if (tmdbYear == 0 && tmdbReleasedTime != 0) {
+            tmdbYear = getYear(tmdbReleasedTime, prepared);
+        }
+
+        if (!tmdbIsAdult) {
+            tmdbIsAdult = unbox(false, credit.adult);
+        }
+
+        if (TextUtils.isEmpty(tmdbPosterUrl) && !TextUtils.isEmpty(credit.poster_path)) {
+            tmdbPosterUrl = credit.poster_path;
+        }
+
+        updateSortTitleKey(previousSortTitle, prepared);
+    }
+
+    /**
+     * Called once this movie's titles have been set. The sort title key is kept if the sort title
+     * is unchanged, or taken from {@code prepared} if it computed one for the same sort title.
+     * Otherwise it is cleared, to be computed on next use.
+     */
+    private void updateSortTitleKey(String previousSortTitle, PhilmMovie prepared) {
+        final String sortTitle = getSortTitle();
+        if (Objects.equal(sortTitle, previousSortTitle)) {
+            return;
+        }
+        sortTitleKey = prepared != null && Objects.equal(sortTitle, prepared.getSortTitle())
+                ? prepared.sortTitleKey
+                : null;
+    }
+
+    /**
+     * @return the year of {@code time}, taken from {@code prepared} if it was computed for the
+     * same time.
+     */
+    private static int getYear(long time, PhilmMovie prepared) {
+        if (prepared != null && prepared.tmdbReleasedTime == time && prepared.tmdbYear != 0) {
+            return prepared.tmdbYear;
+        }
+        return getYear(time);
+    }
+
+    /**
+     * Sets the database id from the IMDB id, or the TMDB id if there is none, unless it is
+     * already set.
+     */
+    private void setIdIfNeeded() {
+        if (_id == null || idType == NOT_SET) {
+            if (!TextUtils.isEmpty(imdbId)) {
+                _id = new Long(imdbId.hashCode());
+                idType = TYPE_IMDB;
+            } else if (tmdbId != null && tmdbId != 0) {
+                _id = new Long(tmdbId);
+                idType = TYPE_TMDB;
+            } else {
+                idType = NOT_SET;
+            }
         }
     }
 
@@ -351,6 +663,8 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     public void updateWithReleases(final Releases releases, final String countryCode) {
         Preconditions.checkNotNull(releases, "releases cannot be null");
 
+        invalidateFilterFlags();
+
         if (!PhilmCollections.isEmpty(releases.countries)) {
             CountryRelease countryRelease = null;
             CountryRelease usRelease = null;
@@ -378,8 +692,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
                     tmdbReleasedCountryCode = countryRelease.iso_3166_1;
 
                     if (tmdbYear == 0 && tmdbReleasedTime != 0) {
-                        CALENDAR.setTimeInMillis(tmdbReleasedTime);
-                        tmdbYear = CALENDAR.get(Calendar.YEAR);
+                        tmdbYear = getYear(tmdbReleasedTime);
                     }
                 }
             }
@@ -392,6 +705,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setWatched(boolean watched) {
         traktWatched = watched;
+        invalidateFilterFlags();
     }
 
     public long getDbId() {
@@ -412,6 +726,110 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setInCollection(boolean inCollection) {
         traktInCollection = inCollection;
+        invalidateFilterFlags();
+    }
+
+    /**
+     * @param now the current time. Passing it in lets a caller checking many movies read the
+     *            clock once.
+     * @return the {@code FILTER_FLAG_*} flags which apply to this movie at {@code now}. These are
+     * only recomputed when the movie has changed, or it has moved into another release bucket.
+     */
+    public int getFilterFlags(long now) {
+        if (now >= filterFlagsValidUntil) {
+            computeFilterFlags(now);
+        }
+        return filterFlags;
+    }
+
+    private void invalidateFilterFlags() {
+        Preconditions.checkState(original == null, "frozen movies can not be modified");
+        filterFlagsValidUntil = 0;
+        modificationCount++;
+    }
+
+    /**
+     * Called by the modifiers which do not affect the filter flags.
+     */
+    private void onModified() {
+        modificationCount++;
+    }
+
+    /**
+     * Must be called on the thread which modifies this movie, usually the main thread.
+     *
+     * @return a copy of this movie which can be read from any thread, as nothing modifies it. Its
+     * sort title key and the filter flags at {@code now} are computed before copying, and the
+     * copy's flags are not recomputed later.
+     */
+    public PhilmMovie freeze(long now) {
+        getSortTitleKey();
+        getFilterFlags(now);
+
+        final PhilmMovie copy;
+        try {
+            copy = (PhilmMovie) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.original = this;
+        copy.frozenFilterFlagsValidUntil = filterFlagsValidUntil;
+        copy.filterFlagsValidUntil = Long.MAX_VALUE;
+        return copy;
+    }
+
+    /**
+     * Same as {@link #freeze(long)}, but returns {@code previous} rather than a new copy if it is
+     * still current: this movie has not been modified since it was frozen, and its filter flags
+     * are still valid at {@code now}.
+     *
+     * @param previous a copy frozen from this movie earlier. May be null.
+     */
+    public PhilmMovie freeze(long now, PhilmMovie previous) {
+        if (previous != null && previous.original == this
+                && previous.modificationCount == modificationCount
+                && now < previous.frozenFilterFlagsValidUntil) {
+            return previous;
+        }
+        return freeze(now);
+    }
+
+    /**
+     * @return the movie which this was frozen from, or this movie if it is not a frozen copy.
+     */
+    public PhilmMovie getOriginal() {
+        return original != null ? original : this;
+    }
+
+    private void computeFilterFlags(long now) {
+        int flags = 0;
+        long validUntil = Long.MAX_VALUE;
+
+        if (inCollection()) {
+            flags |= FILTER_FLAG_IN_COLLECTION;
+        }
+        if (isWatched()) {
+            flags |= FILTER_FLAG_WATCHED;
+        }
+
+        final long releasedTime = getReleasedTime();
+        if (releasedTime <= now) {
+            flags |= FILTER_FLAG_RELEASED;
+        } else if (releasedTime - Constants.FUTURE_SOON_THRESHOLD > now) {
+            flags |= FILTER_FLAG_RELEASED_LATER;
+            validUntil = releasedTime - Constants.FUTURE_SOON_THRESHOLD;
+        } else {
+            flags |= FILTER_FLAG_RELEASED_SOON;
+            validUntil = releasedTime;
+        }
+
+        if (Math.max(getTraktRatingPercent(), getUserRating() * 10)
+                >= Constants.FILTER_HIGHLY_RATED) {
+            flags |= FILTER_FLAG_HIGHLY_RATED;
+        }
+
+        filterFlags = flags;
+        filterFlagsValidUntil = validUntil;
     }
 
     public boolean inWatchlist() {
@@ -420,6 +838,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setInWatched(boolean inWatchlist) {
         this.traktInWatchlist = inWatchlist;
+        onModified();
     }
 
     public String getTitle() {
@@ -434,6 +853,26 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         return select(tmdbSortTitle, traktSortTitle);
     }
 
+    /**
+     * @return the collation key of {@link #getSortTitle()}, which is computed on first use. Null
+     * if the movie does not have a title.
+     */
+    public CollationKey getSortTitleKey() {
+        CollationKey key = sortTitleKey;
+        if (key == null) {
+            final String sortTitle = getSortTitle();
+            if (sortTitle != null) {
+                key = collateSortTitle(sortTitle);
+                sortTitleKey = key;
+            }
+        }
+        return key;
+    }
+
+    public String getOriginalTitle() {
+        return tmdbOriginalTitle;
+    }
+
     public String getTraktPosterUrl() {
         return traktPosterUrl;
     }
@@ -514,6 +953,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setUserRatingAdvanced(Rating rating) {
         traktUserRatingAdvanced = unbox(traktUserRatingAdvanced, rating);
+        onModified();
     }
 
     public String getOverview() {
@@ -526,6 +966,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setRelated(List<PhilmMovie> related) {
         this.related = related;
+        onModified();
     }
 
     public int getRuntime() {
@@ -562,20 +1003,117 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         return select(tmdbMainLanguage, traktMainLanguage);
     }
 
-    private boolean needFullFetch() {
-        return PhilmCollections.isEmpty(trailers)
-                || PhilmCollections.isEmpty(cast)
-                || PhilmCollections.isEmpty(crew)
-                || PhilmCollections.isEmpty(related);
-    }
-
     public boolean needFullFetchFromTmdb() {
-        return (needFullFetch() || isPastThreshold(lastFullFetchFromTmdbCompleted,
-                    Constants.STALE_MOVIE_DETAIL_THRESHOLD)) &&
-                isPastThreshold(lastFullFetchFromTmdbStarted,
+        return getStaleTmdbAspects(TMDB_ASPECTS_DETAIL) != 0
+                && isPastThreshold(lastFullFetchFromTmdbStarted,
                     Constants.FULL_MOVIE_DETAIL_ATTEMPT_THRESHOLD);
     }
 
+    /**
+     * @return the aspects out of {@code aspects} which should be refetched from TMDB. An aspect
+     * is stale if it was fetched longer than {@link Constants#STALE_MOVIE_DETAIL_THRESHOLD} ago,
+     * or nothing is held for it and it was not empty when last fetched.
+     */
+    public int getStaleTmdbAspects(final int aspects) {
+        int stale = 0;
+        for (int aspect = TMDB_ASPECT_SUMMARY; aspect <= TMDB_ASPECT_IMAGES; aspect <<= 1) {
+            if ((aspects & aspect) != 0 && (isTmdbAspectExpired(aspect)
+                    || (!hasTmdbAspect(aspect) && (tmdbEmptyAspects & aspect) == 0))) {
+                stale |= aspect;
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * @return true if nothing is held for {@code aspect}, and it is not known to be empty.
+     */
+    public boolean isMissingTmdbAspect(final int aspect) {
+        return !hasTmdbAspect(aspect)
+                && ((tmdbEmptyAspects & aspect) == 0 || isTmdbAspectExpired(aspect));
+    }
+
+    /**
+     * Records that {@code aspects} have just been fetched from TMDB. Call once the results have
+     * been set, as any aspect which is then not held is marked as empty.
+     */
+    public void markTmdbAspectsFetched(final int aspects) {
+        final long now = System.currentTimeMillis();
+        for (int aspect = TMDB_ASPECT_SUMMARY; aspect <= TMDB_ASPECT_IMAGES; aspect <<= 1) {
+            if ((aspects & aspect) == 0) {
+                continue;
+            }
+            setTmdbAspectFetched(aspect, now);
+            if (hasTmdbAspect(aspect)) {
+                tmdbEmptyAspects &= ~aspect;
+            } else {
+                tmdbEmptyAspects |= aspect;
+            }
+        }
+        onModified();
+    }
+
+    private boolean isTmdbAspectExpired(final int aspect) {
+        return isPastThreshold(getTmdbAspectFetched(aspect),
+                Constants.STALE_MOVIE_DETAIL_THRESHOLD);
+    }
+
+    private boolean hasTmdbAspect(final int aspect) {
+        switch (aspect) {
+            case TMDB_ASPECT_CREDITS:
+                return !PhilmCollections.isEmpty(cast) || !PhilmCollections.isEmpty(crew);
+            case TMDB_ASPECT_VIDEOS:
+                return !PhilmCollections.isEmpty(trailers);
+            case TMDB_ASPECT_SIMILAR:
+                return !PhilmCollections.isEmpty(related);
+            case TMDB_ASPECT_IMAGES:
+                return !PhilmCollections.isEmpty(mBackdropImages);
+        }
+        // The summary and release are stored in the movie itself, so are always held
+        return true;
+    }
+
+    private long getTmdbAspectFetched(final int aspect) {
+        switch (aspect) {
+            case TMDB_ASPECT_SUMMARY:
+                return tmdbSummaryFetched;
+            case TMDB_ASPECT_CREDITS:
+                return tmdbCreditsFetched;
+            case TMDB_ASPECT_VIDEOS:
+                return tmdbVideosFetched;
+            case TMDB_ASPECT_RELEASES:
+                return tmdbReleasesFetched;
+            case TMDB_ASPECT_SIMILAR:
+                return tmdbSimilarFetched;
+            case TMDB_ASPECT_IMAGES:
+                return tmdbImagesFetched;
+        }
+        return 0;
+    }
+
+    private void setTmdbAspectFetched(final int aspect, final long time) {
+        switch (aspect) {
+            case TMDB_ASPECT_SUMMARY:
+                tmdbSummaryFetched = time;
+                break;
+            case TMDB_ASPECT_CREDITS:
+                tmdbCreditsFetched = time;
+                break;
+            case TMDB_ASPECT_VIDEOS:
+                tmdbVideosFetched = time;
+                break;
+            case TMDB_ASPECT_RELEASES:
+                tmdbReleasesFetched = time;
+                break;
+            case TMDB_ASPECT_SIMILAR:
+                tmdbSimilarFetched = time;
+                break;
+            case TMDB_ASPECT_IMAGES:
+                tmdbImagesFetched = time;
+                break;
+        }
+    }
+
     public boolean needFullFetchFromTrakt() {
         return isPastThreshold(lastFullFetchFromTraktStarted,
                 Constants.FULL_MOVIE_DETAIL_ATTEMPT_THRESHOLD)
@@ -619,6 +1157,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setCast(List<PhilmMovieCredit> cast) {
         this.cast = cast;
+        onModified();
     }
 
     public List<PhilmMovieCredit> getCrew() {
@@ -627,6 +1166,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setCrew(List<PhilmMovieCredit> crew) {
         this.crew = crew;
+        onModified();
     }
 
     public List<PhilmMovieVideo> getTrailers() {
@@ -635,6 +1175,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setTrailers(List<PhilmMovieVideo> trailers) {
         this.trailers = trailers;
+        onModified();
     }
 
     public ColorScheme getColorScheme() {
@@ -643,6 +1184,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setColorScheme(ColorScheme colorScheme) {
         this.colorScheme = colorScheme;
+        onModified();
     }
 
     public List<BackdropImage> getBackdropImages() {
@@ -651,6 +1193,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     public void setBackdropImages(List<BackdropImage> backdropImages) {
         this.mBackdropImages = backdropImages;
+        onModified();
     }
 
     @Override
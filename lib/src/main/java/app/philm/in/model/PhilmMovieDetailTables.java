@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+import java.util.Date;
+
+/**
+ * Schema and row binding for the normalized movie detail tables: people, cast and crew credits,
+ * videos and related movie edges. Child rows are keyed on the movie's TMDB id, and related
+ * movies point at rows in {@link PhilmMovieTable}.
+ */
+public final class PhilmMovieDetailTables {
+
+    public static final String TABLE_PERSON = "Person";
+    public static final String TABLE_CREDIT = "MovieCredit";
+    public static final String TABLE_VIDEO = "MovieVideo";
+    public static final String TABLE_RELATED = "RelatedMovie";
+
+    public static final String[] TABLES = {
+            TABLE_PERSON, TABLE_CREDIT, TABLE_VIDEO, TABLE_RELATED
+    };
+
+    public static final String[] CREATE_STATEMENTS = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_PERSON + " ("
+                    + "tmdbId INTEGER PRIMARY KEY, name TEXT, pictureUrl TEXT, "
+                    + "pictureType INTEGER, placeOfBirth TEXT, dateOfBirth INTEGER, "
+                    + "dateOfDeath INTEGER, age INTEGER, biography TEXT)",
+            "CREATE TABLE IF NOT EXISTS " + TABLE_CREDIT + " ("
+                    + "movieTmdbId INTEGER NOT NULL, personTmdbId INTEGER NOT NULL, "
+                    + "creditType INTEGER NOT NULL, job TEXT, department TEXT, "
+                    + "ordering INTEGER, position INTEGER)",
+            "CREATE INDEX IF NOT EXISTS idx_credit_movie ON " + TABLE_CREDIT + " (movieTmdbId)",
+            "CREATE TABLE IF NOT EXISTS " + TABLE_VIDEO + " ("
+                    + "movieTmdbId INTEGER NOT NULL, source TEXT, videoId TEXT, name TEXT, "
+                    + "type TEXT, position INTEGER)",
+            "CREATE INDEX IF NOT EXISTS idx_video_movie ON " + TABLE_VIDEO + " (movieTmdbId)",
+            "CREATE TABLE IF NOT EXISTS " + TABLE_RELATED + " ("
+                    + "movieTmdbId INTEGER NOT NULL, relatedTmdbId INTEGER NOT NULL, "
+                    + "position INTEGER)",
+            "CREATE INDEX IF NOT EXISTS idx_related_movie ON " + TABLE_RELATED + " (movieTmdbId)"
+    };
+
+    public static final String INSERT_OR_REPLACE_PERSON = "INSERT OR REPLACE INTO " + TABLE_PERSON
+            + " (tmdbId, name, pictureUrl, pictureType, placeOfBirth, dateOfBirth, dateOfDeath, "
+            + "age, biography) VALUES (?,?,?,?,?,?,?,?,?)";
+
+    public static final String INSERT_CREDIT = "INSERT INTO " + TABLE_CREDIT
+            + " (movieTmdbId, personTmdbId, creditType, job, department, ordering, position) "
+            + "VALUES (?,?,?,?,?,?,?)";
+
+    public static final String INSERT_VIDEO = "INSERT INTO " + TABLE_VIDEO
+            + " (movieTmdbId, source, videoId, name, type, position) VALUES (?,?,?,?,?,?)";
+
+    public static final String INSERT_RELATED = "INSERT INTO " + TABLE_RELATED
+            + " (movieTmdbId, relatedTmdbId, position) VALUES (?,?,?)";
+
+    public static final String SELECTION_MOVIE = "movieTmdbId = ?";
+
+    public static final String QUERY_CREDITS = "SELECT c.creditType, c.job, c.department, "
+            + "c.ordering, p.* FROM " + TABLE_CREDIT + " c JOIN " + TABLE_PERSON
+            + " p ON c.personTmdbId = p.tmdbId WHERE c.movieTmdbId = ? "
+            + "ORDER BY c.creditType, c.position";
+
+    public static final String QUERY_VIDEOS = "SELECT * FROM " + TABLE_VIDEO
+            + " WHERE movieTmdbId = ? ORDER BY position";
+
+    public static final String QUERY_RELATED = "SELECT m.* FROM " + TABLE_RELATED + " r JOIN "
+            + PhilmMovieTable.TABLE_NAME + " m ON m.tmdbId = r.relatedTmdbId "
+            + "WHERE r.movieTmdbId = ? GROUP BY r.position ORDER BY r.position";
+
+    public static final int CREDIT_TYPE_CAST = 0;
+    public static final int CREDIT_TYPE_CREW = 1;
+
+    private PhilmMovieDetailTables() {
+    }
+
+    public static void bindPerson(RowBinder binder, PhilmPerson person) {
+        binder.clearBindings();
+        binder.bindLong(1, person.tmdbId);
+        bindString(binder, 2, person.name);
+        bindString(binder, 3, person.pictureUrl);
+        binder.bindLong(4, person.pictureType);
+        bindString(binder, 5, person.placeOfBirth);
+        bindDate(binder, 6, person.dateOfBirth);
+        bindDate(binder, 7, person.dateOfDeath);
+        binder.bindLong(8, person.age);
+        bindString(binder, 9, person.biography);
+    }
+
+    public static void bindCredit(RowBinder binder, int movieTmdbId, int creditType,
+            PhilmMovieCredit credit, int position) {
+        binder.clearBindings();
+        binder.bindLong(1, movieTmdbId);
+        binder.bindLong(2, credit.person.tmdbId);
+        binder.bindLong(3, creditType);
+        bindString(binder, 4, credit.job);
+        bindString(binder, 5, credit.department);
+        binder.bindLong(6, credit.order);
+        binder.bindLong(7, position);
+    }
+
+    public static void bindVideo(RowBinder binder, int movieTmdbId,
+            PhilmMovieVideo video, int position) {
+        binder.clearBindings();
+        binder.bindLong(1, movieTmdbId);
+        bindString(binder, 2, video.getSource() != null ? video.getSource().name() : null);
+        bindString(binder, 3, video.getId());
+        bindString(binder, 4, video.getName());
+        bindString(binder, 5, video.getType() != null ? video.getType().name() : null);
+        binder.bindLong(6, position);
+    }
+
+    public static void bindRelated(RowBinder binder, int movieTmdbId,
+            int relatedTmdbId, int position) {
+        binder.clearBindings();
+        binder.bindLong(1, movieTmdbId);
+        binder.bindLong(2, relatedTmdbId);
+        binder.bindLong(3, position);
+    }
+
+    /**
+     * @return true if {@code credit} can be persisted, as it needs a person with a TMDB id.
+     */
+    public static boolean canPersist(PhilmMovieCredit credit) {
+        return credit.person != null && credit.person.tmdbId != null;
+    }
+
+    /**
+     * Reads a person from a row of {@link #QUERY_CREDITS}.
+     */
+    public static PhilmPerson readPerson(RowReader reader) {
+        final PhilmPerson person = new PhilmPerson();
+        person.tmdbId = reader.getInt(reader.getColumnIndexOrThrow("tmdbId"));
+        person.name = getString(reader, "name");
+        person.pictureUrl = getString(reader, "pictureUrl");
+        person.pictureType = reader.getInt(reader.getColumnIndexOrThrow("pictureType"));
+        person.placeOfBirth = getString(reader, "placeOfBirth");
+        person.dateOfBirth = getDate(reader, "dateOfBirth");
+        person.dateOfDeath = getDate(reader, "dateOfDeath");
+        person.age = reader.getInt(reader.getColumnIndexOrThrow("age"));
+        person.biography = getString(reader, "biography");
+        return person;
+    }
+
+    /**
+     * @return the credit type of a row of {@link #QUERY_CREDITS}.
+     */
+    public static int readCreditType(RowReader reader) {
+        return reader.getInt(reader.getColumnIndexOrThrow("creditType"));
+    }
+
+    /**
+     * Reads a credit from a row of {@link #QUERY_CREDITS}, for the given person.
+     */
+    public static PhilmMovieCredit readCredit(RowReader reader, PhilmPerson person) {
+        final String job = getString(reader, "job");
+        if (readCreditType(reader) == CREDIT_TYPE_CAST) {
+            return new PhilmMovieCredit(person, job != null ? job : "",
+                    reader.getInt(reader.getColumnIndexOrThrow("ordering")));
+        } else {
+            final String department = getString(reader, "department");
+            return new PhilmMovieCredit(person, job != null ? job : "",
+                    department != null ? department : "");
+        }
+    }
+
+    /**
+     * Reads a video from a row of {@link #QUERY_VIDEOS}.
+     */
+    public static PhilmMovieVideo readVideo(RowReader reader) {
+        final String source = getString(reader, "source");
+        final String type = getString(reader, "type");
+        return new PhilmMovieVideo(
+                source != null ? PhilmMovieVideo.Source.valueOf(source) : null,
+                getString(reader, "videoId"),
+                getString(reader, "name"),
+                type != null ? PhilmMovieVideo.Type.valueOf(type) : null);
+    }
+
+    private static String getString(RowReader reader, String column) {
+        final int index = reader.getColumnIndexOrThrow(column);
+        return reader.isNull(index) ? null : reader.getString(index);
+    }
+
+    private static Date getDate(RowReader reader, String column) {
+        final int index = reader.getColumnIndexOrThrow(column);
+        return reader.isNull(index) ? null : new Date(reader.getLong(index));
+    }
+
+    private static void bindString(RowBinder binder, int index, String value) {
+        if (value != null) {
+            binder.bindString(index, value);
+        } else {
+            binder.bindNull(index);
+        }
+    }
+
+    private static void bindDate(RowBinder binder, int index, Date value) {
+        if (value != null) {
+            binder.bindLong(index, value.getTime());
+        } else {
+            binder.bindNull(index);
+        }
+    }
+}
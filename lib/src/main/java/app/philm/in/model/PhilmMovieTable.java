@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+import java.text.CollationKey;
+import java.util.Locale;
+
+/**
+ * Describes how {@link PhilmMovie} rows are stored, so that they can be bound directly to a
+ * precompiled statement rather than going through the reflective ContentValues conversion used
+ * by cupboard. The column names must match the fields which cupboard persists.
+ */
+public final class PhilmMovieTable {
+
+    public static final String TABLE_NAME = "PhilmMovie";
+
+    /**
+     * Denormalized copy of {@link PhilmMovie#getSortTitle()}, so that rows can be ordered by an
+     * index. This isn't a field, so is added to the table manually.
+     */
+    public static final String COLUMN_SORT_TITLE = "sortTitle";
+
+    /**
+     * The collation key of {@link PhilmMovie#getSortTitle()} in hex, so that SQLite orders rows
+     * exactly as {@link PhilmMovie#COMPARATOR_SORT_TITLE} does: hex digits compare in the same
+     * order as the key's bytes. Keys depend on the locale, see {@link #getSortKeyLocale()}.
+     */
+    public static final String COLUMN_SORT_KEY = "sortKey";
+
+    /**
+     * Sort key of movies without a title. It is greater than any hex string, so they come last
+     * as they do in {@link PhilmMovie#COMPARATOR_SORT_TITLE}.
+     */
+    private static final String SORT_KEY_NO_TITLE = "~";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The persisted columns, in the order they are bound by {@link #bind(RowBinder,
+     * PhilmMovie)}.
+     */
+    private static final String[] COLUMNS = {
+            "_id", "idType", "imdbId", "tmdbId", "traktTitle", "tmdbTitle", "traktSortTitle",
+            "tmdbSortTitle", "traktOverview", "tmdbOverview", "traktTagline", "tmdbTagline",
+            "traktPosterUrl", "tmdbPosterUrl", "traktBackdropUrl", "tmdbBackdropUrl",
+            "traktInWatchlist", "traktInCollection", "traktWatched", "traktPlays", "traktYear",
+            "tmdbYear", "tmdbIsAdult", "tmdbBudget", "traktReleasedTime",
+            "traktReleasedCountryCode", "tmdbReleasedTime", "tmdbReleasedCountryCode",
+            "traktUserRating", "traktUserRatingAdvanced", "tmdbRatingPercent", "tmdbRatingVotes",
+            "traktRatingPercent", "traktRatingVotes", "traktRuntime", "tmdbRuntime",
+            "traktCertification", "tmdbCertification", "traktGenres", "tmdbGenres",
+            "traktMainLanguage", "tmdbMainLanguage", "lastFullFetchFromTraktCompleted",
+            "lastFullFetchFromTmdbCompleted", "loadedFromTrakt", "loadedFromTmdb",
+            COLUMN_SORT_TITLE, "tmdbOriginalTitle", "tmdbSummaryFetched", "tmdbCreditsFetched",
+            "tmdbVideosFetched", "tmdbReleasesFetched", "tmdbSimilarFetched", "tmdbImagesFetched",
+            "tmdbEmptyAspects", COLUMN_SORT_KEY
+    };
+
+    public static final String INSERT_OR_REPLACE = "INSERT OR REPLACE INTO " + TABLE_NAME
+            + " (" + join(COLUMNS) + ") VALUES (" + placeholders(COLUMNS.length) + ")";
+
+    public static final String DELETE = "DELETE FROM " + TABLE_NAME + " WHERE _id = ?";
+
+    private PhilmMovieTable() {
+    }
+
+    /**
+     * Binds {@code movie} in the column order of {@link #INSERT_OR_REPLACE}.
+     */
+    public static void bind(RowBinder binder, PhilmMovie movie) {
+        binder.clearBindings();
+
+        bindLong(binder, 1, movie._id);
+        binder.bindLong(2, movie.idType);
+        bindString(binder, 3, movie.imdbId);
+        bindLong(binder, 4, movie.tmdbId != null ? Long.valueOf(movie.tmdbId) : null);
+        bindString(binder, 5, movie.traktTitle);
+        bindString(binder, 6, movie.tmdbTitle);
+        bindString(binder, 7, movie.traktSortTitle);
+        bindString(binder, 8, movie.tmdbSortTitle);
+        bindString(binder, 9, movie.traktOverview);
+        bindString(binder, 10, movie.tmdbOverview);
+        bindString(binder, 11, movie.traktTagline);
+        bindString(binder, 12, movie.tmdbTagline);
+        bindString(binder, 13, movie.traktPosterUrl);
+        bindString(binder, 14, movie.tmdbPosterUrl);
+        bindString(binder, 15, movie.traktBackdropUrl);
+        bindString(binder, 16, movie.tmdbBackdropUrl);
+        binder.bindLong(17, movie.traktInWatchlist ? 1 : 0);
+        binder.bindLong(18, movie.traktInCollection ? 1 : 0);
+        binder.bindLong(19, movie.traktWatched ? 1 : 0);
+        binder.bindLong(20, movie.traktPlays);
+        binder.bindLong(21, movie.traktYear);
+        binder.bindLong(22, movie.tmdbYear);
+        binder.bindLong(23, movie.tmdbIsAdult ? 1 : 0);
+        binder.bindLong(24, movie.tmdbBudget);
+        binder.bindLong(25, movie.traktReleasedTime);
+        bindString(binder, 26, movie.traktReleasedCountryCode);
+        binder.bindLong(27, movie.tmdbReleasedTime);
+        bindString(binder, 28, movie.tmdbReleasedCountryCode);
+        binder.bindLong(29, movie.traktUserRating);
+        binder.bindLong(30, movie.traktUserRatingAdvanced);
+        binder.bindLong(31, movie.tmdbRatingPercent);
+        binder.bindLong(32, movie.tmdbRatingVotes);
+        binder.bindLong(33, movie.traktRatingPercent);
+        binder.bindLong(34, movie.traktRatingVotes);
+        binder.bindLong(35, movie.traktRuntime);
+        binder.bindLong(36, movie.tmdbRuntime);
+        bindString(binder, 37, movie.traktCertification);
+        bindString(binder, 38, movie.tmdbCertification);
+        bindString(binder, 39, movie.traktGenres);
+        bindString(binder, 40, movie.tmdbGenres);
+        bindString(binder, 41, movie.traktMainLanguage);
+        bindString(binder, 42, movie.tmdbMainLanguage);
+        binder.bindLong(43, movie.lastFullFetchFromTraktCompleted);
+        binder.bindLong(44, movie.lastFullFetchFromTmdbCompleted);
+        binder.bindLong(45, movie.loadedFromTrakt ? 1 : 0);
+        binder.bindLong(46, movie.loadedFromTmdb ? 1 : 0);
+        bindString(binder, 47, movie.getSortTitle());
+        bindString(binder, 48, movie.tmdbOriginalTitle);
+        binder.bindLong(49, movie.tmdbSummaryFetched);
+        binder.bindLong(50, movie.tmdbCreditsFetched);
+        binder.bindLong(51, movie.tmdbVideosFetched);
+        binder.bindLong(52, movie.tmdbReleasesFetched);
+        binder.bindLong(53, movie.tmdbSimilarFetched);
+        binder.bindLong(54, movie.tmdbImagesFetched);
+        binder.bindLong(55, movie.tmdbEmptyAspects);
+        binder.bindString(56, getSortKey(movie));
+    }
+
+    /**
+     * @return the value of {@link #COLUMN_SORT_KEY} for {@code movie}.
+     */
+    public static String getSortKey(PhilmMovie movie) {
+        return toSortKey(movie.getSortTitleKey());
+    }
+
+    /**
+     * @return the value of {@link #COLUMN_SORT_KEY} for a row with {@code sortTitle}, which may be
+     * null.
+     */
+    public static String getSortKey(String sortTitle) {
+        return toSortKey(sortTitle != null ? PhilmMovie.collateSortTitle(sortTitle) : null);
+    }
+
+    /**
+     * @return the locale which sort keys are collated for. Stored keys must be recomputed when
+     * this changes.
+     */
+    public static Locale getSortKeyLocale() {
+        return PhilmMovie.SORT_TITLE_LOCALE;
+    }
+
+    /**
+     * @return a fingerprint of every persisted column apart from the row id. Two movies with the
+     * same fingerprint will almost certainly be stored identically, so the row can be left alone.
+     */
+    public static long fingerprint(PhilmMovie movie) {
+        long hash = 17;
+        hash = 31 * hash + movie.idType;
+        hash = 31 * hash + hashCode(movie.imdbId);
+        hash = 31 * hash + hashCode(movie.tmdbId);
+        hash = 31 * hash + hashCode(movie.traktTitle);
+        hash = 31 * hash + hashCode(movie.tmdbTitle);
+        hash = 31 * hash + hashCode(movie.traktSortTitle);
+        hash = 31 * hash + hashCode(movie.tmdbSortTitle);
+        hash = 31 * hash + hashCode(movie.traktOverview);
+        hash = 31 * hash + hashCode(movie.tmdbOverview);
+        hash = 31 * hash + hashCode(movie.traktTagline);
+        hash = 31 * hash + hashCode(movie.tmdbTagline);
+        hash = 31 * hash + hashCode(movie.traktPosterUrl);
+        hash = 31 * hash + hashCode(movie.tmdbPosterUrl);
+        hash = 31 * hash + hashCode(movie.traktBackdropUrl);
+        hash = 31 * hash + hashCode(movie.tmdbBackdropUrl);
+        hash = 31 * hash + (movie.traktInWatchlist ? 1 : 0);
+        hash = 31 * hash + (movie.traktInCollection ? 1 : 0);
+        hash = 31 * hash + (movie.traktWatched ? 1 : 0);
+        hash = 31 * hash + movie.traktPlays;
+        hash = 31 * hash + movie.traktYear;
+        hash = 31 * hash + movie.tmdbYear;
+        hash = 31 * hash + (movie.tmdbIsAdult ? 1 : 0);
+        hash = 31 * hash + movie.tmdbBudget;
+        hash = 31 * hash + movie.traktReleasedTime;
+        hash = 31 * hash + hashCode(movie.traktReleasedCountryCode);
+        hash = 31 * hash + movie.tmdbReleasedTime;
+        hash = 31 * hash + hashCode(movie.tmdbReleasedCountryCode);
+        hash = 31 * hash + movie.traktUserRating;
+        hash = 31 * hash + movie.traktUserRatingAdvanced;
+        hash = 31 * hash + movie.tmdbRatingPercent;
+        hash = 31 * hash + movie.tmdbRatingVotes;
+        hash = 31 * hash + movie.traktRatingPercent;
+        hash = 31 * hash + movie.traktRatingVotes;
+        hash = 31 * hash + movie.traktRuntime;
+        hash = 31 * hash + movie.tmdbRuntime;
+        hash = 31 * hash + hashCode(movie.traktCertification);
+        hash = 31 * hash + hashCode(movie.tmdbCertification);
+        hash = 31 * hash + hashCode(movie.traktGenres);
+        hash = 31 * hash + hashCode(movie.tmdbGenres);
+        hash = 31 * hash + hashCode(movie.traktMainLanguage);
+        hash = 31 * hash + hashCode(movie.tmdbMainLanguage);
+        hash = 31 * hash + movie.lastFullFetchFromTraktCompleted;
+        hash = 31 * hash + movie.lastFullFetchFromTmdbCompleted;
+        hash = 31 * hash + (movie.loadedFromTrakt ? 1 : 0);
+        hash = 31 * hash + (movie.loadedFromTmdb ? 1 : 0);
+        hash = 31 * hash + hashCode(movie.tmdbOriginalTitle);
+        hash = 31 * hash + movie.tmdbSummaryFetched;
+        hash = 31 * hash + movie.tmdbCreditsFetched;
+        hash = 31 * hash + movie.tmdbVideosFetched;
+        hash = 31 * hash + movie.tmdbReleasesFetched;
+        hash = 31 * hash + movie.tmdbSimilarFetched;
+        hash = 31 * hash + movie.tmdbImagesFetched;
+        hash = 31 * hash + movie.tmdbEmptyAspects;
+        return hash;
+    }
+
+    public static boolean hasDbId(PhilmMovie movie) {
+        return movie._id != null;
+    }
+
+    private static void bindString(RowBinder binder, int index, String value) {
+        if (value != null) {
+            binder.bindString(index, value);
+        } else {
+            binder.bindNull(index);
+        }
+    }
+
+    private static void bindLong(RowBinder binder, int index, Long value) {
+        if (value != null) {
+            binder.bindLong(index, value);
+        } else {
+            binder.bindNull(index);
+        }
+    }
+
+    private static String toSortKey(CollationKey key) {
+        if (key == null) {
+            return SORT_KEY_NO_TITLE;
+        }
+
+        final byte[] bytes = key.toByteArray();
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static int hashCode(Object value) {
+        return value != null ? value.hashCode() : 0;
+    }
+
+    private static String join(String[] columns) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(columns[i]);
+        }
+        return sb.toString();
+    }
+
+    private static String placeholders(int count) {
+        final StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -37,6 +37,16 @@ public class PhilmMovieVideo extends PhilmModel<PhilmMovieVideo> {
     private String mName;
     private Type mType;
 
+    public PhilmMovieVideo() {
+    }
+
+    PhilmMovieVideo(Source source, String id, String name, Type type) {
+        mSource = source;
+        mId = id;
+        mName = name;
+        mType = type;
+    }
+
     public void setFromTmdb(Video video) {
         if (SOURCE_YOUTUBE.equalsIgnoreCase(video.site)) {
             mSource = Source.YOUTUBE;
@@ -24,7 +24,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
-public class PhilmPerson extends PhilmModel<PhilmPerson> {
+public class PhilmPerson extends PhilmModel<PhilmPerson> implements Cloneable {
 
     Integer tmdbId;
     String name;
@@ -57,6 +57,17 @@ public class PhilmPerson extends PhilmModel<PhilmPerson> {
     }
 
     public void setFromTmdb(Person person) {
+        setFromTmdb(person, null);
+    }
+
+    /**
+     * Same as {@link #setFromTmdb(Person)}, but the age is taken from {@code prepared} rather than
+     * calculated again.
+     *
+     * @param prepared a new person which {@code person} has already been set on, usually on a
+     *                 background thread. May be null.
+     */
+    public void setFromTmdb(Person person, PhilmPerson prepared) {
         tmdbId = person.id;
         name = person.name;
         pictureUrl = person.profile_path;
@@ -66,7 +77,32 @@ public class PhilmPerson extends PhilmModel<PhilmPerson> {
         placeOfBirth = person.place_of_birth;
         pictureType = TYPE_TMDB;
 
-        calculateAge();
+        if (prepared != null) {
+            if (dateOfBirth != null) {
+                age = prepared.age;
+            }
+        } else {
+            calculateAge();
+        }
+    }
+
+    /**
+     * @return a copy of this person's persisted fields, which can be read from any thread as
+     * nothing modifies it. Credits are not copied.
+     */
+    public PhilmPerson copy() {
+        final PhilmPerson copy;
+        try {
+            copy = (PhilmPerson) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.dateOfBirth = dateOfBirth != null ? new Date(dateOfBirth.getTime()) : null;
+        copy.dateOfDeath = dateOfDeath != null ? new Date(dateOfDeath.getTime()) : null;
+        copy.castCredits = null;
+        copy.crewCredits = null;
+        copy.fetchedCredits = false;
+        return copy;
     }
 
     public Integer getTmdbId() {
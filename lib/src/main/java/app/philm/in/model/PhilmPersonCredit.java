@@ -16,65 +16,57 @@
 
 package app.philm.in.model;
 
-import com.uwetrottmann.tmdb.entities.PersonCastCredit;
-import com.uwetrottmann.tmdb.entities.PersonCrewCredit;
+import com.google.common.base.Preconditions;
 
 import java.util.Comparator;
 
+/**
+ * A movie which a person has worked on. The movie is the instance held in the state, so it
+ * shares its poster, flags and any detail already fetched.
+ */
 public class PhilmPersonCredit extends PhilmModel<PhilmPersonCredit> {
 
     public static final Comparator<PhilmPersonCredit> COMPARATOR_SORT_DATE
             = new Comparator<PhilmPersonCredit>() {
         @Override
-        public int compare(PhilmPersonCredit movie, PhilmPersonCredit movie2) {
-            if (movie.releaseDate > movie2.releaseDate) {
+        public int compare(PhilmPersonCredit credit, PhilmPersonCredit credit2) {
+            final long releaseDate = credit.movie.getReleasedTime();
+            final long releaseDate2 = credit2.movie.getReleasedTime();
+
+            if (releaseDate > releaseDate2) {
                 return -1;
-            } else if (movie.releaseDate < movie2.releaseDate) {
+            } else if (releaseDate < releaseDate2) {
                 return 1;
             }
             return 0;
         }
     };
 
-    final String title;
-    final int id;
+    final PhilmMovie movie;
     final String job;
-    final String posterPath;
-    final long releaseDate;
-
-    public PhilmPersonCredit(PersonCastCredit credit) {
-        this.id = credit.id;
-        this.title = credit.title;
-        this.posterPath = credit.poster_path;
-        this.job = credit.character;
-        this.releaseDate = credit.release_date != null ? credit.release_date.getTime() : 0;
-    }
+    final String department;
 
-    public PhilmPersonCredit(PersonCrewCredit credit) {
-        this.id = credit.id;
-        this.title = credit.title;
-        this.posterPath = credit.poster_path;
-        this.job = credit.job;
-        this.releaseDate = credit.release_date != null ? credit.release_date.getTime() : 0;
+    public PhilmPersonCredit(PhilmMovie movie, String character) {
+        this.movie = Preconditions.checkNotNull(movie, "movie cannot be null");
+        this.job = character;
+        this.department = null;
     }
 
-    public String getTitle() {
-        return title;
+    public PhilmPersonCredit(PhilmMovie movie, String job, String department) {
+        this.movie = Preconditions.checkNotNull(movie, "movie cannot be null");
+        this.job = job;
+        this.department = department;
     }
 
-    public int getId() {
-        return id;
+    public PhilmMovie getMovie() {
+        return movie;
     }
 
     public String getJob() {
         return job;
     }
 
-    public String getPosterPath() {
-        return posterPath;
-    }
-
-    public long getReleaseDate() {
-        return releaseDate;
+    public String getDepartment() {
+        return department;
     }
 }
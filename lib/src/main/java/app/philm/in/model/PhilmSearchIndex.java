@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+import java.util.List;
+
+/**
+ * Schema and row binding for the local full-text search index. Movies are indexed on their
+ * title, original title, overview and the names of their cast and crew, with the FTS docid being
+ * the movie's row id in {@link PhilmMovieTable}. People are indexed on their name, with the docid
+ * being their TMDB id.
+ */
+public final class PhilmSearchIndex {
+
+    public static final String TABLE_MOVIE_SEARCH = "MovieSearch";
+    public static final String TABLE_PERSON_SEARCH = "PersonSearch";
+
+    /**
+     * Holds a row while the index is known to be missing writes, until it is next rebuilt.
+     */
+    public static final String TABLE_SEARCH_STALE = "SearchIndexStale";
+
+    public static final String[] TABLES = {
+            TABLE_MOVIE_SEARCH, TABLE_PERSON_SEARCH, TABLE_SEARCH_STALE
+    };
+
+    /**
+     * FTS3 rather than FTS4, as FTS4 is not available on all of the API levels we support.
+     */
+    public static final String[] CREATE_STATEMENTS = {
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_MOVIE_SEARCH
+                    + " USING fts3(title, originalTitle, overview, people)",
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_PERSON_SEARCH + " USING fts3(name)",
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SEARCH_STALE + " (stale INTEGER)"
+    };
+
+    /**
+     * Flags the index for a rebuild, after a write to it has failed.
+     */
+    public static final String MARK_STALE = "INSERT INTO " + TABLE_SEARCH_STALE + " VALUES (1)";
+
+    /**
+     * Statements which rebuild the index from the movie and detail tables, used when the index
+     * is first created on an existing database or after a write to it has failed.
+     */
+    public static final String[] REBUILD_STATEMENTS = {
+            "DELETE FROM " + TABLE_MOVIE_SEARCH,
+            "INSERT INTO " + TABLE_MOVIE_SEARCH
+                    + " (docid, title, originalTitle, overview, people) SELECT m._id, "
+                    + "COALESCE(NULLIF(m.tmdbTitle, ''), m.traktTitle), m.tmdbOriginalTitle, "
+                    + "COALESCE(NULLIF(m.tmdbOverview, ''), m.traktOverview), "
+                    + "(SELECT group_concat(p.name, ' ') FROM "
+                    + PhilmMovieDetailTables.TABLE_CREDIT + " c JOIN "
+                    + PhilmMovieDetailTables.TABLE_PERSON + " p ON c.personTmdbId = p.tmdbId "
+                    + "WHERE c.movieTmdbId = m.tmdbId) FROM " + PhilmMovieTable.TABLE_NAME + " m",
+            "DELETE FROM " + TABLE_PERSON_SEARCH,
+            "INSERT INTO " + TABLE_PERSON_SEARCH + " (docid, name) SELECT tmdbId, name FROM "
+                    + PhilmMovieDetailTables.TABLE_PERSON,
+            "DELETE FROM " + TABLE_SEARCH_STALE
+    };
+
+    /*
+     * FTS3 tables only support INSERT OR REPLACE from SQLite 3.7.7, and API 14 ships with 3.7.4,
+     * so rows are replaced by deleting the docid and inserting it again.
+     */
+
+    /**
+     * The people which have been indexed for a movie, which are kept when its row is replaced as
+     * they are only known once the credits have been fetched.
+     */
+    public static final String QUERY_MOVIE_PEOPLE = "SELECT people FROM " + TABLE_MOVIE_SEARCH
+            + " WHERE docid = ?";
+
+    public static final String DELETE_MOVIE = "DELETE FROM " + TABLE_MOVIE_SEARCH
+            + " WHERE docid = ?";
+
+    public static final String INSERT_MOVIE = "INSERT INTO " + TABLE_MOVIE_SEARCH
+            + " (docid, title, originalTitle, overview, people) VALUES (?,?,?,?,?)";
+
+    public static final String UPDATE_MOVIE_PEOPLE = "UPDATE " + TABLE_MOVIE_SEARCH
+            + " SET people = ? WHERE docid = ?";
+
+    public static final String DELETE_PERSON = "DELETE FROM " + TABLE_PERSON_SEARCH
+            + " WHERE docid = ?";
+
+    public static final String INSERT_PERSON = "INSERT INTO " + TABLE_PERSON_SEARCH
+            + " (docid, name) VALUES (?,?)";
+
+    public static final String SELECTION_DOCID = "docid = ?";
+
+    public static final String QUERY_MOVIES = "SELECT m.* FROM " + PhilmMovieTable.TABLE_NAME
+            + " m JOIN (SELECT docid FROM " + TABLE_MOVIE_SEARCH + " WHERE "
+            + TABLE_MOVIE_SEARCH + " MATCH ?) s ON m._id = s.docid ORDER BY m."
+            + PhilmMovieTable.COLUMN_SORT_KEY + " LIMIT ?";
+
+    public static final String QUERY_PEOPLE = "SELECT p.* FROM "
+            + PhilmMovieDetailTables.TABLE_PERSON + " p JOIN (SELECT docid FROM "
+            + TABLE_PERSON_SEARCH + " WHERE " + TABLE_PERSON_SEARCH
+            + " MATCH ?) s ON p.tmdbId = s.docid ORDER BY p.name LIMIT ?";
+
+    private PhilmSearchIndex() {
+    }
+
+    /**
+     * Binds {@code movie} to a statement compiled from {@link #INSERT_MOVIE}. The movie must have
+     * been persisted already.
+     *
+     * @param people the people already indexed for the movie, from {@link #QUERY_MOVIE_PEOPLE}.
+     */
+    public static void bindMovie(RowBinder binder, PhilmMovie movie, String people) {
+        binder.clearBindings();
+        binder.bindLong(1, movie._id);
+        bindString(binder, 2, movie.getTitle());
+        bindString(binder, 3, movie.getOriginalTitle());
+        bindString(binder, 4, movie.getOverview());
+        bindString(binder, 5, people);
+    }
+
+    /**
+     * Binds the names of the cast and crew of {@code movie} to a statement compiled from
+     * {@link #UPDATE_MOVIE_PEOPLE}. The movie must have been persisted already.
+     */
+    public static void bindMoviePeople(RowBinder binder, PhilmMovie movie,
+            List<PhilmMovieCredit> cast, List<PhilmMovieCredit> crew) {
+        final StringBuilder people = new StringBuilder();
+        appendNames(people, cast);
+        appendNames(people, crew);
+
+        binder.clearBindings();
+        bindString(binder, 1, people.length() > 0 ? people.toString() : null);
+        binder.bindLong(2, movie._id);
+    }
+
+    /**
+     * Binds {@code person} to a statement compiled from {@link #INSERT_PERSON}.
+     */
+    public static void bindPerson(RowBinder binder, PhilmPerson person) {
+        binder.clearBindings();
+        binder.bindLong(1, person.tmdbId);
+        bindString(binder, 2, person.name);
+    }
+
+    /**
+     * Converts free text typed by the user into an FTS match expression, where every word has
+     * to match the prefix of an indexed word.
+     *
+     * @return the match expression, or null if {@code query} does not contain any words.
+     */
+    public static String toMatchQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        int wordStart = -1;
+        for (int i = 0, z = query.length(); i <= z; i++) {
+            final boolean isWordChar = i < z && Character.isLetterOrDigit(query.charAt(i));
+            if (isWordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!isWordChar && wordStart >= 0) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                // Quoting stops words such as OR and NEAR being parsed as operators
+                sb.append('"').append(query, wordStart, i).append("*\"");
+                wordStart = -1;
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    private static void appendNames(StringBuilder sb, List<PhilmMovieCredit> credits) {
+        if (credits == null) {
+            return;
+        }
+        for (int i = 0, z = credits.size(); i < z; i++) {
+            final PhilmPerson person = credits.get(i).person;
+            if (person != null && person.name != null) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(person.name);
+            }
+        }
+    }
+
+    private static void bindString(RowBinder binder, int index, String value) {
+        if (value != null) {
+            binder.bindString(index, value);
+        } else {
+            binder.bindNull(index);
+        }
+    }
+}
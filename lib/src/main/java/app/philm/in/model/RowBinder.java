@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+/**
+ * Receives the column values of a row, so that models can describe how they are stored without
+ * depending on a database API. Indexes start at 1.
+ */
+public interface RowBinder {
+
+    public void clearBindings();
+
+    public void bindLong(int index, long value);
+
+    public void bindString(int index, String value);
+
+    public void bindNull(int index);
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+/**
+ * Gives the column values of a row, so that models can describe how they are read without
+ * depending on a database API. Indexes start at 0.
+ */
+public interface RowReader {
+
+    public int getColumnIndexOrThrow(String column);
+
+    public boolean isNull(int index);
+
+    public int getInt(int index);
+
+    public long getLong(int index);
+
+    public String getString(int index);
+
+}
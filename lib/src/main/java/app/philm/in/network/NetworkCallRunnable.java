@@ -20,14 +20,40 @@ import retrofit.RetrofitError;
 
 public abstract class NetworkCallRunnable<R> {
 
+    private volatile boolean mCancelled;
+
     public void onPreTraktCall() {}
 
     public abstract R doBackgroundCall() throws RetrofitError;
 
+    /**
+     * Called on the background thread with a successful result, before it is given to
+     * {@link #onSuccess(Object)}. Any mapping or sorting of the result should be done here and
+     * kept in fields, so that {@link #onSuccess(Object)} only has to apply it on the main thread.
+     * Objects held by the state must not be modified here, as the main thread may be reading
+     * them, so entities should be prepared with the mappers' {@code prepare} methods. Any
+     * exception thrown is delivered to {@link #onError(RetrofitError)}.
+     */
+    public void transformResult(R result) {}
+
     public abstract void onSuccess(R result);
 
     public abstract void onError(RetrofitError re);
 
     public void onFinished() {}
 
+    /**
+     * Cancels this call. If it has not started it will not be made, otherwise its result is
+     * dropped rather than given to {@link #onSuccess(Object)} or {@link #onError(RetrofitError)}.
+     * {@link #onFinished()} is still called if {@link #onPreTraktCall()} has been. Must be called
+     * on the main thread.
+     */
+    public final void cancel() {
+        mCancelled = true;
+    }
+
+    public final boolean isCancelled() {
+        return mCancelled;
+    }
+
  }
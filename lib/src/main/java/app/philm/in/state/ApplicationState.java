@@ -16,16 +16,18 @@
 
 package app.philm.in.state;
 
-import android.support.v4.util.ArrayMap;
-
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.squareup.otto.Bus;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import app.philm.in.controllers.MainController;
 import app.philm.in.controllers.MovieController;
@@ -43,23 +45,30 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
 
     private final Bus mEventBus;
 
-    private Map<String, PhilmMovie> mTmdbIdMovies;
-    private Map<String, PhilmMovie> mImdbIdMovies;
-    private Map<String, PhilmPerson> mPeople;
+    private final Map<String, PhilmMovie> mTmdbIdMovies;
+    private final Map<String, PhilmMovie> mImdbIdMovies;
+    private final Map<String, PhilmPerson> mPeople;
+
+    /**
+     * Replaced on the main thread whenever a list is written, and read from any thread.
+     */
+    private volatile MoviesStateSnapshot mSnapshot = MoviesStateSnapshot.EMPTY;
 
     private SearchResult mSearchResult;
 
-    private List<PhilmMovie> mLibrary;
+    private SortedMovieList mLibrary;
     private List<PhilmMovie> mTrending;
     private MoviePaginatedResult mPopular;
     private MoviePaginatedResult mNowPlaying;
     private MoviePaginatedResult mUpcoming;
-    private List<PhilmMovie> mWatchlist;
+    private SortedMovieList mWatchlist;
     private List<PhilmMovie> mRecommended;
 
     private WatchingMovie mWatching;
 
-    private Set<MovieController.MovieFilter> mFilters;
+    private final Set<MovieController.MovieFilter> mFilters;
+    private final Set<MovieController.MovieFilter> mUnmodifiableFilters;
+    private MovieController.MovieSortOrder mSortOrder;
 
     private PhilmAccount mAccount;
     private PhilmUserProfile mUserProfile;
@@ -71,9 +80,14 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     public ApplicationState(Bus eventBus) {
         mEventBus = Preconditions.checkNotNull(eventBus, "eventBus cannot null");
 
-        mTmdbIdMovies = new ArrayMap<>(INITIAL_MOVIE_MAP_CAPACITY);
-        mImdbIdMovies = new ArrayMap<>(INITIAL_MOVIE_MAP_CAPACITY);
-        mPeople = new ArrayMap<>();
+        // These are written by the entity mappers, and may be read from background threads
+        mTmdbIdMovies = new ConcurrentHashMap<>(INITIAL_MOVIE_MAP_CAPACITY);
+        mImdbIdMovies = new ConcurrentHashMap<>(INITIAL_MOVIE_MAP_CAPACITY);
+        mPeople = new ConcurrentHashMap<>();
+
+        mFilters = EnumSet.noneOf(MovieController.MovieFilter.class);
+        mUnmodifiableFilters = Collections.unmodifiableSet(mFilters);
+        mSortOrder = MovieController.MovieSortOrder.TITLE;
     }
 
     @Override
@@ -139,18 +153,45 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     }
 
     @Override
-    public List<PhilmMovie> getLibrary() {
+    public void putMovies(Collection<PhilmMovie> movies) {
+        final HashMap<String, PhilmMovie> imdbIdMovies = new HashMap<>(movies.size());
+        final HashMap<String, PhilmMovie> tmdbIdMovies = new HashMap<>(movies.size());
+        for (PhilmMovie movie : movies) {
+            if (!TextUtils.isEmpty(movie.getImdbId())) {
+                imdbIdMovies.put(movie.getImdbId(), movie);
+            }
+            if (movie.getTmdbId() != null) {
+                tmdbIdMovies.put(String.valueOf(movie.getTmdbId()), movie);
+            }
+        }
+        mImdbIdMovies.putAll(imdbIdMovies);
+        mTmdbIdMovies.putAll(tmdbIdMovies);
+    }
+
+    @Override
+    public SortedMovieList getLibrary() {
         return mLibrary;
     }
 
     @Override
     public void setLibrary(List<PhilmMovie> items) {
-        if (!Objects.equal(items, mLibrary)) {
-            mLibrary = items;
+        final SortedMovieList library = items != null ? new SortedMovieList(items) : null;
+        if (!Objects.equal(library, mLibrary)) {
+            mLibrary = library;
+            mSnapshot = mSnapshot.withLibrary(mLibrary, System.currentTimeMillis());
             mEventBus.post(new LibraryChangedEvent());
         }
     }
 
+    @Override
+    public void publishLibraryChanges(List<MovieChange> changes) {
+        Preconditions.checkNotNull(changes, "changes cannot be null");
+        if (!changes.isEmpty()) {
+            mSnapshot = mSnapshot.withLibrary(mLibrary, System.currentTimeMillis());
+            mEventBus.post(new LibraryChangedEvent(changes));
+        }
+    }
+
     @Override
     public List<PhilmMovie> getTrending() {
         return mTrending;
@@ -160,6 +201,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     public void setTrending(List<PhilmMovie> items) {
         if (!Objects.equal(items, mTrending)) {
             mTrending = items;
+            mSnapshot = mSnapshot.withTrending(mTrending, System.currentTimeMillis());
             mEventBus.post(new TrendingChangedEvent());
         }
     }
@@ -172,6 +214,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setPopular(MoviePaginatedResult items) {
         mPopular = items;
+        mSnapshot = mSnapshot.withPopular(getItems(mPopular), System.currentTimeMillis());
         mEventBus.post(new PopularChangedEvent());
     }
 
@@ -183,34 +226,102 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setNowPlaying(MoviePaginatedResult nowPlaying) {
         mNowPlaying = nowPlaying;
+        mSnapshot = mSnapshot.withNowPlaying(getItems(mNowPlaying), System.currentTimeMillis());
         mEventBus.post(new InTheatresChangedEvent());
     }
 
     @Override
     public Set<MovieController.MovieFilter> getFilters() {
-        if (mFilters == null) {
-            mFilters = new HashSet<>();
+        return mUnmodifiableFilters;
+    }
+
+    @Override
+    public boolean addFilter(MovieController.MovieFilter filter) {
+        Preconditions.checkNotNull(filter, "filter cannot be null");
+        if (mFilters.add(filter)) {
+            onFiltersChanged();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean removeFilter(MovieController.MovieFilter filter) {
+        Preconditions.checkNotNull(filter, "filter cannot be null");
+        if (mFilters.remove(filter)) {
+            onFiltersChanged();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean clearFilters() {
+        if (!mFilters.isEmpty()) {
+            mFilters.clear();
+            onFiltersChanged();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public MovieController.MovieSortOrder getSortOrder() {
+        return mSortOrder;
+    }
+
+    @Override
+    public boolean setSortOrder(MovieController.MovieSortOrder sortOrder) {
+        Preconditions.checkNotNull(sortOrder, "sortOrder cannot be null");
+        if (mSortOrder != sortOrder) {
+            mSortOrder = sortOrder;
+            return true;
         }
-        return mFilters;
+        return false;
+    }
+
+    private void onFiltersChanged() {
+        mSnapshot = mSnapshot.withFilters(mFilters);
+    }
+
+    @Override
+    public MoviesStateSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    private static List<PhilmMovie> getItems(MoviePaginatedResult result) {
+        return result != null ? result.items : null;
     }
 
     @Override
-    public List<PhilmMovie> getWatchlist() {
+    public SortedMovieList getWatchlist() {
         return mWatchlist;
     }
 
     @Override
     public void setWatchlist(List<PhilmMovie> watchlist) {
-        if (!Objects.equal(mWatchlist, watchlist)) {
-            mWatchlist = watchlist;
+        final SortedMovieList sorted = watchlist != null ? new SortedMovieList(watchlist) : null;
+        if (!Objects.equal(mWatchlist, sorted)) {
+            mWatchlist = sorted;
+            mSnapshot = mSnapshot.withWatchlist(mWatchlist, System.currentTimeMillis());
             mEventBus.post(new WatchlistChangedEvent());
         }
     }
 
+    @Override
+    public void publishWatchlistChanges(List<MovieChange> changes) {
+        Preconditions.checkNotNull(changes, "changes cannot be null");
+        if (!changes.isEmpty()) {
+            mSnapshot = mSnapshot.withWatchlist(mWatchlist, System.currentTimeMillis());
+            mEventBus.post(new WatchlistChangedEvent(changes));
+        }
+    }
+
     @Override
     public void setRecommended(List<PhilmMovie> recommended) {
         if (!Objects.equal(mRecommended, recommended)) {
             mRecommended = recommended;
+            mSnapshot = mSnapshot.withRecommended(mRecommended, System.currentTimeMillis());
             mEventBus.post(new RecommendedChangedEvent());
         }
     }
@@ -252,6 +363,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setUpcoming(MoviePaginatedResult upcoming) {
         mUpcoming = upcoming;
+        mSnapshot = mSnapshot.withUpcoming(getItems(mUpcoming), System.currentTimeMillis());
         mEventBus.post(new UpcomingChangedEvent());
     }
 
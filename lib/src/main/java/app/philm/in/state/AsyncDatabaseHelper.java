@@ -32,10 +32,23 @@ public interface AsyncDatabaseHelper {
 
     public void getLibrary(Callback<List<PhilmMovie>> callback);
 
+    /**
+     * Loads the library in pages ordered by sort title. The first page is {@code firstPageSize}
+     * long so that it can be displayed quickly, and the rest are {@code pageSize} long.
+     */
+    public void getLibrary(int firstPageSize, int pageSize, PagedCallback<PhilmMovie> callback);
+
     public void put(Collection<PhilmMovie> movies);
 
     public void put(PhilmMovie movie);
 
+    public void putMovieDetail(PhilmMovie movie);
+
+    public void getMovieDetail(int tmdbId, Callback<DatabaseHelper.MovieDetail> callback);
+
+    public void search(String query, int limit,
+            Callback<DatabaseHelper.LocalSearchResult> callback);
+
     public void delete(Collection<PhilmMovie> movies);
 
     public void getUserProfile(String username, Callback<PhilmUserProfile> callback);
@@ -44,6 +57,16 @@ public interface AsyncDatabaseHelper {
 
     public void delete(PhilmUserProfile profile);
 
+    /**
+     * Writes any buffered movie writes to the database now, rather than waiting for them to be
+     * coalesced with later writes.
+     */
+    public void flush();
+
+    /**
+     * Flushes any buffered writes and then closes the database, once all queued writes have
+     * finished.
+     */
     public void close();
 
     public void deleteAllPhilmMovies();
@@ -52,4 +75,13 @@ public interface AsyncDatabaseHelper {
         public void onFinished(T result);
     }
 
+    public interface PagedCallback<T> {
+        /**
+         * @param page the items in this page, or null if it could not be loaded.
+         * @param hasMore true if there may be more pages after this one.
+         * @return true if the next page should be loaded.
+         */
+        public boolean onPageLoaded(List<T> page, boolean hasMore);
+    }
+
 }
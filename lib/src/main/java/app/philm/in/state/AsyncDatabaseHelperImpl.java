@@ -16,95 +16,209 @@
 
 package app.philm.in.state;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v4.util.ArrayMap;
 
 import com.google.common.base.Preconditions;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import app.philm.in.Constants;
 import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmMovieTable;
 import app.philm.in.model.PhilmUserProfile;
 import app.philm.in.network.BackgroundCallRunnable;
 import app.philm.in.util.BackgroundExecutor;
+import app.philm.in.util.Logger;
 import app.philm.in.util.PhilmCollections;
 
 public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
 
+    private static final String LOG_TAG = AsyncDatabaseHelperImpl.class.getSimpleName();
+
+    /**
+     * How long single movie writes are buffered for. Opening a movie's detail typically writes
+     * the same movie several times in this window, as each of its fetches completes.
+     */
+    private static final long WRITE_BEHIND_WINDOW_MS = 1000;
+
     private final BackgroundExecutor mExecutor;
+    private final BackgroundExecutor mReadExecutor;
     private final DatabaseHelper mDbHelper;
-
-    public AsyncDatabaseHelperImpl(BackgroundExecutor executor, DatabaseHelper dbHelper) {
+    private final Logger mLogger;
+
+    private static final int READ_LIBRARY = 0;
+    private static final int READ_WATCHLIST = 1;
+    private static final int READ_MOVIE_DETAIL = 2;
+    private static final int READ_SEARCH = 3;
+    private static final int READ_USER_PROFILE = 4;
+    private static final int READ_TYPE_COUNT = 5;
+
+    /**
+     * Reads which have been started but whose callbacks have not been delivered yet, in the order
+     * they were requested. There is a queue per type of read, so that a detail or search read is
+     * never held back by library pages. Only accessed on the main thread.
+     */
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<DatabaseReadRunnable<?>>[] mPendingReads
+            = new ArrayDeque[READ_TYPE_COUNT];
+
+    /**
+     * Single movie writes which have not been flushed yet, keyed on the movie's id so that
+     * repeated writes of the same movie are coalesced. Only accessed on the main thread.
+     */
+    private final Map<String, PendingWrite> mPendingWrites = new ArrayMap<>();
+    private int mCoalescedWrites;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param executor executor used for all writes. This should be single threaded so that writes
+     *                 are applied in order.
+     * @param readExecutor executor used for reads, which can run concurrently with writes.
+     */
+    public AsyncDatabaseHelperImpl(BackgroundExecutor executor, BackgroundExecutor readExecutor,
+            DatabaseHelper dbHelper, Logger logger) {
         mExecutor = Preconditions.checkNotNull(executor, "executor cannot be null");
+        mReadExecutor = Preconditions.checkNotNull(readExecutor, "readExecutor cannot be null");
         mDbHelper = Preconditions.checkNotNull(dbHelper, "dbHelper cannot be null");
+        mLogger = Preconditions.checkNotNull(logger, "logger cannot be null");
+
+        for (int i = 0; i < READ_TYPE_COUNT; i++) {
+            mPendingReads[i] = new ArrayDeque<>();
+        }
+
+        // Queued before any write, and off the read threads, so no read waits for a re-key.
+        // An index left stale by a process death before its rebuild is caught up here too
+        mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
+            @Override
+            public Void doDatabaseCall(DatabaseHelper dbHelper) {
+                dbHelper.updateSortKeysIfNeeded();
+                dbHelper.rebuildSearchIndexIfNeeded();
+                return null;
+            }
+        });
     }
 
     @Override
     public void getLibrary(final AsyncDatabaseHelper.Callback<List<PhilmMovie>> callback) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<List<PhilmMovie>>() {
+        mReadExecutor.execute(new DatabaseReadRunnable<List<PhilmMovie>>(READ_LIBRARY, callback) {
             @Override
             public List<PhilmMovie> doDatabaseCall(DatabaseHelper dbHelper) {
-                List<PhilmMovie> library = dbHelper.getLibrary();
-                if (library != null) {
-                    Collections.sort(library, PhilmMovie.COMPARATOR_SORT_TITLE);
+                // Sorted when set on the state
+                return dbHelper.getLibrary();
+            }
+        });
+    }
+
+    @Override
+    public void getLibrary(int firstPageSize, int pageSize,
+            PagedCallback<PhilmMovie> callback) {
+        Preconditions.checkArgument(firstPageSize > 0, "firstPageSize must be positive");
+        Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+        Preconditions.checkNotNull(callback, "callback cannot be null");
+
+        getLibraryPage(null, 0, firstPageSize, pageSize, callback);
+    }
+
+    private void getLibraryPage(final String afterSortKey, final long afterDbId, final int limit,
+            final int pageSize, final PagedCallback<PhilmMovie> callback) {
+        final Callback<LibraryPage> pageCallback = new Callback<LibraryPage>() {
+            @Override
+            public void onFinished(LibraryPage page) {
+                final List<PhilmMovie> movies = page != null ? page.movies : null;
+                final boolean hasMore = movies != null && movies.size() == limit;
+                if (callback.onPageLoaded(movies, hasMore) && hasMore) {
+                    getLibraryPage(page.lastSortKey, page.lastDbId, pageSize, pageSize, callback);
                 }
-                return library;
             }
+        };
 
+        mReadExecutor.execute(new DatabaseReadRunnable<LibraryPage>(READ_LIBRARY, pageCallback) {
             @Override
-            public void postExecute(List<PhilmMovie> result) {
-                callback.onFinished(result);
+            public LibraryPage doDatabaseCall(DatabaseHelper dbHelper) {
+                final List<PhilmMovie> movies = dbHelper.getLibrary(afterSortKey, afterDbId, limit);
+                return movies != null ? new LibraryPage(movies) : null;
             }
         });
     }
 
     @Override
     public void put(final Collection<PhilmMovie> movies) {
+        // Keep the buffered writes ordered before this one
+        flush();
+
         mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
             @Override
             public Void doDatabaseCall(DatabaseHelper dbHelper) {
-                dbHelper.delete(movies);
+                dbHelper.put(movies);
                 return null;
             }
         });
     }
 
     @Override
-    public void put(final PhilmMovie movie) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
+    public void put(PhilmMovie movie) {
+        bufferWrite(movie, PendingWrite.TYPE_PUT);
+    }
+
+    @Override
+    public void putMovieDetail(PhilmMovie movie) {
+        bufferWrite(movie, PendingWrite.TYPE_PUT_DETAIL);
+    }
+
+    @Override
+    public void getMovieDetail(final int tmdbId,
+            final Callback<DatabaseHelper.MovieDetail> callback) {
+        mReadExecutor.execute(
+                new DatabaseReadRunnable<DatabaseHelper.MovieDetail>(READ_MOVIE_DETAIL, callback) {
             @Override
-            public Void doDatabaseCall(DatabaseHelper dbHelper) {
-                dbHelper.put(movie);
-                return null;
+            public DatabaseHelper.MovieDetail doDatabaseCall(DatabaseHelper dbHelper) {
+                return dbHelper.getMovieDetail(tmdbId);
             }
         });
     }
 
     @Override
-    public void delete(final Collection<PhilmMovie> movies) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
+    public void search(final String query, final int limit,
+            final Callback<DatabaseHelper.LocalSearchResult> callback) {
+        mReadExecutor.execute(
+                new DatabaseReadRunnable<DatabaseHelper.LocalSearchResult>(READ_SEARCH, callback) {
             @Override
-            public Void doDatabaseCall(DatabaseHelper dbHelper) {
-                dbHelper.delete(movies);
-                return null;
+            public DatabaseHelper.LocalSearchResult doDatabaseCall(DatabaseHelper dbHelper) {
+                return dbHelper.search(query, limit);
             }
         });
     }
 
+    @Override
+    public void delete(Collection<PhilmMovie> movies) {
+        for (PhilmMovie movie : movies) {
+            bufferWrite(movie, PendingWrite.TYPE_DELETE);
+        }
+    }
+
     @Override
     public void getUserProfile(final String username, final Callback<PhilmUserProfile> callback) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<PhilmUserProfile>() {
+        mReadExecutor.execute(new DatabaseReadRunnable<PhilmUserProfile>(READ_USER_PROFILE,
+                callback) {
             @Override
             public PhilmUserProfile doDatabaseCall(DatabaseHelper dbHelper) {
                 return dbHelper.getUserProfile(username);
             }
-
-            @Override
-            public void postExecute(PhilmUserProfile result) {
-                callback.onFinished(result);
-            }
         });
     }
 
@@ -130,13 +244,72 @@ public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
         });
     }
 
+    @Override
+    public void flush() {
+        mHandler.removeCallbacks(mFlushRunnable);
+
+        if (mPendingWrites.isEmpty()) {
+            return;
+        }
+
+        final List<PhilmMovie> puts = new ArrayList<>();
+        final List<PhilmMovie> detailPuts = new ArrayList<>();
+        final List<PhilmMovie> deletes = new ArrayList<>();
+
+        for (PendingWrite write : mPendingWrites.values()) {
+            switch (write.type) {
+                case PendingWrite.TYPE_PUT:
+                    puts.add(write.movie);
+                    break;
+                case PendingWrite.TYPE_PUT_DETAIL:
+                    detailPuts.add(write.movie);
+                    break;
+                case PendingWrite.TYPE_DELETE:
+                    deletes.add(write.movie);
+                    break;
+            }
+        }
+
+        if (Constants.DEBUG) {
+            mLogger.d(LOG_TAG, "flush: " + mPendingWrites.size() + " writes, "
+                    + mCoalescedWrites + " coalesced");
+        }
+
+        mPendingWrites.clear();
+        mCoalescedWrites = 0;
+
+        mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
+            @Override
+            public Void doDatabaseCall(DatabaseHelper dbHelper) {
+                final int failed = dbHelper.applyWrites(puts, detailPuts, deletes);
+                if (failed > 0) {
+                    mLogger.e(LOG_TAG, "flush: " + failed + " of "
+                            + (puts.size() + detailPuts.size() + deletes.size())
+                            + " writes failed");
+                }
+                return null;
+            }
+        });
+    }
+
     @Override
     public void close() {
-        mDbHelper.close();
+        flush();
+
+        // Closed on the write executor so that it happens after any queued writes
+        mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
+            @Override
+            public Void doDatabaseCall(DatabaseHelper dbHelper) {
+                dbHelper.close();
+                return null;
+            }
+        });
     }
 
     @Override
     public void mergeLibrary(final List<PhilmMovie> library) {
+        flush();
+
         mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
             @Override
             public Void doDatabaseCall(DatabaseHelper dbHelper) {
@@ -149,6 +322,8 @@ public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
 
     @Override
     public void mergeWatchlist(final List<PhilmMovie> watchlist) {
+        flush();
+
         mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
             @Override
             public Void doDatabaseCall(DatabaseHelper dbHelper) {
@@ -160,22 +335,22 @@ public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
 
     @Override
     public void getWatchlist(final AsyncDatabaseHelper.Callback<List<PhilmMovie>> callback) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<List<PhilmMovie>>() {
+        mReadExecutor.execute(new DatabaseReadRunnable<List<PhilmMovie>>(READ_WATCHLIST,
+                callback) {
             @Override
             public List<PhilmMovie> doDatabaseCall(DatabaseHelper dbHelper) {
-                List<PhilmMovie> watchlist = dbHelper.getWatchlist();
-                return watchlist;
-            }
-
-            @Override
-            public void postExecute(List<PhilmMovie> result) {
-                callback.onFinished(result);
+                return dbHelper.getWatchlist();
             }
         });
     }
 
     @Override
     public void deleteAllPhilmMovies() {
+        // Anything buffered would be deleted anyway
+        mHandler.removeCallbacks(mFlushRunnable);
+        mPendingWrites.clear();
+        mCoalescedWrites = 0;
+
         mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
             @Override
             public Void doDatabaseCall(DatabaseHelper dbHelper) {
@@ -185,6 +360,89 @@ public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
         });
     }
 
+    private void bufferWrite(PhilmMovie movie, int type) {
+        Preconditions.checkNotNull(movie, "movie cannot be null");
+
+        final String key = movie.getTraktId();
+        if (key == null) {
+            // Can't coalesce without an id, so write it now
+            final PendingWrite write = new PendingWrite(movie, type);
+            mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
+                @Override
+                public Void doDatabaseCall(DatabaseHelper dbHelper) {
+                    write.applyTo(dbHelper);
+                    return null;
+                }
+            });
+            return;
+        }
+
+        final PendingWrite existing = mPendingWrites.get(key);
+        if (existing != null) {
+            mCoalescedWrites++;
+            if (existing.type == PendingWrite.TYPE_PUT_DETAIL && type == PendingWrite.TYPE_PUT) {
+                // A detail write includes the movie row, so keep it
+                type = PendingWrite.TYPE_PUT_DETAIL;
+            }
+        }
+        mPendingWrites.put(key, new PendingWrite(movie, type));
+
+        if (existing == null && mPendingWrites.size() == 1) {
+            // The window starts at the first buffered write, so writes are never held for longer
+            mHandler.postDelayed(mFlushRunnable, WRITE_BEHIND_WINDOW_MS);
+        }
+    }
+
+    private static class LibraryPage {
+        final List<PhilmMovie> movies;
+        final String lastSortKey;
+        final long lastDbId;
+
+        /**
+         * Must be created on the read thread, before the movies are shared with the main thread.
+         */
+        LibraryPage(List<PhilmMovie> movies) {
+            this.movies = movies;
+
+            if (!movies.isEmpty()) {
+                final PhilmMovie last = movies.get(movies.size() - 1);
+                lastSortKey = PhilmMovieTable.getSortKey(last);
+                lastDbId = last.getDbId();
+            } else {
+                lastSortKey = null;
+                lastDbId = 0;
+            }
+        }
+    }
+
+    private static class PendingWrite {
+        static final int TYPE_PUT = 0;
+        static final int TYPE_PUT_DETAIL = 1;
+        static final int TYPE_DELETE = 2;
+
+        final PhilmMovie movie;
+        final int type;
+
+        PendingWrite(PhilmMovie movie, int type) {
+            this.movie = movie;
+            this.type = type;
+        }
+
+        void applyTo(DatabaseHelper dbHelper) {
+            switch (type) {
+                case TYPE_PUT:
+                    dbHelper.put(movie);
+                    break;
+                case TYPE_PUT_DETAIL:
+                    dbHelper.putMovieDetail(movie);
+                    break;
+                case TYPE_DELETE:
+                    dbHelper.delete(Collections.singletonList(movie));
+                    break;
+            }
+        }
+    }
+
     private abstract class DatabaseBackgroundRunnable<R> extends BackgroundCallRunnable<R> {
 
         @Override
@@ -195,35 +453,136 @@ public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
                 return null;
             }
 
-            return doDatabaseCall(dbHelper);
+            try {
+                return doDatabaseCall(dbHelper);
+            } catch (RuntimeException e) {
+                // Still complete with no result, so that a read's callback is not left waiting
+                mLogger.e(LOG_TAG, "Database call failed: " + e);
+                return null;
+            }
         }
 
         public abstract R doDatabaseCall(DatabaseHelper dbHelper);
 
     }
 
-    private static void merge(DatabaseHelper dbHelper,
-                              List<PhilmMovie> databaseItems,
-                              List<PhilmMovie> newItems) {
+    /**
+     * A read which can run concurrently with other reads and writes. Its callback is only
+     * delivered once every read of the same type requested before it has been delivered, so
+     * callers always receive results in the order they asked for them. A read which fails is
+     * delivered with a {@code null} result.
+     */
+    private abstract class DatabaseReadRunnable<R> extends DatabaseBackgroundRunnable<R> {
+
+        private final ArrayDeque<DatabaseReadRunnable<?>> mQueue;
+        private final Callback<R> mCallback;
+        private boolean mFinished;
+        private R mResult;
+
+        DatabaseReadRunnable(int readType, Callback<R> callback) {
+            mCallback = Preconditions.checkNotNull(callback, "callback cannot be null");
+            mQueue = mPendingReads[readType];
+            mQueue.add(this);
+        }
+
+        @Override
+        public final void postExecute(R result) {
+            mResult = result;
+            mFinished = true;
+            deliverFinishedReads(mQueue);
+        }
+
+        void deliver() {
+            mCallback.onFinished(mResult);
+        }
+    }
+
+    private static void deliverFinishedReads(ArrayDeque<DatabaseReadRunnable<?>> queue) {
+        while (!queue.isEmpty() && queue.peek().mFinished) {
+            queue.poll().deliver();
+        }
+    }
+
+    /**
+     * Writes the difference between {@code databaseItems} and {@code newItems}. This runs on the
+     * write thread, so it must not modify any of the movies: they are shared with the main
+     * thread. Movies without an id can not be matched to a row, so are skipped.
+     */
+    private void merge(DatabaseHelper dbHelper, List<PhilmMovie> databaseItems,
+            List<PhilmMovie> newItems) {
+        final long start = System.currentTimeMillis();
+        final MergeResult result = new MergeResult();
+
+        final Map<String, PhilmMovie> dbItemsMap = new ArrayMap<>();
+        final List<PhilmMovie> toDelete = new ArrayList<>();
         if (!PhilmCollections.isEmpty(databaseItems)) {
-            Map<Long, PhilmMovie> dbItemsMap = new ArrayMap<>();
             for (PhilmMovie movie : databaseItems) {
-                dbItemsMap.put(movie.getDbId(), movie);
+                final String id = movie.getTraktId();
+                if (id != null) {
+                    dbItemsMap.put(id, movie);
+                } else {
+                    // Can never be matched, so would otherwise be left behind
+                    toDelete.add(movie);
+                }
             }
+        }
+
+        final List<PhilmMovie> toPut = new ArrayList<>();
 
-            // Now lets remove the items from the mapAll, leaving only those
-            // not in the watchlist
+        if (!PhilmCollections.isEmpty(newItems)) {
             for (PhilmMovie movie : newItems) {
-                dbItemsMap.remove(movie.getDbId());
-            }
+                final String id = movie.getTraktId();
+                if (id == null || !PhilmMovieTable.hasDbId(movie)) {
+                    result.skipped++;
+                    continue;
+                }
 
-            // Anything left in the dbItemsMap needs removing from the db
-            if (!dbItemsMap.isEmpty()) {
-                dbHelper.delete(dbItemsMap.values());
+                final PhilmMovie dbMovie = dbItemsMap.remove(id);
+
+                if (dbMovie == null) {
+                    toPut.add(movie);
+                    result.inserted++;
+                } else if (dbMovie.getDbId() != movie.getDbId()) {
+                    // Stored under a different row id, so replace the old row
+                    toDelete.add(dbMovie);
+                    toPut.add(movie);
+                    result.updated++;
+                } else if (PhilmMovieTable.fingerprint(movie)
+                        != PhilmMovieTable.fingerprint(dbMovie)) {
+                    toPut.add(movie);
+                    result.updated++;
+                } else {
+                    result.unchanged++;
+                }
             }
         }
 
-        // Now persist the correct list
-        dbHelper.put(newItems);
+        // Anything left in the dbItemsMap is no longer in the list, so needs removing
+        result.deleted = dbItemsMap.size();
+        toDelete.addAll(dbItemsMap.values());
+
+        if (!toDelete.isEmpty() || !toPut.isEmpty()) {
+            // In one transaction, so that a replaced row is never deleted without its replacement
+            result.failed = dbHelper.applyWrites(toPut, Collections.<PhilmMovie>emptyList(),
+                    toDelete);
+        }
+
+        mLogger.i(LOG_TAG, "merge: " + result + " in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    static class MergeResult {
+        int inserted;
+        int updated;
+        int deleted;
+        int unchanged;
+        int skipped;
+        int failed;
+
+        @Override
+        public String toString() {
+            return "inserted=" + inserted + ", updated=" + updated + ", deleted=" + deleted
+                    + ", unchanged=" + unchanged + ", skipped=" + skipped + ", failed=" + failed;
+        }
     }
 }
@@ -19,7 +19,12 @@ package app.philm.in.state;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 
+import android.support.v4.util.ArrayMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import app.philm.in.controllers.MainController;
 import app.philm.in.model.PhilmAccount;
@@ -59,11 +64,149 @@ public interface BaseState {
         }
     }
 
+    /**
+     * A window of consecutive pages from a paginated list. Results which are added to with
+     * {@link #addPage(int, List, int)} can be bounded to a number of pages, with pages outside of
+     * the window evicted down to the ids of their items, so that they can be restored later.
+     */
     public abstract static class PaginatedResult<T> {
         public List<T> items;
+        /**
+         * The last page held in {@link #items}.
+         */
         public int page;
         public int totalPages;
+        /**
+         * The first page held in {@link #items}. Any pages before it have been evicted.
+         */
+        public int firstPage = 1;
+
+        /**
+         * The number of items from each page held in {@link #items}, starting at
+         * {@link #firstPage}. Only kept for bounded results.
+         */
+        private final List<Integer> mPageSizes = new ArrayList<>();
+        private final Map<Integer, List<String>> mEvictedPages = new ArrayMap<>();
+
+        /**
+         * Adds {@code pageItems} as {@code page}. Pages directly before or after the window are
+         * added to it, pages already in the window are ignored, and any other page replaces the
+         * window.
+         *
+         * @param maxPages the maximum number of pages to hold in {@link #items}, evicting pages
+         *                 from the other end of the window. Zero to hold every page.
+         */
+        public void addPage(int page, List<T> pageItems, int maxPages) {
+            Preconditions.checkNotNull(pageItems, "pageItems cannot be null");
+
+            if (items == null) {
+                items = new ArrayList<>();
+            }
+
+            if (maxPages <= 0) {
+                items.addAll(pageItems);
+                this.page = page;
+                return;
+            }
+
+            if (mPageSizes.isEmpty() && !items.isEmpty()) {
+                // Added to before it was bounded, so treat everything as the last page
+                mPageSizes.add(items.size());
+                firstPage = this.page;
+            }
+
+            if (!items.isEmpty() && page >= firstPage && page <= this.page) {
+                // Already held, most likely from a duplicate request
+                return;
+            } else if (!items.isEmpty() && page == this.page + 1) {
+                items.addAll(pageItems);
+                mPageSizes.add(pageItems.size());
+                this.page = page;
+                while (mPageSizes.size() > maxPages) {
+                    evictFirstPage();
+                }
+            } else if (!items.isEmpty() && page == firstPage - 1) {
+                items.addAll(0, pageItems);
+                mPageSizes.add(0, pageItems.size());
+                firstPage = page;
+                while (mPageSizes.size() > maxPages) {
+                    evictLastPage();
+                }
+            } else {
+                items.clear();
+                mPageSizes.clear();
+                mEvictedPages.clear();
+                items.addAll(pageItems);
+                mPageSizes.add(pageItems.size());
+                firstPage = page;
+                this.page = page;
+            }
+            mEvictedPages.remove(page);
+        }
+
+        /**
+         * @return true if there are pages before the window.
+         */
+        public boolean hasPreviousPage() {
+            return firstPage > 1;
+        }
+
+        /**
+         * @return the ids of the items on {@code page} if it has been evicted, or null if it has
+         * not been loaded or is still held in {@link #items}.
+         */
+        public List<String> getEvictedPageIds(int page) {
+            return mEvictedPages.get(page);
+        }
+
+        /**
+         * @return the number of items from each page held in {@link #items}, starting at
+         * {@link #firstPage}.
+         */
+        public List<Integer> getPageSizes() {
+            return Collections.unmodifiableList(mPageSizes);
+        }
+
+        public void setPageSizes(List<Integer> pageSizes) {
+            mPageSizes.clear();
+            if (pageSizes != null) {
+                mPageSizes.addAll(pageSizes);
+            }
+        }
+
+        /**
+         * @return the id which an evicted item can later be found by.
+         */
+        protected abstract String getItemId(T item);
+
+        private void evictFirstPage() {
+            final int size = mPageSizes.remove(0);
+            evict(firstPage, items.subList(0, size));
+            firstPage++;
+        }
+
+        private void evictLastPage() {
+            final int size = mPageSizes.remove(mPageSizes.size() - 1);
+            evict(page, items.subList(items.size() - size, items.size()));
+            page--;
+        }
+
+        private void evict(int page, List<T> pageItems) {
+            final ArrayList<String> ids = new ArrayList<>(pageItems.size());
+            for (int i = 0, z = pageItems.size(); i < z; i++) {
+                final String id = getItemId(pageItems.get(i));
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            mEvictedPages.put(page, ids);
+            pageItems.clear();
+        }
 
+        /**
+         * Compares the window and the identity of the items list, rather than every item, as the
+         * items are only ever changed by adding and evicting pages.
+         */
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -73,12 +216,15 @@ public interface BaseState {
                 return false;
             }
             PaginatedResult that = (PaginatedResult) o;
-            return Objects.equal(items, that.items);
+            return items == that.items
+                    && firstPage == that.firstPage
+                    && page == that.page
+                    && totalPages == that.totalPages;
         }
 
         @Override
         public int hashCode() {
-            return items != null ? items.hashCode() : 0;
+            return Objects.hashCode(System.identityHashCode(items), firstPage, page, totalPages);
         }
     }
 
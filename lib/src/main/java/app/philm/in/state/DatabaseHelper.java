@@ -20,20 +20,77 @@ import java.util.Collection;
 import java.util.List;
 
 import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmMovieCredit;
+import app.philm.in.model.PhilmMovieVideo;
+import app.philm.in.model.PhilmPerson;
 import app.philm.in.model.PhilmUserProfile;
 
 public interface DatabaseHelper {
 
     List<PhilmMovie> getLibrary();
 
+    /**
+     * @return a page of the library, ordered by sort title and then row id. Pages are found by
+     * the last row of the previous page rather than an offset, so rows written between pages do
+     * not shift them.
+     *
+     * @param afterSortKey the {@link app.philm.in.model.PhilmMovieTable#getSortKey(PhilmMovie)
+     *                     sort key} of the last movie in the previous page, or null for the
+     *                     first page.
+     * @param afterDbId the row id of the last movie in the previous page.
+     */
+    List<PhilmMovie> getLibrary(String afterSortKey, long afterDbId, int limit);
+
     List<PhilmMovie> getWatchlist();
 
     void put(PhilmMovie movie);
 
     void put(Collection<PhilmMovie> movies);
 
+    /**
+     * Persists {@code movie} along with its cast, crew, trailers and related movies, in a single
+     * transaction.
+     */
+    void putMovieDetail(PhilmMovie movie);
+
+    /**
+     * @return the persisted cast, crew, trailers and related movies for the movie with the given
+     * TMDB id, or null if none have been persisted.
+     */
+    MovieDetail getMovieDetail(int tmdbId);
+
+    /**
+     * Searches the local full-text index of persisted movies and people.
+     *
+     * @return up to {@code limit} movies and people matching {@code query}, or null if the query
+     * does not contain anything to search for.
+     */
+    LocalSearchResult search(String query, int limit);
+
     void delete(Collection<PhilmMovie> movies);
 
+    /**
+     * Applies a batch of buffered writes in a single transaction, with the deletes applied first.
+     * Movies in {@code detailPuts} are persisted as with {@link #putMovieDetail(PhilmMovie)}. If
+     * the transaction fails, each movie is written on its own and those which fail are skipped.
+     *
+     * @return the number of movies whose write failed.
+     */
+    int applyWrites(Collection<PhilmMovie> puts, Collection<PhilmMovie> detailPuts,
+            Collection<PhilmMovie> deletes);
+
+    /**
+     * Recomputes the library's sort keys if the locale has changed since they were computed.
+     * This can rewrite every movie row, so should be called on the write thread.
+     */
+    void updateSortKeysIfNeeded();
+
+    /**
+     * Rebuilds the local search index if a failed write has left it incomplete. This reads every
+     * movie and person, so should be called on the write thread.
+     */
+    void rebuildSearchIndexIfNeeded();
+
     PhilmUserProfile getUserProfile(String username);
 
     void put(PhilmUserProfile profile);
@@ -45,4 +102,39 @@ public interface DatabaseHelper {
     void close();
 
     boolean isClosed();
+
+    /**
+     * Detail items loaded from the database. These are new instances, so should be resolved
+     * against those already in {@link MoviesState} before being used.
+     */
+    public static class MovieDetail {
+        public final List<PhilmMovieCredit> cast;
+        public final List<PhilmMovieCredit> crew;
+        public final List<PhilmMovieVideo> trailers;
+        public final List<PhilmMovie> related;
+
+        public MovieDetail(List<PhilmMovieCredit> cast, List<PhilmMovieCredit> crew,
+                List<PhilmMovieVideo> trailers, List<PhilmMovie> related) {
+            this.cast = cast;
+            this.crew = crew;
+            this.trailers = trailers;
+            this.related = related;
+        }
+    }
+
+    /**
+     * Search results from the local index. As with {@link MovieDetail}, these are new instances
+     * so should be resolved against those already in {@link MoviesState}.
+     */
+    public static class LocalSearchResult {
+        public final String query;
+        public final List<PhilmMovie> movies;
+        public final List<PhilmPerson> people;
+
+        public LocalSearchResult(String query, List<PhilmMovie> movies, List<PhilmPerson> people) {
+            this.query = query;
+            this.movies = movies;
+            this.people = people;
+        }
+    }
 }
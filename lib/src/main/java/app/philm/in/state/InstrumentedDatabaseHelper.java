@@ -0,0 +1,264 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmUserProfile;
+import app.philm.in.util.Logger;
+import app.philm.in.util.PhilmCollections;
+
+/**
+ * A {@link DatabaseHelper} which times every call to the helper it wraps. Per operation it
+ * records the call count, rows processed, throughput and p95 latency, which are logged when the
+ * helper is closed. Calls slower than {@link #SLOW_CALL_THRESHOLD_MS} are logged as they happen.
+ * Only used in debug builds. Repeatable figures at fixed library sizes come from
+ * {@code PhilmDatabaseBenchmark} in the app's instrumentation tests.
+ */
+public class InstrumentedDatabaseHelper implements DatabaseHelper {
+
+    private static final String LOG_TAG = InstrumentedDatabaseHelper.class.getSimpleName();
+
+    private static final long SLOW_CALL_THRESHOLD_MS = 100;
+
+    private final DatabaseHelper mDbHelper;
+    private final Logger mLogger;
+
+    private final Map<String, OperationStats> mStats = new TreeMap<>();
+
+    public InstrumentedDatabaseHelper(DatabaseHelper dbHelper, Logger logger) {
+        mDbHelper = Preconditions.checkNotNull(dbHelper, "dbHelper cannot be null");
+        mLogger = Preconditions.checkNotNull(logger, "logger cannot be null");
+    }
+
+    @Override
+    public List<PhilmMovie> getLibrary() {
+        final long start = System.nanoTime();
+        final List<PhilmMovie> result = mDbHelper.getLibrary();
+        record("getLibrary", start, PhilmCollections.size(result));
+        return result;
+    }
+
+    @Override
+    public List<PhilmMovie> getLibrary(String afterSortKey, long afterDbId, int limit) {
+        final long start = System.nanoTime();
+        final List<PhilmMovie> result = mDbHelper.getLibrary(afterSortKey, afterDbId, limit);
+        record("getLibraryPage", start, PhilmCollections.size(result));
+        return result;
+    }
+
+    @Override
+    public List<PhilmMovie> getWatchlist() {
+        final long start = System.nanoTime();
+        final List<PhilmMovie> result = mDbHelper.getWatchlist();
+        record("getWatchlist", start, PhilmCollections.size(result));
+        return result;
+    }
+
+    @Override
+    public void put(PhilmMovie movie) {
+        final long start = System.nanoTime();
+        mDbHelper.put(movie);
+        record("put", start, 1);
+    }
+
+    @Override
+    public void put(Collection<PhilmMovie> movies) {
+        final long start = System.nanoTime();
+        mDbHelper.put(movies);
+        record("putAll", start, movies.size());
+    }
+
+    @Override
+    public void putMovieDetail(PhilmMovie movie) {
+        final long start = System.nanoTime();
+        mDbHelper.putMovieDetail(movie);
+        record("putMovieDetail", start, 1);
+    }
+
+    @Override
+    public MovieDetail getMovieDetail(int tmdbId) {
+        final long start = System.nanoTime();
+        final MovieDetail result = mDbHelper.getMovieDetail(tmdbId);
+        record("getMovieDetail", start, result != null ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public LocalSearchResult search(String query, int limit) {
+        final long start = System.nanoTime();
+        final LocalSearchResult result = mDbHelper.search(query, limit);
+        record("search", start, result != null
+                ? PhilmCollections.size(result.movies) + PhilmCollections.size(result.people)
+                : 0);
+        return result;
+    }
+
+    @Override
+    public void delete(Collection<PhilmMovie> movies) {
+        final long start = System.nanoTime();
+        mDbHelper.delete(movies);
+        record("delete", start, movies.size());
+    }
+
+    @Override
+    public int applyWrites(Collection<PhilmMovie> puts, Collection<PhilmMovie> detailPuts,
+            Collection<PhilmMovie> deletes) {
+        final long start = System.nanoTime();
+        final int failed = mDbHelper.applyWrites(puts, detailPuts, deletes);
+        record("applyWrites", start, puts.size() + detailPuts.size() + deletes.size());
+        return failed;
+    }
+
+    @Override
+    public void updateSortKeysIfNeeded() {
+        final long start = System.nanoTime();
+        mDbHelper.updateSortKeysIfNeeded();
+        record("updateSortKeysIfNeeded", start, 0);
+    }
+
+    @Override
+    public void rebuildSearchIndexIfNeeded() {
+        final long start = System.nanoTime();
+        mDbHelper.rebuildSearchIndexIfNeeded();
+        record("rebuildSearchIndexIfNeeded", start, 0);
+    }
+
+    @Override
+    public PhilmUserProfile getUserProfile(String username) {
+        final long start = System.nanoTime();
+        final PhilmUserProfile result = mDbHelper.getUserProfile(username);
+        record("getUserProfile", start, result != null ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public void put(PhilmUserProfile profile) {
+        final long start = System.nanoTime();
+        mDbHelper.put(profile);
+        record("putUserProfile", start, 1);
+    }
+
+    @Override
+    public void delete(PhilmUserProfile profile) {
+        final long start = System.nanoTime();
+        mDbHelper.delete(profile);
+        record("deleteUserProfile", start, 1);
+    }
+
+    @Override
+    public void deleteAllPhilmMovies() {
+        final long start = System.nanoTime();
+        mDbHelper.deleteAllPhilmMovies();
+        record("deleteAllPhilmMovies", start, 0);
+    }
+
+    @Override
+    public void close() {
+        logStats();
+        mDbHelper.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return mDbHelper.isClosed();
+    }
+
+    /**
+     * Records a call which was started at {@code start}, as returned by
+     * {@link System#nanoTime()}.
+     */
+    void record(String operation, long start, int rows) {
+        final long durationNs = System.nanoTime() - start;
+
+        synchronized (mStats) {
+            OperationStats stats = mStats.get(operation);
+            if (stats == null) {
+                stats = new OperationStats();
+                mStats.put(operation, stats);
+            }
+            stats.add(durationNs, rows);
+        }
+
+        final long durationMs = durationNs / 1000000;
+        if (durationMs >= SLOW_CALL_THRESHOLD_MS) {
+            mLogger.d(LOG_TAG, "Slow call: " + operation + " took " + durationMs + "ms for "
+                    + rows + " rows");
+        }
+    }
+
+    public void logStats() {
+        synchronized (mStats) {
+            for (Map.Entry<String, OperationStats> entry : mStats.entrySet()) {
+                mLogger.d(LOG_TAG, entry.getKey() + ": " + entry.getValue());
+            }
+        }
+    }
+
+    static class OperationStats {
+        /**
+         * Number of recent durations kept for the percentile. Older samples are overwritten.
+         */
+        private static final int MAX_SAMPLES = 256;
+
+        private final long[] mSamples = new long[MAX_SAMPLES];
+        private int mCount;
+        private long mRows;
+        private long mTotalNs;
+        private long mMaxNs;
+
+        void add(long durationNs, int rows) {
+            mSamples[mCount % MAX_SAMPLES] = durationNs;
+            mCount++;
+            mRows += rows;
+            mTotalNs += durationNs;
+            mMaxNs = Math.max(mMaxNs, durationNs);
+        }
+
+        long getP95Ns() {
+            final int size = Math.min(mCount, MAX_SAMPLES);
+            if (size == 0) {
+                return 0;
+            }
+            final long[] sorted = Arrays.copyOf(mSamples, size);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(size * 0.95) - 1];
+        }
+
+        @Override
+        public String toString() {
+            final long rowsPerSecond = mTotalNs > 0 ? mRows * 1000000000L / mTotalNs : 0;
+            return "calls=" + mCount
+                    + ", rows=" + mRows
+                    + ", rows/s=" + rowsPerSecond
+                    + ", mean=" + toMillis(mCount > 0 ? mTotalNs / mCount : 0) + "ms"
+                    + ", p95=" + toMillis(getP95Ns()) + "ms"
+                    + ", max=" + toMillis(mMaxNs) + "ms";
+        }
+
+        private static String toMillis(long ns) {
+            return String.valueOf(ns / 1000000f);
+        }
+    }
+}
@@ -18,6 +18,8 @@ package app.philm.in.state;
 
 import com.google.common.base.Preconditions;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,10 +42,20 @@ public interface MoviesState extends BaseState {
 
     public void putMovie(PhilmMovie movie);
 
-    public List<PhilmMovie> getLibrary();
+    /**
+     * Same as {@link #putMovie(PhilmMovie)} for each of {@code movies}, in one update.
+     */
+    public void putMovies(Collection<PhilmMovie> movies);
+
+    /**
+     * @return the library, sorted by sort title, or null if it has not been loaded.
+     */
+    public SortedMovieList getLibrary();
 
     public void setLibrary(List<PhilmMovie> library);
 
+    public void publishLibraryChanges(List<MovieChange> changes);
+
     public List<PhilmMovie> getTrending();
 
     public void setTrending(List<PhilmMovie> trending);
@@ -60,10 +72,15 @@ public interface MoviesState extends BaseState {
 
     public void setUpcoming(MoviePaginatedResult upcoming);
 
-    public List<PhilmMovie> getWatchlist();
+    /**
+     * @return the watchlist, sorted by sort title, or null if it has not been loaded.
+     */
+    public SortedMovieList getWatchlist();
 
     public void setWatchlist(List<PhilmMovie> watchlist);
 
+    public void publishWatchlistChanges(List<MovieChange> changes);
+
     public List<PhilmMovie> getRecommended();
 
     public void setRecommended(List<PhilmMovie> recommended);
@@ -72,8 +89,32 @@ public interface MoviesState extends BaseState {
 
     public SearchResult getSearchResult();
 
+    /**
+     * @return an unmodifiable view of the active filters. Use {@link #addFilter(MovieController.MovieFilter)},
+     * {@link #removeFilter(MovieController.MovieFilter)} and {@link #clearFilters()} to change them.
+     */
     public Set<MovieController.MovieFilter> getFilters();
 
+    public boolean addFilter(MovieController.MovieFilter filter);
+
+    public boolean removeFilter(MovieController.MovieFilter filter);
+
+    public boolean clearFilters();
+
+    public MovieController.MovieSortOrder getSortOrder();
+
+    /**
+     * @return true if the sort order was changed.
+     */
+    public boolean setSortOrder(MovieController.MovieSortOrder sortOrder);
+
+    /**
+     * @return an immutable snapshot of the current movie lists and filters. A new snapshot is
+     * published whenever a list or the filters are written, so this can be called and the
+     * snapshot read from any thread.
+     */
+    public MoviesStateSnapshot getSnapshot();
+
     public TmdbConfiguration getTmdbConfiguration();
 
     public void setTmdbConfiguration(TmdbConfiguration configuration);
@@ -88,7 +129,86 @@ public interface MoviesState extends BaseState {
 
     public PhilmPerson getPerson(String id);
 
-    public static class LibraryChangedEvent {}
+    public static class MovieChange {
+
+        public static enum Type {
+            /**
+             * The movie has been added to the list.
+             */
+            INSERTED,
+
+            /**
+             * The movie has been removed from the list.
+             */
+            REMOVED,
+
+            /**
+             * The movie's user flags (seen, collection, watchlist, rating) have changed.
+             */
+            FLAGS,
+
+            /**
+             * The movie's detail information has changed.
+             */
+            DETAIL
+        }
+
+        public final Type type;
+        public final String movieId;
+
+        public MovieChange(Type type, PhilmMovie movie) {
+            this.type = Preconditions.checkNotNull(type, "type cannot be null");
+            Preconditions.checkNotNull(movie, "movie cannot be null");
+            this.movieId = Preconditions.checkNotNull(movie.getTraktId(),
+                    "movie id cannot be null");
+        }
+
+        /**
+         * @return true if a change can be recorded for {@code movie}. Movies without an id can
+         * not be looked up again, so can not be tracked.
+         */
+        public static boolean canTrack(PhilmMovie movie) {
+            return movie != null && movie.getTraktId() != null;
+        }
+
+        static List<MovieChange> fromMovies(Type type, List<PhilmMovie> movies) {
+            final ArrayList<MovieChange> changes = new ArrayList<>(movies.size());
+            for (PhilmMovie movie : movies) {
+                if (canTrack(movie)) {
+                    changes.add(new MovieChange(type, movie));
+                }
+            }
+            return changes;
+        }
+    }
+
+    public static class MovieListChangedEvent {
+        /**
+         * The individual changes made to the list, or null if the whole list has been replaced.
+         */
+        public final List<MovieChange> changes;
+
+        public MovieListChangedEvent() {
+            this(null);
+        }
+
+        public MovieListChangedEvent(List<MovieChange> changes) {
+            this.changes = changes;
+        }
+
+        public boolean isIncremental() {
+            return changes != null;
+        }
+    }
+
+    public static class LibraryChangedEvent extends MovieListChangedEvent {
+        public LibraryChangedEvent() {
+        }
+
+        public LibraryChangedEvent(List<MovieChange> changes) {
+            super(changes);
+        }
+    }
 
     public static class PopularChangedEvent {}
 
@@ -96,7 +216,14 @@ public interface MoviesState extends BaseState {
 
     public static class TrendingChangedEvent {}
 
-    public static class WatchlistChangedEvent {}
+    public static class WatchlistChangedEvent extends MovieListChangedEvent {
+        public WatchlistChangedEvent() {
+        }
+
+        public WatchlistChangedEvent(List<MovieChange> changes) {
+            super(changes);
+        }
+    }
 
     public static class SearchResultChangedEvent {}
 
@@ -157,15 +284,26 @@ public interface MoviesState extends BaseState {
     }
 
     public static class MovieFlagsUpdatedEvent extends BaseArgumentEvent<List<PhilmMovie>> {
+        public final List<MovieChange> changes;
+
         public MovieFlagsUpdatedEvent(int callingId, List<PhilmMovie> item) {
             super(callingId, item);
+            changes = MovieChange.fromMovies(MovieChange.Type.FLAGS, item);
         }
     }
 
     public class MoviePaginatedResult extends PaginatedResult<PhilmMovie> {
+        @Override
+        protected String getItemId(PhilmMovie item) {
+            return item.getTraktId();
+        }
     }
 
     public class PersonPaginatedResult extends PaginatedResult<PhilmPerson> {
+        @Override
+        protected String getItemId(PhilmPerson item) {
+            return item.getTmdbId() != null ? String.valueOf(item.getTmdbId()) : null;
+        }
     }
 
     public class SearchResult {
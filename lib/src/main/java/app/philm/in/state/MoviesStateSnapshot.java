@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import app.philm.in.controllers.MovieController;
+import app.philm.in.model.PhilmMovie;
+
+/**
+ * An immutable copy of the movie lists and filters held in {@link MoviesState}. The lists hold
+ * copies made by {@link PhilmMovie#freeze(long)} rather than the movies in the state, so a
+ * snapshot can be read from any thread without locking. Use {@link PhilmMovie#getOriginal()} to
+ * get back to the movie in the state.
+ * <p>
+ * Snapshots are created on the main thread whenever a list is written. Lists which have not
+ * changed are shared with the previous snapshot, and a changed list reuses the previous copies of
+ * the movies which have not been modified since they were frozen.
+ */
+public final class MoviesStateSnapshot {
+
+    static final MoviesStateSnapshot EMPTY = new MoviesStateSnapshot(0, null, null, null, null,
+            null, null, null, Collections.<MovieController.MovieFilter>emptySet());
+
+    private final long mVersion;
+
+    private final List<PhilmMovie> mLibrary;
+    private final List<PhilmMovie> mWatchlist;
+    private final List<PhilmMovie> mTrending;
+    private final List<PhilmMovie> mRecommended;
+    private final List<PhilmMovie> mPopular;
+    private final List<PhilmMovie> mNowPlaying;
+    private final List<PhilmMovie> mUpcoming;
+    private final Set<MovieController.MovieFilter> mFilters;
+
+    private MoviesStateSnapshot(
+            long version,
+            List<PhilmMovie> library,
+            List<PhilmMovie> watchlist,
+            List<PhilmMovie> trending,
+            List<PhilmMovie> recommended,
+            List<PhilmMovie> popular,
+            List<PhilmMovie> nowPlaying,
+            List<PhilmMovie> upcoming,
+            Set<MovieController.MovieFilter> filters) {
+        mVersion = version;
+        mLibrary = library;
+        mWatchlist = watchlist;
+        mTrending = trending;
+        mRecommended = recommended;
+        mPopular = popular;
+        mNowPlaying = nowPlaying;
+        mUpcoming = upcoming;
+        mFilters = filters;
+    }
+
+    /**
+     * @return the version of this snapshot. Versions increase every time the state is written,
+     * so consumers can cache results derived from a snapshot against it.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    public List<PhilmMovie> getLibrary() {
+        return mLibrary;
+    }
+
+    public List<PhilmMovie> getWatchlist() {
+        return mWatchlist;
+    }
+
+    public List<PhilmMovie> getTrending() {
+        return mTrending;
+    }
+
+    public List<PhilmMovie> getRecommended() {
+        return mRecommended;
+    }
+
+    public List<PhilmMovie> getPopular() {
+        return mPopular;
+    }
+
+    public List<PhilmMovie> getNowPlaying() {
+        return mNowPlaying;
+    }
+
+    public List<PhilmMovie> getUpcoming() {
+        return mUpcoming;
+    }
+
+    public Set<MovieController.MovieFilter> getFilters() {
+        return mFilters;
+    }
+
+    MoviesStateSnapshot withLibrary(List<PhilmMovie> library, long now) {
+        return new MoviesStateSnapshot(mVersion + 1, freeze(library, mLibrary, now), mWatchlist,
+                mTrending, mRecommended, mPopular, mNowPlaying, mUpcoming, mFilters);
+    }
+
+    MoviesStateSnapshot withWatchlist(List<PhilmMovie> watchlist, long now) {
+        return new MoviesStateSnapshot(mVersion + 1, mLibrary, freeze(watchlist, mWatchlist, now),
+                mTrending, mRecommended, mPopular, mNowPlaying, mUpcoming, mFilters);
+    }
+
+    MoviesStateSnapshot withTrending(List<PhilmMovie> trending, long now) {
+        return new MoviesStateSnapshot(mVersion + 1, mLibrary, mWatchlist,
+                freeze(trending, mTrending, now), mRecommended, mPopular, mNowPlaying, mUpcoming,
+                mFilters);
+    }
+
+    MoviesStateSnapshot withRecommended(List<PhilmMovie> recommended, long now) {
+        return new MoviesStateSnapshot(mVersion + 1, mLibrary, mWatchlist, mTrending,
+                freeze(recommended, mRecommended, now), mPopular, mNowPlaying, mUpcoming,
+                mFilters);
+    }
+
+    MoviesStateSnapshot withPopular(List<PhilmMovie> popular, long now) {
+        return new MoviesStateSnapshot(mVersion + 1, mLibrary, mWatchlist, mTrending,
+                mRecommended, freeze(popular, mPopular, now), mNowPlaying, mUpcoming, mFilters);
+    }
+
+    MoviesStateSnapshot withNowPlaying(List<PhilmMovie> nowPlaying, long now) {
+        return new MoviesStateSnapshot(mVersion + 1, mLibrary, mWatchlist, mTrending,
+                mRecommended, mPopular, freeze(nowPlaying, mNowPlaying, now), mUpcoming,
+                mFilters);
+    }
+
+    MoviesStateSnapshot withUpcoming(List<PhilmMovie> upcoming, long now) {
+        return new MoviesStateSnapshot(mVersion + 1, mLibrary, mWatchlist, mTrending,
+                mRecommended, mPopular, mNowPlaying, freeze(upcoming, mUpcoming, now), mFilters);
+    }
+
+    MoviesStateSnapshot withFilters(Set<MovieController.MovieFilter> filters) {
+        final Set<MovieController.MovieFilter> copy = filters.isEmpty()
+                ? Collections.<MovieController.MovieFilter>emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(filters));
+        return new MoviesStateSnapshot(mVersion + 1, mLibrary, mWatchlist, mTrending,
+                mRecommended, mPopular, mNowPlaying, mUpcoming, copy);
+    }
+
+    /**
+     * @param previous the frozen copy of the list in the previous snapshot, whose copies are
+     *                 reused for movies which have not been modified since. May be null.
+     */
+    private static List<PhilmMovie> freeze(List<PhilmMovie> list, List<PhilmMovie> previous,
+            long now) {
+        if (list == null) {
+            return null;
+        }
+
+        Map<PhilmMovie, PhilmMovie> previousCopies = null;
+        if (previous != null && !previous.isEmpty()) {
+            previousCopies = new IdentityHashMap<>(previous.size());
+            for (int i = 0, z = previous.size(); i < z; i++) {
+                final PhilmMovie copy = previous.get(i);
+                previousCopies.put(copy.getOriginal(), copy);
+            }
+        }
+
+        final ArrayList<PhilmMovie> frozen = new ArrayList<>(list.size());
+        for (int i = 0, z = list.size(); i < z; i++) {
+            final PhilmMovie movie = list.get(i);
+            final PhilmMovie previousCopy = previousCopies != null
+                    ? previousCopies.get(movie)
+                    : null;
+            frozen.add(movie.freeze(now, previousCopy));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+}
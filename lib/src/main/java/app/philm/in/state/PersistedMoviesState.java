@@ -0,0 +1,418 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import app.philm.in.controllers.MovieController;
+import app.philm.in.model.PhilmModelStreams;
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmPerson;
+import app.philm.in.util.PhilmCollections;
+import app.philm.in.util.TextUtils;
+
+/**
+ * A compact copy of the parts of {@link MoviesState} which are expensive to refetch, so that they
+ * can be restored quickly after the process has been killed. The library and watchlist are not
+ * included as they are already persisted in the database.
+ */
+public final class PersistedMoviesState {
+
+    /**
+     * Should be incremented whenever the persisted format changes. Files with a different version
+     * are discarded.
+     */
+    public static final int VERSION = 3;
+
+    static final int MAX_MOVIES = 400;
+    static final int MAX_PEOPLE = 100;
+
+    /**
+     * Lists longer than this are treated as corrupt when read.
+     */
+    private static final int MAX_LIST_SIZE = 10 * MAX_MOVIES;
+
+    int version;
+    long savedTime;
+    String username;
+
+    List<PhilmMovie> movies;
+    List<PhilmPerson> people;
+
+    int[] trending;
+    int[] recommended;
+    PersistedPage popular;
+    PersistedPage nowPlaying;
+    PersistedPage upcoming;
+
+    static class PersistedPage {
+        int[] items;
+        int page;
+        int firstPage;
+        int totalPages;
+        int[] pageSizes;
+    }
+
+    /**
+     * Copies the current state. Movies are stored once and referenced by index from each list.
+     * Lists which would take the number of movies over {@link #MAX_MOVIES} are skipped.
+     * <p>
+     * Must be called on the main thread. Movies are taken from the state's snapshot and people
+     * are copied, so the result can then be serialized on a background thread while the state
+     * carries on changing.
+     */
+    public static PersistedMoviesState create(MoviesState state, long time) {
+        Preconditions.checkNotNull(state, "state cannot be null");
+
+        final PersistedMoviesState persisted = new PersistedMoviesState();
+        persisted.version = VERSION;
+        persisted.savedTime = time;
+        persisted.username = state.getUsername();
+        persisted.movies = new ArrayList<>();
+
+        final Map<PhilmMovie, Integer> indexes = new IdentityHashMap<>();
+
+        final MoviesStateSnapshot snapshot = state.getSnapshot();
+        persisted.trending = persisted.addMovies(indexes, snapshot.getTrending());
+        persisted.popular = persisted.addPage(indexes, state.getPopular(),
+                snapshot.getPopular());
+        persisted.nowPlaying = persisted.addPage(indexes, state.getNowPlaying(),
+                snapshot.getNowPlaying());
+        persisted.upcoming = persisted.addPage(indexes, state.getUpcoming(),
+                snapshot.getUpcoming());
+        persisted.recommended = persisted.addMovies(indexes, snapshot.getRecommended());
+
+        final Map<String, PhilmPerson> people = state.getPeople();
+        if (people != null && !people.isEmpty()) {
+            persisted.people = new ArrayList<>(Math.min(people.size(), MAX_PEOPLE));
+            for (PhilmPerson person : people.values()) {
+                if (persisted.people.size() >= MAX_PEOPLE) {
+                    break;
+                }
+                persisted.people.add(person.copy());
+            }
+        }
+
+        return persisted;
+    }
+
+    /**
+     * Writes the fields of this state directly to {@code out}, with the movies and people
+     * written by {@link PhilmModelStreams}. Read back with {@link #readFrom(DataInput)}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(savedTime);
+        PhilmModelStreams.writeString(out, username);
+
+        out.writeInt(movies != null ? movies.size() : -1);
+        if (movies != null) {
+            for (int i = 0, z = movies.size(); i < z; i++) {
+                PhilmModelStreams.writeMovie(out, movies.get(i));
+            }
+        }
+        out.writeInt(people != null ? people.size() : -1);
+        if (people != null) {
+            for (int i = 0, z = people.size(); i < z; i++) {
+                PhilmModelStreams.writePerson(out, people.get(i));
+            }
+        }
+
+        writeIndexes(out, trending);
+        writeIndexes(out, recommended);
+        writePage(out, popular);
+        writePage(out, nowPlaying);
+        writePage(out, upcoming);
+    }
+
+    /**
+     * Reads a state written by {@link #writeTo(DataOutput)} with the current {@link #VERSION}.
+     *
+     * @throws IOException if {@code in} ends early or does not contain a valid state.
+     */
+    public static PersistedMoviesState readFrom(DataInput in) throws IOException {
+        final PersistedMoviesState persisted = new PersistedMoviesState();
+        persisted.version = VERSION;
+        persisted.savedTime = in.readLong();
+        persisted.username = PhilmModelStreams.readString(in);
+
+        final int movieCount = readLength(in, MAX_MOVIES);
+        if (movieCount >= 0) {
+            persisted.movies = new ArrayList<>(movieCount);
+            for (int i = 0; i < movieCount; i++) {
+                persisted.movies.add(PhilmModelStreams.readMovie(in));
+            }
+        }
+        final int personCount = readLength(in, MAX_PEOPLE);
+        if (personCount >= 0) {
+            persisted.people = new ArrayList<>(personCount);
+            for (int i = 0; i < personCount; i++) {
+                persisted.people.add(PhilmModelStreams.readPerson(in));
+            }
+        }
+
+        persisted.trending = readIndexes(in);
+        persisted.recommended = readIndexes(in);
+        persisted.popular = readPage(in);
+        persisted.nowPlaying = readPage(in);
+        persisted.upcoming = readPage(in);
+        return persisted;
+    }
+
+    public boolean isEmpty() {
+        return PhilmCollections.isEmpty(movies) && PhilmCollections.isEmpty(people);
+    }
+
+    public long getSavedTime() {
+        return savedTime;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Restores the persisted lists into {@code state}. Lists which have already been populated
+     * are left alone, and movies or people which are already in the state are used in place of
+     * the persisted copies. Must be called on the main thread.
+     *
+     * @return the lists which were restored.
+     */
+    public Set<MovieController.MovieQueryType> restoreInto(MoviesState state) {
+        Preconditions.checkNotNull(state, "state cannot be null");
+
+        final Set<MovieController.MovieQueryType> restored
+                = EnumSet.noneOf(MovieController.MovieQueryType.class);
+
+        if (!PhilmCollections.isEmpty(people)) {
+            final Map<String, PhilmPerson> statePeople = state.getPeople();
+            for (PhilmPerson person : people) {
+                if (person.getTmdbId() != null) {
+                    final String id = String.valueOf(person.getTmdbId());
+                    if (!statePeople.containsKey(id)) {
+                        statePeople.put(id, person);
+                    }
+                }
+            }
+        }
+
+        if (PhilmCollections.isEmpty(movies)) {
+            return restored;
+        }
+
+        final List<PhilmMovie> resolved = new ArrayList<>(movies.size());
+        for (PhilmMovie movie : movies) {
+            PhilmMovie existing = null;
+            if (!TextUtils.isEmpty(movie.getImdbId())) {
+                existing = state.getImdbIdMovies().get(movie.getImdbId());
+            }
+            if (existing == null && movie.getTmdbId() != null) {
+                existing = state.getTmdbIdMovies().get(String.valueOf(movie.getTmdbId()));
+            }
+            if (existing == null) {
+                state.putMovie(movie);
+                existing = movie;
+            }
+            resolved.add(existing);
+        }
+
+        if (state.getTrending() == null && trending != null) {
+            state.setTrending(resolve(resolved, trending));
+            restored.add(MovieController.MovieQueryType.TRENDING);
+        }
+        if (state.getPopular() == null && popular != null) {
+            state.setPopular(resolve(resolved, popular));
+            restored.add(MovieController.MovieQueryType.POPULAR);
+        }
+        if (state.getNowPlaying() == null && nowPlaying != null) {
+            state.setNowPlaying(resolve(resolved, nowPlaying));
+            restored.add(MovieController.MovieQueryType.NOW_PLAYING);
+        }
+        if (state.getUpcoming() == null && upcoming != null) {
+            state.setUpcoming(resolve(resolved, upcoming));
+            restored.add(MovieController.MovieQueryType.UPCOMING);
+        }
+        // Recommendations are specific to the account
+        if (state.getRecommended() == null && recommended != null
+                && Objects.equal(username, state.getUsername())) {
+            state.setRecommended(resolve(resolved, recommended));
+            restored.add(MovieController.MovieQueryType.RECOMMENDED);
+        }
+        return restored;
+    }
+
+    private int[] addMovies(Map<PhilmMovie, Integer> indexes, List<PhilmMovie> list) {
+        if (list == null) {
+            return null;
+        }
+
+        // The snapshot's lists are copied separately, so match movies by the ones they were
+        // copied from
+        int newMovies = 0;
+        for (PhilmMovie movie : list) {
+            if (!indexes.containsKey(movie.getOriginal())) {
+                newMovies++;
+            }
+        }
+        if (movies.size() + newMovies > MAX_MOVIES) {
+            return null;
+        }
+
+        final int[] result = new int[list.size()];
+        for (int i = 0, z = list.size(); i < z; i++) {
+            final PhilmMovie movie = list.get(i);
+            Integer index = indexes.get(movie.getOriginal());
+            if (index == null) {
+                index = movies.size();
+                movies.add(movie);
+                indexes.put(movie.getOriginal(), index);
+            }
+            result[i] = index;
+        }
+        return result;
+    }
+
+    /**
+     * @param items the snapshot's copy of {@code result}'s items.
+     */
+    private PersistedPage addPage(Map<PhilmMovie, Integer> indexes,
+            MoviesState.MoviePaginatedResult result, List<PhilmMovie> items) {
+        if (result == null || items == null) {
+            return null;
+        }
+
+        final int[] itemIndexes = addMovies(indexes, items);
+        if (itemIndexes == null) {
+            return null;
+        }
+
+        final PersistedPage page = new PersistedPage();
+        page.items = itemIndexes;
+        page.page = result.page;
+        page.firstPage = result.firstPage;
+        page.totalPages = result.totalPages;
+
+        final List<Integer> pageSizes = result.getPageSizes();
+        page.pageSizes = new int[pageSizes.size()];
+        for (int i = 0, z = pageSizes.size(); i < z; i++) {
+            page.pageSizes[i] = pageSizes.get(i);
+        }
+        return page;
+    }
+
+    private static List<PhilmMovie> resolve(List<PhilmMovie> movies, int[] indexes) {
+        final ArrayList<PhilmMovie> result = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            if (index >= 0 && index < movies.size()) {
+                result.add(movies.get(index));
+            }
+        }
+        return result;
+    }
+
+    private static MoviesState.MoviePaginatedResult resolve(List<PhilmMovie> movies,
+            PersistedPage page) {
+        final MoviesState.MoviePaginatedResult result = new MoviesState.MoviePaginatedResult();
+        result.items = resolve(movies, page.items != null ? page.items : new int[0]);
+        result.page = page.page;
+        result.firstPage = page.firstPage;
+        result.totalPages = page.totalPages;
+
+        if (page.pageSizes != null && sum(page.pageSizes) == result.items.size()) {
+            final List<Integer> pageSizes = new ArrayList<>(page.pageSizes.length);
+            for (int size : page.pageSizes) {
+                pageSizes.add(size);
+            }
+            result.setPageSizes(pageSizes);
+        }
+        return result;
+    }
+
+    private static void writeIndexes(DataOutput out, int[] indexes) throws IOException {
+        out.writeInt(indexes != null ? indexes.length : -1);
+        if (indexes != null) {
+            for (int index : indexes) {
+                out.writeInt(index);
+            }
+        }
+    }
+
+    private static int[] readIndexes(DataInput in) throws IOException {
+        final int length = readLength(in, MAX_LIST_SIZE);
+        if (length < 0) {
+            return null;
+        }
+        final int[] indexes = new int[length];
+        for (int i = 0; i < length; i++) {
+            indexes[i] = in.readInt();
+        }
+        return indexes;
+    }
+
+    private static void writePage(DataOutput out, PersistedPage page) throws IOException {
+        out.writeBoolean(page != null);
+        if (page != null) {
+            writeIndexes(out, page.items);
+            out.writeInt(page.page);
+            out.writeInt(page.firstPage);
+            out.writeInt(page.totalPages);
+            writeIndexes(out, page.pageSizes);
+        }
+    }
+
+    private static PersistedPage readPage(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        final PersistedPage page = new PersistedPage();
+        page.items = readIndexes(in);
+        page.page = in.readInt();
+        page.firstPage = in.readInt();
+        page.totalPages = in.readInt();
+        page.pageSizes = readIndexes(in);
+        return page;
+    }
+
+    /**
+     * @return the length read, or -1 for null.
+     */
+    private static int readLength(DataInput in, int max) throws IOException {
+        final int length = in.readInt();
+        if (length < -1 || length > max) {
+            throw new IOException("Invalid length: " + length);
+        }
+        return length;
+    }
+
+    private static int sum(int[] values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
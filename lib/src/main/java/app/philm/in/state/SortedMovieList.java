@@ -0,0 +1,273 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.text.CollationKey;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import app.philm.in.model.PhilmMovie;
+
+/**
+ * A list of movies which is kept sorted by {@link PhilmMovie#COMPARATOR_SORT_TITLE}, with an
+ * index for constant time membership checks. Movies are added with {@link #insert(PhilmMovie)},
+ * which binary searches for the insertion point rather than re-sorting the list. The other
+ * mutators are supported too, but ignore any position given as the list is always kept sorted.
+ * <p>
+ * Movies in {@link MoviesState} are canonical instances, so membership is by instance. This keeps
+ * the index valid when a movie's ids change, for instance when its IMDB id is fetched. When a
+ * movie's sort title might have changed, {@link #update(PhilmMovie)} must be called to move it to
+ * its new position.
+ */
+public final class SortedMovieList extends AbstractList<PhilmMovie> implements RandomAccess {
+
+    /**
+     * Each insertion shifts the movies after it, so out of place movies are only inserted one by
+     * one while there is at most one of them for this many movies in place.
+     */
+    private static final int MAX_OUT_OF_PLACE_RATIO = 8;
+
+    private final ArrayList<PhilmMovie> mMovies;
+
+    /**
+     * The sort title key of each movie when it was positioned, so that {@link #update(PhilmMovie)}
+     * can tell whether it needs moving.
+     */
+    private final Map<PhilmMovie, CollationKey> mIndex;
+
+    /**
+     * @param movies the movies to hold, which are usually sorted already on a background thread.
+     *               Those are added in a single pass, and only the movies which are out of place
+     *               are then inserted at their sorted positions. The list is only sorted in full
+     *               if many of them are.
+     */
+    public SortedMovieList(Collection<PhilmMovie> movies) {
+        Preconditions.checkNotNull(movies, "movies cannot be null");
+
+        mMovies = new ArrayList<>(movies.size());
+        mIndex = new IdentityHashMap<>(movies.size());
+
+        ArrayList<PhilmMovie> outOfPlace = null;
+        PhilmMovie last = null;
+        for (PhilmMovie movie : movies) {
+            if (contains(movie)) {
+                continue;
+            }
+            if (last != null && PhilmMovie.COMPARATOR_SORT_TITLE.compare(last, movie) > 0) {
+                if (outOfPlace == null) {
+                    outOfPlace = new ArrayList<>();
+                }
+                outOfPlace.add(movie);
+            } else {
+                mMovies.add(movie);
+                mIndex.put(movie, movie.getSortTitleKey());
+                last = movie;
+            }
+        }
+
+        if (outOfPlace != null) {
+            if (outOfPlace.size() * MAX_OUT_OF_PLACE_RATIO <= mMovies.size()) {
+                for (int i = 0, z = outOfPlace.size(); i < z; i++) {
+                    insert(outOfPlace.get(i));
+                }
+            } else {
+                for (int i = 0, z = outOfPlace.size(); i < z; i++) {
+                    final PhilmMovie movie = outOfPlace.get(i);
+                    if (!contains(movie)) {
+                        mMovies.add(movie);
+                        mIndex.put(movie, movie.getSortTitleKey());
+                    }
+                }
+                Collections.sort(mMovies, PhilmMovie.COMPARATOR_SORT_TITLE);
+            }
+        }
+    }
+
+    @Override
+    public PhilmMovie get(int location) {
+        return mMovies.get(location);
+    }
+
+    @Override
+    public int size() {
+        return mMovies.size();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return mIndex.containsKey(object);
+    }
+
+    /**
+     * Inserts {@code movie} at its sorted position.
+     *
+     * @return true if the movie was added, false if it is already in the list.
+     */
+    public boolean insert(PhilmMovie movie) {
+        Preconditions.checkNotNull(movie, "movie cannot be null");
+
+        if (contains(movie)) {
+            return false;
+        }
+
+        int index = Collections.binarySearch(mMovies, movie, PhilmMovie.COMPARATOR_SORT_TITLE);
+        if (index < 0) {
+            index = -(index + 1);
+        }
+        mMovies.add(index, movie);
+        mIndex.put(movie, movie.getSortTitleKey());
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Moves {@code movie} to its sorted position if its sort title has changed since it was
+     * positioned.
+     *
+     * @return true if the movie was moved.
+     */
+    public boolean update(PhilmMovie movie) {
+        Preconditions.checkNotNull(movie, "movie cannot be null");
+
+        if (!contains(movie) || Objects.equal(mIndex.get(movie), movie.getSortTitleKey())) {
+            return false;
+        }
+
+        // The movie is out of place, so can not be binary searched for
+        for (int i = 0, z = mMovies.size(); i < z; i++) {
+            if (mMovies.get(i) == movie) {
+                remove(i);
+                break;
+            }
+        }
+        insert(movie);
+        return true;
+    }
+
+    /**
+     * Same as {@link #insert(PhilmMovie)}.
+     */
+    @Override
+    public boolean add(PhilmMovie movie) {
+        return insert(movie);
+    }
+
+    /**
+     * Same as {@link #insert(PhilmMovie)}, as {@code location} is ignored.
+     */
+    @Override
+    public void add(int location, PhilmMovie movie) {
+        insert(movie);
+    }
+
+    /**
+     * Replaces the movie at {@code location}, then moves {@code movie} to its sorted position.
+     */
+    @Override
+    public PhilmMovie set(int location, PhilmMovie movie) {
+        Preconditions.checkNotNull(movie, "movie cannot be null");
+
+        final PhilmMovie removed = mMovies.get(location);
+        if (removed != movie) {
+            Preconditions.checkArgument(!contains(movie), "movie is already in the list");
+            remove(location);
+            insert(movie);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!contains(object)) {
+            return false;
+        }
+
+        final int index = indexOf(object);
+        if (index < 0) {
+            return false;
+        }
+
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public PhilmMovie remove(int location) {
+        final PhilmMovie removed = mMovies.remove(location);
+        mIndex.remove(removed);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        if (!contains(object)) {
+            return -1;
+        }
+
+        final PhilmMovie movie = (PhilmMovie) object;
+        final int found = Collections.binarySearch(mMovies, movie,
+                PhilmMovie.COMPARATOR_SORT_TITLE);
+
+        if (found >= 0) {
+            // Search either side of the match, as several movies can share a sort title
+            for (int i = found; i >= 0 && hasSameSortTitle(i, movie); i--) {
+                if (mMovies.get(i) == movie) {
+                    return i;
+                }
+            }
+            for (int i = found + 1, z = mMovies.size(); i < z && hasSameSortTitle(i, movie); i++) {
+                if (mMovies.get(i) == movie) {
+                    return i;
+                }
+            }
+        }
+
+        // The movie's sort title has changed, and update() has not been called yet
+        for (int i = 0, z = mMovies.size(); i < z; i++) {
+            if (mMovies.get(i) == movie) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object object) {
+        // Each movie is only held once
+        return indexOf(object);
+    }
+
+    @Override
+    public void clear() {
+        mMovies.clear();
+        mIndex.clear();
+        modCount++;
+    }
+
+    private boolean hasSameSortTitle(int index, PhilmMovie movie) {
+        return PhilmMovie.COMPARATOR_SORT_TITLE.compare(mMovies.get(index), movie) == 0;
+    }
+}
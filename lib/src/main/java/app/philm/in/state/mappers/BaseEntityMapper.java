@@ -19,7 +19,9 @@ package app.philm.in.state.mappers;
 import com.google.common.base.Preconditions;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import app.philm.in.state.MoviesState;
 
@@ -30,17 +32,244 @@ abstract class BaseEntityMapper<T, R> {
         mMoviesState = Preconditions.checkNotNull(state, "state cannot be null");
     }
 
-    public abstract R map(T entity);
+    /**
+     * Maps {@code entity} onto the item already held for one of its ids, or a new item if there
+     * is none. The item is only put into the state if it is new or has gained an id, as most
+     * results are for items which are already held. Must be called on the main thread, as the
+     * items held by the state are only modified there.
+     */
+    public R map(T entity) {
+        return apply(entity, null);
+    }
+
+    /**
+     * Same as {@link #map(Object)} for each of {@code entities}, but resolved as a batch: every
+     * entity is looked up in one pass before anything is modified, and the items which need
+     * putting are then put into the state in a single update. Must be called on the main thread.
+     */
+    public List<R> mapAll(List<? extends T> entities) {
+        return applyAll(entities, null);
+    }
+
+    /**
+     * Applies {@code mapped}, which must all have been prepared by this mapper, as a batch in the
+     * same way as {@link #mapAll(List)}.
+     */
+    @SuppressWarnings("unchecked")
+    List<R> applyAll(List<? extends MappedEntity<?, R>> mapped) {
+        final int count = mapped.size();
+        final ArrayList<T> entities = new ArrayList<>(count);
+        final ArrayList<R> prepared = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final MappedEntity<?, R> item = mapped.get(i);
+            entities.add((T) item.getEntity());
+            prepared.add(item.getItem());
+        }
+        return applyAll(entities, prepared);
+    }
+
+    /**
+     * @param prepared the items which each of {@code entities} has already been mapped onto, in
+     *                 the same order, or null.
+     */
+    private List<R> applyAll(List<? extends T> entities, List<R> prepared) {
+        final int count = entities.size();
+        final ArrayList<R> items = new ArrayList<>(count);
+
+        // Resolve every entity first, so that the state is only read in this pass
+        for (int i = 0; i < count; i++) {
+            items.add(findEntity(entities.get(i)));
+        }
+
+        // Items created in this batch, by the ids of their entities, so that an entity which
+        // appears more than once resolves to one item
+        Map<String, R> created = null;
+        List<R> toPut = null;
+
+        for (int i = 0; i < count; i++) {
+            final T entity = entities.get(i);
+            final R preparedItem = prepared != null ? prepared.get(i) : null;
+            R item = items.get(i);
+
+            if (item == null && created != null) {
+                item = findCreated(created, entity);
+                if (item != null) {
+                    // Already due to be put by this batch
+                    updateEntity(item, entity, preparedItem);
+                    items.set(i, item);
+                    continue;
+                }
+            }
+
+            if (item == null) {
+                item = preparedItem;
+                if (item == null) {
+                    item = createEntity();
+                    updateEntity(item, entity);
+                }
+                if (created == null) {
+                    created = new HashMap<>();
+                }
+                putCreated(created, entity, item);
+            } else {
+                updateEntity(item, entity, preparedItem);
+                if (isIndexed(item)) {
+                    items.set(i, item);
+                    continue;
+                }
+            }
+
+            items.set(i, item);
+            if (toPut == null) {
+                toPut = new ArrayList<>();
+            }
+            toPut.add(item);
+        }
+
+        if (toPut != null) {
+            putEntities(toPut);
+        }
+        return items;
+    }
+
+    private R findCreated(Map<String, R> created, T entity) {
+        R item = null;
+
+        final String id = getId(entity);
+        if (id != null) {
+            item = created.get(id);
+        }
+        if (item == null) {
+            final String alternateId = getAlternateId(entity);
+            if (alternateId != null) {
+                item = created.get(alternateId);
+            }
+        }
+        return item;
+    }
+
+    private void putCreated(Map<String, R> created, T entity, R item) {
+        final String id = getId(entity);
+        if (id != null) {
+            created.put(id, item);
+        }
+        final String alternateId = getAlternateId(entity);
+        if (alternateId != null) {
+            created.put(alternateId, item);
+        }
+    }
+
+    /**
+     * Maps {@code entity} onto a new item which is not put into the state, so that the work can
+     * be done on a background thread. The result is applied with {@link MappedEntity#apply()}.
+     */
+    public <E extends T> MappedEntity<E, R> prepare(E entity) {
+        final R item = createEntity();
+        updateEntity(item, entity);
+        precompute(item);
+        return new MappedEntity<>(this, entity, item);
+    }
+
+    public <E extends T> List<MappedEntity<E, R>> prepareAll(List<E> entities) {
+        final ArrayList<MappedEntity<E, R>> mapped = new ArrayList<>(entities.size());
+        for (int i = 0, z = entities.size(); i < z; i++) {
+            mapped.add(prepare(entities.get(i)));
+        }
+        return mapped;
+    }
+
+    /**
+     * @param prepared an item which {@code entity} has already been mapped onto, to put into the
+     *                 state if it holds no item for the entity. May be null.
+     */
+    R apply(T entity, R prepared) {
+        R item = findEntity(entity);
 
-    public List<R> mapAll(List<T> entities) {
-        final ArrayList<R> movies = new ArrayList<>(entities.size());
-        for (T entity : entities) {
-            movies.add(map(entity));
+        if (item == null) {
+            // No item, so use the prepared one or create one
+            item = prepared;
+            if (item == null) {
+                item = createEntity();
+                updateEntity(item, entity);
+            }
+            putEntity(item);
+        } else {
+            // We already have an item, so just update its wrapped value
+            updateEntity(item, entity, prepared);
+            if (!isIndexed(item)) {
+                putEntity(item);
+            }
+        }
+
+        return item;
+    }
+
+    private R findEntity(T entity) {
+        R item = null;
+
+        final String id = getId(entity);
+        if (id != null) {
+            item = getEntity(id);
+        }
+        if (item == null) {
+            final String alternateId = getAlternateId(entity);
+            if (alternateId != null) {
+                item = getEntity(alternateId);
+            }
         }
-        return movies;
+        return item;
     }
 
+    /**
+     * @return the id which {@code entity} is primarily looked up by.
+     */
+    abstract String getId(T entity);
+
+    /**
+     * @return an id to look up {@code entity} by if it is not found by {@link #getId(Object)}, or
+     * null if it has none.
+     */
+    String getAlternateId(T entity) {
+        return null;
+    }
+
+    abstract R createEntity();
+
+    abstract void updateEntity(R item, T entity);
+
+    /**
+     * Updates {@code item}, which is held by the state, from {@code entity} on the main thread.
+     * Mappers whose updates are costly take those values from {@code prepared} rather than
+     * computing them again, so that only references are copied here.
+     *
+     * @param prepared a new item which {@code entity} has already been mapped onto. May be null.
+     */
+    void updateEntity(R item, T entity, R prepared) {
+        updateEntity(item, entity);
+    }
+
+    /**
+     * Computes anything which {@code item} would otherwise compute lazily, usually on the main
+     * thread. Called on the thread which {@code item} is prepared on.
+     */
+    void precompute(R item) {
+    }
+
+    /**
+     * @return true if the state already holds {@code item} under each of its ids.
+     */
+    abstract boolean isIndexed(R item);
+
     abstract R getEntity(String id);
 
     abstract void putEntity(R entity);
+
+    /**
+     * Puts each of {@code entities} into the state in a single update.
+     */
+    void putEntities(List<R> entities) {
+        for (int i = 0, z = entities.size(); i < z; i++) {
+            putEntity(entities.get(i));
+        }
+    }
 }
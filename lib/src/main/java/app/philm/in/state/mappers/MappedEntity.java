@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state.mappers;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An entity which has been mapped onto a new item by {@link BaseEntityMapper#prepare(Object)},
+ * without touching anything held by the state. Entities can be prepared on a background thread,
+ * and are then applied to the state with {@link #apply()} on the main thread.
+ */
+public final class MappedEntity<T, R> {
+
+    private final BaseEntityMapper<? super T, R> mMapper;
+    private final T mEntity;
+    private final R mItem;
+
+    MappedEntity(BaseEntityMapper<? super T, R> mapper, T entity, R item) {
+        mMapper = Preconditions.checkNotNull(mapper, "mapper cannot be null");
+        mEntity = Preconditions.checkNotNull(entity, "entity cannot be null");
+        mItem = Preconditions.checkNotNull(item, "item cannot be null");
+    }
+
+    /**
+     * Applies the entity to the item held by the state for it, or puts the prepared item into
+     * the state if it holds none. Values which were costly to map are taken from the prepared
+     * item rather than computed again. Must be called on the main thread.
+     *
+     * @return the item held by the state for the entity.
+     */
+    public R apply() {
+        return mMapper.apply(mEntity, mItem);
+    }
+
+    T getEntity() {
+        return mEntity;
+    }
+
+    R getItem() {
+        return mItem;
+    }
+
+    BaseEntityMapper<? super T, R> getMapper() {
+        return mMapper;
+    }
+
+    /**
+     * Applies each of {@code mapped} in order. Those prepared by a single mapper, as they are by
+     * {@link BaseEntityMapper#prepareAll(List)}, are applied as a batch with one lookup pass and
+     * one state update. Must be called on the main thread.
+     */
+    public static <R> List<R> applyAll(List<? extends MappedEntity<?, R>> mapped) {
+        if (mapped.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final BaseEntityMapper<?, R> mapper = mapped.get(0).getMapper();
+        for (int i = 1, z = mapped.size(); i < z; i++) {
+            if (mapped.get(i).getMapper() != mapper) {
+                final ArrayList<R> items = new ArrayList<>(mapped.size());
+                for (int j = 0; j < z; j++) {
+                    items.add(mapped.get(j).apply());
+                }
+                return items;
+            }
+        }
+        return mapper.applyAll(mapped);
+    }
+
+    /**
+     * Sorts {@code mapped} by their prepared items, so that this can be done on a background
+     * thread. The items held by the state may differ, so lists of applied items are still
+     * ordered, but are then already in order or close to it.
+     */
+    public static <R> void sort(List<? extends MappedEntity<?, R>> mapped,
+            final Comparator<? super R> comparator) {
+        Collections.sort(mapped, new Comparator<MappedEntity<?, R>>() {
+            @Override
+            public int compare(MappedEntity<?, R> lhs, MappedEntity<?, R> rhs) {
+                return comparator.compare(lhs.mItem, rhs.mItem);
+            }
+        });
+    }
+}
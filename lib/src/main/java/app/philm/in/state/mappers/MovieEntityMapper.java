@@ -16,6 +16,8 @@
 
 package app.philm.in.state.mappers;
 
+import java.util.List;
+
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.state.MoviesState;
 import app.philm.in.util.TextUtils;
@@ -26,24 +28,48 @@ abstract class MovieEntityMapper<T> extends BaseEntityMapper<T, PhilmMovie> {
         super(state);
     }
 
+    @Override
+    PhilmMovie createEntity() {
+        return new PhilmMovie();
+    }
+
+    @Override
+    void precompute(PhilmMovie movie) {
+        // Taken by the held movie when it is applied, or used to sort the prepared movies
+        movie.getSortTitleKey();
+    }
+
+    @Override
+    boolean isIndexed(PhilmMovie movie) {
+        if (!TextUtils.isEmpty(movie.getImdbId())
+                && mMoviesState.getImdbIdMovies().get(movie.getImdbId()) != movie) {
+            return false;
+        }
+        if (movie.getTmdbId() != null && mMoviesState.getTmdbIdMovies()
+                .get(String.valueOf(movie.getTmdbId())) != movie) {
+            return false;
+        }
+        return true;
+    }
+
     @Override
     PhilmMovie getEntity(String id) {
-        if (mMoviesState.getImdbIdMovies().containsKey(id)) {
-            return mMoviesState.getImdbIdMovies().get(id);
-        } else if (mMoviesState.getTmdbIdMovies().containsKey(id)) {
-            return mMoviesState.getTmdbIdMovies().get(id);
+        // The maps do not hold nulls, so a single get is enough
+        PhilmMovie movie = mMoviesState.getImdbIdMovies().get(id);
+        if (movie == null) {
+            movie = mMoviesState.getTmdbIdMovies().get(id);
         }
-        return null;
+        return movie;
     }
 
     @Override
     void putEntity(PhilmMovie movie) {
-        if (!TextUtils.isEmpty(movie.getImdbId())) {
-            mMoviesState.getImdbIdMovies().put(movie.getImdbId(), movie);
-        }
-        if (movie.getTmdbId() != null) {
-            mMoviesState.getTmdbIdMovies().put(String.valueOf(movie.getTmdbId()), movie);
-        }
+        mMoviesState.putMovie(movie);
+    }
+
+    @Override
+    void putEntities(List<PhilmMovie> movies) {
+        mMoviesState.putMovies(movies);
     }
 
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state.mappers;
+
+import java.util.HashMap;
+import java.util.List;
+
+import app.philm.in.model.PhilmPerson;
+import app.philm.in.state.MoviesState;
+
+abstract class PersonEntityMapper<T> extends BaseEntityMapper<T, PhilmPerson> {
+
+    public PersonEntityMapper(MoviesState state) {
+        super(state);
+    }
+
+    @Override
+    PhilmPerson createEntity() {
+        return new PhilmPerson();
+    }
+
+    @Override
+    boolean isIndexed(PhilmPerson person) {
+        return mMoviesState.getPeople().get(String.valueOf(person.getTmdbId())) == person;
+    }
+
+    @Override
+    PhilmPerson getEntity(String id) {
+        return mMoviesState.getPeople().get(id);
+    }
+
+    @Override
+    void putEntity(PhilmPerson person) {
+        mMoviesState.getPeople().put(String.valueOf(person.getTmdbId()), person);
+    }
+
+    @Override
+    void putEntities(List<PhilmPerson> people) {
+        final HashMap<String, PhilmPerson> byId = new HashMap<>(people.size());
+        for (int i = 0, z = people.size(); i < z; i++) {
+            final PhilmPerson person = people.get(i);
+            byId.put(String.valueOf(person.getTmdbId()), person);
+        }
+        mMoviesState.getPeople().putAll(byId);
+    }
+
+}
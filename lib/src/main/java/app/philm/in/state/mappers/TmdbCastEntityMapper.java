@@ -30,7 +30,7 @@ import app.philm.in.model.PhilmPerson;
 import app.philm.in.state.MoviesState;
 
 @Singleton
-public class TmdbCastEntityMapper extends BaseEntityMapper<CastMember, PhilmPerson> {
+public class TmdbCastEntityMapper extends PersonEntityMapper<CastMember> {
 
     @Inject
     public TmdbCastEntityMapper(MoviesState state) {
@@ -38,37 +38,27 @@ public class TmdbCastEntityMapper extends BaseEntityMapper<CastMember, PhilmPers
     }
 
     @Override
-    public PhilmPerson map(CastMember entity) {
-        PhilmPerson item = getEntity(String.valueOf(entity.id));
-
-        if (item == null) {
-            // No item, so create one
-            item = new PhilmPerson();
-        }
-
-        // We already have a movie, so just update it wrapped value
-        item.setFromTmdb(entity);
-        putEntity(item);
+    String getId(CastMember entity) {
+        return String.valueOf(entity.id);
+    }
 
-        return item;
+    @Override
+    void updateEntity(PhilmPerson person, CastMember entity) {
+        person.setFromTmdb(entity);
     }
 
-    public List<PhilmMovieCredit> mapCredits(List<CastMember> entities) {
-        final ArrayList<PhilmMovieCredit> credits = new ArrayList<>(entities.size());
-        for (CastMember entity : entities) {
-            credits.add(new PhilmMovieCredit(map(entity), entity.character, entity.order));
+    /**
+     * Applies {@code mapped} and creates their credits. Must be called on the main thread.
+     */
+    public List<PhilmMovieCredit> applyCredits(List<MappedEntity<CastMember, PhilmPerson>> mapped) {
+        final List<PhilmPerson> people = MappedEntity.applyAll(mapped);
+        final ArrayList<PhilmMovieCredit> credits = new ArrayList<>(mapped.size());
+        for (int i = 0, z = mapped.size(); i < z; i++) {
+            final MappedEntity<CastMember, PhilmPerson> item = mapped.get(i);
+            final CastMember entity = item.getEntity();
+            credits.add(new PhilmMovieCredit(people.get(i), entity.character, entity.order));
         }
         Collections.sort(credits);
         return credits;
     }
-
-    @Override
-    PhilmPerson getEntity(String id) {
-        return mMoviesState.getPeople().get(id);
-    }
-
-    @Override
-    void putEntity(PhilmPerson entity) {
-        mMoviesState.getPeople().put(String.valueOf(entity.getTmdbId()), entity);
-    }
 }
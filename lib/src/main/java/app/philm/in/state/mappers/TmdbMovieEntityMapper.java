@@ -33,21 +33,22 @@ public class TmdbMovieEntityMapper extends MovieEntityMapper<Movie> {
     }
 
     @Override
-    public PhilmMovie map(Movie entity) {
-        PhilmMovie movie = getEntity(String.valueOf(entity.id));
-
-        if (movie == null && entity.imdb_id != null) {
-            movie = getEntity(entity.imdb_id);
-        }
-
-        if (movie == null) {
-            // No movie, so create one
-            movie = new PhilmMovie();
-        }
-        // We already have a movie, so just update it wrapped value
+    String getId(Movie entity) {
+        return String.valueOf(entity.id);
+    }
+
+    @Override
+    String getAlternateId(Movie entity) {
+        return entity.imdb_id;
+    }
+
+    @Override
+    void updateEntity(PhilmMovie movie, Movie entity) {
         movie.setFromMovie(entity);
-        putEntity(movie);
+    }
 
-        return movie;
+    @Override
+    void updateEntity(PhilmMovie movie, Movie entity, PhilmMovie prepared) {
+        movie.setFromMovie(entity, prepared);
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state.mappers;
+
+import com.uwetrottmann.tmdb.entities.BasePersonCredit;
+import com.uwetrottmann.tmdb.entities.PersonCastCredit;
+import com.uwetrottmann.tmdb.entities.PersonCrewCredit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmPersonCredit;
+import app.philm.in.state.MoviesState;
+
+@Singleton
+public class TmdbPersonCreditEntityMapper extends MovieEntityMapper<BasePersonCredit> {
+
+    @Inject
+    public TmdbPersonCreditEntityMapper(MoviesState state) {
+        super(state);
+    }
+
+    @Override
+    String getId(BasePersonCredit entity) {
+        return String.valueOf(entity.id);
+    }
+
+    @Override
+    void updateEntity(PhilmMovie movie, BasePersonCredit entity) {
+        movie.setFromPersonCredit(entity);
+    }
+
+    @Override
+    void updateEntity(PhilmMovie movie, BasePersonCredit entity, PhilmMovie prepared) {
+        movie.setFromPersonCredit(entity, prepared);
+    }
+
+    /**
+     * Applies {@code mapped}. Must be called on the main thread.
+     *
+     * @return the credits for {@code mapped}, sorted by release date.
+     */
+    public List<PhilmPersonCredit> applyCastCredits(
+            List<MappedEntity<PersonCastCredit, PhilmMovie>> mapped) {
+        final List<PhilmMovie> movies = MappedEntity.applyAll(mapped);
+        final ArrayList<PhilmPersonCredit> credits = new ArrayList<>(mapped.size());
+        for (int i = 0, z = mapped.size(); i < z; i++) {
+            final MappedEntity<PersonCastCredit, PhilmMovie> item = mapped.get(i);
+            credits.add(new PhilmPersonCredit(movies.get(i), item.getEntity().character));
+        }
+        Collections.sort(credits, PhilmPersonCredit.COMPARATOR_SORT_DATE);
+        return credits;
+    }
+
+    /**
+     * Applies {@code mapped}. Must be called on the main thread.
+     *
+     * @return the credits for {@code mapped}, sorted by release date.
+     */
+    public List<PhilmPersonCredit> applyCrewCredits(
+            List<MappedEntity<PersonCrewCredit, PhilmMovie>> mapped) {
+        final List<PhilmMovie> movies = MappedEntity.applyAll(mapped);
+        final ArrayList<PhilmPersonCredit> credits = new ArrayList<>(mapped.size());
+        for (int i = 0, z = mapped.size(); i < z; i++) {
+            final PersonCrewCredit entity = mapped.get(i).getEntity();
+            credits.add(new PhilmPersonCredit(movies.get(i), entity.job, entity.department));
+        }
+        Collections.sort(credits, PhilmPersonCredit.COMPARATOR_SORT_DATE);
+        return credits;
+    }
+}
@@ -25,7 +25,7 @@ import app.philm.in.model.PhilmPerson;
 import app.philm.in.state.MoviesState;
 
 @Singleton
-public class TmdbPersonEntityMapper extends BaseEntityMapper<Person, PhilmPerson> {
+public class TmdbPersonEntityMapper extends PersonEntityMapper<Person> {
 
     @Inject
     public TmdbPersonEntityMapper(MoviesState state) {
@@ -33,28 +33,17 @@ public class TmdbPersonEntityMapper extends BaseEntityMapper<Person, PhilmPerson
     }
 
     @Override
-    public PhilmPerson map(Person entity) {
-        PhilmPerson item = getEntity(String.valueOf(entity.id));
-
-        if (item == null) {
-            // No item, so create one
-            item = new PhilmPerson();
-        }
-
-        // We already have a movie, so just update it wrapped value
-        item.setFromTmdb(entity);
-        putEntity(item);
-
-        return item;
+    String getId(Person entity) {
+        return String.valueOf(entity.id);
     }
 
     @Override
-    PhilmPerson getEntity(String id) {
-        return mMoviesState.getPeople().get(id);
+    void updateEntity(PhilmPerson person, Person entity) {
+        person.setFromTmdb(entity);
     }
 
     @Override
-    void putEntity(PhilmPerson entity) {
-        mMoviesState.getPeople().put(String.valueOf(entity.getTmdbId()), entity);
+    void updateEntity(PhilmPerson person, Person entity, PhilmPerson prepared) {
+        person.setFromTmdb(entity, prepared);
     }
 }
@@ -33,21 +33,22 @@ public class TraktMovieEntityMapper extends MovieEntityMapper<Movie> {
     }
 
     @Override
-    public PhilmMovie map(Movie entity) {
-        PhilmMovie movie = getEntity(entity.imdb_id);
-
-        if (movie == null && entity.tmdbId != 0) {
-            movie = getEntity(String.valueOf(entity.tmdbId));
-        }
-
-        if (movie == null) {
-            // No movie, so create one
-            movie = new PhilmMovie();
-        }
-        // We already have a movie, so just update it wrapped value
+    String getId(Movie entity) {
+        return entity.imdb_id;
+    }
+
+    @Override
+    String getAlternateId(Movie entity) {
+        return entity.tmdbId != 0 ? String.valueOf(entity.tmdbId) : null;
+    }
+
+    @Override
+    void updateEntity(PhilmMovie movie, Movie entity) {
         movie.setFromMovie(entity);
-        putEntity(movie);
+    }
 
-        return movie;
+    @Override
+    void updateEntity(PhilmMovie movie, Movie entity, PhilmMovie prepared) {
+        movie.setFromMovie(entity, prepared);
     }
 }
@@ -20,7 +20,7 @@ import com.jakewharton.trakt.Trakt;
 import com.squareup.otto.Bus;
 import com.uwetrottmann.tmdb.Tmdb;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -31,9 +31,11 @@ import app.philm.in.network.NetworkError;
 import app.philm.in.state.AsyncDatabaseHelper;
 import app.philm.in.state.BaseState;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.SortedMovieList;
 import app.philm.in.state.mappers.TmdbCastEntityMapper;
 import app.philm.in.state.mappers.TmdbCrewEntityMapper;
 import app.philm.in.state.mappers.TmdbMovieEntityMapper;
+import app.philm.in.state.mappers.TmdbPersonCreditEntityMapper;
 import app.philm.in.state.mappers.TmdbPersonEntityMapper;
 import app.philm.in.state.mappers.TraktMovieEntityMapper;
 import app.philm.in.util.CountryProvider;
@@ -56,6 +58,7 @@ public abstract class BaseMovieRunnable<R> extends NetworkCallRunnable<R> {
     @Inject Lazy<TmdbCastEntityMapper> mLazyTmdbCastEntityMapper;
     @Inject Lazy<TmdbCrewEntityMapper> mLazyTmdbCrewEntityMapper;
     @Inject Lazy<TmdbPersonEntityMapper> mLazyTmdbPersonEntityMapper;
+    @Inject Lazy<TmdbPersonCreditEntityMapper> mLazyTmdbPersonCreditEntityMapper;
     @Inject Lazy<Bus> mEventBus;
     @Inject Lazy<CountryProvider> mCountryProvider;
 
@@ -84,18 +87,49 @@ public abstract class BaseMovieRunnable<R> extends NetworkCallRunnable<R> {
     }
 
     protected void checkPhilmState(PhilmMovie movie) {
-        final List<PhilmMovie> library = mMoviesState.getLibrary();
-        final List<PhilmMovie> watchlist = mMoviesState.getWatchlist();
+        final List<MoviesState.MovieChange> libraryChanges = new ArrayList<>(1);
+        final List<MoviesState.MovieChange> watchlistChanges = new ArrayList<>(1);
+
+        checkPhilmState(movie, libraryChanges, watchlistChanges);
+        publishListChanges(libraryChanges, watchlistChanges);
+    }
+
+    /**
+     * Updates the library and watchlist membership of {@code movie}, recording any insertions or
+     * removals into the given change lists. Call {@link #publishListChanges(List, List)} once all
+     * movies have been checked.
+     */
+    protected void checkPhilmState(PhilmMovie movie,
+            List<MoviesState.MovieChange> libraryChanges,
+            List<MoviesState.MovieChange> watchlistChanges) {
+        if (!MoviesState.MovieChange.canTrack(movie)) {
+            // Without an id the movie can not be found in, or published to, the lists
+            return;
+        }
+
+        final SortedMovieList library = mMoviesState.getLibrary();
+        final SortedMovieList watchlist = mMoviesState.getWatchlist();
+
+        // The movie's sort title may have changed
+        if (library != null) {
+            library.update(movie);
+        }
+        if (watchlist != null) {
+            watchlist.update(movie);
+        }
 
         if (!PhilmCollections.isEmpty(library)) {
             final boolean shouldBeInLibrary = movie.isWatched() || movie.inCollection();
 
             if (shouldBeInLibrary != library.contains(movie)) {
                 if (shouldBeInLibrary) {
-                    library.add(movie);
-                    Collections.sort(library, PhilmMovie.COMPARATOR_SORT_TITLE);
+                    library.insert(movie);
+                    libraryChanges.add(new MoviesState.MovieChange(
+                            MoviesState.MovieChange.Type.INSERTED, movie));
                 } else {
                     library.remove(movie);
+                    libraryChanges.add(new MoviesState.MovieChange(
+                            MoviesState.MovieChange.Type.REMOVED, movie));
                 }
             }
         }
@@ -104,15 +138,28 @@ public abstract class BaseMovieRunnable<R> extends NetworkCallRunnable<R> {
             final boolean shouldBeInWatchlist = movie.inWatchlist();
             if (shouldBeInWatchlist != watchlist.contains(movie)) {
                 if (shouldBeInWatchlist) {
-                    watchlist.add(movie);
-                    Collections.sort(watchlist, PhilmMovie.COMPARATOR_SORT_TITLE);
+                    watchlist.insert(movie);
+                    watchlistChanges.add(new MoviesState.MovieChange(
+                            MoviesState.MovieChange.Type.INSERTED, movie));
                 } else {
                     watchlist.remove(movie);
+                    watchlistChanges.add(new MoviesState.MovieChange(
+                            MoviesState.MovieChange.Type.REMOVED, movie));
                 }
             }
         }
     }
 
+    protected void publishListChanges(List<MoviesState.MovieChange> libraryChanges,
+            List<MoviesState.MovieChange> watchlistChanges) {
+        if (!PhilmCollections.isEmpty(libraryChanges)) {
+            mMoviesState.publishLibraryChanges(libraryChanges);
+        }
+        if (!PhilmCollections.isEmpty(watchlistChanges)) {
+            mMoviesState.publishWatchlistChanges(watchlistChanges);
+        }
+    }
+
     protected Tmdb getTmdbClient() {
         return mLazyTmdbClient.get();
     }
@@ -145,6 +192,10 @@ public abstract class BaseMovieRunnable<R> extends NetworkCallRunnable<R> {
         return mLazyTmdbPersonEntityMapper.get();
     }
 
+    protected TmdbPersonCreditEntityMapper getTmdbPersonCreditEntityMapper() {
+        return mLazyTmdbPersonCreditEntityMapper.get();
+    }
+
     protected Bus getEventBus() {
         return mEventBus.get();
     }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.tasks;
+
+import java.io.File;
+
+import javax.inject.Inject;
+
+import app.philm.in.network.BackgroundCallRunnable;
+import app.philm.in.util.FileManager;
+import app.philm.in.util.Logger;
+
+public abstract class BasePersistedMoviesStateRunnable<R> extends BackgroundCallRunnable<R> {
+
+    static final String FILENAME_MOVIES_STATE = "movies.state";
+
+    /**
+     * Written at the start of the file, before the gzipped state.
+     */
+    static final int FILE_MAGIC = 0x50484c4d;
+
+    /**
+     * Files larger than this are never written or read.
+     */
+    static final long MAX_FILE_SIZE = 1024 * 1024; // 1MB
+
+    @Inject FileManager mFileManager;
+    @Inject Logger mLogger;
+
+    File getStateFile() {
+        return mFileManager.getFile(FILENAME_MOVIES_STATE);
+    }
+
+    File getTempStateFile() {
+        return mFileManager.getFile(FILENAME_MOVIES_STATE + ".tmp");
+    }
+}
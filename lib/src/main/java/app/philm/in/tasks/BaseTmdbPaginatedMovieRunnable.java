@@ -16,10 +16,14 @@
 
 package app.philm.in.tasks;
 
+import com.uwetrottmann.tmdb.entities.Movie;
 import com.uwetrottmann.tmdb.entities.MovieResultsPage;
 
+import java.util.List;
+
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 
 abstract class BaseTmdbPaginatedMovieRunnable extends BaseTmdbPaginatedRunnable<
         MoviesState.MoviePaginatedResult, PhilmMovie, MovieResultsPage> {
@@ -28,13 +32,18 @@ abstract class BaseTmdbPaginatedMovieRunnable extends BaseTmdbPaginatedRunnable<
         super(callingId, page);
     }
 
+    @Override
+    protected List<MappedEntity<Movie, PhilmMovie>> mapPage(MovieResultsPage tmdbResult) {
+        return getTmdbMovieEntityMapper().prepareAll(tmdbResult.results);
+    }
+
     @Override
     protected void updatePaginatedResult(
             MoviesState.MoviePaginatedResult result,
-            MovieResultsPage tmdbResult) {
-        result.items.addAll(getTmdbMovieEntityMapper().mapAll(tmdbResult.results));
+            MovieResultsPage tmdbResult,
+            List<PhilmMovie> items) {
+        result.addPage(tmdbResult.page, items, getMaxPages());
 
-        result.page = tmdbResult.page;
         if (tmdbResult.total_pages != null) {
             result.totalPages = tmdbResult.total_pages;
         }
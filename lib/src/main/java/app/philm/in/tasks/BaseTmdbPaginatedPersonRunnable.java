@@ -16,10 +16,14 @@
 
 package app.philm.in.tasks;
 
+import com.uwetrottmann.tmdb.entities.Person;
 import com.uwetrottmann.tmdb.entities.PersonResultsPage;
 
+import java.util.List;
+
 import app.philm.in.model.PhilmPerson;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 
 abstract class BaseTmdbPaginatedPersonRunnable extends BaseTmdbPaginatedRunnable<
         MoviesState.PersonPaginatedResult, PhilmPerson, PersonResultsPage> {
@@ -28,13 +32,18 @@ abstract class BaseTmdbPaginatedPersonRunnable extends BaseTmdbPaginatedRunnable
         super(callingId, page);
     }
 
+    @Override
+    protected List<MappedEntity<Person, PhilmPerson>> mapPage(PersonResultsPage tmdbResult) {
+        return getTmdbPersonEntityMapper().prepareAll(tmdbResult.results);
+    }
+
     @Override
     protected void updatePaginatedResult(
             MoviesState.PersonPaginatedResult result,
-            PersonResultsPage tmdbResult) {
-        result.items.addAll(getTmdbPersonEntityMapper().mapAll(tmdbResult.results));
+            PersonResultsPage tmdbResult,
+            List<PhilmPerson> items) {
+        result.addPage(tmdbResult.page, items, getMaxPages());
 
-        result.page = tmdbResult.page;
         if (tmdbResult.total_pages != null) {
             result.totalPages = tmdbResult.total_pages;
         }
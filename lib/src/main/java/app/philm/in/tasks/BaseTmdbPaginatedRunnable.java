@@ -17,20 +17,29 @@
 package app.philm.in.tasks;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.BaseState;
+import app.philm.in.state.mappers.MappedEntity;
 
 abstract class BaseTmdbPaginatedRunnable<R extends BaseState.PaginatedResult<PE>, PE, TR>
         extends BaseMovieRunnable<TR> {
 
     private final int mPage;
 
+    private List<? extends MappedEntity<?, PE>> mPageItems;
+
     BaseTmdbPaginatedRunnable(int callingId, int page) {
         super(callingId);
         mPage = page;
     }
 
+    @Override
+    public final void transformResult(TR result) {
+        mPageItems = mapPage(result);
+    }
+
     @Override
     public final void onSuccess(TR result) {
         if (result != null) {
@@ -41,7 +50,7 @@ abstract class BaseTmdbPaginatedRunnable<R extends BaseState.PaginatedResult<PE>
                 paginatedResult.items = new ArrayList<>();
             }
 
-            updatePaginatedResult(paginatedResult, result);
+            updatePaginatedResult(paginatedResult, result, MappedEntity.applyAll(mPageItems));
             updateState(paginatedResult);
         }
     }
@@ -55,7 +64,23 @@ abstract class BaseTmdbPaginatedRunnable<R extends BaseState.PaginatedResult<PE>
         return mPage;
     }
 
-    protected abstract void updatePaginatedResult(R result, TR tmdbResult);
+    /**
+     * @return the maximum number of pages to keep in the result, or zero to keep every page.
+     */
+    protected int getMaxPages() {
+        return 0;
+    }
+
+    /**
+     * Called on the background thread to prepare the items in {@code tmdbResult}, which are
+     * applied on the main thread before {@link #updatePaginatedResult} is called.
+     */
+    protected abstract List<? extends MappedEntity<?, PE>> mapPage(TR tmdbResult);
+
+    /**
+     * @param items the items applied from {@code tmdbResult} after {@link #mapPage(Object)}.
+     */
+    protected abstract void updatePaginatedResult(R result, TR tmdbResult, List<PE> items);
 
     protected abstract R getResultFromState();
 
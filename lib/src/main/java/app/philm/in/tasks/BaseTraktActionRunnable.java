@@ -23,6 +23,7 @@ import com.jakewharton.trakt.entities.Response;
 import com.jakewharton.trakt.services.MovieService;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
@@ -74,23 +75,29 @@ abstract class BaseTraktActionRunnable extends BaseMovieRunnable<Response> {
 
     private void onActionCompleted(final boolean successful) {
         if (successful) {
-            ArrayList<PhilmMovie> result = new ArrayList<>(mIds.length);
+            final ArrayList<PhilmMovie> result = new ArrayList<>(mIds.length);
+            final ArrayList<MoviesState.MovieChange> libraryChanges = new ArrayList<>();
+            final ArrayList<MoviesState.MovieChange> watchlistChanges = new ArrayList<>();
+
             for (int i = 0; i < mIds.length; i++) {
-                PhilmMovie movie = onSuccessfulAction(mIds[i]);
+                PhilmMovie movie = onSuccessfulAction(mIds[i], libraryChanges, watchlistChanges);
                 if (movie != null) {
                     result.add(movie);
                 }
             }
 
+            publishListChanges(libraryChanges, watchlistChanges);
             getEventBus().post(new MoviesState.MovieFlagsUpdatedEvent(getCallingId(), result));
         }
     }
 
-    private PhilmMovie onSuccessfulAction(final String movieId) {
+    private PhilmMovie onSuccessfulAction(final String movieId,
+            List<MoviesState.MovieChange> libraryChanges,
+            List<MoviesState.MovieChange> watchlistChanges) {
         PhilmMovie movie = mMoviesState.getMovie(movieId);
         if (movie != null) {
             movieRequiresModifying(movie);
-            checkPhilmState(movie);
+            checkPhilmState(movie, libraryChanges, watchlistChanges);
             return movie;
         }
         return null;
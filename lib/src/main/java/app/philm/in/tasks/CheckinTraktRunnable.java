@@ -18,12 +18,14 @@ package app.philm.in.tasks;
 
 import com.google.common.base.Preconditions;
 import com.jakewharton.trakt.entities.CheckinResponse;
+import com.jakewharton.trakt.entities.Movie;
 import com.jakewharton.trakt.entities.Share;
 import com.jakewharton.trakt.services.MovieService;
 
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.WatchingMovie;
 import app.philm.in.network.NetworkError;
+import app.philm.in.state.mappers.MappedEntity;
 import retrofit.RetrofitError;
 
 public class CheckinTraktRunnable extends BaseMovieRunnable<CheckinResponse> {
@@ -35,6 +37,8 @@ public class CheckinTraktRunnable extends BaseMovieRunnable<CheckinResponse> {
     private boolean mSharePath;
     private boolean mShareTumblr;
 
+    private MappedEntity<Movie, PhilmMovie> mMovie;
+
     public CheckinTraktRunnable(int callingId, String id, String message, boolean shareFacebook,
             boolean shareTwitter, boolean sharePath, boolean shareTumblr) {
         super(callingId);
@@ -60,10 +64,17 @@ public class CheckinTraktRunnable extends BaseMovieRunnable<CheckinResponse> {
         return getTraktClient().movieService().checkin(checkin);
     }
 
+    @Override
+    public void transformResult(CheckinResponse result) {
+        if (RESULT_TRAKT_SUCCESS.equals(result.status)) {
+            mMovie = getTraktMovieEntityMapper().prepare(result.movie);
+        }
+    }
+
     @Override
     public void onSuccess(CheckinResponse result) {
         if (RESULT_TRAKT_SUCCESS.equals(result.status)) {
-            PhilmMovie movie = getTraktMovieEntityMapper().map(result.movie);
+            final PhilmMovie movie = mMovie.apply();
 
             if (movie != null) {
                 long startTime = 0;
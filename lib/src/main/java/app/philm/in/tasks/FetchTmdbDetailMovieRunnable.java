@@ -18,41 +18,92 @@ package app.philm.in.tasks;
 
 
 import com.uwetrottmann.tmdb.entities.AppendToResponse;
+import com.uwetrottmann.tmdb.entities.CastMember;
+import com.uwetrottmann.tmdb.entities.CrewMember;
 import com.uwetrottmann.tmdb.entities.Movie;
 import com.uwetrottmann.tmdb.enumerations.AppendToResponseItem;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import app.philm.in.model.PhilmModel;
 import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmPerson;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
 public class FetchTmdbDetailMovieRunnable extends BaseMovieRunnable<Movie> {
 
     private final int mId;
-
-    public FetchTmdbDetailMovieRunnable(int callingId, int id) {
+    private final int mAspects;
+
+    private MappedEntity<Movie, PhilmMovie> mMovie;
+    private List<MappedEntity<Movie, PhilmMovie>> mRelated;
+    private List<MappedEntity<CastMember, PhilmPerson>> mCast;
+    private List<MappedEntity<CrewMember, PhilmPerson>> mCrew;
+
+    /**
+     * @param aspects the {@code PhilmMovie.TMDB_ASPECT_} flags to fetch. The summary is always
+     *                fetched, with the others appended to it.
+     */
+    public FetchTmdbDetailMovieRunnable(int callingId, int id, int aspects) {
         super(callingId);
         mId = id;
+        mAspects = aspects | PhilmMovie.TMDB_ASPECT_SUMMARY;
     }
 
     @Override
     public Movie doBackgroundCall() throws RetrofitError {
         return getTmdbClient().moviesService().summary(mId,
                 getCountryProvider().getTwoLetterLanguageCode(),
-                new AppendToResponse(
-                        AppendToResponseItem.CREDITS,
-                        AppendToResponseItem.RELEASES,
-                        AppendToResponseItem.VIDEOS,
-                        AppendToResponseItem.SIMILAR
-                )
-        );
+                createAppendToResponse());
+    }
+
+    private AppendToResponse createAppendToResponse() {
+        final List<AppendToResponseItem> items = new ArrayList<>(4);
+        if ((mAspects & PhilmMovie.TMDB_ASPECT_CREDITS) != 0) {
+            items.add(AppendToResponseItem.CREDITS);
+        }
+        if ((mAspects & PhilmMovie.TMDB_ASPECT_RELEASES) != 0) {
+            items.add(AppendToResponseItem.RELEASES);
+        }
+        if ((mAspects & PhilmMovie.TMDB_ASPECT_VIDEOS) != 0) {
+            items.add(AppendToResponseItem.VIDEOS);
+        }
+        if ((mAspects & PhilmMovie.TMDB_ASPECT_SIMILAR) != 0) {
+            items.add(AppendToResponseItem.SIMILAR);
+        }
+
+        if (items.isEmpty()) {
+            return null;
+        }
+        return new AppendToResponse(items.toArray(new AppendToResponseItem[items.size()]));
+    }
+
+    @Override
+    public void transformResult(Movie result) {
+        mMovie = getTmdbMovieEntityMapper().prepare(result);
+
+        // Need to manually update releases here due to entity mapper
+        if (result.similar_movies != null) {
+            mRelated = getTmdbMovieEntityMapper().prepareAll(result.similar_movies.results);
+        }
+
+        if (result.credits != null && !PhilmCollections.isEmpty(result.credits.cast)) {
+            mCast = getTmdbCastEntityMapper().prepareAll(result.credits.cast);
+        }
+
+        if (result.credits != null && !PhilmCollections.isEmpty(result.credits.crew)) {
+            mCrew = getTmdbCrewEntityMapper().prepareAll(result.credits.crew);
+        }
     }
 
     @Override
     public void onSuccess(Movie result) {
-        PhilmMovie movie = getTmdbMovieEntityMapper().map(result);
+        final PhilmMovie movie = mMovie.apply();
         movie.markFullFetchCompleted(PhilmModel.TYPE_TMDB);
 
         // Need to manually update releases here due to country code
@@ -61,22 +112,21 @@ public class FetchTmdbDetailMovieRunnable extends BaseMovieRunnable<Movie> {
                     getCountryProvider().getTwoLetterCountryCode());
         }
 
-        // Need to manually update releases here due to entity mapper
-        if (result.similar_movies != null) {
-            movie.setRelated(getTmdbMovieEntityMapper().mapAll(result.similar_movies.results));
+        if (mRelated != null) {
+            movie.setRelated(MappedEntity.applyAll(mRelated));
         }
-
-        if (result.credits != null && !PhilmCollections.isEmpty(result.credits.cast)) {
-            movie.setCast(getTmdbCastEntityMapper().mapCredits(result.credits.cast));
+        if (mCast != null) {
+            movie.setCast(getTmdbCastEntityMapper().applyCredits(mCast));
         }
-
-        if (result.credits != null && !PhilmCollections.isEmpty(result.credits.crew)) {
-            movie.setCrew(getTmdbCrewEntityMapper().mapCredits(result.credits.crew));
+        if (mCrew != null) {
+            movie.setCrew(getTmdbCrewEntityMapper().applyCredits(mCrew));
         }
 
+        movie.markTmdbAspectsFetched(mAspects);
+
         checkPhilmState(movie);
 
-        getDbHelper().put(movie);
+        getDbHelper().putMovieDetail(movie);
 
         getEventBus().post(new MoviesState.MovieInformationUpdatedEvent(getCallingId(), movie));
     }
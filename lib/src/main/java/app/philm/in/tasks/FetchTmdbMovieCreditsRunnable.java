@@ -19,16 +19,18 @@ package app.philm.in.tasks;
 
 import com.uwetrottmann.tmdb.entities.CastMember;
 import com.uwetrottmann.tmdb.entities.Credits;
+import com.uwetrottmann.tmdb.entities.CrewMember;
 
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
 import app.philm.in.model.PhilmMovie;
-import app.philm.in.model.PhilmMovieCredit;
+import app.philm.in.model.PhilmPerson;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.BaseState;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
@@ -36,6 +38,9 @@ public class FetchTmdbMovieCreditsRunnable extends BaseMovieRunnable<Credits> {
 
     private final int mId;
 
+    private List<MappedEntity<CastMember, PhilmPerson>> mCast;
+    private List<MappedEntity<CrewMember, PhilmPerson>> mCrew;
+
     public FetchTmdbMovieCreditsRunnable(int callingId, int id) {
         super(callingId);
         mId = id;
@@ -46,27 +51,38 @@ public class FetchTmdbMovieCreditsRunnable extends BaseMovieRunnable<Credits> {
         return getTmdbClient().moviesService().credits(mId);
     }
 
+    @Override
+    public void transformResult(Credits result) {
+        if (!PhilmCollections.isEmpty(result.cast)) {
+            // Sort the Cast based on order first
+            Collections.sort(result.cast, new Comparator<CastMember>() {
+                @Override
+                public int compare(CastMember castMember, CastMember castMember2) {
+                    return castMember.order - castMember2.order;
+                }
+            });
+            mCast = getTmdbCastEntityMapper().prepareAll(result.cast);
+        }
+
+        if (!PhilmCollections.isEmpty(result.crew)) {
+            mCrew = getTmdbCrewEntityMapper().prepareAll(result.crew);
+        }
+    }
+
     @Override
     public void onSuccess(Credits result) {
         PhilmMovie movie = mMoviesState.getMovie(mId);
 
         if (movie != null) {
-            if (!PhilmCollections.isEmpty(result.cast)) {
-                // Sort the Cast based on order first
-                Collections.sort(result.cast, new Comparator<CastMember>() {
-                    @Override
-                    public int compare(CastMember castMember, CastMember castMember2) {
-                        return castMember.order - castMember2.order;
-                    }
-                });
-                movie.setCast(getTmdbCastEntityMapper().mapCredits(result.cast));
+            if (mCast != null) {
+                movie.setCast(getTmdbCastEntityMapper().applyCredits(mCast));
             }
-
-            if (!PhilmCollections.isEmpty(result.crew)) {
-                List<PhilmMovieCredit> crew = getTmdbCrewEntityMapper().mapCredits(result.crew);
-                Collections.sort(crew);
-                movie.setCrew(crew);
+            if (mCrew != null) {
+                movie.setCrew(getTmdbCrewEntityMapper().applyCredits(mCrew));
             }
+            movie.markTmdbAspectsFetched(PhilmMovie.TMDB_ASPECT_CREDITS);
+
+            getDbHelper().putMovieDetail(movie);
 
             getEventBus().post(new MoviesState.MovieCastItemsUpdatedEvent(getCallingId(), movie));
         }
@@ -33,6 +33,8 @@ public class FetchTmdbMovieImagesRunnable extends BaseMovieRunnable<Images> {
 
     private final int mId;
 
+    private List<PhilmMovie.BackdropImage> mBackdrops;
+
     public FetchTmdbMovieImagesRunnable(int callingId, int id) {
         super(callingId);
         mId = id;
@@ -43,18 +45,27 @@ public class FetchTmdbMovieImagesRunnable extends BaseMovieRunnable<Images> {
         return getTmdbClient().moviesService().images(mId);
     }
 
+    @Override
+    public void transformResult(Images result) {
+        if (!PhilmCollections.isEmpty(result.backdrops)) {
+            mBackdrops = new ArrayList<>(result.backdrops.size());
+            for (Image image : result.backdrops) {
+                mBackdrops.add(new PhilmMovie.BackdropImage(image));
+            }
+        }
+    }
+
     @Override
     public void onSuccess(Images result) {
         PhilmMovie movie = mMoviesState.getMovie(mId);
 
         if (movie != null) {
-            if (!PhilmCollections.isEmpty(result.backdrops)) {
-                List<PhilmMovie.BackdropImage> backdrops = new ArrayList<>();
-                for (Image image : result.backdrops) {
-                    backdrops.add(new PhilmMovie.BackdropImage(image));
-                }
-                movie.setBackdropImages(backdrops);
+            if (mBackdrops != null) {
+                movie.setBackdropImages(mBackdrops);
             }
+            movie.markTmdbAspectsFetched(PhilmMovie.TMDB_ASPECT_IMAGES);
+            // Only the freshness is persisted, the images themselves are not
+            getDbHelper().put(movie);
 
             getEventBus().post(new MoviesState.MovieImagesUpdatedEvent(getCallingId(), movie));
         }
@@ -45,6 +45,9 @@ public class FetchTmdbMovieTrailersRunnable extends BaseMovieRunnable<Videos> {
 
         if (movie != null) {
             movie.updateWithVideos(result);
+            movie.markTmdbAspectsFetched(PhilmMovie.TMDB_ASPECT_VIDEOS);
+
+            getDbHelper().putMovieDetail(movie);
 
             getEventBus().post(new MoviesState.MovieVideosItemsUpdatedEvent(getCallingId(), movie));
         }
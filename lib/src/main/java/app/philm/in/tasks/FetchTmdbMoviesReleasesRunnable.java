@@ -53,6 +53,7 @@ public class FetchTmdbMoviesReleasesRunnable extends BaseMovieRunnable<Releases>
         PhilmMovie movie = mMoviesState.getMovie(mId);
         if (movie != null) {
             movie.updateWithReleases(result, countryCode);
+            movie.markTmdbAspectsFetched(PhilmMovie.TMDB_ASPECT_RELEASES);
 
             getDbHelper().put(movie);
 
@@ -20,14 +20,13 @@ import com.uwetrottmann.tmdb.entities.PersonCastCredit;
 import com.uwetrottmann.tmdb.entities.PersonCredits;
 import com.uwetrottmann.tmdb.entities.PersonCrewCredit;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.PhilmPerson;
-import app.philm.in.model.PhilmPersonCredit;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
@@ -35,6 +34,9 @@ public class FetchTmdbPersonCreditsRunnable extends BaseMovieRunnable<PersonCred
 
     private final int mId;
 
+    private List<MappedEntity<PersonCastCredit, PhilmMovie>> mCastCredits;
+    private List<MappedEntity<PersonCrewCredit, PhilmMovie>> mCrewCredits;
+
     public FetchTmdbPersonCreditsRunnable(int callingId, int id) {
         super(callingId);
         mId = id;
@@ -45,27 +47,29 @@ public class FetchTmdbPersonCreditsRunnable extends BaseMovieRunnable<PersonCred
         return getTmdbClient().personService().movieCredits(mId);
     }
 
+    @Override
+    public void transformResult(PersonCredits result) {
+        if (!PhilmCollections.isEmpty(result.cast)) {
+            mCastCredits = getTmdbPersonCreditEntityMapper().prepareAll(result.cast);
+        }
+
+        if (!PhilmCollections.isEmpty(result.crew)) {
+            mCrewCredits = getTmdbPersonCreditEntityMapper().prepareAll(result.crew);
+        }
+    }
+
     @Override
     public void onSuccess(PersonCredits result) {
         PhilmPerson person = mMoviesState.getPerson(mId);
 
         if (person != null) {
-            if (!PhilmCollections.isEmpty(result.cast)) {
-                List<PhilmPersonCredit> credits = new ArrayList<>();
-                for (PersonCastCredit credit : result.cast) {
-                    credits.add(new PhilmPersonCredit(credit));
-                }
-                Collections.sort(credits, PhilmPersonCredit.COMPARATOR_SORT_DATE);
-                person.setCastCredits(credits);
+            if (mCastCredits != null) {
+                person.setCastCredits(
+                        getTmdbPersonCreditEntityMapper().applyCastCredits(mCastCredits));
             }
-
-            if (!PhilmCollections.isEmpty(result.crew)) {
-                List<PhilmPersonCredit> credits = new ArrayList<>();
-                for (PersonCrewCredit credit : result.crew) {
-                    credits.add(new PhilmPersonCredit(credit));
-                }
-                Collections.sort(credits, PhilmPersonCredit.COMPARATOR_SORT_DATE);
-                person.setCrewCredits(credits);
+            if (mCrewCredits != null) {
+                person.setCrewCredits(
+                        getTmdbPersonCreditEntityMapper().applyCrewCredits(mCrewCredits));
             }
 
             person.setFetchedCredits(true);
@@ -22,14 +22,13 @@ import com.uwetrottmann.tmdb.entities.PersonCastCredit;
 import com.uwetrottmann.tmdb.entities.PersonCrewCredit;
 import com.uwetrottmann.tmdb.enumerations.AppendToResponseItem;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.PhilmPerson;
-import app.philm.in.model.PhilmPersonCredit;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
@@ -37,6 +36,10 @@ public class FetchTmdbPersonRunnable extends BaseMovieRunnable<Person> {
 
     private final int mId;
 
+    private MappedEntity<Person, PhilmPerson> mPerson;
+    private List<MappedEntity<PersonCastCredit, PhilmMovie>> mCastCredits;
+    private List<MappedEntity<PersonCrewCredit, PhilmMovie>> mCrewCredits;
+
     public FetchTmdbPersonRunnable(int callingId, int id) {
         super(callingId);
         mId = id;
@@ -51,27 +54,34 @@ public class FetchTmdbPersonRunnable extends BaseMovieRunnable<Person> {
     }
 
     @Override
-    public void onSuccess(Person result) {
-        PhilmPerson person = getTmdbPersonEntityMapper().map(result);
-
-        if (person != null && result.movie_credits != null) {
+    public void transformResult(Person result) {
+        mPerson = getTmdbPersonEntityMapper().prepare(result);
 
+        if (result.movie_credits != null) {
             if (!PhilmCollections.isEmpty(result.movie_credits.cast)) {
-                List<PhilmPersonCredit> credits = new ArrayList<>();
-                for (PersonCastCredit credit : result.movie_credits.cast) {
-                    credits.add(new PhilmPersonCredit(credit));
-                }
-                Collections.sort(credits, PhilmPersonCredit.COMPARATOR_SORT_DATE);
-                person.setCastCredits(credits);
+                mCastCredits = getTmdbPersonCreditEntityMapper()
+                        .prepareAll(result.movie_credits.cast);
             }
 
             if (!PhilmCollections.isEmpty(result.movie_credits.crew)) {
-                List<PhilmPersonCredit> credits = new ArrayList<>();
-                for (PersonCrewCredit credit : result.movie_credits.crew) {
-                    credits.add(new PhilmPersonCredit(credit));
-                }
-                Collections.sort(credits, PhilmPersonCredit.COMPARATOR_SORT_DATE);
-                person.setCrewCredits(credits);
+                mCrewCredits = getTmdbPersonCreditEntityMapper()
+                        .prepareAll(result.movie_credits.crew);
+            }
+        }
+    }
+
+    @Override
+    public void onSuccess(Person result) {
+        final PhilmPerson person = mPerson.apply();
+
+        if (person != null && result.movie_credits != null) {
+            if (mCastCredits != null) {
+                person.setCastCredits(
+                        getTmdbPersonCreditEntityMapper().applyCastCredits(mCastCredits));
+            }
+            if (mCrewCredits != null) {
+                person.setCrewCredits(
+                        getTmdbPersonCreditEntityMapper().applyCrewCredits(mCrewCredits));
             }
 
             person.setFetchedCredits(true);
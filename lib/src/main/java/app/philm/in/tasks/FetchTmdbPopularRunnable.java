@@ -18,6 +18,7 @@ package app.philm.in.tasks;
 
 import com.uwetrottmann.tmdb.entities.MovieResultsPage;
 
+import app.philm.in.Constants;
 import app.philm.in.state.MoviesState;
 import retrofit.RetrofitError;
 
@@ -34,6 +35,11 @@ public class FetchTmdbPopularRunnable extends BaseTmdbPaginatedMovieRunnable {
                 getCountryProvider().getTwoLetterLanguageCode());
     }
 
+    @Override
+    protected int getMaxPages() {
+        return Constants.PAGINATED_WINDOW_PAGES;
+    }
+
     @Override
     protected MoviesState.MoviePaginatedResult getResultFromState() {
         return mMoviesState.getPopular();
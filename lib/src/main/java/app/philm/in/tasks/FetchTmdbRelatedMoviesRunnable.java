@@ -16,18 +16,24 @@
 
 package app.philm.in.tasks;
 
+import com.uwetrottmann.tmdb.entities.Movie;
 import com.uwetrottmann.tmdb.entities.MovieResultsPage;
 
+import java.util.List;
+
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.BaseState;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 import retrofit.RetrofitError;
 
 public class FetchTmdbRelatedMoviesRunnable extends BaseMovieRunnable<MovieResultsPage> {
 
     private final int mId;
 
+    private List<MappedEntity<Movie, PhilmMovie>> mRelated;
+
     public FetchTmdbRelatedMoviesRunnable(int callingId, int id) {
         super(callingId);
         mId = id;
@@ -40,12 +46,20 @@ public class FetchTmdbRelatedMoviesRunnable extends BaseMovieRunnable<MovieResul
                 getCountryProvider().getTwoLetterLanguageCode());
     }
 
+    @Override
+    public void transformResult(MovieResultsPage result) {
+        mRelated = getTmdbMovieEntityMapper().prepareAll(result.results);
+    }
+
     @Override
     public void onSuccess(MovieResultsPage result) {
         PhilmMovie movie = mMoviesState.getMovie(String.valueOf(mId));
 
         if (movie != null) {
-            movie.setRelated(getTmdbMovieEntityMapper().mapAll(result.results));
+            movie.setRelated(MappedEntity.applyAll(mRelated));
+            movie.markTmdbAspectsFetched(PhilmMovie.TMDB_ASPECT_SIMILAR);
+
+            getDbHelper().putMovieDetail(movie);
 
             getEventBus().post(new MoviesState.MovieRelatedItemsUpdatedEvent(
                     getCallingId(), movie));
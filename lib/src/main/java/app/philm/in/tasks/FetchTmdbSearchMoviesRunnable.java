@@ -16,25 +16,33 @@
 
 package app.philm.in.tasks;
 
-import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.uwetrottmann.tmdb.entities.MovieResultsPage;
 
+import java.util.List;
+
+import app.philm.in.model.PhilmMovie;
 import app.philm.in.state.MoviesState;
+import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
 public class FetchTmdbSearchMoviesRunnable extends BaseTmdbPaginatedMovieRunnable {
-    private final String mQuery;
+    private final MoviesState.SearchResult mSearchResult;
 
-    public FetchTmdbSearchMoviesRunnable(int callingId, String query, int page) {
+    /**
+     * @param searchResult the result to add to. Results are only added to the search they were
+     *                     requested for, so that an older search never overwrites a newer one.
+     */
+    public FetchTmdbSearchMoviesRunnable(int callingId, MoviesState.SearchResult searchResult,
+            int page) {
         super(callingId, page);
-        mQuery = Preconditions.checkNotNull(query, "query cannot be null");
+        mSearchResult = Preconditions.checkNotNull(searchResult, "searchResult cannot be null");
     }
 
     @Override
     public MovieResultsPage doBackgroundCall() throws RetrofitError {
         return getTmdbClient().searchService().movie(
-                mQuery,
+                mSearchResult.query,
                 getPage(),
                 getCountryProvider().getTwoLetterLanguageCode(),
                 null,
@@ -43,18 +51,24 @@ public class FetchTmdbSearchMoviesRunnable extends BaseTmdbPaginatedMovieRunnabl
                 null);
     }
 
+    @Override
+    protected void updatePaginatedResult(MoviesState.MoviePaginatedResult result,
+            MovieResultsPage tmdbResult, List<PhilmMovie> items) {
+        super.updatePaginatedResult(result, tmdbResult, items);
+        // Local hits from the search index may already be in the result
+        PhilmCollections.removeDuplicates(result.items);
+    }
+
     @Override
     protected MoviesState.MoviePaginatedResult getResultFromState() {
-        MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
-        return searchResult != null ? searchResult.movies : null;
+        return mSearchResult.movies;
     }
 
     @Override
     protected void updateState(MoviesState.MoviePaginatedResult result) {
-        MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
-        if (searchResult != null && Objects.equal(mQuery, searchResult.query)) {
-            searchResult.movies = result;
-            mMoviesState.setSearchResult(searchResult);
+        mSearchResult.movies = result;
+        if (mMoviesState.getSearchResult() == mSearchResult) {
+            mMoviesState.setSearchResult(mSearchResult);
         }
     }
 
@@ -16,38 +16,52 @@
 
 package app.philm.in.tasks;
 
-import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.uwetrottmann.tmdb.entities.PersonResultsPage;
 
+import java.util.List;
+
+import app.philm.in.model.PhilmPerson;
 import app.philm.in.state.MoviesState;
+import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
 public class FetchTmdbSearchPeopleRunnable extends BaseTmdbPaginatedPersonRunnable {
-    private final String mQuery;
+    private final MoviesState.SearchResult mSearchResult;
 
-    public FetchTmdbSearchPeopleRunnable(int callingId, String query, int page) {
+    /**
+     * @param searchResult the result to add to. Results are only added to the search they were
+     *                     requested for, so that an older search never overwrites a newer one.
+     */
+    public FetchTmdbSearchPeopleRunnable(int callingId, MoviesState.SearchResult searchResult,
+            int page) {
         super(callingId, page);
-        mQuery = Preconditions.checkNotNull(query, "query cannot be null");
+        mSearchResult = Preconditions.checkNotNull(searchResult, "searchResult cannot be null");
     }
 
     @Override
     public PersonResultsPage doBackgroundCall() throws RetrofitError {
-        return getTmdbClient().searchService().person(mQuery, getPage(), null, null);
+        return getTmdbClient().searchService().person(mSearchResult.query, getPage(), null, null);
+    }
+
+    @Override
+    protected void updatePaginatedResult(MoviesState.PersonPaginatedResult result,
+            PersonResultsPage tmdbResult, List<PhilmPerson> items) {
+        super.updatePaginatedResult(result, tmdbResult, items);
+        // Local hits from the search index may already be in the result
+        PhilmCollections.removeDuplicates(result.items);
     }
 
     @Override
     protected MoviesState.PersonPaginatedResult getResultFromState() {
-        MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
-        return searchResult != null ? searchResult.people : null;
+        return mSearchResult.people;
     }
 
     @Override
     protected void updateState(MoviesState.PersonPaginatedResult result) {
-        MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
-        if (searchResult != null && Objects.equal(mQuery, searchResult.query)) {
-            searchResult.people = result;
-            mMoviesState.setSearchResult(searchResult);
+        mSearchResult.people = result;
+        if (mMoviesState.getSearchResult() == mSearchResult) {
+            mMoviesState.setSearchResult(mSearchResult);
         }
     }
 
@@ -23,12 +23,15 @@ import app.philm.in.model.PhilmModel;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 import retrofit.RetrofitError;
 
 public class FetchTraktDetailMovieRunnable extends BaseMovieRunnable<Movie> {
 
     private final String mId;
 
+    private MappedEntity<Movie, PhilmMovie> mMovie;
+
     public FetchTraktDetailMovieRunnable(int callingId, String imdbId) {
         super(callingId);
         mId = Preconditions.checkNotNull(imdbId, "id cannot be null");
@@ -39,9 +42,14 @@ public class FetchTraktDetailMovieRunnable extends BaseMovieRunnable<Movie> {
         return getTraktClient().movieService().summary(mId);
     }
 
+    @Override
+    public void transformResult(Movie result) {
+        mMovie = getTraktMovieEntityMapper().prepare(result);
+    }
+
     @Override
     public void onSuccess(Movie result) {
-        PhilmMovie movie = getTraktMovieEntityMapper().map(result);
+        final PhilmMovie movie = mMovie.apply();
         movie.markFullFetchCompleted(PhilmModel.TYPE_TRAKT);
 
         checkPhilmState(movie);
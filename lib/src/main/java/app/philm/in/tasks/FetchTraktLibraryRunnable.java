@@ -23,6 +23,7 @@ import java.util.List;
 
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
+import app.philm.in.state.mappers.MappedEntity;
 import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
@@ -30,6 +31,8 @@ public class FetchTraktLibraryRunnable extends BaseMovieRunnable<List<Movie>> {
 
     private final String mUsername;
 
+    private List<MappedEntity<Movie, PhilmMovie>> mMovies;
+
     public FetchTraktLibraryRunnable(int callingId, String username) {
         super(callingId);
         mUsername = Preconditions.checkNotNull(username, "username cannot be null");
@@ -41,9 +44,18 @@ public class FetchTraktLibraryRunnable extends BaseMovieRunnable<List<Movie>> {
     }
 
     @Override
-    public void onSuccess(List<Movie> result) {
+    public void transformResult(List<Movie> result) {
         if (!PhilmCollections.isEmpty(result)) {
-            List<PhilmMovie> movies = getTraktMovieEntityMapper().mapAll(result);
+            mMovies = getTraktMovieEntityMapper().prepareAll(result);
+            // Sorted here, so that the state only moves the few applied movies out of place
+            MappedEntity.sort(mMovies, PhilmMovie.COMPARATOR_SORT_TITLE);
+        }
+    }
+
+    @Override
+    public void onSuccess(List<Movie> result) {
+        if (mMovies != null) {
+            final List<PhilmMovie> movies = MappedEntity.applyAll(mMovies);
             mMoviesState.setLibrary(movies);
             getDbHelper().mergeLibrary(movies);
         } else {
@@ -21,12 +21,16 @@ import com.jakewharton.trakt.services.RecommendationsService;
 
 import java.util.List;
 
+import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
+import app.philm.in.state.mappers.MappedEntity;
 import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
 public class FetchTraktRecommendationsRunnable extends BaseMovieRunnable<List<Movie>> {
 
+    private List<MappedEntity<Movie, PhilmMovie>> mMovies;
+
     public FetchTraktRecommendationsRunnable(int callingId) {
         super(callingId);
     }
@@ -42,9 +46,16 @@ public class FetchTraktRecommendationsRunnable extends BaseMovieRunnable<List<Mo
     }
 
     @Override
-    public void onSuccess(List<Movie> result) {
+    public void transformResult(List<Movie> result) {
         if (!PhilmCollections.isEmpty(result)) {
-            mMoviesState.setRecommended(getTraktMovieEntityMapper().mapAll(result));
+            mMovies = getTraktMovieEntityMapper().prepareAll(result);
+        }
+    }
+
+    @Override
+    public void onSuccess(List<Movie> result) {
+        if (mMovies != null) {
+            mMoviesState.setRecommended(MappedEntity.applyAll(mMovies));
         } else {
             mMoviesState.setRecommended(null);
         }
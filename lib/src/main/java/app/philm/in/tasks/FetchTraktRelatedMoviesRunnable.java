@@ -24,11 +24,14 @@ import java.util.List;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.mappers.MappedEntity;
 import retrofit.RetrofitError;
 
 public class FetchTraktRelatedMoviesRunnable extends BaseMovieRunnable<List<Movie>> {
     private final String mId;
 
+    private List<MappedEntity<Movie, PhilmMovie>> mRelated;
+
     public FetchTraktRelatedMoviesRunnable(int callingId, String id) {
         super(callingId);
         mId = Preconditions.checkNotNull(id, "id cannot be null");
@@ -39,10 +42,17 @@ public class FetchTraktRelatedMoviesRunnable extends BaseMovieRunnable<List<Movi
         return getTraktClient().movieService().related(mId);
     }
 
+    @Override
+    public void transformResult(List<Movie> result) {
+        mRelated = getTraktMovieEntityMapper().prepareAll(result);
+    }
+
     @Override
     public void onSuccess(List<Movie> result) {
         PhilmMovie movie = mMoviesState.getMovie(mId);
-        movie.setRelated(getTraktMovieEntityMapper().mapAll(result));
+        movie.setRelated(MappedEntity.applyAll(mRelated));
+
+        getDbHelper().putMovieDetail(movie);
 
         getEventBus().post(new MoviesState.MovieRelatedItemsUpdatedEvent(getCallingId(), movie));
     }
@@ -20,12 +20,16 @@ import com.jakewharton.trakt.entities.Movie;
 
 import java.util.List;
 
+import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
+import app.philm.in.state.mappers.MappedEntity;
 import app.philm.in.util.PhilmCollections;
 import retrofit.RetrofitError;
 
 public class FetchTraktTrendingRunnable extends BaseMovieRunnable<List<Movie>> {
 
+    private List<MappedEntity<Movie, PhilmMovie>> mMovies;
+
     public FetchTraktTrendingRunnable(int callingId) {
         super(callingId);
     }
@@ -36,9 +40,16 @@ public class FetchTraktTrendingRunnable extends BaseMovieRunnable<List<Movie>> {
     }
 
     @Override
-    public void onSuccess(List<Movie> result) {
+    public void transformResult(List<Movie> result) {
         if (!PhilmCollections.isEmpty(result)) {
-            mMoviesState.setTrending(getTraktMovieEntityMapper().mapAll(result));
+            mMovies = getTraktMovieEntityMapper().prepareAll(result);
+        }
+    }
+
+    @Override
+    public void onSuccess(List<Movie> result) {
+        if (mMovies != null) {
+            mMoviesState.setTrending(MappedEntity.applyAll(mMovies));
         } else {
             mMoviesState.setTrending(null);
         }
@@ -17,18 +17,22 @@
 package app.philm.in.tasks;
 
 import com.google.common.base.Preconditions;
+import com.jakewharton.trakt.entities.Movie;
 import com.jakewharton.trakt.entities.WatchingBase;
 import com.jakewharton.trakt.enumerations.ActivityType;
 
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.WatchingMovie;
 import app.philm.in.network.NetworkError;
+import app.philm.in.state.mappers.MappedEntity;
 import retrofit.RetrofitError;
 
 public class FetchTraktWatchingRunnable extends BaseMovieRunnable<WatchingBase> {
 
     private final String mUsername;
 
+    private MappedEntity<Movie, PhilmMovie> mMovie;
+
     public FetchTraktWatchingRunnable(int callingId, String username) {
         super(callingId);
         mUsername = Preconditions.checkNotNull(username, "username cannot be null");
@@ -39,11 +43,18 @@ public class FetchTraktWatchingRunnable extends BaseMovieRunnable<WatchingBase>
         return getTraktClient().userService().watching(mUsername);
     }
 
+    @Override
+    public void transformResult(WatchingBase result) {
+        if (result.type == ActivityType.Movie && WatchingMovie.validAction(result.action)) {
+            mMovie = getTraktMovieEntityMapper().prepare(result.movie);
+        }
+    }
+
     @Override
     public void onSuccess(WatchingBase result) {
         if (result.type == ActivityType.Movie && WatchingMovie.validAction(result.action)) {
 
-            PhilmMovie movie = getTraktMovieEntityMapper().map(result.movie);
+            final PhilmMovie movie = mMovie.apply();
             if (movie != null) {
                 // TODO Fix timestamps
                 WatchingMovie watching = new WatchingMovie(movie,
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.tasks;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import app.philm.in.Constants;
+import app.philm.in.state.PersistedMoviesState;
+
+/**
+ * Reads the {@link PersistedMoviesState} written by {@link WritePersistedMoviesStateRunnable}.
+ * Returns null if there is no file, or if it is invalid, from a different version or stale.
+ * The result is delivered to the {@link Callback} on the main thread.
+ */
+public class ReadPersistedMoviesStateRunnable
+        extends BasePersistedMoviesStateRunnable<PersistedMoviesState> {
+
+    private static final String LOG_TAG = ReadPersistedMoviesStateRunnable.class.getSimpleName();
+
+    public interface Callback {
+        public void onPersistedStateRead(PersistedMoviesState state);
+    }
+
+    private final Callback mCallback;
+
+    public ReadPersistedMoviesStateRunnable(Callback callback) {
+        mCallback = Preconditions.checkNotNull(callback, "callback cannot be null");
+    }
+
+    @Override
+    public PersistedMoviesState runAsync() {
+        final File file = getStateFile();
+        if (!file.exists()) {
+            return null;
+        }
+
+        if (file.length() > MAX_FILE_SIZE) {
+            file.delete();
+            return null;
+        }
+
+        final long start = System.currentTimeMillis();
+        PersistedMoviesState state = null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            if (in.readInt() == FILE_MAGIC && in.readInt() == PersistedMoviesState.VERSION) {
+                state = PersistedMoviesState.readFrom(
+                        new DataInputStream(new GZIPInputStream(in)));
+            }
+        } catch (IOException e) {
+            mLogger.e(LOG_TAG, "Failed to read persisted state: " + e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Everything needed has already been read
+                }
+            }
+        }
+
+        if (state == null) {
+            // Corrupt, truncated or from another version, so remove it
+            file.delete();
+            return null;
+        }
+
+        if (System.currentTimeMillis() - state.getSavedTime()
+                > Constants.STALE_PERSISTED_STATE_THRESHOLD) {
+            if (Constants.DEBUG) {
+                mLogger.d(LOG_TAG, "Persisted state is stale, ignoring");
+            }
+            return null;
+        }
+
+        if (Constants.DEBUG) {
+            mLogger.d(LOG_TAG, "Read persisted state in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+
+        return state;
+    }
+
+    @Override
+    public void postExecute(PersistedMoviesState result) {
+        mCallback.onPersistedStateRead(result);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.tasks;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import app.philm.in.Constants;
+import app.philm.in.state.PersistedMoviesState;
+
+/**
+ * Writes a {@link PersistedMoviesState} to a temporary file, and then renames it over the
+ * existing file so that a partially written file is never read.
+ */
+public class WritePersistedMoviesStateRunnable extends BasePersistedMoviesStateRunnable<Void> {
+
+    private static final String LOG_TAG = WritePersistedMoviesStateRunnable.class.getSimpleName();
+
+    private final PersistedMoviesState mState;
+
+    public WritePersistedMoviesStateRunnable(PersistedMoviesState state) {
+        mState = Preconditions.checkNotNull(state, "state cannot be null");
+    }
+
+    @Override
+    public Void runAsync() {
+        final long start = System.currentTimeMillis();
+        final File tempFile = getTempStateFile();
+
+        boolean written = false;
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(PersistedMoviesState.VERSION);
+
+            GZIPOutputStream gzip = new GZIPOutputStream(out);
+            DataOutputStream gzipOut = new DataOutputStream(gzip);
+            mState.writeTo(gzipOut);
+            gzipOut.flush();
+            gzip.finish();
+
+            written = true;
+        } catch (IOException e) {
+            mLogger.e(LOG_TAG, "Failed to write persisted state: " + e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    mLogger.e(LOG_TAG, "Failed to write persisted state: " + e);
+                    written = false;
+                }
+            }
+        }
+
+        if (!written || tempFile.length() > MAX_FILE_SIZE) {
+            tempFile.delete();
+            return null;
+        }
+
+        final File file = getStateFile();
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+        }
+
+        if (Constants.DEBUG) {
+            mLogger.d(LOG_TAG, "Wrote persisted state (" + file.length() + " bytes) in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+
+        return null;
+    }
+}
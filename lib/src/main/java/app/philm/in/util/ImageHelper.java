@@ -24,7 +24,6 @@ import java.net.URLEncoder;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.PhilmMovieVideo;
 import app.philm.in.model.PhilmPerson;
-import app.philm.in.model.PhilmPersonCredit;
 
 public class ImageHelper {
 
@@ -60,13 +59,6 @@ public class ImageHelper {
         mTmdbProfileSizes = tmdbProfileSizes;
     }
 
-    public String getPosterUrl(final PhilmPersonCredit credit, final int width, final int height) {
-        final String imageUrl = credit.getPosterPath();
-        Preconditions.checkNotNull(imageUrl, "movie must have poster url");
-        String url = buildTmdbPosterUrl(imageUrl, width, RESIZE_ALL);
-        return RESIZE_ALL ? getResizedUrl(url, width, height) : url;
-    }
-
     public String getPosterUrl(final PhilmMovie movie, final int width, final int height) {
         String url = null;
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import java.util.List;
+
+import app.philm.in.model.PhilmMovie;
+
+public interface ImagePrefetcher {
+
+    /**
+     * @return the number of posters in the first row of a movie grid
+     */
+    public int getPostersPerRow();
+
+    /**
+     * Loads the posters of {@code movies} into the image cache at low priority, at the size a
+     * movie grid displays them, without displaying them.
+     */
+    public void prefetchPosters(List<PhilmMovie> movies);
+
+}
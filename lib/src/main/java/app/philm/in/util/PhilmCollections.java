@@ -17,6 +17,8 @@
 package app.philm.in.util;
 
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 public class PhilmCollections {
 
@@ -28,4 +30,15 @@ public class PhilmCollections {
         return collection != null ? collection.size() : 0;
     }
 
+    /**
+     * Removes any items which are equal to an earlier item in {@code list}, keeping its order.
+     */
+    public static <T> void removeDuplicates(List<T> list) {
+        final LinkedHashSet<T> unique = new LinkedHashSet<>(list);
+        if (unique.size() != list.size()) {
+            list.clear();
+            list.addAll(unique);
+        }
+    }
+
 }